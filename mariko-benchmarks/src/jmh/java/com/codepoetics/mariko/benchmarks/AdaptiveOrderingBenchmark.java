@@ -0,0 +1,45 @@
+package com.codepoetics.mariko.benchmarks;
+
+import com.codepoetics.mariko.InterpretationContext;
+import com.codepoetics.mariko.api.Interpreter;
+import com.codepoetics.mariko.benchmarks.BenchmarkModel.Instruction;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A stream of instructions in which nine in ten are of the last-declared subtype, interpreted with builders tried
+ * in declaration order and with builders reordered by how often they match.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+public class AdaptiveOrderingBenchmark {
+
+    private static final String[] SKEWED_INSTRUCTIONS = {
+            "add a b", "add b c", "add c d", "add d a", "cpy 41 a",
+            "add a c", "add b d", "add c a", "add d b", "add a d"
+    };
+
+    @Param({"false", "true"})
+    public boolean adaptive;
+
+    private Interpreter<Instruction> interpreter;
+
+    @Setup
+    public void setUp() {
+        var context = new InterpretationContext();
+        if (adaptive) context.adaptBuilderOrder();
+
+        interpreter = context.makeInterpreter(Instruction.class);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(10)
+    public void skewedStream(Blackhole blackhole) {
+        for (String instruction : SKEWED_INSTRUCTIONS) {
+            blackhole.consume(interpreter.interpret(instruction));
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package com.codepoetics.mariko.benchmarks;
+
+import com.codepoetics.mariko.api.FromKeyword;
+import com.codepoetics.mariko.api.FromList;
+import com.codepoetics.mariko.api.FromMap;
+import com.codepoetics.mariko.api.FromPattern;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Target types shared by the benchmarks, modelled on the shapes used in the tests and README.
+ */
+public final class BenchmarkModel {
+
+    private BenchmarkModel() {
+    }
+
+    @FromPattern("\\((-?\\d+),\\s?(-?\\d+)\\)")
+    public record Point(long x, long y) { }
+
+    @FromPattern("Item #(\\d+) is at position (.*)")
+    public record ItemPosition(int itemId, Point position) { }
+
+    @FromPattern("Group (\\d+)\\n(?s)(.*)")
+    public record ItemGroup(int groupId, @FromList("\\n") List<ItemPosition> items) { }
+
+    public sealed interface Instruction permits
+            Instruction.Cpy,
+            Instruction.Inc,
+            Instruction.Dec,
+            Instruction.Jnz,
+            Instruction.Tgl,
+            Instruction.Out,
+            Instruction.Mul,
+            Instruction.Add {
+
+        @FromPattern("cpy (-?\\d+|[a-z]) ([a-z])")
+        record Cpy(String source, char target) implements Instruction { }
+
+        @FromPattern("inc ([a-z])")
+        record Inc(char register) implements Instruction { }
+
+        @FromPattern("dec ([a-z])")
+        record Dec(char register) implements Instruction { }
+
+        @FromPattern("jnz (-?\\d+|[a-z]) (-?\\d+|[a-z])")
+        record Jnz(String test, String offset) implements Instruction { }
+
+        @FromPattern("tgl ([a-z])")
+        record Tgl(char register) implements Instruction { }
+
+        @FromPattern("out ([a-z])")
+        record Out(char register) implements Instruction { }
+
+        @FromPattern("mul ([a-z]) ([a-z]) ([a-z])")
+        record Mul(char lhs, char rhs, char target) implements Instruction { }
+
+        @FromPattern("add ([a-z]) ([a-z])")
+        record Add(char lhs, char target) implements Instruction { }
+    }
+
+    @FromPattern("values: (.*)")
+    public record Numbers(@FromList(",") List<Integer> values) { }
+
+    @FromPattern("values: (.*)")
+    public record NumberArray(@FromList(",") int[] values) { }
+
+    @FromPattern("values: (.*)")
+    public record CompactNumbers(@FromList(value = ",", compact = true) List<Integer> values) { }
+
+    @FromPattern("path: (.*)")
+    public record Path(@FromList(" -> ") List<Point> points) { }
+
+    @FromPattern("path: (.*)")
+    public record LazyPath(@FromList(value = " -> ", lazy = true) List<Point> points) { }
+
+    @FromPattern("(\\d+)=(\\d+)")
+    public record Count(int id, int count) { }
+
+    @FromPattern("counts: (.*)")
+    public record CountList(@FromList(",") List<Count> counts) { }
+
+    @FromPattern("counts: (.*)")
+    public record CountMap(@FromMap(",") Map<Integer, Integer> counts) { }
+
+    @FromPattern("counts: (.*)")
+    public record CompactCountMap(@FromMap(value = ",", compact = true) Map<Integer, Integer> counts) { }
+
+    public enum Colour {
+        RED, ORANGE, YELLOW, GREEN, BLUE, INDIGO, VIOLET,
+        BLACK, WHITE, @FromKeyword("gray") GREY, BROWN, PINK, CYAN, MAGENTA,
+        MAROON, NAVY, OLIVE, TEAL, SILVER, GOLD
+    }
+
+    @FromPattern("(\\w+) light")
+    public record Light(Colour colour) { }
+
+    public sealed interface Expr permits Expr.Literal, Expr.Sum {
+
+        @FromPattern("(-?\\d+)")
+        record Literal(long value) implements Expr { }
+
+        @FromPattern("\\((.*) \\+ (.*)\\)")
+        record Sum(Expr lhs, Expr rhs) implements Expr { }
+    }
+
+    @FromPattern("(.*),(.*),(.*),(.*),(\\d+)")
+    public record Fields(String first, String second, String third, String fourth, int count) { }
+}
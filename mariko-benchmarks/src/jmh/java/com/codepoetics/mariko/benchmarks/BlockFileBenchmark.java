@@ -0,0 +1,62 @@
+package com.codepoetics.mariko.benchmarks;
+
+import com.codepoetics.mariko.InterpretationContext;
+import com.codepoetics.mariko.api.Interpreter;
+import com.codepoetics.mariko.benchmarks.BenchmarkModel.ItemGroup;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Interpreting a file of blocks separated by blank lines: reading the whole file and splitting it into blocks, against
+ * reading one block at a time with {@code interpretBlocks}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+public class BlockFileBenchmark {
+
+    private static final int BLOCK_COUNT = 10_000;
+
+    private static final int LINES_PER_BLOCK = 10;
+
+    private Path file;
+    private Interpreter<ItemGroup> interpreter;
+
+    @Setup
+    public void setUp() throws IOException {
+        file = Files.createTempFile("mariko-benchmark", ".txt");
+        Files.writeString(file, IntStream.range(0, BLOCK_COUNT)
+                .mapToObj(block -> "Group %d\n".formatted(block) + IntStream.range(0, LINES_PER_BLOCK)
+                        .mapToObj(i -> "Item #%d is at position (%d, %d)".formatted(i, block % 97, -i))
+                        .collect(Collectors.joining("\n")))
+                .collect(Collectors.joining("\n\n", "", "\n")));
+        interpreter = InterpretationContext.DEFAULT.makeInterpreter(ItemGroup.class);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public long readWholeFile() throws IOException {
+        return Arrays.stream(Files.readString(file).split("\n\n"))
+                .map(block -> interpreter.interpret(block.strip()))
+                .mapToLong(group -> group.items().size())
+                .sum();
+    }
+
+    @Benchmark
+    public long interpretBlocks() throws IOException {
+        try (var groups = InterpretationContext.DEFAULT.interpretBlocks(ItemGroup.class, file)) {
+            return groups.mapToLong(group -> group.items().size()).sum();
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.codepoetics.mariko.benchmarks;
+
+import com.codepoetics.mariko.InterpretationContext;
+import com.codepoetics.mariko.api.Interpreter;
+import com.codepoetics.mariko.benchmarks.BenchmarkModel.ItemPosition;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/**
+ * Interpreting many inputs at once: one at a time on a single thread, against splitting them into chunks with
+ * {@code interpretAll}, for both a list of inputs and the lines of a file.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+public class BulkInterpretationBenchmark {
+
+    private static final int INPUT_COUNT = 1_000_000;
+
+    private List<String> inputs;
+    private Path file;
+    private Interpreter<ItemPosition> interpreter;
+
+    @Setup
+    public void setUp() throws IOException {
+        inputs = IntStream.range(0, INPUT_COUNT)
+                .mapToObj(i -> "Item #%d is at position (%d, %d)".formatted(i, i % 97, -i))
+                .toList();
+        file = Files.createTempFile("mariko-benchmark", ".txt");
+        Files.write(file, inputs);
+        interpreter = InterpretationContext.DEFAULT.makeInterpreter(ItemPosition.class);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public List<ItemPosition> sequentialList() {
+        return inputs.stream().map(interpreter::interpret).toList();
+    }
+
+    @Benchmark
+    public List<ItemPosition> parallelList() {
+        return InterpretationContext.DEFAULT.interpretAll(ItemPosition.class, inputs);
+    }
+
+    @Benchmark
+    public List<ItemPosition> parallelFile() throws IOException {
+        return InterpretationContext.DEFAULT.interpretAll(ItemPosition.class, file);
+    }
+}
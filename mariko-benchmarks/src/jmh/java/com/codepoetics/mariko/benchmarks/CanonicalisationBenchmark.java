@@ -0,0 +1,40 @@
+package com.codepoetics.mariko.benchmarks;
+
+import com.codepoetics.mariko.InterpretationContext;
+import com.codepoetics.mariko.api.Interpreter;
+import com.codepoetics.mariko.benchmarks.BenchmarkModel.Instruction;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A feed which keeps repeating the same few lines, with each result a fresh instance and with equal results (and the
+ * strings within them) shared, which costs a table lookup per value but lets the fresh instances be collected young.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+public class CanonicalisationBenchmark {
+
+    @Param({"false", "true"})
+    public boolean canonicalise;
+
+    private Interpreter<Instruction> interpreter;
+
+    @Setup
+    public void setUp() {
+        var context = new InterpretationContext();
+        if (canonicalise) context.canonicalise(Instruction.class, 1024).canonicalise(String.class, 1024);
+
+        interpreter = context.makeInterpreter(Instruction.class);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(8)
+    public void repeatedLines(Blackhole blackhole) {
+        for (String instruction : Inputs.INSTRUCTIONS) {
+            blackhole.consume(interpreter.interpret(instruction));
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.codepoetics.mariko.benchmarks;
+
+import com.codepoetics.mariko.InterpretationContext;
+import com.codepoetics.mariko.benchmarks.BenchmarkModel.Expr;
+import com.codepoetics.mariko.benchmarks.BenchmarkModel.Instruction;
+import com.codepoetics.mariko.benchmarks.BenchmarkModel.ItemPosition;
+import com.codepoetics.mariko.benchmarks.BenchmarkModel.Numbers;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Many threads asking a new context for the same interpreters at the same moment, as request threads do when a
+ * service starts: each interpreter should be built once, with the other threads waiting for it rather than
+ * building it again themselves.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+public class ColdStartBenchmark {
+
+    @Param({"1", "64"})
+    public int threads;
+
+    private ExecutorService executor;
+
+    @Setup
+    public void setUp() {
+        executor = Executors.newFixedThreadPool(threads);
+    }
+
+    @TearDown
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Benchmark
+    public long coldStart() throws InterruptedException, ExecutionException {
+        var context = new InterpretationContext();
+        var ready = new CountDownLatch(threads);
+
+        List<Future<Long>> results = new ArrayList<>(threads);
+        for (int i = 0; i < threads; i++) {
+            results.add(executor.submit(() -> {
+                ready.countDown();
+                ready.await();
+                return context.makeInterpreter(ItemPosition.class).interpret(Inputs.ITEM_POSITION).itemId()
+                        + context.makeInterpreter(Instruction.class).interpret(Inputs.LAST_INSTRUCTION).hashCode()
+                        + context.makeInterpreter(Numbers.class).interpret(Inputs.NUMBERS).hashCode()
+                        + (long) context.makeInterpreter(Expr.class).interpret(Inputs.EXPR).hashCode();
+            }));
+        }
+
+        long total = 0;
+        for (Future<Long> result : results) {
+            total += result.get();
+        }
+        return total;
+    }
+}
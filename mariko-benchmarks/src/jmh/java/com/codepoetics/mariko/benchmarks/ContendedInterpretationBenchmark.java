@@ -0,0 +1,42 @@
+package com.codepoetics.mariko.benchmarks;
+
+import com.codepoetics.mariko.InterpretationContext;
+import com.codepoetics.mariko.api.Interpreter;
+import com.codepoetics.mariko.benchmarks.BenchmarkModel.Expr;
+import com.codepoetics.mariko.benchmarks.BenchmarkModel.Instruction;
+import com.codepoetics.mariko.benchmarks.BenchmarkModel.ItemPosition;
+import com.codepoetics.mariko.benchmarks.BenchmarkModel.Numbers;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A mixed workload run from every available hardware thread against the shared default context,
+ * to expose any contention in the interpreters themselves or in the interpreter cache.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Threads(Threads.MAX)
+public class ContendedInterpretationBenchmark {
+
+    @Benchmark
+    @OperationsPerInvocation(4)
+    public void mixedWorkload(Blackhole blackhole) {
+        blackhole.consume(interpreter(ItemPosition.class).interpret(Inputs.ITEM_POSITION));
+        blackhole.consume(interpreter(Instruction.class).interpret(Inputs.LAST_INSTRUCTION));
+        blackhole.consume(interpreter(Numbers.class).interpret(Inputs.NUMBERS));
+        blackhole.consume(interpreter(Expr.class).interpret(Inputs.EXPR));
+    }
+
+    @Benchmark
+    public Instruction sealedDispatch() {
+        return interpreter(Instruction.class).interpret(Inputs.LAST_INSTRUCTION);
+    }
+
+    // Looked up on every call, as callers of Interpretation.interpret do.
+    private static <T> Interpreter<T> interpreter(Class<T> targetClass) {
+        return InterpretationContext.DEFAULT.makeInterpreter(targetClass);
+    }
+}
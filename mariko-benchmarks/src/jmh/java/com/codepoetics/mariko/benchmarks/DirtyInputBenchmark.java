@@ -0,0 +1,56 @@
+package com.codepoetics.mariko.benchmarks;
+
+import com.codepoetics.mariko.InterpretationContext;
+import com.codepoetics.mariko.Rejections;
+import com.codepoetics.mariko.api.Interpreter;
+import com.codepoetics.mariko.benchmarks.BenchmarkModel.ItemPosition;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/**
+ * Input where one line in five is rejected, some by the pattern and some by a nested value which does not parse:
+ * rejecting each line with tryInterpret, against collecting rejections in bulk.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+public class DirtyInputBenchmark {
+
+    private static final int INPUT_COUNT = 100_000;
+
+    private List<String> inputs;
+    private Interpreter<ItemPosition> interpreter;
+
+    @Setup
+    public void setUp() {
+        inputs = IntStream.range(0, INPUT_COUNT)
+                .mapToObj(i -> switch (i % 10) {
+                    case 3 -> "Item #%d is nowhere".formatted(i);
+                    case 7 -> "Item #%d is at position (%d9999999999999999999, 0)".formatted(i, i);
+                    default -> "Item #%d is at position (%d, %d)".formatted(i, i % 97, -i);
+                })
+                .toList();
+        interpreter = InterpretationContext.DEFAULT.makeInterpreter(ItemPosition.class);
+    }
+
+    @Benchmark
+    public long tryInterpretEach() {
+        long interpreted = 0;
+        for (String input : inputs) {
+            Optional<ItemPosition> result = interpreter.tryInterpret(input);
+            if (result.isPresent()) interpreted++;
+        }
+        return interpreted;
+    }
+
+    @Benchmark
+    public long collectRejections() {
+        var rejections = new Rejections();
+        InterpretationContext.DEFAULT.interpretAll(ItemPosition.class, inputs, rejections);
+        return rejections.count();
+    }
+}
@@ -0,0 +1,39 @@
+package com.codepoetics.mariko.benchmarks;
+
+import com.codepoetics.mariko.InterpretationContext;
+import com.codepoetics.mariko.api.Interpreter;
+import com.codepoetics.mariko.benchmarks.BenchmarkModel.Light;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Enum parameters, matching the first and the last declared constant, and a keyword given for a constant.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+public class EnumBenchmark {
+
+    private Interpreter<Light> interpreter;
+
+    @Setup
+    public void setUp() {
+        interpreter = InterpretationContext.DEFAULT.makeInterpreter(Light.class);
+    }
+
+    @Benchmark
+    public Light firstConstant() {
+        return interpreter.interpret(Inputs.FIRST_COLOUR);
+    }
+
+    @Benchmark
+    public Light lastConstant() {
+        return interpreter.interpret(Inputs.LAST_COLOUR);
+    }
+
+    @Benchmark
+    public Light keyword() {
+        return interpreter.interpret(Inputs.COLOUR_KEYWORD);
+    }
+}
@@ -0,0 +1,56 @@
+package com.codepoetics.mariko.benchmarks;
+
+import com.codepoetics.mariko.InterpretationContext;
+import com.codepoetics.mariko.api.Interpreter;
+import com.codepoetics.mariko.benchmarks.BenchmarkModel.ItemPosition;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Interpreting every line of a file: decoding each line into a String with {@code Files.lines}, against matching
+ * lines in place through a memory mapping with {@code interpretLines}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+public class FileInterpretationBenchmark {
+
+    private static final int LINE_COUNT = 100_000;
+
+    private Path file;
+    private Interpreter<ItemPosition> interpreter;
+
+    @Setup
+    public void setUp() throws IOException {
+        file = Files.createTempFile("mariko-benchmark", ".txt");
+        Files.writeString(file, IntStream.range(0, LINE_COUNT)
+                .mapToObj(i -> "Item #%d is at position (%d, %d)".formatted(i, i % 97, -i))
+                .collect(Collectors.joining("\n", "", "\n")));
+        interpreter = InterpretationContext.DEFAULT.makeInterpreter(ItemPosition.class);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public long filesLines() throws IOException {
+        try (var lines = Files.lines(file)) {
+            return lines.map(interpreter::interpret).mapToLong(ItemPosition::itemId).sum();
+        }
+    }
+
+    @Benchmark
+    public long interpretLines() throws IOException {
+        try (var positions = InterpretationContext.DEFAULT.interpretLines(ItemPosition.class, file)) {
+            return positions.mapToLong(ItemPosition::itemId).sum();
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.codepoetics.mariko.benchmarks;
+
+import com.codepoetics.mariko.InterpretationContext;
+import com.codepoetics.mariko.benchmarks.BenchmarkModel.Expr;
+import com.codepoetics.mariko.benchmarks.BenchmarkModel.Instruction;
+import com.codepoetics.mariko.benchmarks.BenchmarkModel.ItemPosition;
+import com.codepoetics.mariko.benchmarks.BenchmarkModel.Numbers;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The latency of the first request a fresh context serves, with the interpreters it needs built on demand, prepared
+ * ahead of time, or prepared and warmed up with generated inputs.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+public class FirstRequestBenchmark {
+
+    private static final int WARM_UP_ITERATIONS = 10_000;
+
+    @Param({"none", "built", "warmed"})
+    public String preparation;
+
+    private InterpretationContext context;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        context = new InterpretationContext();
+        switch (preparation) {
+            case "built" -> context.prepare(ItemPosition.class, Instruction.class, Numbers.class, Expr.class);
+            case "warmed" -> context.prepare(WARM_UP_ITERATIONS, ItemPosition.class, Instruction.class, Numbers.class, Expr.class);
+            default -> { }
+        }
+    }
+
+    @Benchmark
+    public long firstRequest() {
+        return context.makeInterpreter(ItemPosition.class).interpret(Inputs.ITEM_POSITION).itemId()
+                + context.makeInterpreter(Instruction.class).interpret(Inputs.LAST_INSTRUCTION).hashCode()
+                + context.makeInterpreter(Numbers.class).interpret(Inputs.NUMBERS).hashCode()
+                + (long) context.makeInterpreter(Expr.class).interpret(Inputs.EXPR).hashCode();
+    }
+}
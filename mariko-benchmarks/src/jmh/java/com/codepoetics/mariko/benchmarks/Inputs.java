@@ -0,0 +1,56 @@
+package com.codepoetics.mariko.benchmarks;
+
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+final class Inputs {
+
+    private Inputs() {
+    }
+
+    static final String POINT = "(-15, 7)";
+
+    static final String ITEM_POSITION = "Item #123 is at position (-15, 7)";
+
+    static final String FIRST_INSTRUCTION = "cpy 41 a";
+
+    static final String LAST_INSTRUCTION = "add a b";
+
+    static final String[] INSTRUCTIONS = {
+            "cpy 41 a",
+            "inc a",
+            "dec b",
+            "jnz a 2",
+            "tgl c",
+            "out d",
+            "mul a b c",
+            "add a b"
+    };
+
+    static final String NUMBERS = "values: " + IntStream.range(0, 100)
+            .mapToObj(Integer::toString)
+            .collect(Collectors.joining(","));
+
+    static final String PATH = "path: " + IntStream.range(0, 20)
+            .mapToObj(i -> "(%d, %d)".formatted(i, -i))
+            .collect(Collectors.joining(" -> "));
+
+    static final String COUNTS = "counts: " + IntStream.range(0, 100)
+            .mapToObj(i -> "%d=%d".formatted(i * 7, i))
+            .collect(Collectors.joining(","));
+
+    static final String FIRST_COLOUR = "red light";
+
+    static final String LAST_COLOUR = "gold light";
+
+    static final String COLOUR_KEYWORD = "gray light";
+
+    static final String EXPR = nestedSum(8);
+
+    // Not quite five fields: a backtracking matcher tries every way of choosing four of the commas before giving up.
+    static final String HOSTILE_FIELDS = "a,".repeat(15) + "!";
+
+    private static String nestedSum(int depth) {
+        return depth == 0 ? "1" : "(" + nestedSum(depth - 1) + " + " + depth + ")";
+    }
+}
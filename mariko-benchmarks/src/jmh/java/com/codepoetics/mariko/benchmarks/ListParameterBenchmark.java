@@ -0,0 +1,68 @@
+package com.codepoetics.mariko.benchmarks;
+
+import com.codepoetics.mariko.InterpretationContext;
+import com.codepoetics.mariko.api.Interpreter;
+import com.codepoetics.mariko.benchmarks.BenchmarkModel.CompactNumbers;
+import com.codepoetics.mariko.benchmarks.BenchmarkModel.LazyPath;
+import com.codepoetics.mariko.benchmarks.BenchmarkModel.NumberArray;
+import com.codepoetics.mariko.benchmarks.BenchmarkModel.Numbers;
+import com.codepoetics.mariko.benchmarks.BenchmarkModel.Path;
+import com.codepoetics.mariko.benchmarks.BenchmarkModel.Point;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@code @FromList} parameters, with primitive items (as boxed lists, primitive arrays and compact lists) and with
+ * nested record items, read eagerly or lazily.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+public class ListParameterBenchmark {
+
+    private Interpreter<Numbers> numbersInterpreter;
+    private Interpreter<NumberArray> numberArrayInterpreter;
+    private Interpreter<CompactNumbers> compactNumbersInterpreter;
+    private Interpreter<Path> pathInterpreter;
+    private Interpreter<LazyPath> lazyPathInterpreter;
+
+    @Setup
+    public void setUp() {
+        numbersInterpreter = InterpretationContext.DEFAULT.makeInterpreter(Numbers.class);
+        numberArrayInterpreter = InterpretationContext.DEFAULT.makeInterpreter(NumberArray.class);
+        compactNumbersInterpreter = InterpretationContext.DEFAULT.makeInterpreter(CompactNumbers.class);
+        pathInterpreter = InterpretationContext.DEFAULT.makeInterpreter(Path.class);
+        lazyPathInterpreter = InterpretationContext.DEFAULT.makeInterpreter(LazyPath.class);
+    }
+
+    @Benchmark
+    public Numbers hundredIntegers() {
+        return numbersInterpreter.interpret(Inputs.NUMBERS);
+    }
+
+    @Benchmark
+    public NumberArray hundredIntegersIntoArray() {
+        return numberArrayInterpreter.interpret(Inputs.NUMBERS);
+    }
+
+    @Benchmark
+    public CompactNumbers hundredIntegersIntoCompactList() {
+        return compactNumbersInterpreter.interpret(Inputs.NUMBERS);
+    }
+
+    @Benchmark
+    public Path twentyPoints() {
+        return pathInterpreter.interpret(Inputs.PATH);
+    }
+
+    @Benchmark
+    public Point firstOfTwentyPoints() {
+        return pathInterpreter.interpret(Inputs.PATH).points().get(0);
+    }
+
+    @Benchmark
+    public Point firstOfTwentyPointsLazily() {
+        return lazyPathInterpreter.interpret(Inputs.PATH).points().get(0);
+    }
+}
@@ -0,0 +1,54 @@
+package com.codepoetics.mariko.benchmarks;
+
+import com.codepoetics.mariko.InterpretationContext;
+import com.codepoetics.mariko.api.Interpreter;
+import com.codepoetics.mariko.benchmarks.BenchmarkModel.CompactCountMap;
+import com.codepoetics.mariko.benchmarks.BenchmarkModel.Count;
+import com.codepoetics.mariko.benchmarks.BenchmarkModel.CountList;
+import com.codepoetics.mariko.benchmarks.BenchmarkModel.CountMap;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@code @FromMap} parameters, as HashMaps and compact maps, against a list of key/value records rebuilt into a map
+ * by hand.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+public class MapParameterBenchmark {
+
+    private Interpreter<CountList> countListInterpreter;
+    private Interpreter<CountMap> countMapInterpreter;
+    private Interpreter<CompactCountMap> compactCountMapInterpreter;
+
+    @Setup
+    public void setUp() {
+        countListInterpreter = InterpretationContext.DEFAULT.makeInterpreter(CountList.class);
+        countMapInterpreter = InterpretationContext.DEFAULT.makeInterpreter(CountMap.class);
+        compactCountMapInterpreter = InterpretationContext.DEFAULT.makeInterpreter(CompactCountMap.class);
+    }
+
+    @Benchmark
+    public Map<Integer, Integer> hundredCountsFromList() {
+        var counts = countListInterpreter.interpret(Inputs.COUNTS).counts();
+        var result = new HashMap<Integer, Integer>();
+        for (Count count : counts) {
+            result.put(count.id(), count.count());
+        }
+        return result;
+    }
+
+    @Benchmark
+    public CountMap hundredCountsIntoMap() {
+        return countMapInterpreter.interpret(Inputs.COUNTS);
+    }
+
+    @Benchmark
+    public CompactCountMap hundredCountsIntoCompactMap() {
+        return compactCountMapInterpreter.interpret(Inputs.COUNTS);
+    }
+}
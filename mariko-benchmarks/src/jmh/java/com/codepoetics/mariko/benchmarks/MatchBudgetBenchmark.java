@@ -0,0 +1,43 @@
+package com.codepoetics.mariko.benchmarks;
+
+import com.codepoetics.mariko.InterpretationContext;
+import com.codepoetics.mariko.api.Interpreter;
+import com.codepoetics.mariko.benchmarks.BenchmarkModel.Fields;
+import com.codepoetics.mariko.benchmarks.BenchmarkModel.ItemPosition;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The cost of counting the characters read while matching ordinary inputs, and the time saved on a hostile one.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+public class MatchBudgetBenchmark {
+
+    @Param({"0", "10000"})
+    public long budget;
+
+    private Interpreter<ItemPosition> itemPositions;
+    private Interpreter<Fields> fields;
+
+    @Setup
+    public void setUp() {
+        var context = new InterpretationContext();
+        if (budget > 0) context.withMatchBudget(budget);
+
+        itemPositions = context.makeInterpreter(ItemPosition.class);
+        fields = context.makeInterpreter(Fields.class);
+    }
+
+    @Benchmark
+    public ItemPosition itemPosition() {
+        return itemPositions.interpret(Inputs.ITEM_POSITION);
+    }
+
+    @Benchmark
+    public boolean hostileInput() {
+        return fields.tryInterpret(Inputs.HOSTILE_FIELDS).isPresent();
+    }
+}
@@ -0,0 +1,39 @@
+package com.codepoetics.mariko.benchmarks;
+
+import com.codepoetics.mariko.InterpretationContext;
+import com.codepoetics.mariko.api.Interpreter;
+import com.codepoetics.mariko.benchmarks.BenchmarkModel.Instruction;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A feed which keeps repeating the same few lines, interpreted afresh every time and with results memoised.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+public class MemoisationBenchmark {
+
+    @Param({"false", "true"})
+    public boolean memoise;
+
+    private Interpreter<Instruction> interpreter;
+
+    @Setup
+    public void setUp() {
+        var context = new InterpretationContext();
+        if (memoise) context.memoise(Instruction.class, 1024);
+
+        interpreter = context.makeInterpreter(Instruction.class);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(8)
+    public void repeatedLines(Blackhole blackhole) {
+        for (String instruction : Inputs.INSTRUCTIONS) {
+            blackhole.consume(interpreter.interpret(instruction));
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.codepoetics.mariko.benchmarks;
+
+import com.codepoetics.mariko.InterpretationContext;
+import com.codepoetics.mariko.LinearPatternEngine;
+import com.codepoetics.mariko.api.Interpreter;
+import com.codepoetics.mariko.benchmarks.BenchmarkModel.Instruction;
+import com.codepoetics.mariko.benchmarks.BenchmarkModel.ItemPosition;
+import com.codepoetics.mariko.benchmarks.BenchmarkModel.Fields;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ordinary and hostile inputs, matched with java.util.regex and with the linear-time engine.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+public class PatternEngineBenchmark {
+
+    @Param({"java", "linear"})
+    public String engine;
+
+    private Interpreter<ItemPosition> itemPositions;
+    private Interpreter<Instruction> instructions;
+    private Interpreter<Fields> fields;
+
+    @Setup
+    public void setUp() {
+        var context = new InterpretationContext();
+        if (engine.equals("linear")) context.withPatternEngine(new LinearPatternEngine());
+
+        itemPositions = context.makeInterpreter(ItemPosition.class);
+        instructions = context.makeInterpreter(Instruction.class);
+        fields = context.makeInterpreter(Fields.class);
+    }
+
+    @Benchmark
+    public ItemPosition itemPosition() {
+        return itemPositions.interpret(Inputs.ITEM_POSITION);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(8)
+    public void instructions(Blackhole blackhole) {
+        for (String instruction : Inputs.INSTRUCTIONS) {
+            blackhole.consume(instructions.interpret(instruction));
+        }
+    }
+
+    @Benchmark
+    public boolean hostileInput() {
+        return fields.tryInterpret(Inputs.HOSTILE_FIELDS).isPresent();
+    }
+}
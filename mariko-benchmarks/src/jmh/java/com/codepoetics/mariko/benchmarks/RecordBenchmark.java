@@ -0,0 +1,59 @@
+package com.codepoetics.mariko.benchmarks;
+
+import com.codepoetics.mariko.InterpretationContext;
+import com.codepoetics.mariko.api.Interpreter;
+import com.codepoetics.mariko.benchmarks.BenchmarkModel.ItemPosition;
+import com.codepoetics.mariko.benchmarks.BenchmarkModel.Point;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Single-builder records: the cost of one pattern match, parameter extraction and instantiation, using the
+ * shared default context and a context which compiles its interpreters.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+public class RecordBenchmark {
+
+    @Param({"default", "compiled"})
+    public String mode;
+
+    private Interpreter<Point> pointInterpreter;
+    private Interpreter<ItemPosition> itemPositionInterpreter;
+    private final StringBuilder buffer = new StringBuilder();
+
+    @Setup
+    public void setUp() {
+        var context = mode.equals("compiled")
+                ? new InterpretationContext().compileInterpreters()
+                : InterpretationContext.DEFAULT;
+
+        pointInterpreter = context.makeInterpreter(Point.class);
+        itemPositionInterpreter = context.makeInterpreter(ItemPosition.class);
+    }
+
+    @Benchmark
+    public Optional<Point> tryInterpretPoint() {
+        return pointInterpreter.tryInterpret(Inputs.POINT);
+    }
+
+    @Benchmark
+    public Optional<Point> tryInterpretNonMatchingPoint() {
+        return pointInterpreter.tryInterpret(Inputs.ITEM_POSITION);
+    }
+
+    @Benchmark
+    public Point interpretReusedBuffer() {
+        buffer.setLength(0);
+        buffer.append(Inputs.POINT);
+        return pointInterpreter.interpret(buffer);
+    }
+
+    @Benchmark
+    public ItemPosition interpretNestedRecord() {
+        return itemPositionInterpreter.interpret(Inputs.ITEM_POSITION);
+    }
+}
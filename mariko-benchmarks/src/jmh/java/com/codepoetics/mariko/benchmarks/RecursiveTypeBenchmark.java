@@ -0,0 +1,29 @@
+package com.codepoetics.mariko.benchmarks;
+
+import com.codepoetics.mariko.InterpretationContext;
+import com.codepoetics.mariko.api.Interpreter;
+import com.codepoetics.mariko.benchmarks.BenchmarkModel.Expr;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A self-referential sealed type, whose nested parameters are resolved through deferred interpreters.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+public class RecursiveTypeBenchmark {
+
+    private Interpreter<Expr> interpreter;
+
+    @Setup
+    public void setUp() {
+        interpreter = InterpretationContext.DEFAULT.makeInterpreter(Expr.class);
+    }
+
+    @Benchmark
+    public Expr nestedSum() {
+        return interpreter.interpret(Inputs.EXPR);
+    }
+}
@@ -0,0 +1,43 @@
+package com.codepoetics.mariko.benchmarks;
+
+import com.codepoetics.mariko.InterpretationContext;
+import com.codepoetics.mariko.api.Interpreter;
+import com.codepoetics.mariko.benchmarks.BenchmarkModel.Instruction;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Dispatch over the permitted subclasses of a sealed interface, best case, worst case and mixed.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+public class SealedDispatchBenchmark {
+
+    private Interpreter<Instruction> interpreter;
+
+    @Setup
+    public void setUp() {
+        interpreter = InterpretationContext.DEFAULT.makeInterpreter(Instruction.class);
+    }
+
+    @Benchmark
+    public Instruction firstDeclaredSubtype() {
+        return interpreter.interpret(Inputs.FIRST_INSTRUCTION);
+    }
+
+    @Benchmark
+    public Instruction lastDeclaredSubtype() {
+        return interpreter.interpret(Inputs.LAST_INSTRUCTION);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(8)
+    public void allSubtypes(Blackhole blackhole) {
+        for (String instruction : Inputs.INSTRUCTIONS) {
+            blackhole.consume(interpreter.interpret(instruction));
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.codepoetics.mariko.benchmarks;
+
+import com.codepoetics.mariko.InterpretationContext;
+import com.codepoetics.mariko.api.Interpreter;
+import com.codepoetics.mariko.benchmarks.BenchmarkModel.Instruction;
+import com.codepoetics.mariko.benchmarks.BenchmarkModel.ItemPosition;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The cost of collecting stats, comparing interpreters made by a context which collects them with those made by one
+ * which does not.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+public class StatsBenchmark {
+
+    @Param({"false", "true"})
+    public boolean collectStats;
+
+    private Interpreter<ItemPosition> itemPositionInterpreter;
+    private Interpreter<Instruction> instructionInterpreter;
+
+    @Setup
+    public void setUp() {
+        var context = new InterpretationContext();
+        if (collectStats) context.collectStats();
+
+        itemPositionInterpreter = context.makeInterpreter(ItemPosition.class);
+        instructionInterpreter = context.makeInterpreter(Instruction.class);
+    }
+
+    @Benchmark
+    public ItemPosition nestedRecord() {
+        return itemPositionInterpreter.interpret(Inputs.ITEM_POSITION);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(8)
+    public void sealedDispatch(Blackhole blackhole) {
+        for (String instruction : Inputs.INSTRUCTIONS) {
+            blackhole.consume(instructionInterpreter.interpret(instruction));
+        }
+    }
+}
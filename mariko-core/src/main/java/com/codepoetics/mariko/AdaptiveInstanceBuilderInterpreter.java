@@ -0,0 +1,128 @@
+package com.codepoetics.mariko;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Tries builders in turn, as {@link FirstMatchingInstanceBuilderInterpreter} does, but moves the builders which
+ * interpret the most inputs towards the front of the list, so that inputs of the most common kind are not first
+ * tried against patterns which cannot match them.
+ *
+ * <p>A builder may only move ahead of a builder declared before it if their patterns are disjoint (see
+ * {@link com.codepoetics.mariko.reflection.RequiredLiterals#isDisjointFrom}): as no input can match both, the order
+ * in which they are tried cannot change which one interprets it. Builders whose patterns may overlap keep their
+ * declared order relative to one another, so the first builder to match is the one first-match semantics would
+ * choose.</p>
+ *
+ * <p>Hits are counted for every input, and roughly one call in {@link #REORDER_INTERVAL} recomputes the order from
+ * the hits since the last reordering, added to half the weight each builder had before, and publishes it as a new
+ * array.</p>
+ */
+final class AdaptiveInstanceBuilderInterpreter<T> implements NullableInterpreter<T> {
+
+    static final int REORDER_INTERVAL = 4096;
+
+    private final @NotNull InstanceBuilder<T>[] declared;
+    // mayPrecede[i][j]: whether builder i may be tried before builder j, both in declaration order.
+    private final boolean @NotNull [][] mayPrecede;
+    private final @NotNull LongAdder[] hits;
+    private final double @NotNull [] weights;
+    private volatile @NotNull Ranked<T>[] order;
+
+    private record Ranked<T>(@NotNull InstanceBuilder<T> builder, int declaredIndex) { }
+
+    AdaptiveInstanceBuilderInterpreter(@NotNull List<InstanceBuilder<T>> builders) {
+        @SuppressWarnings("unchecked")
+        InstanceBuilder<T>[] declaredBuilders = (InstanceBuilder<T>[]) builders.toArray(new InstanceBuilder<?>[0]);
+        this.declared = declaredBuilders;
+        this.mayPrecede = new boolean[declared.length][declared.length];
+        this.hits = new LongAdder[declared.length];
+        this.weights = new double[declared.length];
+
+        for (int i = 0; i < declared.length; i++) {
+            hits[i] = new LongAdder();
+            for (int j = 0; j < declared.length; j++) {
+                mayPrecede[i][j] = i <= j
+                        || declared[i].requiredLiterals().isDisjointFrom(declared[j].requiredLiterals());
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        Ranked<T>[] initial = (Ranked<T>[]) new Ranked<?>[declared.length];
+        for (int i = 0; i < declared.length; i++) {
+            initial[i] = new Ranked<>(declared[i], i);
+        }
+        this.order = initial;
+    }
+
+    /**
+     * Whether every pair of builders has disjoint patterns, so that any order may be chosen.
+     */
+    static boolean allDisjoint(@NotNull List<? extends InstanceBuilder<?>> builders) {
+        for (int i = 0; i < builders.size(); i++) {
+            for (int j = i + 1; j < builders.size(); j++) {
+                if (!builders.get(i).requiredLiterals().isDisjointFrom(builders.get(j).requiredLiterals())) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public @Nullable T interpretOrNull(@NotNull CharSequence input) {
+        if ((ThreadLocalRandom.current().nextInt() & (REORDER_INTERVAL - 1)) == 0) reorder();
+
+        for (Ranked<T> ranked : order) {
+            var result = ranked.builder().interpretOrNull(input);
+            if (result != null) {
+                hits[ranked.declaredIndex()].increment();
+                return result;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * The builders in the order they are currently tried.
+     */
+    @NotNull List<InstanceBuilder<T>> currentOrder() {
+        return Arrays.stream(order).map(Ranked::builder).toList();
+    }
+
+    /*
+     * Repeatedly choose the heaviest builder which may precede every builder not yet chosen. The first declared of
+     * those not yet chosen always may, so there is always a candidate.
+     */
+    synchronized void reorder() {
+        for (int i = 0; i < declared.length; i++) {
+            weights[i] = weights[i] / 2 + hits[i].sumThenReset();
+        }
+
+        @SuppressWarnings("unchecked")
+        Ranked<T>[] reordered = (Ranked<T>[]) new Ranked<?>[declared.length];
+        boolean[] placed = new boolean[declared.length];
+        for (int position = 0; position < declared.length; position++) {
+            int best = -1;
+            for (int candidate = 0; candidate < declared.length; candidate++) {
+                if (placed[candidate] || !mayComeNext(candidate, placed)) continue;
+                if (best < 0 || weights[candidate] > weights[best]) best = candidate;
+            }
+            placed[best] = true;
+            reordered[position] = new Ranked<>(declared[best], best);
+        }
+        order = reordered;
+    }
+
+    private boolean mayComeNext(int candidate, boolean[] placed) {
+        for (int other = 0; other < declared.length; other++) {
+            if (other != candidate && !placed[other] && !mayPrecede[candidate][other]) return false;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,236 @@
+package com.codepoetics.mariko;
+
+import com.codepoetics.mariko.api.CompiledPattern;
+import com.codepoetics.mariko.api.PatternEngine;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.List;
+import java.util.regex.MatchResult;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * Chooses between several instance builders with a single match against one combined pattern, {@code (p1)|(p2)|...},
+ * rather than matching each builder's pattern in turn.
+ *
+ * <p>Because the regex engine tries alternatives in order, and only moves on to the next when the current one cannot
+ * match the whole input, the alternative selected is always the first builder whose own pattern matches: the same
+ * builder {@link FirstMatchingInstanceBuilderInterpreter} would select. If that builder cannot interpret the values
+ * of its parameters, the builders after it are tried in turn, as they would be there.</p>
+ *
+ * <p>A {@link InterpretationContext#withMatchBudget(long) match budget} applies to each builder's pattern, not to the
+ * combined pattern as a whole. If the combined match runs out of budget, the builders are matched one at a time
+ * instead, each with a budget of its own, so that one pattern which backtracks badly does not cause an input to be
+ * rejected which a later builder would have accepted.</p>
+ *
+ * <p>A pattern engine which prefers alternatives in the same order, as {@link LinearPatternEngine} does, may be
+ * given to match the combined pattern in place of java.util.regex.</p>
+ */
+final class AlternationInstanceBuilderInterpreter<T> implements NullableInterpreter<T> {
+
+    // Constructs which stop a pattern from being embedded in a larger one with its meaning and group numbers intact.
+    private static final Pattern NOT_COMBINABLE = Pattern.compile(
+            "\\\\\\d" +             // numbered back-reference
+            "|\\\\k<" +             // named back-reference
+            "|\\(\\?<[a-zA-Z]" +    // named group
+            "|\\\\Q" +              // quotation, which may run on to the end of the pattern
+            "|\\(\\?[a-zA-Z-]*x");  // comments mode, in which a # comment may run on to the end of the pattern
+
+    private final @NotNull Pattern combinedPattern;
+    private final @NotNull ThreadLocalMatcher combined;
+    private final @Nullable CompiledPattern compiled;
+    private final @NotNull InstanceBuilder<T>[] builders;
+    private final int @NotNull [] wrapperGroups;
+    private final int @NotNull [] groupCounts;
+    private final boolean measured;
+    private final long matchBudget;
+
+    private AlternationInstanceBuilderInterpreter(@NotNull Pattern combined,
+                                                  @Nullable CompiledPattern compiled,
+                                                  @NotNull InstanceBuilder<T>[] builders,
+                                                  int @NotNull [] wrapperGroups,
+                                                  int @NotNull [] groupCounts) {
+        this.combinedPattern = combined;
+        this.combined = new ThreadLocalMatcher(combined);
+        this.compiled = compiled;
+        this.builders = builders;
+        this.wrapperGroups = wrapperGroups;
+        this.groupCounts = groupCounts;
+        this.measured = builders[0].isMeasured();
+        this.matchBudget = builders[0].matchBudget();
+    }
+
+    /**
+     * Combine the patterns of the given builders, or return null if any of them cannot safely be combined.
+     *
+     * @param engine The engine to compile the combined pattern with, or null to match it with java.util.regex
+     */
+    @SuppressWarnings("unchecked")
+    static <T> @Nullable AlternationInstanceBuilderInterpreter<T> tryCombine(@NotNull List<InstanceBuilder<T>> builders,
+                                                                             @Nullable PatternEngine engine) {
+        var combinedRegex = new StringBuilder();
+        int[] wrapperGroups = new int[builders.size()];
+        int[] groupCounts = new int[builders.size()];
+        int nextGroup = 1;
+
+        for (int i = 0; i < builders.size(); i++) {
+            Pattern pattern = builders.get(i).pattern();
+            String flags = inlineFlags(pattern.flags());
+            if (flags == null || NOT_COMBINABLE.matcher(pattern.pattern()).find()) return null;
+
+            if (i > 0) combinedRegex.append('|');
+            combinedRegex.append('(').append(flags).append(pattern.pattern()).append(')');
+
+            wrapperGroups[i] = nextGroup;
+            groupCounts[i] = pattern.matcher("").groupCount();
+            nextGroup += groupCounts[i] + 1;
+        }
+
+        Pattern combined;
+        try {
+            combined = Pattern.compile(combinedRegex.toString());
+        } catch (PatternSyntaxException e) {
+            return null;
+        }
+        if (combined.matcher("").groupCount() != nextGroup - 1) return null;
+
+        return new AlternationInstanceBuilderInterpreter<>(
+                combined,
+                engine == null ? null : engine.compile(combined),
+                builders.toArray(InstanceBuilder[]::new),
+                wrapperGroups,
+                groupCounts);
+    }
+
+    /*
+     * Flags given when a pattern was compiled are restated inline at the start of its alternative, where they apply
+     * only to that alternative. Returns null for flags with no inline form.
+     */
+    private static @Nullable String inlineFlags(int flags) {
+        if ((flags & (Pattern.LITERAL | Pattern.CANON_EQ | Pattern.COMMENTS)) != 0) return null;
+
+        var result = new StringBuilder();
+        if ((flags & Pattern.CASE_INSENSITIVE) != 0) result.append('i');
+        if ((flags & Pattern.UNIX_LINES) != 0) result.append('d');
+        if ((flags & Pattern.MULTILINE) != 0) result.append('m');
+        if ((flags & Pattern.DOTALL) != 0) result.append('s');
+        if ((flags & Pattern.UNICODE_CASE) != 0) result.append('u');
+        if ((flags & Pattern.UNICODE_CHARACTER_CLASS) != 0) result.append('U');
+        return result.isEmpty() ? "" : "(?" + result + ")";
+    }
+
+    @Override
+    public @Nullable T interpretOrNull(@NotNull CharSequence input) {
+        if (!anyMayMatch(input)) return null;
+        if (compiled != null) return interpretCompiled(input);
+
+        int selected = 0;
+        T result;
+        Matcher matcher = combined.acquire(BudgetedCharSequence.of(input, matchBudget));
+        try {
+            boolean matched;
+            try {
+                matched = SlowMatchEvent.matches(matcher, input);
+            } catch (BudgetedCharSequence.Exhausted e) {
+                return interpretAfter(-1, input);
+            }
+            if (!matched) {
+                if (measured) recordMisses(builders.length);
+                return null;
+            }
+
+            while (matcher.start(wrapperGroups[selected]) < 0) selected++;
+            if (measured) recordMisses(selected);
+            result = builders[selected].instantiate(
+                    new OffsetMatchResult(matcher, wrapperGroups[selected], groupCounts[selected]),
+                    input);
+        } finally {
+            combined.release(matcher);
+        }
+        return result != null ? result : interpretAfter(selected, input);
+    }
+
+    private @Nullable T interpretCompiled(@NotNull CharSequence input) {
+        var match = SlowMatchEvent.matches(compiled, combinedPattern, input);
+        if (match == null) {
+            if (measured) recordMisses(builders.length);
+            return null;
+        }
+
+        int selected = 0;
+        while (match.start(wrapperGroups[selected]) < 0) selected++;
+        if (measured) recordMisses(selected);
+        var result = builders[selected].instantiate(
+                new OffsetMatchResult(match, wrapperGroups[selected], groupCounts[selected]),
+                input);
+        return result != null ? result : interpretAfter(selected, input);
+    }
+
+    private @Nullable T interpretAfter(int selected, @NotNull CharSequence input) {
+        for (int i = selected + 1; i < builders.length; i++) {
+            var result = builders[i].interpretOrNull(input);
+            if (result != null) return result;
+        }
+        return null;
+    }
+
+    // The builders before the selected one are counted as tried, as the regex engine tried their alternatives first.
+    private void recordMisses(int count) {
+        for (int i = 0; i < count; i++) {
+            builders[i].recordMiss();
+        }
+    }
+
+    private boolean anyMayMatch(@NotNull CharSequence input) {
+        for (InstanceBuilder<T> builder : builders) {
+            if (builder.mayMatch(input)) return true;
+        }
+        for (InstanceBuilder<T> builder : builders) {
+            builder.recordRejection();
+        }
+        return false;
+    }
+
+    /**
+     * The groups of one alternative of the combined pattern, numbered as they are in the builder's own pattern.
+     */
+    private record OffsetMatchResult(MatchResult match, int wrapperGroup, int groupCount) implements MatchResult {
+
+        @Override
+        public int start() {
+            return match.start(wrapperGroup);
+        }
+
+        @Override
+        public int start(int group) {
+            return match.start(wrapperGroup + checked(group));
+        }
+
+        @Override
+        public int end() {
+            return match.end(wrapperGroup);
+        }
+
+        @Override
+        public int end(int group) {
+            return match.end(wrapperGroup + checked(group));
+        }
+
+        @Override
+        public String group() {
+            return match.group(wrapperGroup);
+        }
+
+        @Override
+        public String group(int group) {
+            return match.group(wrapperGroup + checked(group));
+        }
+
+        private int checked(int group) {
+            if (group < 0 || group > groupCount) throw new IndexOutOfBoundsException("No group " + group);
+            return group;
+        }
+    }
+}
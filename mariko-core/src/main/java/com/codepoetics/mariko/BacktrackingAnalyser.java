@@ -0,0 +1,210 @@
+package com.codepoetics.mariko;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.regex.Pattern;
+import java.util.stream.IntStream;
+
+import static com.codepoetics.mariko.RegexProgram.CHAR;
+import static com.codepoetics.mariko.RegexProgram.JMP;
+import static com.codepoetics.mariko.RegexProgram.MATCH;
+import static com.codepoetics.mariko.RegexProgram.SET;
+import static com.codepoetics.mariko.RegexProgram.SPLIT;
+
+/**
+ * Finds patterns which a backtracking matcher such as java.util.regex may take exponentially long to reject, such as
+ * {@code (\w+\s?)+} or {@code (a|aa)*}.
+ *
+ * <p>A backtracking matcher which fails to match tries every way the pattern could match every prefix of the input.
+ * There are exponentially many ways, in the length of the prefix, exactly when some state of the pattern's NFA can
+ * return to itself along two different paths reading the same text: each time round, the matcher can take either
+ * path. That is so when the product of the NFA with itself, whose states are pairs of NFA states moving together on
+ * the same characters, has a strongly connected component containing both a state {@code (p, p)} and a state
+ * {@code (q, r)} with {@code q != r}, or when two different ways of moving on without reading anything connect two
+ * states in the same component.</p>
+ *
+ * <p>Lookaround, back-references, word boundaries and possessive quantifiers are left out of the NFA, so the analysis
+ * may miss a problem, or find one which they prevent.</p>
+ */
+final class BacktrackingAnalyser {
+
+    // The product has the square of this number of states, each with up to its square again of transitions.
+    private static final int MAX_STATES = 128;
+
+    private static final int MAX_PROGRAM_SIZE = 2000;
+
+    private final RegexProgram program;
+    private final int[] states;
+    private final int[] stateIndex;
+    private final int[][] successors;
+    private final boolean[][] doubled;
+
+    private BacktrackingAnalyser(RegexProgram program) {
+        this.program = program;
+        this.states = IntStream.range(0, program.ops.length)
+                .filter(pc -> program.ops[pc] == CHAR || program.ops[pc] == SET)
+                .toArray();
+        this.stateIndex = new int[program.ops.length];
+        Arrays.fill(stateIndex, -1);
+        for (int i = 0; i < states.length; i++) {
+            stateIndex[states[i]] = i;
+        }
+
+        this.successors = new int[states.length][];
+        this.doubled = new boolean[states.length][];
+        for (int i = 0; i < states.length; i++) {
+            var visits = new int[program.ops.length];
+            follow(states[i] + 1, visits, new int[program.ops.length]);
+            successors[i] = Arrays.stream(states).filter(pc -> visits[pc] > 0).map(pc -> stateIndex[pc]).toArray();
+            doubled[i] = new boolean[successors[i].length];
+            for (int j = 0; j < successors[i].length; j++) {
+                doubled[i][j] = visits[states[successors[i][j]]] > 1;
+            }
+        }
+    }
+
+    /**
+     * Whether a backtracking matcher may take time exponential in the length of the input to find that the pattern
+     * does not match it. Patterns too large to analyse are assumed not to.
+     */
+    static boolean canBacktrackExponentially(@NotNull Pattern pattern) {
+        var program = RegexProgram.compile(pattern, MAX_PROGRAM_SIZE, false);
+        if (program == null) return false;
+
+        var analyser = new BacktrackingAnalyser(program);
+        return analyser.states.length <= MAX_STATES && analyser.isExponentiallyAmbiguous();
+    }
+
+    /*
+     * Follow the instructions which read nothing from pc, counting how many ways each character-reading instruction
+     * is reached, up to two. An instruction reached twice passes on both visits, so everything after it is reached
+     * twice too. A path may go round a loop which reads nothing once, as when a repeated group ends and the group
+     * around it starts again, but not twice, as matchers stop repeating groups which match nothing.
+     */
+    private void follow(int pc, int[] visits, int[] onPath) {
+        if (onPath[pc] >= 2 || visits[pc] >= 2) return;
+        visits[pc]++;
+
+        int op = program.ops[pc];
+        if (op == CHAR || op == SET || op == MATCH) return;
+
+        onPath[pc]++;
+        if (op == JMP) {
+            follow(program.arg1[pc], visits, onPath);
+        } else if (op == SPLIT) {
+            follow(program.arg1[pc], visits, onPath);
+            follow(program.arg2[pc], visits, onPath);
+        } else {
+            follow(pc + 1, visits, onPath);
+        }
+        onPath[pc]--;
+    }
+
+    private boolean overlaps(int first, int second) {
+        int firstPc = states[first];
+        int secondPc = states[second];
+        if (program.ops[firstPc] == CHAR) return program.accepts(secondPc, (char) program.arg1[firstPc]);
+        if (program.ops[secondPc] == CHAR) return program.accepts(firstPc, (char) program.arg1[secondPc]);
+        return program.sets[program.arg1[firstPc]].intersects(program.sets[program.arg1[secondPc]]);
+    }
+
+    private boolean isExponentiallyAmbiguous() {
+        int n = states.length;
+        int[] component = components(n);
+
+        var hasDiagonal = new boolean[n * n];
+        for (int p = 0; p < n; p++) {
+            hasDiagonal[component[p * n + p]] = true;
+        }
+        for (int p = 0; p < n; p++) {
+            for (int q = 0; q < n; q++) {
+                if (q != p && hasDiagonal[component[p * n + q]]) return true;
+            }
+            for (int j = 0; j < successors[p].length; j++) {
+                int t = successors[p][j];
+                if (doubled[p][j] && component[t * n + t] == component[p * n + p]) return true;
+            }
+        }
+        return false;
+    }
+
+    /*
+     * Tarjan's algorithm over the product, iteratively, as it may have thousands of states. Returns the component of
+     * each pair, with pairs which can't move on without failing (and so are on no cycle) each in a component of
+     * their own.
+     */
+    private int[] components(int n) {
+        int size = n * n;
+        int[] index = new int[size];
+        int[] lowLink = new int[size];
+        int[] component = new int[size];
+        int[] edgeCursor = new int[size];
+        boolean[] onStack = new boolean[size];
+        Arrays.fill(index, -1);
+
+        var stack = new ArrayDeque<Integer>();
+        var callStack = new ArrayDeque<Integer>();
+        int nextIndex = 0;
+        int nextComponent = 0;
+
+        for (int root = 0; root < size; root++) {
+            if (index[root] >= 0) continue;
+            callStack.push(root);
+
+            while (!callStack.isEmpty()) {
+                int node = callStack.peek();
+                if (index[node] < 0) {
+                    index[node] = lowLink[node] = nextIndex++;
+                    stack.push(node);
+                    onStack[node] = true;
+                }
+
+                int next = nextSuccessor(node, n, edgeCursor);
+                if (next >= 0) {
+                    if (index[next] < 0) {
+                        callStack.push(next);
+                    } else if (onStack[next]) {
+                        lowLink[node] = Math.min(lowLink[node], index[next]);
+                    }
+                    continue;
+                }
+
+                callStack.pop();
+                if (!callStack.isEmpty()) {
+                    int parent = callStack.peek();
+                    lowLink[parent] = Math.min(lowLink[parent], lowLink[node]);
+                }
+                if (lowLink[node] == index[node]) {
+                    int member;
+                    do {
+                        member = stack.pop();
+                        onStack[member] = false;
+                        component[member] = nextComponent;
+                    } while (member != node);
+                    nextComponent++;
+                }
+            }
+        }
+        return component;
+    }
+
+    /*
+     * The next pair the given pair moves to on some character both its states read, or -1 when there are no more.
+     * The cursor for each pair runs over the pairs of its states' successors.
+     */
+    private int nextSuccessor(int node, int n, int[] edgeCursor) {
+        int p = node / n;
+        int q = node % n;
+        if (edgeCursor[node] == 0 && !overlaps(p, q)) return -1;
+
+        int[] firstSuccessors = successors[p];
+        int[] secondSuccessors = successors[q];
+        int cursor = edgeCursor[node];
+        if (cursor >= firstSuccessors.length * secondSuccessors.length) return -1;
+
+        edgeCursor[node] = cursor + 1;
+        return firstSuccessors[cursor / secondSuccessors.length] * n + secondSuccessors[cursor % secondSuccessors.length];
+    }
+}
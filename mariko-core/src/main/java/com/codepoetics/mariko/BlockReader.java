@@ -0,0 +1,120 @@
+package com.codepoetics.mariko;
+
+import com.codepoetics.mariko.api.InterpretationException;
+import com.codepoetics.mariko.api.Interpreter;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Interprets blocks of lines separated by delimiter lines, such as blank lines, reading one block at a time so that
+ * no more than the largest block is ever held in memory.
+ *
+ * <p>A line is a delimiter if the delimiter pattern matches the whole of it. Delimiter lines are not part of any
+ * block, and several in a row, or at the start or end of the input, delimit no empty blocks between them. The lines
+ * of each block are joined with {@code \n}, whatever the line endings of the input, and passed to the interpreter as
+ * a {@link CharSequence} which is reused from one block to the next.</p>
+ */
+final class BlockReader {
+
+    static final Pattern BLANK_LINE = Pattern.compile("\\s*");
+
+    private final @NotNull BufferedReader reader;
+    private final @NotNull Matcher delimiter;
+    private final StringBuilder block = new StringBuilder();
+    private long lineNumber;
+    private long blockLineNumber;
+
+    private BlockReader(@NotNull Reader reader, @NotNull Pattern delimiter) {
+        this.reader = reader instanceof BufferedReader buffered ? buffered : new BufferedReader(reader);
+        this.delimiter = delimiter.matcher("");
+    }
+
+    /**
+     * Stream the interpreted blocks read from a reader. Blocks which cannot be interpreted are skipped and recorded,
+     * with the number of their first line, if rejections are given, and fail the stream otherwise. Closing the
+     * stream closes the reader.
+     */
+    static <T> @NotNull Stream<T> stream(
+            @NotNull Reader reader,
+            @NotNull Pattern delimiter,
+            @NotNull Interpreter<T> interpreter,
+            @Nullable Rejections rejections) {
+        var blocks = new BlockReader(reader, delimiter);
+        var spliterator = new Spliterators.AbstractSpliterator<T>(
+                Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL) {
+            @Override
+            public boolean tryAdvance(Consumer<? super T> action) {
+                for (var block = blocks.nextBlock(); block != null; block = blocks.nextBlock()) {
+                    var result = blocks.interpret(block, interpreter, rejections);
+                    if (result != null) {
+                        action.accept(result);
+                        return true;
+                    }
+                }
+                return false;
+            }
+        };
+
+        return StreamSupport.stream(spliterator, false).onClose(blocks::closeUnchecked);
+    }
+
+    // Returns null once the input is exhausted.
+    private @Nullable CharSequence nextBlock() {
+        block.setLength(0);
+        boolean started = false;
+        try {
+            for (var line = reader.readLine(); line != null; line = reader.readLine()) {
+                lineNumber++;
+                if (delimiter.reset(line).matches()) {
+                    if (started) return block;
+                    continue;
+                }
+
+                if (started) {
+                    block.append('\n');
+                } else {
+                    started = true;
+                    blockLineNumber = lineNumber;
+                }
+                block.append(line);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return started ? block : null;
+    }
+
+    private <T> @Nullable T interpret(CharSequence block, Interpreter<T> interpreter, @Nullable Rejections rejections) {
+        if (rejections != null) {
+            T result = Rejections.interpretOrNull(interpreter, block);
+            if (result == null) rejections.reject(block, blockLineNumber);
+            return result;
+        }
+
+        try {
+            return interpreter.interpret(block);
+        } catch (InterpretationException e) {
+            throw new InterpretationException("Block at line %d: %s".formatted(blockLineNumber, e.getMessage()));
+        }
+    }
+
+    private void closeUnchecked() {
+        try {
+            reader.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.codepoetics.mariko;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * An input which allows only so many characters to be read from it, as a regex engine does at every step of a match,
+ * throwing {@link Exhausted} once they have all been read. Taking a subsequence, as reading a group of the match does,
+ * costs nothing, so only matching itself is limited.
+ */
+final class BudgetedCharSequence implements CharSequence {
+
+    /**
+     * Thrown when the budget for a match runs out. It carries no stack trace, as it is always caught by the builder
+     * which started the match, and treated as the input not matching.
+     */
+    static final class Exhausted extends RuntimeException {
+        private static final Exhausted INSTANCE = new Exhausted();
+
+        private Exhausted() {
+            super("Match budget exhausted", null, false, false);
+        }
+    }
+
+    private final @NotNull CharSequence input;
+    private long remaining;
+
+    private BudgetedCharSequence(@NotNull CharSequence input, long budget) {
+        this.input = input;
+        this.remaining = budget;
+    }
+
+    /**
+     * The input, limited to the given number of character reads, or unlimited if the budget is 0.
+     */
+    static @NotNull CharSequence of(@NotNull CharSequence input, long budget) {
+        return budget == 0 ? input : new BudgetedCharSequence(input, budget);
+    }
+
+    @Override
+    public int length() {
+        return input.length();
+    }
+
+    @Override
+    public char charAt(int index) {
+        if (--remaining < 0) throw Exhausted.INSTANCE;
+        return input.charAt(index);
+    }
+
+    @Override
+    public @NotNull CharSequence subSequence(int start, int end) {
+        return input.subSequence(start, end);
+    }
+
+    @Override
+    public @NotNull String toString() {
+        return input.toString();
+    }
+}
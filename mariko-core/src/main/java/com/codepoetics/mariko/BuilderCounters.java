@@ -0,0 +1,71 @@
+package com.codepoetics.mariko;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.MatchResult;
+import java.util.regex.Pattern;
+
+/**
+ * Counts what happens to the inputs an {@link InstanceBuilder} is given: how many its required literals ruled out,
+ * how many its pattern did not match or ran out of match budget on, and how many it matched, failed to instantiate
+ * (whether by returning null or by throwing), or took how long to instantiate (including interpreting nested values).
+ */
+final class BuilderCounters {
+
+    private final @NotNull Class<?> targetClass;
+    private final int index;
+    private final @NotNull Pattern pattern;
+    private final LongAdder prefilterRejections = new LongAdder();
+    private final LongAdder regexMisses = new LongAdder();
+    private final LongAdder budgetExhaustions = new LongAdder();
+    private final LongAdder matches = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LatencyRecorder instantiation = new LatencyRecorder();
+
+    BuilderCounters(@NotNull Class<?> targetClass, int index, @NotNull Pattern pattern) {
+        this.targetClass = targetClass;
+        this.index = index;
+        this.pattern = pattern;
+    }
+
+    void recordPrefilterRejection() {
+        prefilterRejections.increment();
+    }
+
+    void recordRegexMiss() {
+        regexMisses.increment();
+    }
+
+    void recordBudgetExhausted() {
+        budgetExhaustions.increment();
+    }
+
+    <T> @Nullable T instantiate(@NotNull MatchInstantiator<T> instantiator, @NotNull MatchResult match, @NotNull CharSequence input) {
+        matches.increment();
+        long start = System.nanoTime();
+        T result;
+        try {
+            result = instantiator.instantiate(match, input);
+        } catch (RuntimeException e) {
+            failures.increment();
+            throw e;
+        } finally {
+            instantiation.record(System.nanoTime() - start);
+        }
+        if (result == null) failures.increment();
+        return result;
+    }
+
+    @NotNull InterpretationStats.BuilderStats snapshot() {
+        long rejected = prefilterRejections.sum();
+        long missed = regexMisses.sum();
+        long exhausted = budgetExhaustions.sum();
+        long matched = matches.sum();
+        return new InterpretationStats.BuilderStats(
+                targetClass, index, pattern.pattern(),
+                rejected + missed + exhausted + matched, rejected, missed, exhausted, matched, failures.sum(),
+                instantiation.snapshot());
+    }
+}
@@ -0,0 +1,82 @@
+package com.codepoetics.mariko;
+
+import com.codepoetics.mariko.api.Interpreter;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Replaces each result with the first equal result seen, so that values which recur across many inputs, such as
+ * short strings or small records, share a single instance rather than each input retaining a copy of its own.
+ *
+ * <p>The table of shared instances is split into segments by the hash of the result, each locked separately and
+ * holding an equal share of the entries, and each evicting its least recently used instance to make room. A result
+ * whose equal has been evicted becomes the shared instance in its place, so results stay correct however small the
+ * table, and only sharing is lost.</p>
+ *
+ * <p>Results are shared between all callers which interpret equal values, so should be immutable, with equality
+ * by value.</p>
+ */
+final class CanonicalisingInterpreter<T> implements NullableInterpreter<T> {
+
+    private final @NotNull Class<?> targetClass;
+    private final @NotNull Interpreter<T> delegate;
+    private final @NotNull SegmentedTable<Segment<T>> segments;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    CanonicalisingInterpreter(@NotNull Class<?> targetClass, @NotNull Interpreter<T> delegate, int maximumSize) {
+        this.targetClass = targetClass;
+        this.delegate = delegate;
+        this.segments = new SegmentedTable<>(maximumSize, capacity -> new Segment<>(capacity, evictions));
+    }
+
+    @Override
+    public @Nullable T interpretOrNull(@NotNull CharSequence input) {
+        T result = NullableInterpreter.interpretOrNull(delegate, input);
+        if (result == null) return null;
+
+        T canonical = segments.segmentFor(result).canonical(result);
+        if (canonical == result) {
+            misses.increment();
+        } else {
+            hits.increment();
+        }
+        return canonical;
+    }
+
+    @NotNull InterpretationStats.CanonicalStats snapshot() {
+        return new InterpretationStats.CanonicalStats(
+                targetClass, hits.sum(), misses.sum(), evictions.sum(), segments.size());
+    }
+
+    private static final class Segment<T> implements SegmentedTable.Segment {
+
+        private final LinkedHashMap<T, T> instances;
+
+        Segment(int capacity, LongAdder evictions) {
+            this.instances = new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<T, T> eldest) {
+                    if (size() <= capacity) return false;
+                    evictions.increment();
+                    return true;
+                }
+            };
+        }
+
+        synchronized @NotNull T canonical(@NotNull T value) {
+            T existing = instances.putIfAbsent(value, value);
+            return existing == null ? value : existing;
+        }
+
+        @Override
+        public synchronized int size() {
+            return instances.size();
+        }
+    }
+}
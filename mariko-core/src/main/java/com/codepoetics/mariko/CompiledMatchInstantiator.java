@@ -0,0 +1,243 @@
+package com.codepoetics.mariko;
+
+import com.codepoetics.mariko.api.InterpretationException;
+import com.codepoetics.mariko.api.Interpreter;
+import com.codepoetics.mariko.api.InterpreterBuildingException;
+import com.codepoetics.mariko.reflection.InstanceBuilderInfo;
+import com.codepoetics.mariko.reflection.ParameterInfo;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+import java.util.regex.MatchResult;
+import java.util.regex.Pattern;
+
+/**
+ * A {@link MatchInstantiator} specialised for a single builder: one method handle which takes the match and the
+ * input, parses each primitive parameter straight from its group's bounds, interprets the others with their
+ * nested interpreters, and passes the results directly to the constructor or builder method. There is no
+ * parameter array, and primitive values are never boxed. Floating-point values are parsed in place unless they have
+ * too many significant digits, or too large an exponent, to be parsed exactly without a substring.
+ *
+ * <p>A handle cannot return null in place of a primitive value, so a parameter value which cannot be interpreted
+ * is signalled from within it by throwing a single preallocated exception with no stack trace, which
+ * {@link #instantiate} turns back into null.</p>
+ *
+ * <p>The JDK compiles the lambda forms of a frequently-invoked handle into hidden classes of its own, so once
+ * warm this runs as specialised bytecode for the target class.</p>
+ */
+final class CompiledMatchInstantiator<T> implements MatchInstantiator<T> {
+
+    private static final MethodType GROUP_PARSER_TYPE = MethodType.methodType(
+            Object.class, MatchResult.class, CharSequence.class, int.class);
+
+    private static final Map<Class<?>, MethodHandle> PRIMITIVE_GROUP_PARSERS = Map.of(
+            int.class, groupParser("intGroup", int.class),
+            long.class, groupParser("longGroup", long.class),
+            short.class, groupParser("shortGroup", short.class),
+            byte.class, groupParser("byteGroup", byte.class),
+            char.class, groupParser("charGroup", char.class),
+            boolean.class, groupParser("booleanGroup", boolean.class),
+            float.class, groupParser("floatGroup", float.class),
+            double.class, groupParser("doubleGroup", double.class));
+
+    private static final MethodHandle INTERPRETED_GROUP = findStatic("interpretedGroup",
+            MethodType.methodType(Object.class, Interpreter.class, MatchResult.class, int.class));
+
+    private static final class NoValue extends RuntimeException {
+        private static final NoValue INSTANCE = new NoValue();
+
+        private NoValue() {
+            super(null, null, false, false);
+        }
+    }
+
+    private final @NotNull Pattern pattern;
+    private final @NotNull MethodHandle handle;
+
+    private CompiledMatchInstantiator(@NotNull Pattern pattern, @NotNull MethodHandle handle) {
+        this.pattern = pattern;
+        this.handle = handle;
+    }
+
+    /**
+     * Compile a match instantiator for the given builder, or return null if it cannot be compiled, in which
+     * case the builder should be run through a {@link ParameterValueExtractor} as usual.
+     *
+     * @param info The builder to compile
+     * @param parameterInterpreters Interpreters for each of the builder's parameters
+     * @param parsesAsPrimitive Whether a parameter may be parsed directly as a primitive value
+     */
+    static <T> @Nullable CompiledMatchInstantiator<T> compile(
+            @NotNull InstanceBuilderInfo<T> info,
+            @NotNull List<? extends Interpreter<?>> parameterInterpreters,
+            @NotNull Predicate<ParameterInfo> parsesAsPrimitive) {
+        MethodHandle target = info.directHandle();
+        if (target == null) return null;
+
+        int parameterCount = parameterInterpreters.size();
+        int groupCount = info.pattern().matcher("").groupCount();
+        // Mismatches are left to ParameterValueExtractor, which reports them when input is interpreted.
+        if (groupCount == 0 ? parameterCount != 1 : groupCount != parameterCount) return null;
+
+        MethodHandle[] groupReaders = new MethodHandle[parameterCount];
+        for (int i = 0; i < parameterCount; i++) {
+            int group = groupCount == 0 ? 0 : i + 1;
+            Class<?> parameterType = target.type().parameterType(i);
+            MethodHandle primitiveParser = parsesAsPrimitive.test(info.parameters().get(i))
+                    ? PRIMITIVE_GROUP_PARSERS.get(parameterType)
+                    : null;
+
+            MethodHandle reader = primitiveParser != null
+                    ? MethodHandles.insertArguments(primitiveParser, 2, group)
+                    : interpretedGroupReader(parameterInterpreters.get(i), group);
+            groupReaders[i] = reader.asType(
+                    MethodType.methodType(parameterType, MatchResult.class, CharSequence.class));
+        }
+
+        return new CompiledMatchInstantiator<>(info.pattern(), collapse(target, groupReaders));
+    }
+
+    // (MatchResult, CharSequence)Object, interpreting the group's text with a nested interpreter.
+    private static MethodHandle interpretedGroupReader(Interpreter<?> interpreter, int group) {
+        MethodHandle reader = MethodHandles.insertArguments(
+                MethodHandles.insertArguments(INTERPRETED_GROUP, 2, group), 0, interpreter);
+        return MethodHandles.dropArguments(reader, 1, CharSequence.class);
+    }
+
+    /*
+     * Feeds every parameter of the target from the same (match, input) pair, giving a handle of type
+     * (MatchResult, CharSequence)Object.
+     */
+    private static MethodHandle collapse(MethodHandle target, MethodHandle[] groupReaders) {
+        MethodType resultType = MethodType.methodType(Object.class, MatchResult.class, CharSequence.class);
+        if (groupReaders.length == 0) {
+            return MethodHandles.dropArguments(target, 0, MatchResult.class, CharSequence.class).asType(resultType);
+        }
+
+        MethodHandle collected = target;
+        for (int i = groupReaders.length - 1; i >= 0; i--) {
+            collected = MethodHandles.collectArguments(collected, i, groupReaders[i]);
+        }
+        int[] reorder = new int[groupReaders.length * 2];
+        for (int i = 0; i < reorder.length; i++) {
+            reorder[i] = i % 2;
+        }
+        return MethodHandles.permuteArguments(
+                collected,
+                MethodType.methodType(target.type().returnType(), MatchResult.class, CharSequence.class),
+                reorder).asType(resultType);
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public @Nullable T instantiate(@NotNull MatchResult match, @NotNull CharSequence input) {
+        try {
+            return (T) handle.invokeExact(match, input);
+        } catch (NoValue e) {
+            return null;
+        } catch (InterpretationException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new InterpretationException(
+                    "Failure interpreting input <%s> matching pattern %s: %s"
+                            .formatted(input, pattern, e.getMessage()));
+        }
+    }
+
+    private static Object interpretedGroup(Interpreter<?> interpreter, MatchResult match, int group) {
+        var text = match.group(group);
+        var value = text == null ? null : NullableInterpreter.interpretOrNull(interpreter, text);
+        if (value == null) throw NoValue.INSTANCE;
+        return value;
+    }
+
+    private static int intGroup(MatchResult match, CharSequence input, int group) {
+        int start = match.start(group);
+        int end = match.end(group);
+        if (start < 0 || !PrimitiveParsers.isInteger(input, start, end, Integer.MIN_VALUE, Integer.MAX_VALUE)) {
+            throw NoValue.INSTANCE;
+        }
+        return PrimitiveParsers.parseInt(input, start, end);
+    }
+
+    private static long longGroup(MatchResult match, CharSequence input, int group) {
+        int start = match.start(group);
+        int end = match.end(group);
+        if (start < 0 || !PrimitiveParsers.isInteger(input, start, end, Long.MIN_VALUE, Long.MAX_VALUE)) {
+            throw NoValue.INSTANCE;
+        }
+        return PrimitiveParsers.parseLong(input, start, end);
+    }
+
+    private static short shortGroup(MatchResult match, CharSequence input, int group) {
+        int start = match.start(group);
+        int end = match.end(group);
+        if (start < 0 || !PrimitiveParsers.isInteger(input, start, end, Short.MIN_VALUE, Short.MAX_VALUE)) {
+            throw NoValue.INSTANCE;
+        }
+        return (short) PrimitiveParsers.parseInt(input, start, end);
+    }
+
+    private static byte byteGroup(MatchResult match, CharSequence input, int group) {
+        int start = match.start(group);
+        int end = match.end(group);
+        if (start < 0 || !PrimitiveParsers.isInteger(input, start, end, Byte.MIN_VALUE, Byte.MAX_VALUE)) {
+            throw NoValue.INSTANCE;
+        }
+        return (byte) PrimitiveParsers.parseInt(input, start, end);
+    }
+
+    private static char charGroup(MatchResult match, CharSequence input, int group) {
+        int start = match.start(group);
+        if (start < 0 || start == match.end(group)) throw NoValue.INSTANCE;
+        return input.charAt(start);
+    }
+
+    private static boolean booleanGroup(MatchResult match, CharSequence input, int group) {
+        int start = match.start(group);
+        if (start < 0) throw NoValue.INSTANCE;
+        return PrimitiveParsers.parseBoolean(input, start, match.end(group));
+    }
+
+    // Only a region the JDK's parsers reject costs an exception.
+    private static float floatGroup(MatchResult match, CharSequence input, int group) {
+        int start = match.start(group);
+        if (start < 0) throw NoValue.INSTANCE;
+        int end = match.end(group);
+        try {
+            return PrimitiveParsers.parseFloat(input, start, end);
+        } catch (NumberFormatException e) {
+            throw NoValue.INSTANCE;
+        }
+    }
+
+    private static double doubleGroup(MatchResult match, CharSequence input, int group) {
+        int start = match.start(group);
+        if (start < 0) throw NoValue.INSTANCE;
+        int end = match.end(group);
+        try {
+            return PrimitiveParsers.parseDouble(input, start, end);
+        } catch (NumberFormatException e) {
+            throw NoValue.INSTANCE;
+        }
+    }
+
+    private static MethodHandle groupParser(String name, Class<?> primitiveType) {
+        return findStatic(name, GROUP_PARSER_TYPE.changeReturnType(primitiveType));
+    }
+
+    private static MethodHandle findStatic(String name, MethodType type) {
+        try {
+            return MethodHandles.lookup().findStatic(CompiledMatchInstantiator.class, name, type);
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            throw new InterpreterBuildingException(
+                    "Unable to find group parser %s: %s".formatted(name, e.getMessage()));
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package com.codepoetics.mariko;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * A Flight Recorder event for a pattern found, when its interpreter was built, to have a repeated part which can match
+ * the same text in more than one way, so that java.util.regex may take exponentially long to reject some inputs.
+ */
+@Name("com.codepoetics.mariko.ExponentialPattern")
+@Label("Exponential Pattern")
+@Category("Mariko")
+@Description("A pattern may backtrack exponentially on inputs it does not match")
+final class ExponentialPatternEvent extends Event {
+
+    @Label("Target Class")
+    Class<?> targetClass;
+
+    @Label("Pattern")
+    String pattern;
+}
@@ -1,12 +1,11 @@
 package com.codepoetics.mariko;
 
-import com.codepoetics.mariko.api.Interpreter;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import java.util.List;
-import java.util.Optional;
 
-final class FirstMatchingInstanceBuilderInterpreter<T> implements Interpreter<T> {
+final class FirstMatchingInstanceBuilderInterpreter<T> implements NullableInterpreter<T> {
 
     private final List<InstanceBuilder<T>> builders;
 
@@ -14,12 +13,12 @@ final class FirstMatchingInstanceBuilderInterpreter<T> implements Interpreter<T>
         this.builders = builders;
     }
 
-    @NotNull
     @Override
-    public Optional<T> tryInterpret(@NotNull String input) {
-        return builders.stream().map(builder -> builder.tryInterpret(input))
-                .filter(Optional::isPresent)
-                .map(Optional::get)
-                .findFirst();
+    public @Nullable T interpretOrNull(@NotNull CharSequence input) {
+        for (InstanceBuilder<T> builder : builders) {
+            var result = builder.interpretOrNull(input);
+            if (result != null) return result;
+        }
+        return null;
     }
 }
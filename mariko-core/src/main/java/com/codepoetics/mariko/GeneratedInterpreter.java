@@ -0,0 +1,31 @@
+package com.codepoetics.mariko;
+
+import com.codepoetics.mariko.api.Interpreter;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * An interpreter for a class, generated at build time by the mariko-processor annotation processor and registered
+ * as a service, which an {@link InterpretationContext} will use in preference to building an interpreter for the
+ * class by reflection.
+ *
+ * <p>A generated interpreter matches the pattern of each builder in turn with java.util.regex. It does not rule out
+ * builders by their required literals first, or combine several builders' patterns into one, as interpreters built
+ * by reflection do. A context does not use generated interpreters while it is set to collect stats, match with a
+ * pattern engine or within a budget, reject exponential patterns, adapt builder order or make lazy lists, as they
+ * cannot honour those settings.</p>
+ * @param <T> The type into which input is interpreted
+ */
+public interface GeneratedInterpreter<T> {
+
+    /**
+     * @return The class for which this interpreter was generated
+     */
+    @NotNull Class<T> targetClass();
+
+    /**
+     * Create the interpreter, obtaining interpreters for any nested parameter types from the given context.
+     * @param context The context in which the interpreter is being made
+     * @return The interpreter
+     */
+    @NotNull Interpreter<T> create(@NotNull InterpretationContext context);
+}
@@ -0,0 +1,33 @@
+package com.codepoetics.mariko;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.ServiceLoader;
+
+/**
+ * The generated interpreters registered as services on the classpath, loaded once on first use.
+ */
+final class GeneratedInterpreters {
+
+    private GeneratedInterpreters() {
+    }
+
+    private static final class Holder {
+        private static final Map<Class<?>, GeneratedInterpreter<?>> BY_TARGET_CLASS = load();
+
+        private static Map<Class<?>, GeneratedInterpreter<?>> load() {
+            Map<Class<?>, GeneratedInterpreter<?>> result = new HashMap<>();
+            for (GeneratedInterpreter<?> generated : ServiceLoader.load(
+                    GeneratedInterpreter.class,
+                    GeneratedInterpreters.class.getClassLoader())) {
+                result.putIfAbsent(generated.targetClass(), generated);
+            }
+            return Map.copyOf(result);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    static <T> GeneratedInterpreter<T> forClass(Class<T> targetClass) {
+        return (GeneratedInterpreter<T>) Holder.BY_TARGET_CLASS.get(targetClass);
+    }
+}
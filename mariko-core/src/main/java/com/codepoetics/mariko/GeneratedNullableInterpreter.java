@@ -0,0 +1,21 @@
+package com.codepoetics.mariko;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * The base class of interpreters generated by the mariko-processor annotation processor, which follow the same
+ * protocol as interpreters built by reflection: an input which cannot be interpreted gives null, so that nesting one
+ * interpreter in another creates no Optional for each value, and inputs are matched in place rather than copied.
+ * @param <T> The type into which input is interpreted
+ */
+public abstract class GeneratedNullableInterpreter<T> implements NullableInterpreter<T> {
+
+    /**
+     * Interpret the input, or return null if it cannot be interpreted.
+     * @param input The character sequence to interpret
+     * @return An object representing the contents of the input, or null
+     */
+    @Override
+    public abstract @Nullable T interpretOrNull(@NotNull CharSequence input);
+}
@@ -0,0 +1,57 @@
+package com.codepoetics.mariko;
+
+import com.codepoetics.mariko.api.Interpreter;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * The built-in parsers for primitive values, for use by generated interpreters, so that they read a group of a
+ * match exactly as an interpreter built by reflection would: each returns null, rather than throwing, if the group
+ * does not hold a value of its type, such as a number too large for it. Nested values are interpreted in the same
+ * way by {@link #interpretOrNull(Interpreter, CharSequence)}.
+ */
+public final class GeneratedParsers {
+
+    private GeneratedParsers() {
+    }
+
+    /**
+     * Interpret the input with any interpreter, returning null if it cannot be interpreted, without creating an
+     * Optional if the interpreter was made by a context or generated.
+     */
+    public static <T> @Nullable T interpretOrNull(@NotNull Interpreter<? extends T> interpreter, @NotNull CharSequence input) {
+        return NullableInterpreter.interpretOrNull(interpreter, input);
+    }
+
+    public static @Nullable Integer intOrNull(@NotNull CharSequence input, int start, int end) {
+        return PrimitiveParsers.intOrNull(input, start, end);
+    }
+
+    public static @Nullable Long longOrNull(@NotNull CharSequence input, int start, int end) {
+        return PrimitiveParsers.longOrNull(input, start, end);
+    }
+
+    public static @Nullable Short shortOrNull(@NotNull CharSequence input, int start, int end) {
+        return PrimitiveParsers.shortOrNull(input, start, end);
+    }
+
+    public static @Nullable Byte byteOrNull(@NotNull CharSequence input, int start, int end) {
+        return PrimitiveParsers.byteOrNull(input, start, end);
+    }
+
+    public static @Nullable Character charOrNull(@NotNull CharSequence input, int start, int end) {
+        return PrimitiveParsers.charOrNull(input, start, end);
+    }
+
+    public static @Nullable Boolean booleanOrNull(@NotNull CharSequence input, int start, int end) {
+        return PrimitiveParsers.booleanOrNull(input, start, end);
+    }
+
+    public static @Nullable Float floatOrNull(@NotNull CharSequence input, int start, int end) {
+        return PrimitiveParsers.floatOrNull(input, start, end);
+    }
+
+    public static @Nullable Double doubleOrNull(@NotNull CharSequence input, int start, int end) {
+        return PrimitiveParsers.doubleOrNull(input, start, end);
+    }
+}
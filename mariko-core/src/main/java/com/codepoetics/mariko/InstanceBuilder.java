@@ -1,35 +1,140 @@
 package com.codepoetics.mariko;
 
-import com.codepoetics.mariko.api.Interpreter;
+import com.codepoetics.mariko.api.CompiledPattern;
+import com.codepoetics.mariko.reflection.RequiredLiterals;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
-import java.util.Optional;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.function.Function;
+import java.util.regex.MatchResult;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
-class InstanceBuilder<T> implements Interpreter<T> {
+class InstanceBuilder<T> implements NullableInterpreter<T> {
 
     private final @NotNull Pattern pattern;
-    private final @NotNull ParameterValueExtractor extractor;
-    private final @NotNull Function<Object[], T> initialiser;
+    private final @NotNull RequiredLiterals requiredLiterals;
+    private final @NotNull MatchInstantiator<T> instantiator;
+    private final @NotNull ThreadLocalMatcher matchers;
+    private final @Nullable CompiledPattern compiledPattern;
+    private final long matchBudget;
+    private final LongAdder rejections = new LongAdder();
+    private final @Nullable BuilderCounters counters;
 
-    public InstanceBuilder(@NotNull Pattern pattern, @NotNull ParameterValueExtractor extractor, @NotNull Function<Object[], T> initialiser) {
+    public InstanceBuilder(@NotNull Pattern pattern, @NotNull RequiredLiterals requiredLiterals, @NotNull ParameterValueExtractor extractor, @NotNull Function<Object[], T> initialiser, @Nullable CompiledPattern compiledPattern, long matchBudget, @Nullable BuilderCounters counters) {
+        this(pattern, requiredLiterals, (match, input) -> {
+            var parameterValues = extractor.extractParameterValues(match, input);
+            return parameterValues == null ? null : initialiser.apply(parameterValues);
+        }, compiledPattern, matchBudget, counters);
+    }
+
+    /**
+     * @param compiledPattern The pattern compiled by the context's pattern engine, or null to match with
+     *                        java.util.regex
+     * @param matchBudget The number of characters java.util.regex may read from an input while matching it before
+     *                    giving up, or 0 for no limit
+     * @param counters The counters to record what happens to each input in, or null if stats are not collected
+     */
+    public InstanceBuilder(@NotNull Pattern pattern, @NotNull RequiredLiterals requiredLiterals, @NotNull MatchInstantiator<T> instantiator, @Nullable CompiledPattern compiledPattern, long matchBudget, @Nullable BuilderCounters counters) {
         this.pattern = pattern;
-        this.extractor = extractor;
-        this.initialiser = initialiser;
+        this.requiredLiterals = requiredLiterals;
+        this.instantiator = instantiator;
+        this.matchers = new ThreadLocalMatcher(pattern);
+        this.compiledPattern = compiledPattern;
+        this.matchBudget = matchBudget;
+        this.counters = counters;
+    }
+
+    @NotNull Pattern pattern() {
+        return pattern;
+    }
+
+    @NotNull RequiredLiterals requiredLiterals() {
+        return requiredLiterals;
+    }
+
+    /**
+     * Whether the input contains the literal text the pattern requires, so that it is worth running the regex.
+     */
+    boolean mayMatch(@NotNull CharSequence input) {
+        return requiredLiterals.mayMatch(input);
+    }
+
+    void recordRejection() {
+        rejections.increment();
+        if (counters != null) counters.recordPrefilterRejection();
+    }
+
+    /**
+     * Record that the pattern did not match an input.
+     */
+    void recordMiss() {
+        if (counters != null) counters.recordRegexMiss();
+    }
+
+    /**
+     * Record that the pattern was given up on before it could match an input, because the match budget ran out.
+     */
+    void recordBudgetExhausted() {
+        if (counters != null) counters.recordBudgetExhausted();
+    }
+
+    long matchBudget() {
+        return matchBudget;
+    }
+
+    boolean isMeasured() {
+        return counters != null;
+    }
+
+    @Nullable BuilderCounters counters() {
+        return counters;
+    }
+
+    /**
+     * The number of inputs which were rejected by checking for required literals, without running the regex.
+     */
+    long rejections() {
+        return rejections.sum();
+    }
+
+    @Nullable T instantiate(@NotNull MatchResult match, @NotNull CharSequence input) {
+        return counters == null
+                ? instantiator.instantiate(match, input)
+                : counters.instantiate(instantiator, match, input);
     }
 
-    @NotNull
     @Override
-    public Optional<T> tryInterpret(@NotNull String input) {
-        Matcher matcher = pattern.matcher(input);
-        if (!matcher.matches()) return Optional.empty();
-
-        return Optional.of(
-            initialiser.apply(
-                    extractor.extractParameterValues(
-                            matcher.toMatchResult()))
-        );
+    public @Nullable T interpretOrNull(@NotNull CharSequence input) {
+        if (!mayMatch(input)) {
+            recordRejection();
+            return null;
+        }
+
+        if (compiledPattern != null) {
+            var match = SlowMatchEvent.matches(compiledPattern, pattern, input);
+            if (match != null) return instantiate(match, input);
+
+            recordMiss();
+            return null;
+        }
+
+        Matcher matcher = matchers.acquire(BudgetedCharSequence.of(input, matchBudget));
+        try {
+            boolean matched;
+            try {
+                matched = SlowMatchEvent.matches(matcher, input);
+            } catch (BudgetedCharSequence.Exhausted e) {
+                recordBudgetExhausted();
+                return null;
+            }
+            if (matched) return instantiate(matcher, input);
+
+            recordMiss();
+            return null;
+        } finally {
+            matchers.release(matcher);
+        }
     }
 }
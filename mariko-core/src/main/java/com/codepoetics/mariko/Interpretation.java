@@ -2,6 +2,11 @@ package com.codepoetics.mariko;
 
 import com.codepoetics.mariko.api.Interpreter;
 
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Stream;
+
 public final class Interpretation {
 
     private Interpretation() {
@@ -15,7 +20,27 @@ public final class Interpretation {
         return InterpretationContext.DEFAULT.makeInterpreter(targetClass, pattern);
     }
 
+    public static PreparationReport prepare(Class<?>... rootTypes) {
+        return InterpretationContext.DEFAULT.prepare(rootTypes);
+    }
+
     public static <T> T interpret(Class<T> targetClass, String input) {
         return interpreter(targetClass).interpret(input);
     }
+
+    public static <T> Stream<T> interpretLines(Class<T> targetClass, Path path) throws IOException {
+        return InterpretationContext.DEFAULT.interpretLines(targetClass, path);
+    }
+
+    public static <T> Stream<T> interpretBlocks(Class<T> targetClass, Path path) throws IOException {
+        return InterpretationContext.DEFAULT.interpretBlocks(targetClass, path);
+    }
+
+    public static <T> List<T> interpretAll(Class<T> targetClass, List<? extends CharSequence> inputs) {
+        return InterpretationContext.DEFAULT.interpretAll(targetClass, inputs);
+    }
+
+    public static <T> List<T> interpretAll(Class<T> targetClass, Path path) throws IOException {
+        return InterpretationContext.DEFAULT.interpretAll(targetClass, path);
+    }
 }
@@ -1,20 +1,37 @@
 package com.codepoetics.mariko;
 
+import com.codepoetics.mariko.api.FromPattern;
 import com.codepoetics.mariko.api.InterpretationException;
 import com.codepoetics.mariko.api.Interpreter;
 import com.codepoetics.mariko.api.InterpreterBuildingException;
+import com.codepoetics.mariko.api.PatternEngine;
 import com.codepoetics.mariko.reflection.InstanceBuilderInfo;
+import com.codepoetics.mariko.reflection.KeywordTable;
 import com.codepoetics.mariko.reflection.ParameterInfo;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.io.IOException;
+import java.io.Reader;
 import java.lang.reflect.Type;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.Optional;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
 import java.util.function.Supplier;
 import java.util.regex.Pattern;
-import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
 
 public final class InterpretationContext {
 
@@ -22,34 +39,520 @@ public final class InterpretationContext {
 
     private final InterpreterCache interpreterCache = InterpreterCache.withPrimitives();
 
+    private final Collection<InstanceBuilder<?>> instanceBuilders = new ConcurrentLinkedQueue<>();
+
+    private final Collection<MeasuredInterpreter<?>> measuredInterpreters = new ConcurrentLinkedQueue<>();
+
+    private final Map<Class<?>, Integer> memoSizes = new ConcurrentHashMap<>();
+
+    private final Collection<MemoisingInterpreter<?>> memoisingInterpreters = new ConcurrentLinkedQueue<>();
+
+    private final Map<Class<?>, Integer> canonicalSizes = new ConcurrentHashMap<>();
+
+    private final Collection<CanonicalisingInterpreter<?>> canonicalisingInterpreters = new ConcurrentLinkedQueue<>();
+
+    private volatile boolean compiling;
+
+    private volatile boolean collectingStats;
+
+    private volatile boolean adaptingBuilderOrder;
+
+    private volatile @Nullable PatternEngine patternEngine;
+
+    private volatile long matchBudget;
+
+    private volatile boolean rejectingExponentialPatterns;
+
+    private volatile boolean lazyLists;
+
+    private volatile ForkJoinPool pool = ForkJoinPool.commonPool();
+    // Whether the pool was made by this context, and so is this context's to shut down.
+    private boolean ownsPool;
+
     public <T> @NotNull InterpretationContext addInterpreter(@NotNull Class<T> targetClass, @NotNull Interpreter<T> interpreter) {
         interpreterCache.put(targetClass, interpreter);
 
         return this;
     }
 
+    /**
+     * Compile the builders of interpreters made by this context from now on into specialised method handles,
+     * which parse primitive parameters directly from the input and call constructors and builder methods
+     * without boxing their arguments or collecting them into an array.
+     *
+     * @return This context
+     */
+    public @NotNull InterpretationContext compileInterpreters() {
+        compiling = true;
+
+        return this;
+    }
+
+    /**
+     * Let interpreters made by this context from now on, for types with several constructors, builder methods or
+     * permitted subclasses, try first the builders which have recently interpreted the most inputs. Only builders
+     * whose patterns provably never match the same input are moved relative to one another, so the builder chosen
+     * for any input is the same as in declaration order. Types with generated interpreters are interpreted by
+     * reflection instead, so that their builders can be reordered.
+     *
+     * @return This context
+     */
+    public @NotNull InterpretationContext adaptBuilderOrder() {
+        adaptingBuilderOrder = true;
+
+        return this;
+    }
+
+    /**
+     * Match inputs against the patterns of interpreters made by this context from now on with the given engine,
+     * such as a {@link LinearPatternEngine}, rather than java.util.regex. Patterns the engine cannot compile are
+     * still matched with java.util.regex. Generated interpreters, which match with java.util.regex, are not used
+     * while an engine is set.
+     *
+     * @param engine The engine to compile patterns with
+     * @return This context
+     */
+    public @NotNull InterpretationContext withPatternEngine(@NotNull PatternEngine engine) {
+        patternEngine = engine;
+
+        return this;
+    }
+
+    /**
+     * Give up matching an input against a pattern, in interpreters made by this context from now on, once
+     * java.util.regex has read the given number of characters from it, treating the input as not matching. A
+     * pattern which backtracks badly on some input then costs a bounded amount of time per match, rather than
+     * pinning a thread. Characters are read at every step of a match, so the budget should allow for several reads
+     * of the longest expected input. Patterns matched by a {@link #withPatternEngine(PatternEngine) pattern engine}
+     * are not limited. Generated interpreters cannot be limited, so are not used while a budget is set.
+     *
+     * @param maxCharacterReads The number of characters which may be read while matching an input against any one
+     *                          pattern
+     * @return This context
+     */
+    public @NotNull InterpretationContext withMatchBudget(long maxCharacterReads) {
+        if (maxCharacterReads <= 0) {
+            throw new IllegalArgumentException("Match budget must be positive, was %d".formatted(maxCharacterReads));
+        }
+        matchBudget = maxCharacterReads;
+
+        return this;
+    }
+
+    /**
+     * Refuse to make interpreters, from now on, for types with a pattern which java.util.regex may take
+     * exponentially long to reject some inputs with, because part of it is repeated and can match the same text in
+     * more than one way, as in {@code (\w+\s?)+}. Such patterns are otherwise only reported, as
+     * {@code com.codepoetics.mariko.ExponentialPattern} Flight Recorder events. Types with generated interpreters
+     * are interpreted by reflection instead, so that their patterns are checked.
+     *
+     * @return This context
+     */
+    public @NotNull InterpretationContext rejectExponentialPatterns() {
+        rejectingExponentialPatterns = true;
+
+        return this;
+    }
+
+    /**
+     * Make list parameters of interpreters made by this context from now on into read-only views which interpret
+     * each item the first time it is read, as if every {@code List} parameter that is not compact were annotated
+     * with {@code @FromList(lazy = true)}. Generated interpreters, which interpret every item up front, are not
+     * used while lists are lazy.
+     *
+     * @return This context
+     */
+    public @NotNull InterpretationContext lazyLists() {
+        lazyLists = true;
+
+        return this;
+    }
+
+    /**
+     * Count the inputs given to interpreters made by this context from now on, and to each of their builders, and
+     * time how long they take to interpret, so that the counts can be read with {@link #stats()}. Counters are
+     * updated without contention between threads; interpreters made while stats are not collected carry none.
+     * Generated interpreters keep no counts for their builders, so are not used while stats are collected.
+     *
+     * @return This context
+     */
+    public @NotNull InterpretationContext collectStats() {
+        collectingStats = true;
+
+        return this;
+    }
+
+    /**
+     * Remember the results of interpreting the most recent inputs into the given class, up to the given number, so
+     * that repeated inputs are not interpreted again. Results are shared between everyone who gives the same input,
+     * so this is only safe for immutable types such as records of immutable values. It applies to interpreters for
+     * the class made from now on, including those for parameters of other types.
+     *
+     * @param targetClass The class whose results to remember
+     * @param maximumSize The number of results to remember
+     * @return This context
+     */
+    public @NotNull InterpretationContext memoise(@NotNull Class<?> targetClass, int maximumSize) {
+        if (maximumSize <= 0) {
+            throw new IllegalArgumentException("Memo size for %s must be positive, was %d".formatted(targetClass, maximumSize));
+        }
+        memoSizes.put(targetClass, maximumSize);
+
+        return this;
+    }
+
+    /**
+     * Share a single instance between equal results of interpreting inputs into the given class, from a bounded
+     * table of the most recently used instances, so that values which recur across many inputs are not each kept
+     * as a copy of their own. Interpreted values are compared with {@code equals}, so this is only useful, and only
+     * safe, for immutable types with equality by value, such as Strings and records of immutable values. It applies
+     * to interpreters for the class made from now on, including those for parameters of other types, and to the
+     * interpreter for Strings or any interpreter registered with {@link #addInterpreter(Class, Interpreter)}.
+     *
+     * @param targetClass The class whose results to share
+     * @param maximumSize The number of instances to share
+     * @return This context
+     */
+    @SuppressWarnings("unchecked")
+    public @NotNull InterpretationContext canonicalise(@NotNull Class<?> targetClass, int maximumSize) {
+        if (maximumSize <= 0) {
+            throw new IllegalArgumentException("Canonical table size for %s must be positive, was %d".formatted(targetClass, maximumSize));
+        }
+        if (targetClass.isPrimitive()) {
+            throw new IllegalArgumentException("Primitive values of type %s cannot be canonicalised".formatted(targetClass));
+        }
+        canonicalSizes.put(targetClass, maximumSize);
+        interpreterCache.replace((Class<Object>) targetClass, interpreter -> canonicalised((Class<Object>) targetClass, interpreter));
+
+        return this;
+    }
+
+    /**
+     * Read the counters kept for interpreters made since {@link #collectStats()} was called, and for memoised and
+     * canonicalised types.
+     *
+     * @return A snapshot of the counters for each type, builder and memo
+     */
+    public @NotNull InterpretationStats stats() {
+        var types = measuredInterpreters.stream().map(MeasuredInterpreter::snapshot).toList();
+        var builders = instanceBuilders.stream()
+                .map(InstanceBuilder::counters)
+                .filter(Objects::nonNull)
+                .map(BuilderCounters::snapshot)
+                .toList();
+        var memos = memoisingInterpreters.stream().map(MemoisingInterpreter::snapshot).toList();
+        var canonicals = canonicalisingInterpreters.stream().map(CanonicalisingInterpreter::snapshot).toList();
+        return new InterpretationStats(types, builders, memos, canonicals);
+    }
+
+    /**
+     * Interpret inputs passed to {@link #interpretAll(Class, List)} and its variants on a pool of the given number
+     * of worker threads, made by this context, rather than on the common pool. A pool made by an earlier call is
+     * shut down, so this should not be called while inputs are being interpreted. The pool made by the last call
+     * lives as long as the context; its workers are daemon threads, which exit once idle. To control when the pool
+     * is shut down, give a pool of your own to {@link #withPool(ForkJoinPool)} instead.
+     *
+     * @param parallelism The number of worker threads
+     * @return This context
+     */
+    public @NotNull InterpretationContext withParallelism(int parallelism) {
+        if (parallelism <= 0) {
+            throw new IllegalArgumentException("Parallelism must be positive, was %d".formatted(parallelism));
+        }
+        replacePool(new ForkJoinPool(parallelism), true);
+
+        return this;
+    }
+
+    /**
+     * Interpret inputs passed to {@link #interpretAll(Class, List)} and its variants on the given pool, rather than
+     * on the common pool. The pool remains the caller's to shut down, once the context has finished with it.
+     *
+     * @param pool The pool to interpret inputs on
+     * @return This context
+     */
+    public @NotNull InterpretationContext withPool(@NotNull ForkJoinPool pool) {
+        replacePool(pool, false);
+
+        return this;
+    }
+
+    private synchronized void replacePool(@NotNull ForkJoinPool replacement, boolean owned) {
+        var replaced = pool;
+        boolean ownedReplaced = ownsPool;
+        pool = replacement;
+        ownsPool = owned;
+        if (ownedReplaced && replaced != replacement) replaced.shutdown();
+    }
+
     public <T> @NotNull Interpreter<T> makeInterpreter(@NotNull Class<T> targetClass) {
         return interpreterCache.getOrPut(
                 targetClass,
-                () -> makeInterpreterUncached(targetClass, null));
+                () -> measured(targetClass, null,
+                        memoised(targetClass, canonicalised(targetClass, makeInterpreterUncached(targetClass, null)))));
     }
 
     public <T> @NotNull Interpreter<T> makeInterpreter(@NotNull Class<T> targetClass, @NotNull String overridePattern) {
         return interpreterCache.getOrPut(
                 targetClass,
                 overridePattern,
-                () -> makeInterpreterUncached(targetClass, Pattern.compile(overridePattern)));
+                () -> measured(targetClass, overridePattern,
+                        memoised(targetClass, canonicalised(targetClass,
+                                makeInterpreterUncached(targetClass, Pattern.compile(overridePattern))))));
+    }
+
+    /**
+     * Build the interpreters for the given types, and for every type reachable from them through the parameters of
+     * their builders, in parallel, so that the first inputs interpreted do not wait for interpreters to be built.
+     *
+     * @param rootTypes The types to prepare
+     * @return The types whose interpreters were built, and the time taken
+     * @see #withParallelism(int)
+     */
+    public @NotNull PreparationReport prepare(@NotNull Class<?>... rootTypes) {
+        return prepare(0, rootTypes);
+    }
+
+    /**
+     * Build the interpreters for the given types and every type reachable from them, as {@link #prepare(Class[])}
+     * does, then warm each up by interpreting an input generated from its patterns the given number of times.
+     * Types for which no input can be generated are built but not warmed up.
+     *
+     * @param warmUpIterations The number of times to interpret each generated input
+     * @param rootTypes The types to prepare
+     * @return The types whose interpreters were built and warmed up, and the time taken by each stage
+     */
+    public @NotNull PreparationReport prepare(int warmUpIterations, @NotNull Class<?>... rootTypes) {
+        return new Preparation(this, interpreterCache, pool).prepare(rootTypes, warmUpIterations);
+    }
+
+    /**
+     * Whether values of the given primitive class are interpreted by the built-in parser, rather than by an
+     * interpreter registered in its place with {@link #addInterpreter(Class, Interpreter)}. Generated interpreters
+     * use this to decide whether they may parse primitive values directly.
+     * @param primitiveClass The primitive class
+     * @return True if the built-in parser is in use
+     */
+    public boolean hasBuiltInInterpreter(@NotNull Class<?> primitiveClass) {
+        return interpreterCache.hasBuiltInInterpreter(primitiveClass);
+    }
+
+    /**
+     * Interpret every line of a UTF-8 file, reading it through a memory mapping so that lines are matched in place
+     * rather than each being decoded into a String. As with {@link java.nio.file.Files#lines(Path)}, the returned
+     * stream holds the file open, and should be closed once consumed.
+     *
+     * @param targetClass The class to interpret each line into
+     * @param path The file to read
+     * @return A stream of the interpreted lines, in order
+     * @throws IOException if the file cannot be opened
+     */
+    public <T> @NotNull Stream<T> interpretLines(@NotNull Class<T> targetClass, @NotNull Path path) throws IOException {
+        return interpretLines(targetClass, path, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Interpret every line of a file in the given charset, which must be UTF-8, US-ASCII or ISO-8859-1.
+     * See {@link #interpretLines(Class, Path)}.
+     */
+    public <T> @NotNull Stream<T> interpretLines(@NotNull Class<T> targetClass, @NotNull Path path, @NotNull Charset charset) throws IOException {
+        return MappedLines.stream(path, charset, makeInterpreter(targetClass), MappedLines.DEFAULT_REGION_SIZE);
+    }
+
+    /**
+     * Interpret every line of a UTF-8 file, skipping lines which cannot be interpreted and recording them in the
+     * given rejections rather than failing the stream. See {@link #interpretLines(Class, Path)}.
+     */
+    public <T> @NotNull Stream<T> interpretLines(@NotNull Class<T> targetClass, @NotNull Path path, @NotNull Rejections rejections) throws IOException {
+        return MappedLines.stream(path, StandardCharsets.UTF_8, makeInterpreter(targetClass), rejections, MappedLines.DEFAULT_REGION_SIZE);
+    }
+
+    /**
+     * Interpret every line of a UTF-8 file, passing each result to the consumer in order.
+     * See {@link #interpretLines(Class, Path)}.
+     */
+    public <T> void interpretLines(@NotNull Class<T> targetClass, @NotNull Path path, @NotNull Consumer<? super T> consumer) throws IOException {
+        interpretLines(targetClass, path, StandardCharsets.UTF_8, consumer);
+    }
+
+    /**
+     * Interpret every line of a file in the given charset, passing each result to the consumer in order.
+     * See {@link #interpretLines(Class, Path, Charset)}.
+     */
+    public <T> void interpretLines(@NotNull Class<T> targetClass, @NotNull Path path, @NotNull Charset charset, @NotNull Consumer<? super T> consumer) throws IOException {
+        MappedLines.forEach(path, charset, makeInterpreter(targetClass), consumer, MappedLines.DEFAULT_REGION_SIZE);
+    }
+
+    /**
+     * Interpret each block of lines read from a reader, where blocks are separated by blank lines, reading one block
+     * at a time so that only the largest block, rather than the whole input, is ever held in memory. The lines of
+     * each block are joined with {@code \n}, so a type with a header line followed by a list of items might be
+     * annotated {@code @FromPattern("(.*)\\n(?s)(.*)")}, with a {@code @FromList("\\n")} parameter for the items.
+     * The returned stream closes the reader when it is closed.
+     *
+     * @param targetClass The class to interpret each block into
+     * @param reader The reader to read blocks from
+     * @return A stream of the interpreted blocks, in order
+     */
+    public <T> @NotNull Stream<T> interpretBlocks(@NotNull Class<T> targetClass, @NotNull Reader reader) {
+        return interpretBlocks(targetClass, reader, BlockReader.BLANK_LINE);
+    }
+
+    /**
+     * Interpret each block of lines read from a reader, where blocks are separated by lines which the given pattern
+     * matches in full. See {@link #interpretBlocks(Class, Reader)}.
+     */
+    public <T> @NotNull Stream<T> interpretBlocks(@NotNull Class<T> targetClass, @NotNull Reader reader, @NotNull Pattern delimiter) {
+        return BlockReader.stream(reader, delimiter, makeInterpreter(targetClass), null);
+    }
+
+    /**
+     * Interpret each block of lines read from a reader, where blocks are separated by lines which the given pattern
+     * matches in full, skipping blocks which cannot be interpreted and recording them, with the number of their
+     * first line, in the given rejections rather than failing the stream. See {@link #interpretBlocks(Class, Reader)}.
+     */
+    public <T> @NotNull Stream<T> interpretBlocks(@NotNull Class<T> targetClass, @NotNull Reader reader, @NotNull Pattern delimiter, @NotNull Rejections rejections) {
+        return BlockReader.stream(reader, delimiter, makeInterpreter(targetClass), rejections);
+    }
+
+    /**
+     * Interpret each block of lines in a UTF-8 file, where blocks are separated by blank lines. As with
+     * {@link java.nio.file.Files#lines(Path)}, the returned stream holds the file open, and should be closed once
+     * consumed. See {@link #interpretBlocks(Class, Reader)}.
+     */
+    public <T> @NotNull Stream<T> interpretBlocks(@NotNull Class<T> targetClass, @NotNull Path path) throws IOException {
+        return interpretBlocks(targetClass, path, BlockReader.BLANK_LINE);
+    }
+
+    /**
+     * Interpret each block of lines in a UTF-8 file, where blocks are separated by lines which the given pattern
+     * matches in full. See {@link #interpretBlocks(Class, Path)}.
+     */
+    public <T> @NotNull Stream<T> interpretBlocks(@NotNull Class<T> targetClass, @NotNull Path path, @NotNull Pattern delimiter) throws IOException {
+        // The interpreter is made first, so that the file is not left open if it cannot be.
+        var interpreter = makeInterpreter(targetClass);
+        return BlockReader.stream(Files.newBufferedReader(path, StandardCharsets.UTF_8), delimiter, interpreter, null);
+    }
+
+    /**
+     * Interpret every input in a list in parallel, splitting the list into batches which are interpreted on a
+     * fork/join pool.
+     *
+     * @param targetClass The class to interpret each input into
+     * @param inputs The inputs to interpret
+     * @return An unmodifiable list of the interpreted inputs, in the same order as the inputs
+     * @see #withParallelism(int)
+     */
+    public <T> @NotNull List<T> interpretAll(@NotNull Class<T> targetClass, @NotNull List<? extends CharSequence> inputs) {
+        return ParallelInterpretation.interpretAll(pool, makeInterpreter(targetClass), inputs, null);
+    }
+
+    /**
+     * Interpret every input in a list in parallel, leaving out inputs which cannot be interpreted and recording them
+     * in the given rejections rather than failing. See {@link #interpretAll(Class, List)}.
+     */
+    public <T> @NotNull List<T> interpretAll(@NotNull Class<T> targetClass, @NotNull List<? extends CharSequence> inputs, @NotNull Rejections rejections) {
+        return ParallelInterpretation.interpretAll(pool, makeInterpreter(targetClass), inputs, rejections);
+    }
+
+    /**
+     * Interpret every line of a UTF-8 file in parallel, splitting the file at line boundaries into ranges which are
+     * memory-mapped and interpreted on a fork/join pool.
+     *
+     * @param targetClass The class to interpret each line into
+     * @param path The file to read
+     * @return An unmodifiable list of the interpreted lines, in order
+     * @throws IOException if the file cannot be read
+     * @see #withParallelism(int)
+     */
+    public <T> @NotNull List<T> interpretAll(@NotNull Class<T> targetClass, @NotNull Path path) throws IOException {
+        return interpretAll(targetClass, path, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Interpret every line of a file in the given charset in parallel. See {@link #interpretAll(Class, Path)}.
+     */
+    public <T> @NotNull List<T> interpretAll(@NotNull Class<T> targetClass, @NotNull Path path, @NotNull Charset charset) throws IOException {
+        return ParallelInterpretation.interpretLines(pool, makeInterpreter(targetClass), path, charset, null);
+    }
+
+    /**
+     * Interpret every line of a UTF-8 file in parallel, leaving out lines which cannot be interpreted and recording
+     * them in the given rejections rather than failing. See {@link #interpretAll(Class, Path)}.
+     */
+    public <T> @NotNull List<T> interpretAll(@NotNull Class<T> targetClass, @NotNull Path path, @NotNull Rejections rejections) throws IOException {
+        return ParallelInterpretation.interpretLines(pool, makeInterpreter(targetClass), path, StandardCharsets.UTF_8, rejections);
+    }
+
+    /**
+     * For each pattern with required literal text, the number of inputs which have been rejected by checking for
+     * that text, without running the regex engine. Patterns which are used by more than one interpreter have their
+     * counts summed.
+     *
+     * @return The rejection count for each pattern, in the order interpreters were made
+     */
+    public @NotNull Map<String, Long> prefilterRejections() {
+        Map<String, Long> result = new LinkedHashMap<>();
+        for (InstanceBuilder<?> builder : instanceBuilders) {
+            if (!builder.requiredLiterals().isEmpty()) {
+                result.merge(builder.pattern().pattern(), builder.rejections(), Long::sum);
+            }
+        }
+        return result;
     }
 
     private <T> @NotNull Interpreter<T> makeInterpreterUncached(@NotNull Class<T> targetClass, @Nullable Pattern overridePattern) {
-        var builders = InstanceBuilderInfo.forClass(targetClass, overridePattern).stream()
-                .map(info -> new InstanceBuilder<>(
-                        info.pattern(),
-                        new ParameterValueExtractor(info.parameters().stream()
-                                .map(this::makeParameterInterpreter)
-                                .toList()),
-                        info.instantiator()
-                )).toList();
+        var event = new InterpreterBuiltEvent();
+        event.begin();
+
+        var interpreter = buildInterpreter(targetClass, overridePattern, event);
+
+        event.end();
+        if (event.shouldCommit()) {
+            event.targetClass = targetClass;
+            event.overridePattern = overridePattern == null ? null : overridePattern.pattern();
+            event.commit();
+        }
+        return interpreter;
+    }
+
+    /*
+     * Generated interpreters match each builder's pattern in turn with java.util.regex, so are used only while no
+     * option is set which changes how patterns are matched or what is recorded about matching them.
+     */
+    private boolean usesGeneratedInterpreters() {
+        return patternEngine == null
+                && matchBudget == 0
+                && !rejectingExponentialPatterns
+                && !adaptingBuilderOrder
+                && !lazyLists
+                && !collectingStats;
+    }
+
+    private <T> @NotNull Interpreter<T> buildInterpreter(@NotNull Class<T> targetClass, @Nullable Pattern overridePattern, @NotNull InterpreterBuiltEvent event) {
+        if (overridePattern == null) {
+            var generated = usesGeneratedInterpreters() ? GeneratedInterpreters.forClass(targetClass) : null;
+            if (generated != null) {
+                event.kind = "generated";
+                return generated.create(this);
+            }
+
+            // Enums are looked up by keyword directly, without a regex.
+            if (targetClass.isEnum() && !targetClass.isAnnotationPresent(FromPattern.class)) {
+                var keywords = KeywordTable.forEnum(targetClass);
+                event.kind = "keyword";
+                event.builderCount = keywords.keywords().size();
+                return (NullableInterpreter<T>) input -> keywords.lookup(input, 0, input.length());
+            }
+        }
+
+        var infos = InstanceBuilderInfo.forClass(targetClass, overridePattern);
+        checkBacktracking(targetClass, infos);
+        var builders = IntStream.range(0, infos.size())
+                .mapToObj(index -> makeInstanceBuilder(infos.get(index), collectingStats
+                        ? new BuilderCounters(targetClass, index, infos.get(index).pattern())
+                        : null))
+                .toList();
 
         if (builders.isEmpty()) {
             if (targetClass.isSealed()) {
@@ -66,9 +569,121 @@ public final class InterpretationContext {
                             .formatted(targetClass));
         }
 
+        event.builderCount = builders.size();
+
+        // When no two patterns can match the same input, the builders' required literals rule out all but one
+        // without running any regex, so trying the likeliest builder first beats matching a combined pattern.
+        if (adaptingBuilderOrder && builders.size() > 1 && AdaptiveInstanceBuilderInterpreter.allDisjoint(builders)) {
+            event.kind = "adaptive";
+            return new AdaptiveInstanceBuilderInterpreter<>(builders);
+        }
+
+        if (builders.size() > 1) {
+            var combined = AlternationInstanceBuilderInterpreter.tryCombine(builders, patternEngine);
+            if (combined != null) {
+                event.kind = "alternation";
+                return combined;
+            }
+        }
+
+        if (adaptingBuilderOrder && builders.size() > 1) {
+            event.kind = "adaptive";
+            return new AdaptiveInstanceBuilderInterpreter<>(builders);
+        }
+
+        event.kind = "first-matching";
         return new FirstMatchingInstanceBuilderInterpreter<>(builders);
     }
 
+    private void checkBacktracking(@NotNull Class<?> targetClass, @NotNull List<? extends InstanceBuilderInfo<?>> infos) {
+        for (InstanceBuilderInfo<?> info : infos) {
+            var event = new ExponentialPatternEvent();
+            if (!rejectingExponentialPatterns && !event.shouldCommit()) return;
+            if (!BacktrackingAnalyser.canBacktrackExponentially(info.pattern())) continue;
+
+            event.targetClass = targetClass;
+            event.pattern = info.pattern().pattern();
+            event.commit();
+
+            if (rejectingExponentialPatterns) {
+                throw new InterpreterBuildingException(
+                        ("Pattern %s for %s may take exponentially long to reject some inputs, " +
+                        "as part of it is repeated and can match the same text in more than one way")
+                                .formatted(info.pattern(), targetClass));
+            }
+        }
+    }
+
+    private <T> @NotNull Interpreter<T> memoised(@NotNull Class<T> targetClass, @NotNull Interpreter<T> interpreter) {
+        var maximumSize = memoSizes.get(targetClass);
+        if (maximumSize == null) return interpreter;
+
+        var memoising = new MemoisingInterpreter<>(targetClass, interpreter, maximumSize);
+        memoisingInterpreters.add(memoising);
+        return memoising;
+    }
+
+    // Results are canonicalised before they are memoised, so that remembered results are shared instances too.
+    private <T> @NotNull Interpreter<T> canonicalised(@NotNull Class<T> targetClass, @NotNull Interpreter<T> interpreter) {
+        var maximumSize = canonicalSizes.get(targetClass);
+        if (maximumSize == null || interpreter instanceof CanonicalisingInterpreter<T>) return interpreter;
+
+        var canonicalising = new CanonicalisingInterpreter<>(targetClass, interpreter, maximumSize);
+        canonicalisingInterpreters.add(canonicalising);
+        return canonicalising;
+    }
+
+    private <T> @NotNull Interpreter<T> measured(@NotNull Class<T> targetClass, @Nullable String overridePattern, @NotNull Interpreter<T> interpreter) {
+        if (!collectingStats) return interpreter;
+
+        var measured = new MeasuredInterpreter<>(targetClass, overridePattern, interpreter);
+        measuredInterpreters.add(measured);
+        return measured;
+    }
+
+    private <T> @NotNull InstanceBuilder<T> makeInstanceBuilder(@NotNull InstanceBuilderInfo<T> info, @Nullable BuilderCounters counters) {
+        var builder = makeInstanceBuilderUnregistered(info, counters);
+        instanceBuilders.add(builder);
+        return builder;
+    }
+
+    private <T> @NotNull InstanceBuilder<T> makeInstanceBuilderUnregistered(@NotNull InstanceBuilderInfo<T> info, @Nullable BuilderCounters counters) {
+        var parameterInterpreters = info.parameters().stream()
+                .map(this::makeParameterInterpreter)
+                .toList();
+        var engine = patternEngine;
+        var compiledPattern = engine == null ? null : engine.compile(info.pattern());
+        var budget = matchBudget;
+
+        // Builders which take only primitive values are always compiled, as they then allocate nothing but the
+        // instance they create.
+        if (compiling || info.parameters().stream().allMatch(this::parsesAsPrimitive)) {
+            var compiled = CompiledMatchInstantiator.compile(info, parameterInterpreters, this::parsesAsPrimitive);
+            if (compiled != null) return new InstanceBuilder<>(info.pattern(), info.requiredLiterals(), compiled, compiledPattern, budget, counters);
+        }
+
+        var primitiveClasses = info.parameters().stream()
+                .<Class<?>>map(parameter -> parsesAsPrimitive(parameter)
+                        ? ((ParameterInfo.ScalarParameter) parameter).parameterClass()
+                        : null)
+                .toList();
+
+        return new InstanceBuilder<>(
+                info.pattern(),
+                info.requiredLiterals(),
+                ParameterValueExtractor.withPrimitiveParsers(parameterInterpreters, primitiveClasses),
+                info.instantiator(),
+                compiledPattern,
+                budget,
+                counters);
+    }
+
+    private boolean parsesAsPrimitive(@NotNull ParameterInfo parameter) {
+        return parameter instanceof ParameterInfo.ScalarParameter scalar
+                && scalar.annotatedPattern() == null
+                && interpreterCache.hasBuiltInInterpreter(scalar.parameterClass());
+    }
+
     public @NotNull Interpreter<?> makeParameterInterpreter(@NotNull ParameterInfo parameter) {
         if (parameter instanceof ParameterInfo.ScalarParameter)
             return makeScalarParameterInterpreter((ParameterInfo.ScalarParameter) parameter);
@@ -76,6 +691,9 @@ public final class InterpretationContext {
         if (parameter instanceof ParameterInfo.CollectionParameter)
             return makeCollectionParameterInterpreter((ParameterInfo.CollectionParameter) parameter);
 
+        if (parameter instanceof ParameterInfo.MapParameter)
+            return makeMapParameterInterpreter((ParameterInfo.MapParameter) parameter);
+
         throw new UnsupportedOperationException(
                 "Cannot make parameter interpreter for parameter %s"
                         .formatted(parameter));
@@ -88,26 +706,100 @@ public final class InterpretationContext {
     }
 
     private @NotNull Interpreter<?> makeCollectionParameterInterpreter(@NotNull ParameterInfo.CollectionParameter parameter) {
+        // Lazy lists are cached apart from ordinary ones, so that interpreters made earlier keep their eager lists.
+        var collectionParameter = lazyLists
+                && parameter.collectionClass() == ArrayList.class
+                && parameter.mode() == ParameterInfo.CollectionMode.EAGER
+                ? new ParameterInfo.CollectionParameter(
+                        parameter.name(),
+                        parameter.itemClass(),
+                        parameter.separator(),
+                        parameter.collectionClass(),
+                        ParameterInfo.CollectionMode.LAZY,
+                        parameter.annotatedPattern())
+                : parameter;
+
         return interpreterCache.getOrPut(
-                parameter.collectionClass(),
-                parameter.itemClass(),
-                parameter.separator(),
-                parameter.annotatedPattern(),
-                () -> makeCollectionParameterInterpreterUncached(parameter));
+                collectionParameter.collectionClass(),
+                collectionParameter.mode(),
+                collectionParameter.itemClass(),
+                collectionParameter.separator(),
+                collectionParameter.annotatedPattern(),
+                () -> makeCollectionParameterInterpreterUncached(collectionParameter));
     }
 
     @SuppressWarnings("unchecked")
-    private @NotNull <T> Interpreter<Collection<T>> makeCollectionParameterInterpreterUncached(ParameterInfo.@NotNull CollectionParameter parameter) {
-        Interpreter<T> scalarParameterInterpreter = (Interpreter<T>) (parameter.annotatedPattern() != null
-                ? makeInterpreter(parameter.itemClass(), parameter.annotatedPattern())
-                : makeInterpreter(parameter.itemClass()));
-
+    private @NotNull <T> Interpreter<Object> makeCollectionParameterInterpreterUncached(ParameterInfo.@NotNull CollectionParameter parameter) {
         var separatorRegex = Pattern.compile(parameter.separator());
+
+        if (parameter.collectionClass().isArray() || parameter.mode() == ParameterInfo.CollectionMode.COMPACT) {
+            Interpreter<?> itemInterpreter = parameter.annotatedPattern() == null && hasBuiltInInterpreter(parameter.itemClass())
+                    ? null
+                    : makeItemInterpreter(parameter);
+
+            return parameter.collectionClass().isArray()
+                    ? PrimitiveArrays.arrayInterpreter(parameter.collectionClass(), separatorRegex, itemInterpreter)
+                    : PrimitiveArrays.listInterpreter(parameter.itemClass(), separatorRegex, itemInterpreter);
+        }
+
+        Interpreter<T> scalarParameterInterpreter = (Interpreter<T>) makeItemInterpreter(parameter);
+        if (parameter.mode() == ParameterInfo.CollectionMode.LAZY) {
+            return LazyList.interpreter(separatorRegex, scalarParameterInterpreter);
+        }
+
+        var isArrayList = parameter.collectionClass() == ArrayList.class;
         Supplier<Collection<T>> targetSupplier = supplierOf((Class<Collection<T>>) parameter.collectionClass());
-        return (input) ->
-                Optional.of(separatorRegex.splitAsStream(input)
-                        .map(scalarParameterInterpreter::interpret)
-                        .collect(Collectors.toCollection(targetSupplier)));
+        NullableInterpreter<Collection<T>> collectionInterpreter = (input) -> {
+            var items = separatorRegex.split(input);
+            Collection<T> result = isArrayList
+                    ? new ArrayList<>(items.length)
+                    : targetSupplier.get();
+            for (String item : items) {
+                T value = NullableInterpreter.interpretOrNull(scalarParameterInterpreter, item);
+                if (value == null) return null;
+                result.add(value);
+            }
+            return result;
+        };
+        return (Interpreter<Object>) (Interpreter<?>) collectionInterpreter;
+    }
+
+    private @NotNull Interpreter<?> makeItemInterpreter(ParameterInfo.@NotNull CollectionParameter parameter) {
+        return parameter.annotatedPattern() != null
+                ? makeInterpreter(parameter.itemClass(), parameter.annotatedPattern())
+                : makeInterpreter(parameter.itemClass());
+    }
+
+    private @NotNull Interpreter<?> makeMapParameterInterpreter(@NotNull ParameterInfo.MapParameter parameter) {
+        return interpreterCache.getOrPut(
+                parameter.mapClass(),
+                parameter.mode(),
+                parameter.keyClass(),
+                parameter.valueClass(),
+                parameter.entrySeparator(),
+                parameter.keyValueSeparator(),
+                parameter.annotatedPattern(),
+                () -> makeMapParameterInterpreterUncached(parameter));
+    }
+
+    private @NotNull Interpreter<Object> makeMapParameterInterpreterUncached(ParameterInfo.@NotNull MapParameter parameter) {
+        var entrySeparator = Pattern.compile(parameter.entrySeparator());
+        var keyValueSeparator = Pattern.compile(parameter.keyValueSeparator());
+
+        var keyParser = ParameterValueExtractor.groupParser(
+                parameter.keyClass(),
+                hasBuiltInInterpreter(parameter.keyClass()),
+                makeInterpreter(parameter.keyClass()));
+        var valueParser = ParameterValueExtractor.groupParser(
+                parameter.valueClass(),
+                parameter.annotatedPattern() == null && hasBuiltInInterpreter(parameter.valueClass()),
+                parameter.annotatedPattern() != null
+                        ? makeInterpreter(parameter.valueClass(), parameter.annotatedPattern())
+                        : makeInterpreter(parameter.valueClass()));
+
+        return parameter.mode() == ParameterInfo.MapMode.COMPACT
+                ? SeparatedMaps.compactMapInterpreter(parameter.keyClass(), entrySeparator, keyValueSeparator, keyParser, valueParser)
+                : SeparatedMaps.hashMapInterpreter(entrySeparator, keyValueSeparator, keyParser, valueParser);
     }
 
     private static <T> Supplier<Collection<T>> supplierOf(Class<Collection<T>> collectionClass) {
@@ -0,0 +1,170 @@
+package com.codepoetics.mariko;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A snapshot of the counters kept by a context which {@link InterpretationContext#collectStats() collects stats}:
+ * for each type, how many inputs its interpreter was given and how long they took, and for each builder of each
+ * type, how many inputs got how far towards creating an instance.
+ *
+ * <p>Counters are read one at a time while interpretation may still be going on, so totals taken from different
+ * counters may disagree slightly.</p>
+ *
+ * @param types The stats for each type, in the order their interpreters were made
+ * @param builders The stats for each builder, in the order they were made
+ * @param memos The stats for each type whose results are memoised, which are kept whether or not other stats are
+ *              collected
+ * @param canonicals The stats for each type whose results are canonicalised, which are likewise always kept
+ */
+public record InterpretationStats(
+        @NotNull List<TypeStats> types,
+        @NotNull List<BuilderStats> builders,
+        @NotNull List<MemoStats> memos,
+        @NotNull List<CanonicalStats> canonicals) {
+
+    /**
+     * @param targetClass The type interpreted
+     * @param pattern The pattern it was interpreted with in place of its own, if any
+     * @param attempts The number of inputs given to its interpreter
+     * @param successes The number of inputs interpreted
+     * @param failures The number of inputs which could not be interpreted
+     * @param latency The time taken by each input, including any nested values
+     */
+    public record TypeStats(
+            @NotNull Class<?> targetClass,
+            @Nullable String pattern,
+            long attempts,
+            long successes,
+            long failures,
+            @NotNull Latency latency) { }
+
+    /**
+     * @param targetClass The type whose interpreter the builder belongs to
+     * @param index The position of the builder among that type's builders, which are tried in order
+     * @param pattern The builder's pattern
+     * @param attempts The number of inputs the builder was tried on
+     * @param prefilterRejections The number ruled out by checking for the pattern's required literals
+     * @param regexMisses The number the pattern did not match
+     * @param budgetExhaustions The number given up on because matching them ran out of
+     *                          {@link InterpretationContext#withMatchBudget(long) match budget}
+     * @param matches The number the pattern matched
+     * @param failures The number matched which could not be turned into an instance, usually because a nested value
+     *                 could not be interpreted
+     * @param instantiation The time taken to create an instance from each match, including any nested values
+     */
+    public record BuilderStats(
+            @NotNull Class<?> targetClass,
+            int index,
+            @NotNull String pattern,
+            long attempts,
+            long prefilterRejections,
+            long regexMisses,
+            long budgetExhaustions,
+            long matches,
+            long failures,
+            @NotNull Latency instantiation) { }
+
+    /**
+     * @param targetClass The type whose results are memoised
+     * @param hits The number of inputs answered with a remembered result
+     * @param misses The number of inputs which had to be interpreted
+     * @param evictions The number of results forgotten to make room for others
+     * @param size The number of results remembered
+     */
+    public record MemoStats(@NotNull Class<?> targetClass, long hits, long misses, long evictions, int size) {
+
+        /**
+         * @return The proportion of inputs answered with a remembered result, or 0 if there were none
+         */
+        public double hitRate() {
+            long total = hits + misses;
+            return total == 0 ? 0 : (double) hits / total;
+        }
+    }
+
+    /**
+     * @param targetClass The type whose results are canonicalised
+     * @param hits The number of results replaced with an equal instance already shared
+     * @param misses The number of results which became the shared instance for their value
+     * @param evictions The number of shared instances forgotten to make room for others
+     * @param size The number of shared instances held
+     */
+    public record CanonicalStats(@NotNull Class<?> targetClass, long hits, long misses, long evictions, int size) {
+
+        /**
+         * @return The proportion of results replaced with a shared instance, or 0 if there were none
+         */
+        public double hitRate() {
+            long total = hits + misses;
+            return total == 0 ? 0 : (double) hits / total;
+        }
+    }
+
+    /**
+     * A histogram of durations. Bucket 0 counts durations of 0ns, and bucket {@code n} durations from
+     * {@code 2^(n-1)} up to {@code 2^n - 1} nanoseconds; the last bucket also counts anything longer.
+     *
+     * @param bucketCounts The number of durations in each bucket
+     * @param totalNanos The sum of all durations
+     */
+    public record Latency(long @NotNull [] bucketCounts, long totalNanos) {
+
+        public static final int BUCKET_COUNT = 48;
+
+        /**
+         * @return The number of durations recorded
+         */
+        public long count() {
+            return Arrays.stream(bucketCounts).sum();
+        }
+
+        /**
+         * @return The mean duration in nanoseconds, or 0 if none were recorded
+         */
+        public double meanNanos() {
+            long count = count();
+            return count == 0 ? 0 : (double) totalNanos / count;
+        }
+
+        /**
+         * An upper bound for the given percentile, accurate to within a factor of two.
+         * @param percentile The percentile, from 0 to 100
+         * @return The largest duration in the bucket containing the percentile, in nanoseconds, or 0 if none were
+         * recorded
+         */
+        public long percentileNanos(double percentile) {
+            long count = count();
+            if (count == 0) return 0;
+
+            long rank = Math.max(1, (long) Math.ceil(count * percentile / 100));
+            long seen = 0;
+            for (int bucket = 0; bucket < bucketCounts.length; bucket++) {
+                seen += bucketCounts[bucket];
+                if (seen >= rank) return bucket == 0 ? 0 : (1L << bucket) - 1;
+            }
+            return Long.MAX_VALUE;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof Latency latency
+                    && totalNanos == latency.totalNanos
+                    && Arrays.equals(bucketCounts, latency.bucketCounts);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * Arrays.hashCode(bucketCounts) + Long.hashCode(totalNanos);
+        }
+
+        @Override
+        public String toString() {
+            return "Latency[count=%d, meanNanos=%.0f, p50Nanos=%d, p99Nanos=%d]"
+                    .formatted(count(), meanNanos(), percentileNanos(50), percentileNanos(99));
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package com.codepoetics.mariko;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * A Flight Recorder event for building the interpreter for a type. Its duration includes building the interpreters
+ * of any nested types which had not been built before, each of which has an event of its own.
+ */
+@Name("com.codepoetics.mariko.InterpreterBuilt")
+@Label("Interpreter Built")
+@Category("Mariko")
+@Description("An interpreter was built for a type")
+final class InterpreterBuiltEvent extends Event {
+
+    @Label("Target Class")
+    Class<?> targetClass;
+
+    @Label("Override Pattern")
+    String overridePattern;
+
+    @Label("Builder Count")
+    @Description("The number of constructors and builder methods the interpreter chooses between, or of keywords for an enum")
+    int builderCount;
+
+    @Label("Kind")
+    @Description("How the interpreter chooses a builder: generated, keyword, alternation, adaptive or first-matching")
+    String kind;
+}
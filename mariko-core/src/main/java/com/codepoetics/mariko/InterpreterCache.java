@@ -1,72 +1,127 @@
 package com.codepoetics.mariko;
 
 import com.codepoetics.mariko.api.Interpreter;
+import com.codepoetics.mariko.api.InterpreterBuildingException;
+import com.codepoetics.mariko.reflection.ParameterInfo;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import java.util.Collection;
 import java.util.HashSet;
-import java.util.Optional;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
-import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Supplier;
-
+import java.util.function.UnaryOperator;
+
+/**
+ * Caches the interpreters made by a context, building each at most once however many threads ask for it at the
+ * same time.
+ *
+ * <p>The first thread to ask for an interpreter which is not yet cached builds it, and threads asking for it in the
+ * meantime wait for that build to finish. A thread which is itself part-way through building interpreters never
+ * waits, as the thread it would wait for might be waiting for it; like a thread which asks for an interpreter it is
+ * already building, as recursive types do, it is given a deferred interpreter which looks up the finished one when
+ * first used.</p>
+ */
 class InterpreterCache {
 
+    private static final Map<Class<?>, Interpreter<?>> PRIMITIVE_INTERPRETERS = Map.of(
+            byte.class, (NullableInterpreter<Byte>) s -> PrimitiveParsers.byteOrNull(s, 0, s.length()),
+            int.class, (NullableInterpreter<Integer>) s -> PrimitiveParsers.intOrNull(s, 0, s.length()),
+            long.class, (NullableInterpreter<Long>) s -> PrimitiveParsers.longOrNull(s, 0, s.length()),
+            short.class, (NullableInterpreter<Short>) s -> PrimitiveParsers.shortOrNull(s, 0, s.length()),
+            boolean.class, (NullableInterpreter<Boolean>) s -> PrimitiveParsers.booleanOrNull(s, 0, s.length()),
+            char.class, (NullableInterpreter<Character>) s -> PrimitiveParsers.charOrNull(s, 0, s.length()),
+            double.class, (NullableInterpreter<Double>) s -> PrimitiveParsers.doubleOrNull(s, 0, s.length()),
+            float.class, (NullableInterpreter<Float>) s -> PrimitiveParsers.floatOrNull(s, 0, s.length()));
+
+    @SuppressWarnings("unchecked")
     public static InterpreterCache withPrimitives() {
         InterpreterCache interpreterCache = new InterpreterCache();
 
-        interpreterCache.put(byte.class, s -> Optional.of(Byte.parseByte(s)));
-        interpreterCache.put(int.class, s -> Optional.of(Integer.parseInt(s)));
-        interpreterCache.put(long.class, s -> Optional.of(Long.parseLong(s)));
-        interpreterCache.put(short.class, s -> Optional.of(Short.parseShort(s)));
-        interpreterCache.put(boolean.class, s -> Optional.of(Boolean.parseBoolean(s)));
-        interpreterCache.put(char.class, s -> Optional.of(s.toCharArray()[0]));
-        interpreterCache.put(double.class, s -> Optional.of(Double.parseDouble(s)));
-        interpreterCache.put(float.class, s -> Optional.of(Float.parseFloat(s)));
-        interpreterCache.put(String.class, Optional::ofNullable);
+        PRIMITIVE_INTERPRETERS.forEach((primitiveClass, interpreter) ->
+                interpreterCache.put((Class<Object>) primitiveClass, (Interpreter<Object>) interpreter));
+        interpreterCache.put(String.class, (NullableInterpreter<String>) CharSequence::toString);
 
         return interpreterCache;
     }
 
     private sealed interface InterpreterKey permits
             InterpreterKey.ClassIdentifier,
-            InterpreterKey.CollectionClassIdentifier
+            InterpreterKey.CollectionClassIdentifier,
+            InterpreterKey.MapClassIdentifier
     {
         Class<?> targetClass();
         record ClassIdentifier(@NotNull Class<?> targetClass, @Nullable String pattern) implements InterpreterKey { }
-        record CollectionClassIdentifier(@NotNull Class<?> collectionClass, @NotNull Class<?> targetClass, String separator, @Nullable String pattern) implements InterpreterKey { }
+        record CollectionClassIdentifier(@NotNull Class<?> collectionClass, @NotNull ParameterInfo.CollectionMode mode, @NotNull Class<?> targetClass, String separator, @Nullable String pattern) implements InterpreterKey { }
+        record MapClassIdentifier(@NotNull Class<?> mapClass, @NotNull ParameterInfo.MapMode mode, @NotNull Class<?> keyClass, @NotNull Class<?> targetClass, String entrySeparator, String keyValueSeparator, @Nullable String pattern) implements InterpreterKey { }
     }
 
-    private static final class DeferredInterpreter<T> implements Interpreter<T> {
+    private static final class DeferredInterpreter<T> implements NullableInterpreter<T> {
         private final InterpreterCache cache;
         private final InterpreterKey key;
-        private final AtomicReference<Interpreter<T>> finishedInterpreter = new AtomicReference<>();
+        private volatile Interpreter<T> finishedInterpreter;
 
         private DeferredInterpreter(InterpreterCache cache, InterpreterKey key) {
             this.cache = cache;
             this.key = key;
         }
 
-        @SuppressWarnings("unchecked")
-        @NotNull
         @Override
-        public Optional<T> tryInterpret(@NotNull String input) {
-            return finishedInterpreter.updateAndGet(existing ->
-                    existing == null ? (Interpreter<T>) cache.cachedInterpreters.get(key) : existing)
-                    .tryInterpret(input);
+        public @Nullable T interpretOrNull(@NotNull CharSequence input) {
+            return NullableInterpreter.interpretOrNull(finishedInterpreter(), input);
+        }
+
+        // Once resolved, this is a single read of the field; racing threads may both resolve it, to the same value.
+        private Interpreter<T> finishedInterpreter() {
+            var finished = finishedInterpreter;
+            if (finished == null) {
+                finished = cache.awaitBuilt(key);
+                finishedInterpreter = finished;
+            }
+            return finished;
         }
     }
 
     private final ConcurrentMap<InterpreterKey, Interpreter<?>> cachedInterpreters = new ConcurrentHashMap<>();
+    private final ConcurrentMap<InterpreterKey, CompletableFuture<Interpreter<?>>> inFlight = new ConcurrentHashMap<>();
     private final ThreadLocal<Set<InterpreterKey>> underConstruction = ThreadLocal.withInitial(HashSet::new);
 
     public <T> void put(Class<T> targetClass, Interpreter<T> interpreter) {
         cachedInterpreters.put(new InterpreterKey.ClassIdentifier(targetClass, null), interpreter);
     }
 
+    /**
+     * Replace the interpreter built or registered for the given class, if there is one.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> void replace(Class<T> targetClass, UnaryOperator<Interpreter<T>> replacement) {
+        cachedInterpreters.computeIfPresent(
+                new InterpreterKey.ClassIdentifier(targetClass, null),
+                (key, interpreter) -> replacement.apply((Interpreter<T>) interpreter));
+    }
+
+    /**
+     * Whether an interpreter for the given class and pattern has been built or registered.
+     */
+    public boolean contains(Class<?> targetClass, @Nullable String pattern) {
+        return cachedInterpreters.containsKey(new InterpreterKey.ClassIdentifier(targetClass, pattern));
+    }
+
+    /**
+     * Whether values of the given primitive class are interpreted by the built-in parser, rather than by an
+     * interpreter registered in its place.
+     */
+    public boolean hasBuiltInInterpreter(Class<?> primitiveClass) {
+        var builtIn = PRIMITIVE_INTERPRETERS.get(primitiveClass);
+        return builtIn != null
+                && builtIn == cachedInterpreters.get(new InterpreterKey.ClassIdentifier(primitiveClass, null));
+    }
+
     public <T> Interpreter<T> getOrPut(Class<T> targetClass, Supplier<Interpreter<T>> builder) {
         return getOrPut(new InterpreterKey.ClassIdentifier(targetClass, null), builder);
     }
@@ -75,8 +130,12 @@ class InterpreterCache {
         return getOrPut(new InterpreterKey.ClassIdentifier(targetClass, pattern), builder);
     }
 
-    public <T, C extends Collection<T>> Interpreter<C> getOrPut(Class<?> collectionClass, Class<T> targetClass, String separator, String pattern, Supplier<Interpreter<C>> builder) {
-        return getOrPut(new InterpreterKey.CollectionClassIdentifier(collectionClass, targetClass, separator, pattern), builder);
+    public <C> Interpreter<C> getOrPut(Class<?> collectionClass, ParameterInfo.CollectionMode mode, Class<?> targetClass, String separator, String pattern, Supplier<Interpreter<C>> builder) {
+        return getOrPut(new InterpreterKey.CollectionClassIdentifier(collectionClass, mode, targetClass, separator, pattern), builder);
+    }
+
+    public <M> Interpreter<M> getOrPut(Class<?> mapClass, ParameterInfo.MapMode mode, Class<?> keyClass, Class<?> valueClass, String entrySeparator, String keyValueSeparator, String pattern, Supplier<Interpreter<M>> builder) {
+        return getOrPut(new InterpreterKey.MapClassIdentifier(mapClass, mode, keyClass, valueClass, entrySeparator, keyValueSeparator, pattern), builder);
     }
 
     @SuppressWarnings("unchecked")
@@ -84,15 +143,63 @@ class InterpreterCache {
         var cached = cachedInterpreters.get(key);
         if (cached != null) return (Interpreter<T>) cached;
 
-        if (!underConstruction.get().add(key)) {
+        var building = underConstruction.get();
+        if (building.contains(key)) {
             return new DeferredInterpreter<>(this, key);
         }
+
+        var build = new CompletableFuture<Interpreter<?>>();
+        var existingBuild = inFlight.putIfAbsent(key, build);
+        if (existingBuild != null) {
+            return building.isEmpty()
+                    ? (Interpreter<T>) join(existingBuild)
+                    : new DeferredInterpreter<>(this, key);
+        }
+
+        building.add(key);
         try {
-            var built = builder.get();
-            cachedInterpreters.put(key, built);
+            // Another thread may have finished building it between the lookup above and claiming the build.
+            var built = (Interpreter<T>) cachedInterpreters.get(key);
+            if (built == null) {
+                built = builder.get();
+                cachedInterpreters.put(key, built);
+            }
+            build.complete(built);
             return built;
+        } catch (RuntimeException | Error e) {
+            build.completeExceptionally(e);
+            throw e;
         } finally {
-            underConstruction.get().remove(key);
+            building.remove(key);
+            inFlight.remove(key, build);
+        }
+    }
+
+    /*
+     * The interpreter for a key which has been built, or is being built by another thread.
+     */
+    @SuppressWarnings("unchecked")
+    private <T> Interpreter<T> awaitBuilt(InterpreterKey key) {
+        var cached = cachedInterpreters.get(key);
+        if (cached != null) return (Interpreter<T>) cached;
+
+        var build = inFlight.get(key);
+        if (build != null) return (Interpreter<T>) join(build);
+
+        cached = cachedInterpreters.get(key);
+        if (cached != null) return (Interpreter<T>) cached;
+
+        throw new InterpreterBuildingException(
+                "Interpreter for %s was used before it was built, or failed to build".formatted(key.targetClass()));
+    }
+
+    private static Interpreter<?> join(CompletableFuture<Interpreter<?>> build) {
+        try {
+            return build.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) throw cause;
+            if (e.getCause() instanceof Error cause) throw cause;
+            throw e;
         }
     }
 }
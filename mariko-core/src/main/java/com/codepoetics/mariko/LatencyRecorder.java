@@ -0,0 +1,34 @@
+package com.codepoetics.mariko;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts durations into buckets whose bounds are powers of two nanoseconds, each bucket a {@link LongAdder} so
+ * that threads recording at the same time do not contend.
+ */
+final class LatencyRecorder {
+
+    private final LongAdder[] buckets = new LongAdder[InterpretationStats.Latency.BUCKET_COUNT];
+    private final LongAdder totalNanos = new LongAdder();
+
+    LatencyRecorder() {
+        for (int i = 0; i < buckets.length; i++) {
+            buckets[i] = new LongAdder();
+        }
+    }
+
+    void record(long nanos) {
+        buckets[Math.min(buckets.length - 1, 64 - Long.numberOfLeadingZeros(Math.max(0, nanos)))].increment();
+        totalNanos.add(nanos);
+    }
+
+    @NotNull InterpretationStats.Latency snapshot() {
+        long[] counts = new long[buckets.length];
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = buckets[i].sum();
+        }
+        return new InterpretationStats.Latency(counts, totalNanos.sum());
+    }
+}
@@ -0,0 +1,72 @@
+package com.codepoetics.mariko;
+
+import com.codepoetics.mariko.api.InterpretationException;
+import com.codepoetics.mariko.api.Interpreter;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.AbstractList;
+import java.util.RandomAccess;
+import java.util.regex.Pattern;
+
+/**
+ * A read-only list over the separated items of an input, which interprets each item the first time it is read and
+ * keeps the result. Making the list only finds the bounds of its items, so a consumer which reads a few items, or
+ * only the size, never pays for interpreting the rest.
+ *
+ * <p>Items are split exactly as {@link Pattern#split(CharSequence)} would split them. An item which cannot be
+ * interpreted is only found when it is read, which throws an {@link InterpretationException}. Threads reading the
+ * same item at the same time may each interpret it, and one of the results is kept.</p>
+ */
+final class LazyList<T> extends AbstractList<T> implements RandomAccess {
+
+    private final @NotNull String input;
+    private final int[] bounds;
+    private final @NotNull Interpreter<T> itemInterpreter;
+    private final Object[] items;
+
+    private LazyList(@NotNull String input, int[] bounds, @NotNull Interpreter<T> itemInterpreter) {
+        this.input = input;
+        this.bounds = bounds;
+        this.itemInterpreter = itemInterpreter;
+        this.items = new Object[bounds.length / 2];
+    }
+
+    /**
+     * Make an interpreter which presents separated items as a lazy list.
+     *
+     * @param separator The separator between items
+     * @param itemInterpreter The interpreter for items
+     */
+    static <T> @NotNull NullableInterpreter<Object> interpreter(
+            @NotNull Pattern separator,
+            @NotNull Interpreter<T> itemInterpreter) {
+        var boundsInterpreter = PrimitiveArrays.boundsInterpreter(separator);
+
+        return input -> {
+            var text = input.toString();
+            var bounds = boundsInterpreter.interpretOrNull(text);
+            return bounds == null ? null : new LazyList<>(text, bounds, itemInterpreter);
+        };
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public T get(int index) {
+        var item = items[index];
+        if (item == null) {
+            var itemInput = input.substring(bounds[index * 2], bounds[index * 2 + 1]);
+            item = NullableInterpreter.interpretOrNull(itemInterpreter, itemInput);
+            if (item == null) {
+                throw new InterpretationException(
+                        "Unable to interpret item %d of list: %s".formatted(index, itemInput));
+            }
+            items[index] = item;
+        }
+        return (T) item;
+    }
+
+    @Override
+    public int size() {
+        return items.length;
+    }
+}
@@ -0,0 +1,243 @@
+package com.codepoetics.mariko;
+
+import com.codepoetics.mariko.api.CompiledPattern;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Arrays;
+import java.util.regex.MatchResult;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static com.codepoetics.mariko.RegexProgram.BEGIN;
+import static com.codepoetics.mariko.RegexProgram.CHAR;
+import static com.codepoetics.mariko.RegexProgram.END;
+import static com.codepoetics.mariko.RegexProgram.JMP;
+import static com.codepoetics.mariko.RegexProgram.MATCH;
+import static com.codepoetics.mariko.RegexProgram.SAVE;
+import static com.codepoetics.mariko.RegexProgram.SET;
+import static com.codepoetics.mariko.RegexProgram.SPLIT;
+
+/**
+ * A pattern compiled for the {@link LinearPatternEngine}: a strict {@link RegexProgram}, run over the input one
+ * character at a time by a Pike VM which keeps a list of threads, one for each instruction that some way of matching
+ * has reached, in order of preference.
+ *
+ * <p>Each step advances every thread whose instruction accepts the current character, in order, adding the threads
+ * they lead to to the next list unless a thread for that instruction is already there. As a thread that arrives
+ * later at an instruction would have been preferred less by a backtracking matcher, and what happens from there on
+ * depends only on the instruction and the position, dropping it changes nothing. The first thread to reach the end
+ * of the program at the end of the input is the match java.util.regex would have found.</p>
+ */
+final class LinearPattern implements CompiledPattern {
+
+    // Returned by run when the input contains surrogates, which java.util.regex matches as whole code points.
+    private static final int[] FALLBACK = new int[0];
+
+    private final int[] ops;
+    private final int[] arg1;
+    private final RegexProgram program;
+    private final int groupCount;
+    private final int slots;
+    private final int consumingCount;
+    private final Pattern fallback;
+    private final ThreadLocal<Vm> vms = ThreadLocal.withInitial(this::newVm);
+
+    private LinearPattern(RegexProgram program, Pattern fallback) {
+        this.ops = program.ops;
+        this.arg1 = program.arg1;
+        this.program = program;
+        this.groupCount = program.groupCount;
+        this.slots = groupCount * 2;
+        this.consumingCount = (int) Arrays.stream(ops).filter(op -> op == CHAR || op == SET || op == MATCH).count();
+        this.fallback = fallback;
+    }
+
+    /**
+     * Compile the pattern, or return null if it uses constructs this engine does not support, or compiles to a
+     * program larger than the given size.
+     */
+    static @Nullable LinearPattern compile(@NotNull Pattern pattern, int maxProgramSize) {
+        var program = RegexProgram.compile(pattern, maxProgramSize, true);
+        return program == null ? null : new LinearPattern(program, pattern);
+    }
+
+    @Override
+    public @Nullable MatchResult matchWhole(@NotNull CharSequence input) {
+        int[] captures = run(vms.get(), input);
+        if (captures == FALLBACK) {
+            Matcher matcher = fallback.matcher(input);
+            return matcher.matches() ? matcher.toMatchResult() : null;
+        }
+        return captures == null ? null : new LinearMatch(input, captures, groupCount);
+    }
+
+    private int @Nullable [] run(Vm vm, CharSequence input) {
+        int length = input.length();
+        Threads current = vm.current;
+        Threads next = vm.next;
+
+        Arrays.fill(vm.scratch, -1);
+        current.size = 0;
+        vm.nextGeneration();
+        addThread(vm, current, 0, 0, input);
+
+        for (int position = 0; current.size > 0; position++) {
+            char c = 0;
+            if (position < length) {
+                c = input.charAt(position);
+                if (Character.isSurrogate(c)) return FALLBACK;
+            }
+
+            next.size = 0;
+            vm.nextGeneration();
+            for (int thread = 0; thread < current.size; thread++) {
+                int pc = current.pcs[thread];
+                int op = ops[pc];
+
+                // Only a match of the whole input counts.
+                if (op == MATCH) {
+                    if (position == length) {
+                        return Arrays.copyOfRange(current.captures, thread * slots, thread * slots + slots);
+                    }
+                    continue;
+                }
+
+                boolean advances = position < length && program.accepts(pc, c);
+                if (advances) {
+                    System.arraycopy(current.captures, thread * slots, vm.scratch, 0, slots);
+                    addThread(vm, next, pc + 1, position + 1, input);
+                }
+            }
+
+            if (position == length) return null;
+            var swap = current;
+            current = next;
+            next = swap;
+        }
+        return null;
+    }
+
+    /*
+     * Follow jumps, splits, saves and assertions from pc, adding a thread for each character-consuming or match
+     * instruction reached, in order of preference, with the captures held in the VM's scratch array.
+     */
+    private void addThread(Vm vm, Threads threads, int pc, int position, CharSequence input) {
+        if (vm.marks[pc] == vm.generation) return;
+        vm.marks[pc] = vm.generation;
+
+        switch (ops[pc]) {
+            case JMP -> addThread(vm, threads, arg1[pc], position, input);
+            case SPLIT -> {
+                addThread(vm, threads, arg1[pc], position, input);
+                addThread(vm, threads, program.arg2[pc], position, input);
+            }
+            case SAVE -> {
+                int slot = arg1[pc];
+                int saved = vm.scratch[slot];
+                vm.scratch[slot] = position;
+                addThread(vm, threads, pc + 1, position, input);
+                vm.scratch[slot] = saved;
+            }
+            case BEGIN -> {
+                if (position == 0) addThread(vm, threads, pc + 1, position, input);
+            }
+            case END -> {
+                if (atEnd(input, position)) addThread(vm, threads, pc + 1, position, input);
+            }
+            default -> {
+                int thread = threads.size++;
+                threads.pcs[thread] = pc;
+                System.arraycopy(vm.scratch, 0, threads.captures, thread * slots, slots);
+            }
+        }
+    }
+
+    // As java.util.regex's $ outside multiline mode: at the end, or before a line terminator which ends the input.
+    private static boolean atEnd(CharSequence input, int position) {
+        int length = input.length();
+        if (position == length) return true;
+        if (position == length - 2) return input.charAt(position) == '\r' && input.charAt(position + 1) == '\n';
+        if (position != length - 1) return false;
+
+        char c = input.charAt(position);
+        if (c == '\n') return position == 0 || input.charAt(position - 1) != '\r';
+        return c == '\r' || c == '\u0085' || (c | 1) == '\u2029';
+    }
+
+    private Vm newVm() {
+        return new Vm(ops.length, consumingCount, slots);
+    }
+
+    private static final class Threads {
+        private final int[] pcs;
+        private final int[] captures;
+        private int size;
+
+        Threads(int capacity, int slots) {
+            this.pcs = new int[capacity];
+            this.captures = new int[capacity * slots];
+        }
+    }
+
+    private static final class Vm {
+        private final Threads current;
+        private final Threads next;
+        private final int[] marks;
+        private final int[] scratch;
+        private int generation;
+
+        Vm(int programSize, int capacity, int slots) {
+            this.current = new Threads(capacity, slots);
+            this.next = new Threads(capacity, slots);
+            this.marks = new int[programSize];
+            this.scratch = new int[slots];
+        }
+
+        void nextGeneration() {
+            if (++generation == Integer.MAX_VALUE) {
+                Arrays.fill(marks, 0);
+                generation = 1;
+            }
+        }
+    }
+
+    private record LinearMatch(CharSequence input, int[] captures, int groupCount) implements MatchResult {
+
+        @Override
+        public int start() {
+            return 0;
+        }
+
+        @Override
+        public int start(int group) {
+            return group == 0 ? 0 : captures[slot(group)];
+        }
+
+        @Override
+        public int end() {
+            return input.length();
+        }
+
+        @Override
+        public int end(int group) {
+            return group == 0 ? input.length() : captures[slot(group) + 1];
+        }
+
+        @Override
+        public String group() {
+            return input.toString();
+        }
+
+        @Override
+        public String group(int group) {
+            int start = start(group);
+            return start < 0 ? null : input.subSequence(start, end(group)).toString();
+        }
+
+        private int slot(int group) {
+            if (group < 0 || group > groupCount) throw new IndexOutOfBoundsException("No group " + group);
+            return (group - 1) * 2;
+        }
+    }
+}
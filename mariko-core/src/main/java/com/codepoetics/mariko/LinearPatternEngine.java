@@ -0,0 +1,46 @@
+package com.codepoetics.mariko;
+
+import com.codepoetics.mariko.api.CompiledPattern;
+import com.codepoetics.mariko.api.PatternEngine;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.regex.Pattern;
+
+/**
+ * A pattern engine which matches in time proportional to the length of the input multiplied by the size of the
+ * pattern, however the pattern is written and whatever the input, by simulating every way the pattern could match
+ * at once rather than backtracking (a Pike VM). Groups capture the same text as they would with
+ * {@code java.util.regex}, as alternatives and repetitions are preferred in the same order.
+ *
+ * <p>Supported are literal text, character classes and escapes of every kind java.util.regex allows, {@code .},
+ * {@code ^} and {@code $}, capturing, non-capturing and named groups, alternation, and greedy and lazy quantifiers,
+ * with the {@code i} and {@code s} flags. Patterns which use back-references, lookaround, atomic groups, possessive
+ * quantifiers, word boundaries, or other flags, or in which a repeated group may match nothing, are left to
+ * java.util.regex, as are inputs containing surrogate pairs.</p>
+ */
+public final class LinearPatternEngine implements PatternEngine {
+
+    /**
+     * The largest program a pattern may compile to, counting each copy made of a group with a bounded repetition.
+     */
+    public static final int DEFAULT_MAX_PROGRAM_SIZE = 2000;
+
+    private final int maxProgramSize;
+
+    public LinearPatternEngine() {
+        this(DEFAULT_MAX_PROGRAM_SIZE);
+    }
+
+    /**
+     * @param maxProgramSize The largest program a pattern may compile to before it is left to java.util.regex
+     */
+    public LinearPatternEngine(int maxProgramSize) {
+        this.maxProgramSize = maxProgramSize;
+    }
+
+    @Override
+    public @Nullable CompiledPattern compile(@NotNull Pattern pattern) {
+        return LinearPattern.compile(pattern, maxProgramSize);
+    }
+}
@@ -0,0 +1,367 @@
+package com.codepoetics.mariko;
+
+import com.codepoetics.mariko.api.InterpretationException;
+import com.codepoetics.mariko.api.Interpreter;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Interprets every line of a file, reading it through a memory mapping rather than decoding it into a String per
+ * line. Each line is passed to the interpreter as a {@link CharSequence} window over the mapped bytes, which is reused
+ * from one line to the next.
+ *
+ * <p>Lines end with {@code \n}, {@code \r\n} or {@code \r}, as with {@link java.nio.file.Files#lines(Path)}. Only
+ * charsets in which these are single bytes and every other character below 0x80 is ASCII are supported. A line
+ * containing bytes outside ASCII is decoded into a String in the usual way, unless the charset is ISO-8859-1, in
+ * which every byte is a character.</p>
+ *
+ * <p>Files larger than the mapping region size are mapped a region at a time; no line may be longer than a region.</p>
+ */
+final class MappedLines {
+
+    static final long DEFAULT_REGION_SIZE = 1L << 30;
+
+    private static final int SCAN_BUFFER_SIZE = 8192;
+
+    private static final Set<Charset> SUPPORTED_CHARSETS = Set.of(
+            StandardCharsets.UTF_8,
+            StandardCharsets.US_ASCII,
+            StandardCharsets.ISO_8859_1);
+
+    private MappedLines() {
+    }
+
+    static <T> @NotNull Stream<T> stream(
+            @NotNull Path path,
+            @NotNull Charset charset,
+            @NotNull Interpreter<T> interpreter,
+            long regionSize) throws IOException {
+        return stream(path, charset, interpreter, null, regionSize);
+    }
+
+    /**
+     * Stream the interpreted lines of a file. Lines which cannot be interpreted are skipped and recorded if
+     * rejections are given, and fail the stream otherwise.
+     */
+    static <T> @NotNull Stream<T> stream(
+            @NotNull Path path,
+            @NotNull Charset charset,
+            @NotNull Interpreter<T> interpreter,
+            @Nullable Rejections rejections,
+            long regionSize) throws IOException {
+        var channel = open(path, charset);
+        var reader = new LineReader(channel, charset, 0, channel.size(), regionSize);
+        var spliterator = new Spliterators.AbstractSpliterator<T>(
+                Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL) {
+            @Override
+            public boolean tryAdvance(Consumer<? super T> action) {
+                for (var line = reader.nextLine(); line != null; line = reader.nextLine()) {
+                    var result = reader.interpret(line, interpreter, rejections);
+                    if (result != null) {
+                        action.accept(result);
+                        return true;
+                    }
+                }
+                return false;
+            }
+        };
+
+        return StreamSupport.stream(spliterator, false).onClose(() -> closeUnchecked(channel));
+    }
+
+    static <T> void forEach(
+            @NotNull Path path,
+            @NotNull Charset charset,
+            @NotNull Interpreter<T> interpreter,
+            @NotNull Consumer<? super T> consumer,
+            long regionSize) throws IOException {
+        try (var channel = open(path, charset)) {
+            var reader = new LineReader(channel, charset, 0, channel.size(), regionSize);
+            for (var line = reader.nextLine(); line != null; line = reader.nextLine()) {
+                consumer.accept(reader.interpret(line, interpreter, null));
+            }
+        }
+    }
+
+    /**
+     * Interpret the lines between two offsets in a file, which must both be at the start of a line (or the end of
+     * the file). The channel may be shared between threads reading different ranges. Lines which cannot be
+     * interpreted are skipped and recorded if rejections are given, and fail the interpretation otherwise.
+     */
+    static <T> @NotNull List<T> interpretRange(
+            @NotNull FileChannel channel,
+            @NotNull Charset charset,
+            @NotNull Interpreter<T> interpreter,
+            @Nullable Rejections rejections,
+            long start,
+            long end,
+            long regionSize) {
+        var reader = new LineReader(channel, charset, start, end, regionSize);
+        List<T> result = new ArrayList<>();
+        for (var line = reader.nextLine(); line != null; line = reader.nextLine()) {
+            var value = reader.interpret(line, interpreter, rejections);
+            if (value != null) result.add(value);
+        }
+        return result;
+    }
+
+    /**
+     * Divide a file into at most the given number of ranges of similar size, each starting at the start of a line.
+     *
+     * @return The offsets at which the ranges start, followed by the size of the file
+     */
+    static long @NotNull [] lineAlignedBoundaries(@NotNull FileChannel channel, int rangeCount) throws IOException {
+        long size = channel.size();
+        long[] boundaries = new long[rangeCount + 1];
+        int count = 1;
+        for (int i = 1; i < rangeCount; i++) {
+            long boundary = nextLineStart(channel, Math.max(size * i / rangeCount, boundaries[count - 1] + 1));
+            if (boundary >= size) break;
+            boundaries[count++] = boundary;
+        }
+        boundaries[count++] = size;
+        return Arrays.copyOf(boundaries, count);
+    }
+
+    static @NotNull FileChannel open(@NotNull Path path, @NotNull Charset charset) throws IOException {
+        if (!SUPPORTED_CHARSETS.contains(charset)) {
+            throw new IllegalArgumentException(
+                    "Unsupported charset %s for mapped lines - expected one of %s"
+                            .formatted(charset, SUPPORTED_CHARSETS));
+        }
+        return FileChannel.open(path, StandardOpenOption.READ);
+    }
+
+    private static void closeUnchecked(FileChannel channel) {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // The offset of the first line which starts at or after the given offset.
+    private static long nextLineStart(FileChannel channel, long offset) throws IOException {
+        var buffer = ByteBuffer.allocate(SCAN_BUFFER_SIZE);
+        boolean afterCarriageReturn = false;
+        for (long position = offset - 1; ; position += buffer.limit()) {
+            buffer.clear();
+            if (channel.read(buffer, position) <= 0) return channel.size();
+            buffer.flip();
+
+            for (int i = 0; i < buffer.limit(); i++) {
+                byte b = buffer.get(i);
+                if (afterCarriageReturn) return b == '\n' ? position + i + 1 : position + i;
+                if (b == '\n') return position + i + 1;
+                if (b == '\r') afterCarriageReturn = true;
+            }
+        }
+    }
+
+    // The number of lines which end before the given offset.
+    private static long linesBefore(FileChannel channel, long offset) throws IOException {
+        var buffer = ByteBuffer.allocate(SCAN_BUFFER_SIZE);
+        long lines = 0;
+        byte previous = 0;
+        for (long position = 0; position < offset; position += buffer.limit()) {
+            buffer.clear().limit((int) Math.min(SCAN_BUFFER_SIZE, offset - position));
+            if (channel.read(buffer, position) <= 0) break;
+            buffer.flip();
+
+            for (int i = 0; i < buffer.limit(); i++) {
+                byte b = buffer.get(i);
+                if (b == '\n' ? previous != '\r' : b == '\r') lines++;
+                previous = b;
+            }
+        }
+        return lines;
+    }
+
+    private static final class LineReader {
+
+        private final FileChannel channel;
+        private final Charset charset;
+        private final long rangeStart;
+        private final long rangeEnd;
+        private final long regionSize;
+        private final ByteWindow window = new ByteWindow();
+
+        private @Nullable MappedByteBuffer region;
+        private long regionStart;
+        private int position;
+        private long lineNumber;
+        private long linesBeforeRange = -1;
+
+        LineReader(FileChannel channel, Charset charset, long start, long end, long regionSize) {
+            this.channel = channel;
+            this.charset = charset;
+            this.rangeStart = start;
+            this.rangeEnd = end;
+            this.regionSize = regionSize;
+        }
+
+        <T> @Nullable T interpret(CharSequence line, Interpreter<T> interpreter, @Nullable Rejections rejections) {
+            if (rejections != null) {
+                T result = Rejections.interpretOrNull(interpreter, line);
+                if (result == null) rejections.reject(line, absoluteLineNumber());
+                return result;
+            }
+
+            try {
+                return interpreter.interpret(line);
+            } catch (InterpretationException e) {
+                throw new InterpretationException("Line %d: %s".formatted(absoluteLineNumber(), e.getMessage()));
+            }
+        }
+
+        // Counting the lines before the range means reading the file up to it, so is done only once it is needed.
+        private long absoluteLineNumber() {
+            if (linesBeforeRange < 0) {
+                try {
+                    linesBeforeRange = rangeStart == 0 ? 0 : linesBefore(channel, rangeStart);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+            return linesBeforeRange + lineNumber;
+        }
+
+        @Nullable CharSequence nextLine() {
+            try {
+                return readLine();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        private @Nullable CharSequence readLine() throws IOException {
+            if (region == null) {
+                if (rangeStart >= rangeEnd) return null;
+                map(rangeStart);
+            }
+
+            while (true) {
+                if (regionStart + position >= rangeEnd) return null;
+
+                int start = position;
+                int limit = region.limit();
+                boolean ascii = true;
+                int end = start;
+                while (end < limit) {
+                    byte b = region.get(end);
+                    if (b == '\n' || b == '\r') break;
+                    if (b < 0) ascii = false;
+                    end++;
+                }
+
+                // The line, or a \r\n ending it, may run on into the next region.
+                boolean moreToMap = regionStart + limit < rangeEnd;
+                boolean lineRunsOn = moreToMap && end == limit;
+                boolean terminatorRunsOn = moreToMap && end == limit - 1 && region.get(end) == '\r';
+                if ((lineRunsOn || terminatorRunsOn) && start > 0) {
+                    map(regionStart + start);
+                    continue;
+                }
+                if (lineRunsOn) {
+                    throw new IOException("Line %d is longer than the mapping region size of %d bytes"
+                            .formatted(lineNumber + 1, regionSize));
+                }
+
+                int next = end;
+                if (next < limit && region.get(next++) == '\r') {
+                    if (next < limit ? region.get(next) == '\n' : terminatorRunsOn && byteAt(regionStart + next) == '\n') {
+                        next++;
+                    }
+                }
+                lineNumber++;
+                var line = ascii || charset.equals(StandardCharsets.ISO_8859_1)
+                        ? window.over(region, start, end - start)
+                        : decode(start, end);
+
+                // The window keeps hold of the region it was made over, so the next can be mapped now.
+                if (next > limit) map(regionStart + next); else position = next;
+                return line;
+            }
+        }
+
+        private byte byteAt(long offset) throws IOException {
+            var buffer = ByteBuffer.allocate(1);
+            channel.read(buffer, offset);
+            return buffer.get(0);
+        }
+
+        private String decode(int start, int end) {
+            byte[] bytes = new byte[end - start];
+            region.get(start, bytes);
+            return new String(bytes, charset);
+        }
+
+        private void map(long offset) throws IOException {
+            region = channel.map(FileChannel.MapMode.READ_ONLY, offset, Math.min(regionSize, rangeEnd - offset));
+            regionStart = offset;
+            position = 0;
+        }
+
+    }
+
+    /**
+     * A window over single-byte characters in a buffer.
+     */
+    private static final class ByteWindow implements CharSequence {
+
+        private ByteBuffer buffer;
+        private int offset;
+        private int length;
+
+        ByteWindow over(ByteBuffer buffer, int offset, int length) {
+            this.buffer = buffer;
+            this.offset = offset;
+            this.length = length;
+            return this;
+        }
+
+        @Override
+        public int length() {
+            return length;
+        }
+
+        @Override
+        public char charAt(int index) {
+            Objects.checkIndex(index, length);
+            return (char) (buffer.get(offset + index) & 0xff);
+        }
+
+        @Override
+        public @NotNull CharSequence subSequence(int start, int end) {
+            Objects.checkFromToIndex(start, end, length);
+            byte[] bytes = new byte[end - start];
+            buffer.get(offset + start, bytes);
+            return new String(bytes, StandardCharsets.ISO_8859_1);
+        }
+
+        @Override
+        public @NotNull String toString() {
+            return subSequence(0, length).toString();
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package com.codepoetics.mariko;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.regex.MatchResult;
+
+/**
+ * Creates an instance from a successful match of a builder's pattern against the input, or returns null if the
+ * value of any of its parameters cannot be interpreted.
+ */
+@FunctionalInterface
+interface MatchInstantiator<T> {
+    @Nullable T instantiate(@NotNull MatchResult match, @NotNull CharSequence input);
+}
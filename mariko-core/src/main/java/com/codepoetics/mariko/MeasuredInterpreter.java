@@ -0,0 +1,50 @@
+package com.codepoetics.mariko;
+
+import com.codepoetics.mariko.api.Interpreter;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts the inputs given to the interpreter for a type, and times how long each takes to interpret, including any
+ * nested values. Only made by contexts which {@link InterpretationContext#collectStats() collect stats}.
+ */
+final class MeasuredInterpreter<T> implements NullableInterpreter<T> {
+
+    private final @NotNull Class<?> targetClass;
+    private final @Nullable String pattern;
+    private final @NotNull Interpreter<T> delegate;
+    private final LongAdder successes = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LatencyRecorder latency = new LatencyRecorder();
+
+    MeasuredInterpreter(@NotNull Class<?> targetClass, @Nullable String pattern, @NotNull Interpreter<T> delegate) {
+        this.targetClass = targetClass;
+        this.pattern = pattern;
+        this.delegate = delegate;
+    }
+
+    @Override
+    public @Nullable T interpretOrNull(@NotNull CharSequence input) {
+        long start = System.nanoTime();
+        T result;
+        try {
+            result = NullableInterpreter.interpretOrNull(delegate, input);
+        } catch (RuntimeException e) {
+            failures.increment();
+            throw e;
+        } finally {
+            latency.record(System.nanoTime() - start);
+        }
+        (result == null ? failures : successes).increment();
+        return result;
+    }
+
+    @NotNull InterpretationStats.TypeStats snapshot() {
+        long succeeded = successes.sum();
+        long failed = failures.sum();
+        return new InterpretationStats.TypeStats(
+                targetClass, pattern, succeeded + failed, succeeded, failed, latency.snapshot());
+    }
+}
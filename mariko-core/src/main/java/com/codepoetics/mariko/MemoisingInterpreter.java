@@ -0,0 +1,121 @@
+package com.codepoetics.mariko;
+
+import com.codepoetics.mariko.api.Interpreter;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Remembers the results of interpreting recent inputs, so that an input seen before is answered without matching it
+ * again. Only results are remembered: an input which cannot be interpreted is tried afresh each time.
+ *
+ * <p>The cache is split into segments by the hash of the input, each locked separately and holding an equal share
+ * of the entries. Each segment is a segmented LRU: an input enters a probationary area when first interpreted, and
+ * moves to a protected area, four fifths of the segment, when it is seen again. The least recently used protected
+ * entry is moved back to probation to make room, and the least recently used probationary entry is evicted, so a
+ * burst of inputs seen only once cannot push out the inputs which keep recurring.</p>
+ *
+ * <p>Results are shared between all callers which give the same input, so should be immutable.</p>
+ */
+final class MemoisingInterpreter<T> implements NullableInterpreter<T> {
+
+    private final @NotNull Class<?> targetClass;
+    private final @NotNull Interpreter<T> delegate;
+    private final @NotNull SegmentedTable<Segment<T>> segments;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    MemoisingInterpreter(@NotNull Class<?> targetClass, @NotNull Interpreter<T> delegate, int maximumSize) {
+        this.targetClass = targetClass;
+        this.delegate = delegate;
+        this.segments = new SegmentedTable<>(maximumSize, capacity -> new Segment<>(capacity, evictions));
+    }
+
+    @Override
+    public @Nullable T interpretOrNull(@NotNull CharSequence input) {
+        var key = input.toString();
+        var segment = segments.segmentFor(key);
+
+        T remembered = segment.get(key);
+        if (remembered != null) {
+            hits.increment();
+            return remembered;
+        }
+
+        misses.increment();
+        T result = NullableInterpreter.interpretOrNull(delegate, input);
+        if (result != null) segment.put(key, result);
+        return result;
+    }
+
+    @NotNull InterpretationStats.MemoStats snapshot() {
+        return new InterpretationStats.MemoStats(
+                targetClass, hits.sum(), misses.sum(), evictions.sum(), segments.size());
+    }
+
+    private static final class Segment<T> implements SegmentedTable.Segment {
+
+        private final int probationCapacity;
+        private final int protectedCapacity;
+        private final LinkedHashMap<String, T> probation = new LinkedHashMap<>(16, 0.75f, true);
+        private final LinkedHashMap<String, T> protectedEntries = new LinkedHashMap<>(16, 0.75f, true);
+        private final LongAdder evictions;
+
+        Segment(int capacity, LongAdder evictions) {
+            this.protectedCapacity = capacity * 4 / 5;
+            this.probationCapacity = Math.max(1, capacity - protectedCapacity);
+            this.evictions = evictions;
+        }
+
+        synchronized @Nullable T get(@NotNull String key) {
+            T value = protectedEntries.get(key);
+            if (value != null) return value;
+
+            value = probation.remove(key);
+            if (value == null) return null;
+
+            protectedEntries.put(key, value);
+            if (protectedEntries.size() > protectedCapacity) {
+                var demoted = removeEldest(protectedEntries);
+                probation.put(demoted.getKey(), demoted.getValue());
+                evictFromProbation();
+            }
+            return value;
+        }
+
+        /**
+         * Add an entry on probation, unless another thread interpreting the same input added it first.
+         */
+        synchronized void put(@NotNull String key, @NotNull T value) {
+            if (protectedEntries.containsKey(key)) return;
+
+            probation.put(key, value);
+            evictFromProbation();
+        }
+
+        private void evictFromProbation() {
+            while (probation.size() > probationCapacity) {
+                removeEldest(probation);
+                evictions.increment();
+            }
+        }
+
+        @Override
+        public synchronized int size() {
+            return probation.size() + protectedEntries.size();
+        }
+
+        private static <T> Map.Entry<String, T> removeEldest(LinkedHashMap<String, T> entries) {
+            Iterator<Map.Entry<String, T>> iterator = entries.entrySet().iterator();
+            var eldest = iterator.next();
+            var removed = Map.entry(eldest.getKey(), eldest.getValue());
+            iterator.remove();
+            return removed;
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package com.codepoetics.mariko;
+
+import com.codepoetics.mariko.api.InterpretationException;
+import com.codepoetics.mariko.api.Interpreter;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Optional;
+
+/**
+ * The protocol interpreters use among themselves: failure to interpret an input is signalled by returning null,
+ * rather than by an empty Optional or an exception. A nested value which cannot be interpreted then costs only a
+ * null check on the way out, however deeply it is nested, and an {@link InterpretationException} is created only
+ * when the caller of {@link #interpret(String)} asks for one.
+ */
+@FunctionalInterface
+interface NullableInterpreter<T> extends Interpreter<T> {
+
+    /**
+     * Interpret the input with any interpreter, returning null if it cannot be interpreted. Interpreters which do
+     * not follow this protocol are asked to {@link #tryInterpret(CharSequence)} as usual.
+     */
+    @SuppressWarnings("unchecked")
+    static <T> @Nullable T interpretOrNull(@NotNull Interpreter<? extends T> interpreter, @NotNull CharSequence input) {
+        if (interpreter instanceof NullableInterpreter<?> nullable) return (T) nullable.interpretOrNull(input);
+        return ((Interpreter<T>) interpreter).tryInterpret(input).orElse(null);
+    }
+
+    /**
+     * Interpret the input, or return null if it cannot be interpreted.
+     * @param input The character sequence to interpret
+     * @return An object representing the contents of the input, or null
+     */
+    @Nullable T interpretOrNull(@NotNull CharSequence input);
+
+    @NotNull
+    @Override
+    default T interpret(@NotNull String input) {
+        return interpret((CharSequence) input);
+    }
+
+    @NotNull
+    @Override
+    default T interpret(@NotNull CharSequence input) {
+        T result = interpretOrNull(input);
+        if (result == null) {
+            throw new InterpretationException("Unable to interpret input <%s>".formatted(input));
+        }
+        return result;
+    }
+
+    @NotNull
+    @Override
+    default Optional<T> tryInterpret(@NotNull String input) {
+        return Optional.ofNullable(interpretOrNull(input));
+    }
+
+    @NotNull
+    @Override
+    default Optional<T> tryInterpret(@NotNull CharSequence input) {
+        return Optional.ofNullable(interpretOrNull(input));
+    }
+}
@@ -0,0 +1,149 @@
+package com.codepoetics.mariko;
+
+import com.codepoetics.mariko.api.InterpretationException;
+import com.codepoetics.mariko.api.Interpreter;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.IntConsumer;
+
+/**
+ * Interprets many inputs at once on a {@link ForkJoinPool}, splitting them into chunks of similar size and
+ * returning the results in input order.
+ *
+ * <p>A list is split into batches of consecutive items, several per worker so that faster workers can steal the
+ * remainder. A file is split into ranges of bytes starting at line boundaries, each of which is read through its own
+ * memory mapping as in {@link MappedLines}.</p>
+ */
+final class ParallelInterpretation {
+
+    // Enough chunks per worker for the load to even out when some inputs take longer to interpret than others.
+    private static final int CHUNKS_PER_WORKER = 4;
+
+    private static final int MINIMUM_BATCH_SIZE = 64;
+
+    private static final long MINIMUM_RANGE_SIZE = 64 * 1024;
+
+    private ParallelInterpretation() {
+    }
+
+    /**
+     * Interpret every input in a list. Inputs which cannot be interpreted are left out of the results and recorded
+     * if rejections are given, and fail the interpretation otherwise.
+     */
+    @SuppressWarnings("unchecked")
+    static <T> @NotNull List<T> interpretAll(
+            @NotNull ForkJoinPool pool,
+            @NotNull Interpreter<T> interpreter,
+            @NotNull List<? extends CharSequence> inputs,
+            @Nullable Rejections rejections) {
+        var indexed = inputs instanceof RandomAccess ? inputs : new ArrayList<>(inputs);
+        var results = new Object[indexed.size()];
+        int batchSize = Math.max(MINIMUM_BATCH_SIZE, results.length / (pool.getParallelism() * CHUNKS_PER_WORKER));
+
+        pool.invoke(new IndexRange(0, results.length, batchSize, index -> {
+            var input = indexed.get(index);
+            if (rejections != null) {
+                results[index] = Rejections.interpretOrNull(interpreter, input);
+                if (results[index] == null) rejections.reject(input, index);
+                return;
+            }
+
+            try {
+                results[index] = interpreter.interpret(input);
+            } catch (InterpretationException e) {
+                throw new InterpretationException("Input %d: %s".formatted(index, e.getMessage()));
+            }
+        }));
+
+        if (rejections == null) return (List<T>) Collections.unmodifiableList(Arrays.asList(results));
+
+        List<T> accepted = new ArrayList<>(results.length);
+        for (Object result : results) {
+            if (result != null) accepted.add((T) result);
+        }
+        return Collections.unmodifiableList(accepted);
+    }
+
+    /**
+     * Interpret every line of a file. Lines which cannot be interpreted are left out of the results and recorded if
+     * rejections are given, and fail the interpretation otherwise.
+     */
+    static <T> @NotNull List<T> interpretLines(
+            @NotNull ForkJoinPool pool,
+            @NotNull Interpreter<T> interpreter,
+            @NotNull Path path,
+            @NotNull Charset charset,
+            @Nullable Rejections rejections) throws IOException {
+        try (var channel = MappedLines.open(path, charset)) {
+            int rangeCount = (int) Math.max(1, Math.min(
+                    pool.getParallelism() * CHUNKS_PER_WORKER,
+                    channel.size() / MINIMUM_RANGE_SIZE));
+            var boundaries = MappedLines.lineAlignedBoundaries(channel, rangeCount);
+
+            @SuppressWarnings("unchecked")
+            List<T>[] ranges = (List<T>[]) new List<?>[boundaries.length - 1];
+            pool.invoke(new IndexRange(0, ranges.length, 1, index ->
+                    ranges[index] = MappedLines.interpretRange(
+                            channel, charset, interpreter, rejections,
+                            boundaries[index], boundaries[index + 1],
+                            MappedLines.DEFAULT_REGION_SIZE)));
+
+            List<T> result = new ArrayList<>(Arrays.stream(ranges).mapToInt(List::size).sum());
+            for (List<T> range : ranges) {
+                result.addAll(range);
+            }
+            return Collections.unmodifiableList(result);
+        }
+    }
+
+    /**
+     * Perform an action for every index from zero up to the count, each as a task of its own.
+     */
+    static void forEachIndex(@NotNull ForkJoinPool pool, int count, @NotNull IntConsumer action) {
+        pool.invoke(new IndexRange(0, count, 1, action));
+    }
+
+    /**
+     * Performs an action for every index in a range, halving the range until it is no larger than the batch size.
+     */
+    private static final class IndexRange extends RecursiveAction {
+
+        private final int from;
+        private final int to;
+        private final int batchSize;
+        private final IntConsumer action;
+
+        IndexRange(int from, int to, int batchSize, IntConsumer action) {
+            this.from = from;
+            this.to = to;
+            this.batchSize = batchSize;
+            this.action = action;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= batchSize) {
+                for (int index = from; index < to; index++) {
+                    action.accept(index);
+                }
+                return;
+            }
+
+            int middle = (from + to) >>> 1;
+            invokeAll(
+                    new IndexRange(from, middle, batchSize, action),
+                    new IndexRange(middle, to, batchSize, action));
+        }
+    }
+}
@@ -2,26 +2,81 @@ package com.codepoetics.mariko;
 
 import com.codepoetics.mariko.api.InterpretationException;
 import com.codepoetics.mariko.api.Interpreter;
+import org.jetbrains.annotations.Nullable;
 
 import java.util.List;
+import java.util.Map;
 import java.util.regex.MatchResult;
 
 class ParameterValueExtractor {
 
+    /**
+     * Parses a parameter value directly from the bounds of its group within the input, returning null if the
+     * group does not hold a value of the parameter's type.
+     */
+    interface GroupParser {
+        @Nullable Object parse(CharSequence input, int start, int end);
+    }
+
+    private static final Map<Class<?>, GroupParser> PRIMITIVE_GROUP_PARSERS = Map.of(
+            int.class, PrimitiveParsers::intOrNull,
+            long.class, PrimitiveParsers::longOrNull,
+            short.class, PrimitiveParsers::shortOrNull,
+            byte.class, PrimitiveParsers::byteOrNull,
+            char.class, PrimitiveParsers::charOrNull,
+            boolean.class, PrimitiveParsers::booleanOrNull,
+            float.class, PrimitiveParsers::floatOrNull,
+            double.class, PrimitiveParsers::doubleOrNull);
+
+    /**
+     * A parser which reads values of the given class from the bounds of a group in the input, using the built-in
+     * parser for primitive classes and the given interpreter otherwise.
+     */
+    static GroupParser groupParser(Class<?> valueClass, boolean builtIn, Interpreter<?> interpreter) {
+        var primitiveParser = builtIn ? PRIMITIVE_GROUP_PARSERS.get(valueClass) : null;
+        return primitiveParser != null
+                ? primitiveParser
+                : (input, start, end) -> NullableInterpreter.interpretOrNull(interpreter, input.subSequence(start, end));
+    }
+
     private final List<? extends Interpreter<?>> interpreters;
+    private final GroupParser[] groupParsers;
 
     public ParameterValueExtractor(List<? extends Interpreter<?>> interpreters) {
+        this(interpreters, new GroupParser[interpreters.size()]);
+    }
+
+    private ParameterValueExtractor(List<? extends Interpreter<?>> interpreters, GroupParser[] groupParsers) {
         this.interpreters = interpreters;
+        this.groupParsers = groupParsers;
     }
 
-    public Object[] extractParameterValues(MatchResult matchResult) {
+    /**
+     * Make an extractor which parses the parameters whose primitive class is given directly from the input,
+     * and interprets the others (whose primitive class is null) with their interpreters.
+     */
+    static ParameterValueExtractor withPrimitiveParsers(List<? extends Interpreter<?>> interpreters, List<@Nullable Class<?>> primitiveClasses) {
+        var groupParsers = new GroupParser[interpreters.size()];
+        for (int i = 0; i < groupParsers.length; i++) {
+            var primitiveClass = primitiveClasses.get(i);
+            if (primitiveClass != null) groupParsers[i] = PRIMITIVE_GROUP_PARSERS.get(primitiveClass);
+        }
+        return new ParameterValueExtractor(interpreters, groupParsers);
+    }
+
+    /**
+     * Extract the values of the builder's parameters from a match, or return null if any of them cannot be
+     * interpreted.
+     */
+    public Object @Nullable [] extractParameterValues(MatchResult matchResult, CharSequence input) {
         if (matchResult.groupCount() == 0) {
             if (interpreters.size() != 1) {
                 throw new InterpretationException(
                         "Expected %d parameters, but match result %s has no subgroups"
                                 .formatted(interpreters.size(), matchResult));
             }
-            return new Object[] {interpreters.get(0).interpret(matchResult.group())};
+            var value = valueOf(0, matchResult, 0, input);
+            return value == null ? null : new Object[] {value};
         }
 
         if (matchResult.groupCount() != interpreters.size()) {
@@ -33,8 +88,22 @@ class ParameterValueExtractor {
 
         var parameterValues = new Object[interpreters.size()];
         for (int i = 0; i < interpreters.size(); i++) {
-            parameterValues[i] = interpreters.get(i).interpret(matchResult.group(i + 1));
+            var value = valueOf(i, matchResult, i + 1, input);
+            if (value == null) return null;
+            parameterValues[i] = value;
         }
         return parameterValues;
     }
+
+    // A group which took no part in the match has no value to interpret.
+    private @Nullable Object valueOf(int parameterIndex, MatchResult matchResult, int group, CharSequence input) {
+        int start = matchResult.start(group);
+        if (start < 0) return null;
+
+        var groupParser = groupParsers[parameterIndex];
+        if (groupParser != null) {
+            return groupParser.parse(input, start, matchResult.end(group));
+        }
+        return NullableInterpreter.interpretOrNull(interpreters.get(parameterIndex), matchResult.group(group));
+    }
 }
@@ -0,0 +1,178 @@
+package com.codepoetics.mariko;
+
+import com.codepoetics.mariko.api.Interpreter;
+import com.codepoetics.mariko.reflection.InstanceBuilderInfo;
+import com.codepoetics.mariko.reflection.ParameterInfo;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.regex.Pattern;
+
+/**
+ * Builds the interpreters for every type reachable from a set of root types, in parallel, before any input arrives.
+ *
+ * <p>Types are found by following the parameters of each type's builders, and of its permitted subclasses if it is
+ * sealed. Optionally, each interpreter is then warmed up by interpreting an input generated from its patterns (see
+ * {@link SampleInputs}) many times over, so that its code paths are compiled before they are needed.</p>
+ */
+final class Preparation {
+
+    // Deep enough to reach the simplest alternative of a recursive type, without generating huge inputs.
+    private static final int MAX_SAMPLE_DEPTH = 3;
+
+    private record TypeKey(@NotNull Class<?> targetClass, @Nullable String pattern) { }
+
+    private final InterpretationContext context;
+    private final InterpreterCache interpreterCache;
+    private final ForkJoinPool pool;
+
+    Preparation(@NotNull InterpretationContext context, @NotNull InterpreterCache interpreterCache, @NotNull ForkJoinPool pool) {
+        this.context = context;
+        this.interpreterCache = interpreterCache;
+        this.pool = pool;
+    }
+
+    @NotNull PreparationReport prepare(@NotNull Class<?>[] rootTypes, int warmUpIterations) {
+        var types = reachableUncachedTypes(rootTypes);
+
+        long buildStart = System.nanoTime();
+        var interpreters = new Interpreter<?>[types.size()];
+        ParallelInterpretation.forEachIndex(pool, types.size(), index -> interpreters[index] = build(types.get(index)));
+        var buildTime = Duration.ofNanos(System.nanoTime() - buildStart);
+
+        if (warmUpIterations <= 0) return new PreparationReport(classesOf(types), buildTime, List.of(), Duration.ZERO);
+
+        long warmUpStart = System.nanoTime();
+        var warmed = new boolean[types.size()];
+        ParallelInterpretation.forEachIndex(pool, types.size(), index -> {
+            var input = sample(types.get(index).targetClass(), types.get(index).pattern(), MAX_SAMPLE_DEPTH);
+            if (input == null || Rejections.interpretOrNull(interpreters[index], input) == null) return;
+
+            warmed[index] = true;
+            for (int iteration = 1; iteration < warmUpIterations; iteration++) {
+                interpreters[index].interpret(input);
+            }
+        });
+        var warmUpTime = Duration.ofNanos(System.nanoTime() - warmUpStart);
+
+        List<Class<?>> warmedUp = new ArrayList<>();
+        for (int index = 0; index < warmed.length; index++) {
+            if (warmed[index]) warmedUp.add(types.get(index).targetClass());
+        }
+        return new PreparationReport(classesOf(types), buildTime, List.copyOf(warmedUp), warmUpTime);
+    }
+
+    private @NotNull List<TypeKey> reachableUncachedTypes(@NotNull Class<?>[] rootTypes) {
+        Set<TypeKey> found = new LinkedHashSet<>();
+        var pending = new ArrayDeque<TypeKey>();
+        for (Class<?> rootType : rootTypes) {
+            pending.add(new TypeKey(rootType, null));
+        }
+
+        while (!pending.isEmpty()) {
+            var type = pending.remove();
+            if (interpreterCache.contains(type.targetClass(), type.pattern()) || !found.add(type)) continue;
+
+            // A type with no builders is still prepared, so that building it reports why.
+            for (InstanceBuilderInfo<?> info : buildersOrEmpty(type.targetClass(), type.pattern())) {
+                for (ParameterInfo parameter : info.parameters()) {
+                    pending.add(typeOf(parameter));
+                    if (parameter instanceof ParameterInfo.MapParameter map) {
+                        pending.add(new TypeKey(map.keyClass(), null));
+                    }
+                }
+            }
+        }
+
+        return List.copyOf(found);
+    }
+
+    private @NotNull Interpreter<?> build(@NotNull TypeKey type) {
+        return type.pattern() == null
+                ? context.makeInterpreter(type.targetClass())
+                : context.makeInterpreter(type.targetClass(), type.pattern());
+    }
+
+    /**
+     * Generate an input for the type, trying each of its builders in turn, and using the first builder of each
+     * nested type which yields an input within the depth limit.
+     */
+    private @Nullable String sample(@NotNull Class<?> targetClass, @Nullable String pattern, int depth) {
+        if (depth < 0) return null;
+
+        for (InstanceBuilderInfo<?> info : buildersOrEmpty(targetClass, pattern)) {
+            var parameters = info.parameters();
+            var input = SampleInputs.generate(info.pattern(), (group, generated) -> group <= parameters.size()
+                    ? valueSample(parameters.get(group - 1), generated, depth)
+                    : generated);
+
+            // A pattern without groups passes the whole input to its single parameter.
+            if (input != null && info.pattern().matcher("").groupCount() == 0 && parameters.size() == 1) {
+                input = valueSample(parameters.get(0), input, depth);
+            }
+            if (input != null) return input;
+        }
+        return null;
+    }
+
+    private @Nullable String valueSample(@NotNull ParameterInfo parameter, @NotNull String generated, int depth) {
+        // A single entry, whose key and value are generated as if they were parameters themselves.
+        if (parameter instanceof ParameterInfo.MapParameter map) {
+            var separator = SampleInputs.generate(Pattern.compile(map.keyValueSeparator()), (group, text) -> text);
+            var key = valueSample(new TypeKey(map.keyClass(), null), generated, depth);
+            var value = valueSample(typeOf(parameter), generated, depth);
+            return separator == null || key == null || value == null ? null : key + separator + value;
+        }
+        return valueSample(typeOf(parameter), generated, depth);
+    }
+
+    private @Nullable String valueSample(@NotNull TypeKey type, @NotNull String generated, int depth) {
+        var valueClass = type.targetClass();
+
+        if (valueClass == String.class) return generated;
+        if (valueClass.isPrimitive()) {
+            if (Rejections.interpretOrNull(context.makeInterpreter(valueClass), generated) != null) return generated;
+            return valueClass == boolean.class ? "true" : valueClass == char.class ? "a" : "1";
+        }
+        // An interpreter registered for the type accepts whatever it accepts; the generated text may do.
+        if (type.pattern() == null && interpreterCache.contains(valueClass, null)
+                && buildersOrEmpty(valueClass, null).isEmpty()) {
+            return generated;
+        }
+
+        return sample(valueClass, type.pattern(), depth - 1);
+    }
+
+    // The type of a map parameter is the type of its values; its keys are prepared separately.
+    private static @NotNull TypeKey typeOf(@NotNull ParameterInfo parameter) {
+        if (parameter instanceof ParameterInfo.CollectionParameter collection) {
+            return new TypeKey(collection.itemClass(), collection.annotatedPattern());
+        }
+        if (parameter instanceof ParameterInfo.MapParameter map) {
+            return new TypeKey(map.valueClass(), map.annotatedPattern());
+        }
+        var scalar = (ParameterInfo.ScalarParameter) parameter;
+        return new TypeKey(scalar.parameterClass(), scalar.annotatedPattern());
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static @NotNull List<InstanceBuilderInfo<?>> buildersOrEmpty(@NotNull Class<?> targetClass, @Nullable String pattern) {
+        if (targetClass.isPrimitive() || targetClass == String.class) return List.of();
+        try {
+            return (List) InstanceBuilderInfo.forClass(targetClass, pattern == null ? null : Pattern.compile(pattern));
+        } catch (RuntimeException e) {
+            return List.of();
+        }
+    }
+
+    private static @NotNull List<Class<?>> classesOf(@NotNull List<TypeKey> types) {
+        return types.stream().<Class<?>>map(TypeKey::targetClass).toList();
+    }
+}
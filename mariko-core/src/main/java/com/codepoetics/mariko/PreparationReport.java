@@ -0,0 +1,20 @@
+package com.codepoetics.mariko;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * What {@link InterpretationContext#prepare(int, Class[])} did.
+ *
+ * @param preparedTypes The types whose interpreters were built, in the order they were found
+ * @param buildTime The time taken to build them
+ * @param warmedUpTypes The types for which an input could be generated and interpreted while warming up
+ * @param warmUpTime The time taken to warm up
+ */
+public record PreparationReport(
+        @NotNull List<Class<?>> preparedTypes,
+        @NotNull Duration buildTime,
+        @NotNull List<Class<?>> warmedUpTypes,
+        @NotNull Duration warmUpTime) { }
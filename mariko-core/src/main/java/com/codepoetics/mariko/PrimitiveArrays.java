@@ -0,0 +1,468 @@
+package com.codepoetics.mariko;
+
+import com.codepoetics.mariko.api.Interpreter;
+import com.codepoetics.mariko.reflection.RequiredLiterals;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Interprets separated lists of primitive values into primitive arrays, in a single pass over the separators, and
+ * presents those arrays as read-only lists for compact list parameters. Finds the bounds of the items of lazy list
+ * parameters in the same way.
+ *
+ * <p>Items are split exactly as {@link Pattern#split(CharSequence)} would split them, over the input as given rather
+ * than a copy of it. Where the built-in parser for the item type is in use, each item is parsed directly from its
+ * bounds within the input, so no boxed value is created for it, and no substring either unless it is a double with
+ * too many significant digits to be parsed exactly in place. If any item cannot be interpreted, the whole list
+ * cannot be, and null is returned in keeping with {@link NullableInterpreter}.</p>
+ */
+final class PrimitiveArrays {
+
+    private static final int DEFAULT_CAPACITY = 16;
+
+    private static final Map<Class<?>, BiFunction<Integer, Interpreter<?>, Accumulator<?>>> ACCUMULATORS = Map.of(
+            int[].class, IntAccumulator::new,
+            long[].class, LongAccumulator::new,
+            double[].class, DoubleAccumulator::new,
+            char[].class, CharAccumulator::new);
+
+    private static final Map<Class<?>, Function<Object, List<?>>> LIST_VIEWS = Map.of(
+            int.class, values -> new IntList((int[]) values),
+            long.class, values -> new LongList((long[]) values),
+            double.class, values -> new DoubleList((double[]) values),
+            char.class, values -> new CharList((char[]) values));
+
+    private static final Map<Class<?>, Class<?>> ARRAY_CLASSES = Map.of(
+            int.class, int[].class,
+            long.class, long[].class,
+            double.class, double[].class,
+            char.class, char[].class);
+
+    private PrimitiveArrays() {
+    }
+
+    /**
+     * Make an interpreter which reads separated items into an array of the given primitive array class.
+     *
+     * @param arrayClass One of int[], long[], double[] or char[]
+     * @param separator The separator between items
+     * @param itemInterpreter The interpreter for items, or null if the built-in parser for the item type is in use
+     */
+    static @NotNull NullableInterpreter<Object> arrayInterpreter(
+            @NotNull Class<?> arrayClass,
+            @NotNull Pattern separator,
+            @Nullable Interpreter<?> itemInterpreter) {
+        var accumulatorFactory = ACCUMULATORS.get(arrayClass);
+        return splittingInterpreter(separator, capacity -> accumulatorFactory.apply(capacity, itemInterpreter));
+    }
+
+    /**
+     * Make an interpreter which finds the bounds of the separated items in its input, without interpreting them,
+     * returning the start and end of each item in turn.
+     *
+     * @param separator The separator between items
+     */
+    static @NotNull NullableInterpreter<int[]> boundsInterpreter(@NotNull Pattern separator) {
+        var interpreter = splittingInterpreter(separator, BoundsCollector::new);
+        return input -> (int[]) interpreter.interpretOrNull(input);
+    }
+
+    private static @NotNull NullableInterpreter<Object> splittingInterpreter(
+            @NotNull Pattern separator,
+            @NotNull IntFunction<ItemCollector> collectorFactory) {
+        var requiredLiterals = RequiredLiterals.of(separator);
+        var literalSeparator = requiredLiterals.prefix().equals(separator.pattern()) && !separator.pattern().isEmpty()
+                ? separator.pattern()
+                : null;
+        var leadingCharacter = requiredLiterals.prefix().isEmpty() ? -1 : requiredLiterals.prefix().charAt(0);
+        var separatorMatchers = new ThreadLocalMatcher(separator);
+
+        return input -> {
+            var collector = collectorFactory.apply(capacityFor(input, leadingCharacter));
+            boolean complete = literalSeparator != null
+                    ? splitOnLiteral(input, literalSeparator, collector)
+                    : splitOnPattern(input, separatorMatchers, collector);
+            return complete ? collector.toArray() : null;
+        };
+    }
+
+    /**
+     * Make an interpreter which reads separated items into a primitive array, and presents it as a read-only list.
+     *
+     * @param itemClass One of int, long, double or char
+     * @param separator The separator between items
+     * @param itemInterpreter The interpreter for items, or null if the built-in parser for the item type is in use
+     */
+    static @NotNull NullableInterpreter<Object> listInterpreter(
+            @NotNull Class<?> itemClass,
+            @NotNull Pattern separator,
+            @Nullable Interpreter<?> itemInterpreter) {
+        var arrayInterpreter = arrayInterpreter(ARRAY_CLASSES.get(itemClass), separator, itemInterpreter);
+        var listView = LIST_VIEWS.get(itemClass);
+
+        return input -> {
+            var values = arrayInterpreter.interpretOrNull(input);
+            return values == null ? null : listView.apply(values);
+        };
+    }
+
+    /*
+     * Every match of a separator whose required prefix starts with a given character begins with a distinct
+     * occurrence of that character, so counting them gives an upper bound on the number of items.
+     */
+    private static int capacityFor(CharSequence input, int leadingCharacter) {
+        if (leadingCharacter < 0) return DEFAULT_CAPACITY;
+
+        int count = 1;
+        for (int i = 0; i < input.length(); i++) {
+            if (input.charAt(i) == leadingCharacter) count++;
+        }
+        return count;
+    }
+
+    // Returns false as soon as an item cannot be interpreted.
+    private static boolean splitOnLiteral(CharSequence input, String separator, ItemCollector collector) {
+        int index = 0;
+        int emptyItems = 0;
+        for (int next = indexOf(input, separator, 0); next >= 0; next = indexOf(input, separator, index)) {
+            emptyItems = addItem(input, index, next, emptyItems, collector);
+            if (emptyItems < 0) return false;
+            index = next + separator.length();
+        }
+        return finish(input, index, emptyItems, collector);
+    }
+
+    // Strings have an intrinsic search of their own; other sequences are searched a character at a time.
+    private static int indexOf(CharSequence input, String separator, int from) {
+        if (input instanceof String text) return text.indexOf(separator, from);
+
+        char first = separator.charAt(0);
+        int last = input.length() - separator.length();
+        for (int i = from; i <= last; i++) {
+            if (input.charAt(i) != first) continue;
+
+            int j = 1;
+            while (j < separator.length() && input.charAt(i + j) == separator.charAt(j)) j++;
+            if (j == separator.length()) return i;
+        }
+        return -1;
+    }
+
+    private static boolean splitOnPattern(CharSequence input, ThreadLocalMatcher separatorMatchers, ItemCollector collector) {
+        Matcher matcher = separatorMatchers.acquire(input);
+        try {
+            int index = 0;
+            int emptyItems = 0;
+            while (matcher.find()) {
+                // As with Pattern.split, a zero-width match at the beginning never produces an empty leading item.
+                if (index == 0 && matcher.start() == 0 && matcher.end() == 0) continue;
+
+                emptyItems = addItem(input, index, matcher.start(), emptyItems, collector);
+                if (emptyItems < 0) return false;
+                index = matcher.end();
+            }
+            return finish(input, index, emptyItems, collector);
+        } finally {
+            separatorMatchers.release(matcher);
+        }
+    }
+
+    /*
+     * Empty items are held back until a non-empty item follows them, as Pattern.split discards trailing empty items.
+     * Returns the number of empty items held back, or -1 if an item could not be interpreted.
+     */
+    private static int addItem(CharSequence input, int start, int end, int emptyItems, ItemCollector collector) {
+        if (start == end) return emptyItems + 1;
+
+        for (int i = 0; i < emptyItems; i++) {
+            if (!collector.add(input, start, start)) return -1;
+        }
+        return collector.add(input, start, end) ? 0 : -1;
+    }
+
+    private static boolean finish(CharSequence input, int index, int emptyItems, ItemCollector collector) {
+        if (index == 0) {
+            // No separator was found, so the whole input is the only item.
+            return collector.add(input, 0, input.length());
+        }
+        return addItem(input, index, input.length(), emptyItems, collector) >= 0;
+    }
+
+    // Takes the bounds of each item in turn as the input is split.
+    private interface ItemCollector {
+
+        // Returns false if the item cannot be interpreted.
+        boolean add(CharSequence input, int start, int end);
+
+        Object toArray();
+    }
+
+    // Collects the bounds of the items themselves, for lazy lists.
+    private static final class BoundsCollector implements ItemCollector {
+        private int[] bounds;
+        private int size;
+
+        BoundsCollector(int capacity) {
+            bounds = new int[capacity * 2];
+        }
+
+        @Override
+        public boolean add(CharSequence input, int start, int end) {
+            if (size * 2 == bounds.length) bounds = Arrays.copyOf(bounds, Math.max(DEFAULT_CAPACITY, size * 2) * 2);
+            bounds[size * 2] = start;
+            bounds[size * 2 + 1] = end;
+            size++;
+            return true;
+        }
+
+        @Override
+        public int[] toArray() {
+            return size * 2 == bounds.length ? bounds : Arrays.copyOf(bounds, size * 2);
+        }
+    }
+
+    // Collects the values of the items into a primitive array.
+    private abstract static class Accumulator<A> implements ItemCollector {
+
+        private final @Nullable Interpreter<?> itemInterpreter;
+        protected int size;
+
+        Accumulator(@Nullable Interpreter<?> itemInterpreter) {
+            this.itemInterpreter = itemInterpreter;
+        }
+
+        @Override
+        public boolean add(CharSequence input, int start, int end) {
+            ensureCapacity();
+            if (itemInterpreter == null) {
+                if (!parse(input, start, end)) return false;
+            } else {
+                var value = NullableInterpreter.interpretOrNull(itemInterpreter, input.subSequence(start, end));
+                if (value == null) return false;
+                store(value);
+            }
+            size++;
+            return true;
+        }
+
+        abstract void ensureCapacity();
+
+        abstract boolean parse(CharSequence input, int start, int end);
+
+        abstract void store(Object value);
+
+        @Override
+        public abstract A toArray();
+    }
+
+    private static final class IntAccumulator extends Accumulator<int[]> {
+        private int[] values;
+
+        IntAccumulator(int capacity, @Nullable Interpreter<?> itemInterpreter) {
+            super(itemInterpreter);
+            values = new int[capacity];
+        }
+
+        @Override
+        void ensureCapacity() {
+            if (size == values.length) values = Arrays.copyOf(values, Math.max(DEFAULT_CAPACITY, size * 2));
+        }
+
+        @Override
+        boolean parse(CharSequence input, int start, int end) {
+            if (!PrimitiveParsers.isInteger(input, start, end, Integer.MIN_VALUE, Integer.MAX_VALUE)) return false;
+            values[size] = PrimitiveParsers.parseInt(input, start, end);
+            return true;
+        }
+
+        @Override
+        void store(Object value) {
+            values[size] = (Integer) value;
+        }
+
+        @Override
+        public int[] toArray() {
+            return size == values.length ? values : Arrays.copyOf(values, size);
+        }
+    }
+
+    private static final class LongAccumulator extends Accumulator<long[]> {
+        private long[] values;
+
+        LongAccumulator(int capacity, @Nullable Interpreter<?> itemInterpreter) {
+            super(itemInterpreter);
+            values = new long[capacity];
+        }
+
+        @Override
+        void ensureCapacity() {
+            if (size == values.length) values = Arrays.copyOf(values, Math.max(DEFAULT_CAPACITY, size * 2));
+        }
+
+        @Override
+        boolean parse(CharSequence input, int start, int end) {
+            if (!PrimitiveParsers.isInteger(input, start, end, Long.MIN_VALUE, Long.MAX_VALUE)) return false;
+            values[size] = PrimitiveParsers.parseLong(input, start, end);
+            return true;
+        }
+
+        @Override
+        void store(Object value) {
+            values[size] = (Long) value;
+        }
+
+        @Override
+        public long[] toArray() {
+            return size == values.length ? values : Arrays.copyOf(values, size);
+        }
+    }
+
+    private static final class DoubleAccumulator extends Accumulator<double[]> {
+        private double[] values;
+
+        DoubleAccumulator(int capacity, @Nullable Interpreter<?> itemInterpreter) {
+            super(itemInterpreter);
+            values = new double[capacity];
+        }
+
+        @Override
+        void ensureCapacity() {
+            if (size == values.length) values = Arrays.copyOf(values, Math.max(DEFAULT_CAPACITY, size * 2));
+        }
+
+        @Override
+        boolean parse(CharSequence input, int start, int end) {
+            // Only an item the JDK's parser rejects costs an exception.
+            try {
+                values[size] = PrimitiveParsers.parseDouble(input, start, end);
+                return true;
+            } catch (NumberFormatException e) {
+                return false;
+            }
+        }
+
+        @Override
+        void store(Object value) {
+            values[size] = (Double) value;
+        }
+
+        @Override
+        public double[] toArray() {
+            return size == values.length ? values : Arrays.copyOf(values, size);
+        }
+    }
+
+    private static final class CharAccumulator extends Accumulator<char[]> {
+        private char[] values;
+
+        CharAccumulator(int capacity, @Nullable Interpreter<?> itemInterpreter) {
+            super(itemInterpreter);
+            values = new char[capacity];
+        }
+
+        @Override
+        void ensureCapacity() {
+            if (size == values.length) values = Arrays.copyOf(values, Math.max(DEFAULT_CAPACITY, size * 2));
+        }
+
+        @Override
+        boolean parse(CharSequence input, int start, int end) {
+            if (start == end) return false;
+            values[size] = input.charAt(start);
+            return true;
+        }
+
+        @Override
+        void store(Object value) {
+            values[size] = (Character) value;
+        }
+
+        @Override
+        public char[] toArray() {
+            return size == values.length ? values : Arrays.copyOf(values, size);
+        }
+    }
+
+    private static final class IntList extends AbstractList<Integer> implements RandomAccess {
+        private final int[] values;
+
+        IntList(int[] values) {
+            this.values = values;
+        }
+
+        @Override
+        public Integer get(int index) {
+            return values[index];
+        }
+
+        @Override
+        public int size() {
+            return values.length;
+        }
+    }
+
+    private static final class LongList extends AbstractList<Long> implements RandomAccess {
+        private final long[] values;
+
+        LongList(long[] values) {
+            this.values = values;
+        }
+
+        @Override
+        public Long get(int index) {
+            return values[index];
+        }
+
+        @Override
+        public int size() {
+            return values.length;
+        }
+    }
+
+    private static final class DoubleList extends AbstractList<Double> implements RandomAccess {
+        private final double[] values;
+
+        DoubleList(double[] values) {
+            this.values = values;
+        }
+
+        @Override
+        public Double get(int index) {
+            return values[index];
+        }
+
+        @Override
+        public int size() {
+            return values.length;
+        }
+    }
+
+    private static final class CharList extends AbstractList<Character> implements RandomAccess {
+        private final char[] values;
+
+        CharList(char[] values) {
+            this.values = values;
+        }
+
+        @Override
+        public Character get(int index) {
+            return values[index];
+        }
+
+        @Override
+        public int size() {
+            return values.length;
+        }
+    }
+}
@@ -0,0 +1,242 @@
+package com.codepoetics.mariko;
+
+import com.codepoetics.mariko.api.InterpretationException;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Parses primitive values directly from a region of a CharSequence, without first taking a substring.
+ *
+ * <p>The {@code OrNull} variants check the region before parsing it, and return null rather than throwing if it
+ * does not hold a value of the type, so that rejecting malformed input never costs an exception.</p>
+ */
+final class PrimitiveParsers {
+
+    // Every power of ten up to 10^22 is exactly representable as a double, and up to 10^10 as a float.
+    private static final double[] DOUBLE_POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22};
+
+    private static final float[] FLOAT_POWERS_OF_TEN = {
+            1e0f, 1e1f, 1e2f, 1e3f, 1e4f, 1e5f, 1e6f, 1e7f, 1e8f, 1e9f, 1e10f};
+
+    private PrimitiveParsers() {
+    }
+
+    static int parseInt(CharSequence input, int start, int end) {
+        return Integer.parseInt(input, start, end, 10);
+    }
+
+    static long parseLong(CharSequence input, int start, int end) {
+        return Long.parseLong(input, start, end, 10);
+    }
+
+    static short parseShort(CharSequence input, int start, int end) {
+        int value = parseInt(input, start, end);
+        if (value < Short.MIN_VALUE || value > Short.MAX_VALUE) {
+            throw new NumberFormatException(
+                    "Value out of range. Value:\"%s\" Radix:10".formatted(input.subSequence(start, end)));
+        }
+        return (short) value;
+    }
+
+    static byte parseByte(CharSequence input, int start, int end) {
+        int value = parseInt(input, start, end);
+        if (value < Byte.MIN_VALUE || value > Byte.MAX_VALUE) {
+            throw new NumberFormatException(
+                    "Value out of range. Value:\"%s\" Radix:10".formatted(input.subSequence(start, end)));
+        }
+        return (byte) value;
+    }
+
+    static char parseChar(CharSequence input, int start, int end) {
+        if (start == end) {
+            throw new InterpretationException("Unable to interpret empty input as a char");
+        }
+        return input.charAt(start);
+    }
+
+    // Matches Boolean.parseBoolean: "true" in any case is true, anything else is false.
+    static boolean parseBoolean(CharSequence input, int start, int end) {
+        if (end - start != 4) return false;
+        return Character.toLowerCase(input.charAt(start)) == 't'
+                && Character.toLowerCase(input.charAt(start + 1)) == 'r'
+                && Character.toLowerCase(input.charAt(start + 2)) == 'u'
+                && Character.toLowerCase(input.charAt(start + 3)) == 'e';
+    }
+
+    /*
+     * The JDK has no floating-point parser over a CharSequence region, so values which cannot be parsed exactly in
+     * place must take a substring.
+     */
+    static float parseFloat(CharSequence input, int start, int end) {
+        double value = exactDecimal(input, start, end, 7, FLOAT_POWERS_OF_TEN.length - 1, true);
+        return Double.isNaN(value) ? Float.parseFloat(input.subSequence(start, end).toString()) : (float) value;
+    }
+
+    static double parseDouble(CharSequence input, int start, int end) {
+        double value = exactDecimal(input, start, end, 15, DOUBLE_POWERS_OF_TEN.length - 1, false);
+        return Double.isNaN(value) ? Double.parseDouble(input.subSequence(start, end).toString()) : value;
+    }
+
+    /*
+     * Parses a plain decimal whose significant digits and power of ten are both exactly representable, so that a
+     * single multiplication or division of the one by the other is correctly rounded, just as the JDK's parsers
+     * round. Returns NaN, which no plain decimal can denote, for any other region.
+     */
+    private static double exactDecimal(CharSequence input, int start, int end, int maxDigits, int maxPower, boolean single) {
+        int i = start;
+        boolean negative = false;
+        if (i < end && (input.charAt(i) == '-' || input.charAt(i) == '+')) negative = input.charAt(i++) == '-';
+
+        long significand = 0;
+        int significantDigits = 0;
+        int digits = 0;
+        int power = 0;
+        boolean fraction = false;
+        for (; i < end; i++) {
+            char c = input.charAt(i);
+            if (c == '.' && !fraction) {
+                fraction = true;
+                continue;
+            }
+            if (!isAsciiDigit(c)) break;
+
+            digits++;
+            if (fraction) power--;
+            if (significand == 0 && c == '0') continue;
+            if (++significantDigits > maxDigits) return Double.NaN;
+            significand = significand * 10 + (c - '0');
+        }
+        if (digits == 0) return Double.NaN;
+
+        if (i < end && (input.charAt(i) == 'e' || input.charAt(i) == 'E')) {
+            i++;
+            boolean negativeExponent = false;
+            if (i < end && (input.charAt(i) == '-' || input.charAt(i) == '+')) negativeExponent = input.charAt(i++) == '-';
+            int exponentStart = i;
+            int exponent = 0;
+            for (; i < end && isAsciiDigit(input.charAt(i)); i++) {
+                if (i - exponentStart == 4) return Double.NaN;
+                exponent = exponent * 10 + (input.charAt(i) - '0');
+            }
+            if (i == exponentStart) return Double.NaN;
+            power += negativeExponent ? -exponent : exponent;
+        }
+        if (i != end) return Double.NaN;
+
+        if (significand == 0) return negative ? -0.0 : 0.0;
+        if (power > maxPower || power < -maxPower) return Double.NaN;
+
+        double value;
+        if (single) {
+            float floatSignificand = significand;
+            value = power >= 0
+                    ? floatSignificand * FLOAT_POWERS_OF_TEN[power]
+                    : floatSignificand / FLOAT_POWERS_OF_TEN[-power];
+        } else {
+            value = power >= 0
+                    ? significand * DOUBLE_POWERS_OF_TEN[power]
+                    : significand / DOUBLE_POWERS_OF_TEN[-power];
+        }
+        return negative ? -value : value;
+    }
+
+    static @Nullable Integer intOrNull(CharSequence input, int start, int end) {
+        return isInteger(input, start, end, Integer.MIN_VALUE, Integer.MAX_VALUE) ? parseInt(input, start, end) : null;
+    }
+
+    static @Nullable Long longOrNull(CharSequence input, int start, int end) {
+        return isInteger(input, start, end, Long.MIN_VALUE, Long.MAX_VALUE) ? parseLong(input, start, end) : null;
+    }
+
+    static @Nullable Short shortOrNull(CharSequence input, int start, int end) {
+        return isInteger(input, start, end, Short.MIN_VALUE, Short.MAX_VALUE) ? (short) parseInt(input, start, end) : null;
+    }
+
+    static @Nullable Byte byteOrNull(CharSequence input, int start, int end) {
+        return isInteger(input, start, end, Byte.MIN_VALUE, Byte.MAX_VALUE) ? (byte) parseInt(input, start, end) : null;
+    }
+
+    static @Nullable Character charOrNull(CharSequence input, int start, int end) {
+        return start < end ? input.charAt(start) : null;
+    }
+
+    static @Nullable Boolean booleanOrNull(CharSequence input, int start, int end) {
+        return parseBoolean(input, start, end);
+    }
+
+    static @Nullable Float floatOrNull(CharSequence input, int start, int end) {
+        if (isPlainDecimal(input, start, end)) return parseFloat(input, start, end);
+        try {
+            return parseFloat(input, start, end);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    static @Nullable Double doubleOrNull(CharSequence input, int start, int end) {
+        if (isPlainDecimal(input, start, end)) return parseDouble(input, start, end);
+        try {
+            return parseDouble(input, start, end);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Whether the region holds a decimal integer, with an optional sign, that {@link Long#parseLong} would accept
+     * and that lies between the given bounds.
+     */
+    static boolean isInteger(CharSequence input, int start, int end, long min, long max) {
+        if (start >= end) return false;
+
+        int i = start;
+        char first = input.charAt(i);
+        boolean negative = first == '-';
+        if ((negative || first == '+') && ++i == end) return false;
+
+        // Accumulated negatively, as Long.parseLong does, so that Long.MIN_VALUE can be reached.
+        long limit = negative ? min : -max;
+        long multiplicationLimit = limit / 10;
+        long value = 0;
+        for (; i < end; i++) {
+            int digit = Character.digit(input.charAt(i), 10);
+            if (digit < 0 || value < multiplicationLimit) return false;
+            value *= 10;
+            if (value < limit + digit) return false;
+            value -= digit;
+        }
+        return true;
+    }
+
+    /*
+     * Whether the region is a plain decimal such as -12.5e3, which the floating-point parsers always accept. Other
+     * forms they accept (hexadecimal, NaN, Infinity, type suffixes, surrounding whitespace) are rare enough to be
+     * left to a parse attempt.
+     */
+    private static boolean isPlainDecimal(CharSequence input, int start, int end) {
+        int i = start;
+        if (i < end && (input.charAt(i) == '-' || input.charAt(i) == '+')) i++;
+
+        int digits = 0;
+        while (i < end && isAsciiDigit(input.charAt(i))) { i++; digits++; }
+        if (i < end && input.charAt(i) == '.') {
+            i++;
+            while (i < end && isAsciiDigit(input.charAt(i))) { i++; digits++; }
+        }
+        if (digits == 0) return false;
+
+        if (i < end && (input.charAt(i) == 'e' || input.charAt(i) == 'E')) {
+            i++;
+            if (i < end && (input.charAt(i) == '-' || input.charAt(i) == '+')) i++;
+            int exponentDigits = 0;
+            while (i < end && isAsciiDigit(input.charAt(i))) { i++; exponentDigits++; }
+            if (exponentDigits == 0) return false;
+        }
+        return i == end;
+    }
+
+    private static boolean isAsciiDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+}
@@ -0,0 +1,561 @@
+package com.codepoetics.mariko;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * A regex parsed and compiled to a program of simple instructions, a Thompson NFA: each instruction either consumes
+ * one character, or moves on to one or two other instructions without consuming any, or saves the position reached as
+ * the start or end of a group, or checks the position is at the start or end of the input.
+ *
+ * <p>A strict program is an exact translation, which {@link LinearPattern} runs in place of java.util.regex. A lenient
+ * program, used to {@link BacktrackingAnalyser analyse} a pattern rather than to match with it, leaves out the
+ * constructs which can't be translated, such as lookaround and back-references, and keeps the rest.</p>
+ */
+final class RegexProgram {
+
+    static final int CHAR = 0;
+    static final int SET = 1;
+    static final int MATCH = 2;
+    static final int SPLIT = 3;
+    static final int JMP = 4;
+    static final int SAVE = 5;
+    static final int BEGIN = 6;
+    static final int END = 7;
+
+    private static final int UNSUPPORTED_FLAGS =
+            Pattern.MULTILINE | Pattern.COMMENTS | Pattern.LITERAL | Pattern.CANON_EQ | Pattern.UNICODE_CASE;
+
+    // Flags which change what a single character class or escape matches.
+    private static final int CHARACTER_FLAGS =
+            Pattern.CASE_INSENSITIVE | Pattern.DOTALL | Pattern.UNIX_LINES | Pattern.UNICODE_CHARACTER_CLASS;
+
+    final int[] ops;
+    final int[] arg1;
+    final int[] arg2;
+    final CharSet[] sets;
+    final int groupCount;
+
+    private RegexProgram(Emitter emitter, int groupCount) {
+        this.ops = emitter.ops.stream().mapToInt(Integer::intValue).toArray();
+        this.arg1 = emitter.arg1.stream().mapToInt(Integer::intValue).toArray();
+        this.arg2 = emitter.arg2.stream().mapToInt(Integer::intValue).toArray();
+        this.sets = emitter.sets.toArray(CharSet[]::new);
+        this.groupCount = groupCount;
+    }
+
+    /**
+     * Compile the pattern, or return null if it compiles to a program larger than the given size, or, for a strict
+     * program, uses constructs which can't be translated exactly.
+     */
+    static @Nullable RegexProgram compile(@NotNull Pattern pattern, int maxProgramSize, boolean strict) {
+        int flags = pattern.flags();
+        if ((flags & (strict ? UNSUPPORTED_FLAGS : Pattern.COMMENTS | Pattern.LITERAL)) != 0) return null;
+
+        try {
+            var parser = new Parser(pattern.pattern(), flags, strict);
+            var root = parser.parse();
+            if (strict && parser.groupCount != pattern.matcher("").groupCount()) return null;
+            if (size(root) + 1 > maxProgramSize) return null;
+
+            var emitter = new Emitter();
+            emitter.emit(root);
+            emitter.add(MATCH, 0, 0);
+            return new RegexProgram(emitter, parser.groupCount);
+        } catch (Unsupported | PatternSyntaxException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Whether the instruction at the given index is a CHAR or SET instruction which accepts the character.
+     */
+    boolean accepts(int pc, char c) {
+        return switch (ops[pc]) {
+            case CHAR -> c == arg1[pc];
+            case SET -> sets[arg1[pc]].contains(c);
+            default -> false;
+        };
+    }
+
+    /**
+     * The characters matched by a character class, escape or {@code .}, worked out for the first 256 characters when
+     * the pattern is compiled, and asked of java.util.regex for any others.
+     */
+    static final class CharSet {
+        private final long[] latin1 = new long[4];
+        private final @Nullable Pattern pattern;
+
+        private CharSet(@Nullable Pattern pattern) {
+            this.pattern = pattern;
+        }
+
+        static CharSet of(String atom, int flags) {
+            var pattern = Pattern.compile(atom, flags);
+            var set = new CharSet(pattern);
+            for (char c = 0; c < 256; c++) {
+                if (pattern.matcher(String.valueOf(c)).matches()) set.latin1[c >>> 6] |= 1L << c;
+            }
+            return set;
+        }
+
+        static CharSet ofAsciiLetter(char letter) {
+            var set = new CharSet(null);
+            char lower = Character.toLowerCase(letter);
+            char upper = Character.toUpperCase(letter);
+            set.latin1[lower >>> 6] |= 1L << lower;
+            set.latin1[upper >>> 6] |= 1L << upper;
+            return set;
+        }
+
+        boolean contains(char c) {
+            if (c < 256) return (latin1[c >>> 6] & (1L << c)) != 0;
+            return pattern != null && pattern.matcher(String.valueOf(c)).matches();
+        }
+
+        /**
+         * Whether the sets share a character among the first 256, or are the same set.
+         */
+        boolean intersects(CharSet other) {
+            if (other == this) return true;
+            for (int i = 0; i < latin1.length; i++) {
+                if ((latin1[i] & other.latin1[i]) != 0) return true;
+            }
+            return false;
+        }
+    }
+
+    private sealed interface Node { }
+
+    private record Literal(char c) implements Node { }
+
+    private record SetNode(CharSet set) implements Node { }
+
+    private record Sequence(List<Node> nodes) implements Node { }
+
+    private record Alternation(List<Node> alternatives) implements Node { }
+
+    private record Repeat(Node body, int min, int max, boolean greedy) implements Node { }
+
+    private record Capture(int group, Node body) implements Node { }
+
+    private record Assertion(int op) implements Node { }
+
+    private static final Node EMPTY = new Sequence(List.of());
+
+    private static boolean nullable(Node node) {
+        if (node instanceof Sequence sequence) return sequence.nodes().stream().allMatch(RegexProgram::nullable);
+        if (node instanceof Alternation alternation) return alternation.alternatives().stream().anyMatch(RegexProgram::nullable);
+        if (node instanceof Repeat repeat) return repeat.min() == 0 || nullable(repeat.body());
+        if (node instanceof Capture capture) return nullable(capture.body());
+        return node instanceof Assertion;
+    }
+
+    private static long size(Node node) {
+        if (node instanceof Sequence sequence) return sequence.nodes().stream().mapToLong(RegexProgram::size).sum();
+        if (node instanceof Alternation alternation) {
+            return alternation.alternatives().stream().mapToLong(RegexProgram::size).sum()
+                    + 2L * (alternation.alternatives().size() - 1);
+        }
+        if (node instanceof Repeat repeat) {
+            long body = size(repeat.body());
+            return repeat.min() * body + (repeat.max() < 0 ? body + 2 : (repeat.max() - repeat.min()) * (body + 1));
+        }
+        if (node instanceof Capture capture) return size(capture.body()) + 2;
+        return 1;
+    }
+
+    private static final class Emitter {
+        private final List<Integer> ops = new ArrayList<>();
+        private final List<Integer> arg1 = new ArrayList<>();
+        private final List<Integer> arg2 = new ArrayList<>();
+        private final List<CharSet> sets = new ArrayList<>();
+        private final Map<CharSet, Integer> setIndices = new HashMap<>();
+
+        int add(int op, int first, int second) {
+            ops.add(op);
+            arg1.add(first);
+            arg2.add(second);
+            return ops.size() - 1;
+        }
+
+        int next() {
+            return ops.size();
+        }
+
+        void emit(Node node) {
+            if (node instanceof Literal literal) {
+                add(CHAR, literal.c(), 0);
+            } else if (node instanceof SetNode setNode) {
+                add(SET, setIndices.computeIfAbsent(setNode.set(), set -> {
+                    sets.add(set);
+                    return sets.size() - 1;
+                }), 0);
+            } else if (node instanceof Sequence sequence) {
+                sequence.nodes().forEach(this::emit);
+            } else if (node instanceof Alternation alternation) {
+                emitAlternation(alternation.alternatives());
+            } else if (node instanceof Repeat repeat) {
+                emitRepeat(repeat);
+            } else if (node instanceof Capture capture) {
+                add(SAVE, (capture.group() - 1) * 2, 0);
+                emit(capture.body());
+                add(SAVE, (capture.group() - 1) * 2 + 1, 0);
+            } else if (node instanceof Assertion assertion) {
+                add(assertion.op(), 0, 0);
+            }
+        }
+
+        private void emitAlternation(List<Node> alternatives) {
+            List<Integer> jumps = new ArrayList<>();
+            for (int i = 0; i < alternatives.size() - 1; i++) {
+                int split = add(SPLIT, next() + 1, 0);
+                emit(alternatives.get(i));
+                jumps.add(add(JMP, 0, 0));
+                arg2.set(split, next());
+            }
+            emit(alternatives.get(alternatives.size() - 1));
+            jumps.forEach(jump -> arg1.set(jump, next()));
+        }
+
+        private void emitRepeat(Repeat repeat) {
+            for (int i = 0; i < repeat.min(); i++) {
+                emit(repeat.body());
+            }
+
+            if (repeat.max() < 0) {
+                int split = add(SPLIT, 0, 0);
+                emit(repeat.body());
+                add(JMP, split, 0);
+                setPreference(split, split + 1, next(), repeat.greedy());
+                return;
+            }
+
+            List<Integer> splits = new ArrayList<>();
+            for (int i = repeat.min(); i < repeat.max(); i++) {
+                splits.add(add(SPLIT, 0, 0));
+                emit(repeat.body());
+            }
+            splits.forEach(split -> setPreference(split, split + 1, next(), repeat.greedy()));
+        }
+
+        private void setPreference(int split, int body, int exit, boolean greedy) {
+            arg1.set(split, greedy ? body : exit);
+            arg2.set(split, greedy ? exit : body);
+        }
+    }
+
+    private static final class Unsupported extends RuntimeException {
+        private static final Unsupported INSTANCE = new Unsupported();
+
+        private Unsupported() {
+            super(null, null, false, false);
+        }
+    }
+
+    private static final class Parser {
+
+        private final String regex;
+        private final int characterFlags;
+        private final boolean strict;
+        private final Map<String, CharSet> setCache = new HashMap<>();
+        private int position;
+        private int flags;
+        private int groupCount;
+        private int depth;
+        // The end of the flag groups, such as (?i), at the very start of the regex.
+        private int leadingFlagsEnd;
+
+        Parser(String regex, int flags, boolean strict) {
+            this.regex = regex;
+            this.flags = flags & CHARACTER_FLAGS;
+            this.characterFlags = flags & CHARACTER_FLAGS;
+            this.strict = strict;
+        }
+
+        Node parse() {
+            var root = alternation();
+            if (position != regex.length()) throw Unsupported.INSTANCE;
+            return root;
+        }
+
+        // In a strict program, a construct which can't be translated exactly; in a lenient one, nothing.
+        private Node untranslatable() {
+            if (strict) throw Unsupported.INSTANCE;
+            return EMPTY;
+        }
+
+        private Node alternation() {
+            List<Node> alternatives = new ArrayList<>();
+            alternatives.add(sequence());
+            while (position < regex.length() && regex.charAt(position) == '|') {
+                position++;
+                alternatives.add(sequence());
+            }
+            return alternatives.size() == 1 ? alternatives.get(0) : new Alternation(alternatives);
+        }
+
+        private Node sequence() {
+            List<Node> nodes = new ArrayList<>();
+            while (position < regex.length() && regex.charAt(position) != '|' && regex.charAt(position) != ')') {
+                nodes.add(quantified(atom()));
+            }
+            return nodes.size() == 1 ? nodes.get(0) : new Sequence(nodes);
+        }
+
+        private Node atom() {
+            char c = regex.charAt(position);
+            switch (c) {
+                case '(' -> {
+                    return group();
+                }
+                case '[' -> {
+                    int end = classEnd();
+                    var characterClass = regex.substring(position, end);
+                    position = end;
+                    return set(characterClass);
+                }
+                case '.' -> {
+                    position++;
+                    return set(".");
+                }
+                case '^' -> {
+                    position++;
+                    return new Assertion(BEGIN);
+                }
+                case '$' -> {
+                    position++;
+                    return (characterFlags & Pattern.UNIX_LINES) != 0 ? untranslatable() : new Assertion(END);
+                }
+                case '\\' -> {
+                    return escape();
+                }
+                case '*', '+', '?', '{' -> throw Unsupported.INSTANCE;
+                default -> {
+                    position++;
+                    return literal(c);
+                }
+            }
+        }
+
+        private Node group() {
+            int start = position++;
+            int savedFlags = flags;
+            int group = 0;
+            boolean lookaround = false;
+
+            if (regex.startsWith("?", position)) {
+                if (regex.startsWith("?:", position)) {
+                    position += 2;
+                } else if (regex.startsWith("?<", position)
+                        && position + 2 < regex.length() && Character.isLetter(regex.charAt(position + 2))) {
+                    position = regex.indexOf('>', position) + 1;
+                    group = ++groupCount;
+                } else if (regex.startsWith("?=", position) || regex.startsWith("?!", position)
+                        || regex.startsWith("?>", position)) {
+                    position += 2;
+                    lookaround = true;
+                } else if (regex.startsWith("?<=", position) || regex.startsWith("?<!", position)) {
+                    position += 3;
+                    lookaround = true;
+                } else {
+                    position++;
+                    boolean on = true;
+                    while (position < regex.length()) {
+                        char flag = regex.charAt(position);
+                        if (flag == '-') on = false;
+                        else if (flag == 'i') flags = on ? flags | Pattern.CASE_INSENSITIVE : flags & ~Pattern.CASE_INSENSITIVE;
+                        else if (flag == 's') flags = on ? flags | Pattern.DOTALL : flags & ~Pattern.DOTALL;
+                        else if (strict || "dmuU".indexOf(flag) < 0) break;
+                        position++;
+                    }
+                    if (position >= regex.length()) throw Unsupported.INSTANCE;
+
+                    // (?i) sets flags until the end of the enclosing group; (?i:...) only within its own.
+                    char terminator = regex.charAt(position++);
+                    if (terminator == ')') return topLevelFlags(start);
+                    if (terminator != ':') throw Unsupported.INSTANCE;
+                }
+            } else {
+                group = ++groupCount;
+            }
+
+            if (lookaround && strict) throw Unsupported.INSTANCE;
+
+            depth++;
+            var body = alternation();
+            depth--;
+            if (position >= regex.length() || regex.charAt(position) != ')') throw Unsupported.INSTANCE;
+            position++;
+            flags = savedFlags;
+
+            if (lookaround) return EMPTY;
+            return group > 0 ? new Capture(group, body) : body;
+        }
+
+        // Pattern.flags() includes the flags set by flag groups outside any other group, wherever they appear, and
+        // not only those the pattern was compiled with. The parser starts from those flags, which is exact only if
+        // every such flag group comes before anything else in the regex.
+        private Node topLevelFlags(int start) {
+            if (depth > 0) return EMPTY;
+            if (start != leadingFlagsEnd) return untranslatable();
+            leadingFlagsEnd = position;
+            return EMPTY;
+        }
+
+        private Node escape() {
+            if (position + 1 >= regex.length()) throw Unsupported.INSTANCE;
+            char escaped = regex.charAt(position + 1);
+            if (!Character.isLetterOrDigit(escaped)) {
+                position += 2;
+                return literal(escaped);
+            }
+
+            switch (escaped) {
+                case 'Q' -> {
+                    int end = regex.indexOf("\\E", position + 2);
+                    var quoted = regex.substring(position + 2, end < 0 ? regex.length() : end);
+                    position = end < 0 ? regex.length() : end + 2;
+                    List<Node> nodes = new ArrayList<>();
+                    for (int i = 0; i < quoted.length(); i++) {
+                        nodes.add(literal(quoted.charAt(i)));
+                    }
+                    return new Sequence(nodes);
+                }
+                case '1', '2', '3', '4', '5', '6', '7', '8', '9' -> {
+                    position += 2;
+                    while (position < regex.length() && Character.isDigit(regex.charAt(position))) position++;
+                    return untranslatable();
+                }
+                case 'k' -> {
+                    position = regex.indexOf('>', position) + 1;
+                    if (position == 0) throw Unsupported.INSTANCE;
+                    return untranslatable();
+                }
+                case 'b', 'B', 'A', 'z', 'Z', 'G', 'R', 'X' -> {
+                    position += 2;
+                    return untranslatable();
+                }
+                default -> {
+                    int end = escapeEnd();
+                    var sequence = regex.substring(position, end);
+                    position = end;
+                    return set(sequence);
+                }
+            }
+        }
+
+        private int escapeEnd() {
+            char escaped = regex.charAt(position + 1);
+            return switch (escaped) {
+                case '0' -> {
+                    int end = position + 2;
+                    while (end < regex.length() && end < position + 5
+                            && regex.charAt(end) >= '0' && regex.charAt(end) <= '7') end++;
+                    yield end;
+                }
+                case 'x', 'p', 'P', 'N' -> regex.startsWith("{", position + 2)
+                        ? regex.indexOf('}', position) + 1
+                        : position + (escaped == 'x' ? 4 : 3);
+                case 'u' -> position + 6;
+                case 'c' -> position + 3;
+                default -> position + 2;
+            };
+        }
+
+        private int classEnd() {
+            int depth = 1;
+            int end = position + 1;
+            if (end < regex.length() && regex.charAt(end) == '^') end++;
+            if (end < regex.length() && regex.charAt(end) == ']') end++;
+
+            while (end < regex.length()) {
+                char c = regex.charAt(end);
+                if (c == '\\') {
+                    end += 2;
+                    continue;
+                }
+                if (c == '[') depth++;
+                if (c == ']' && --depth == 0) return end + 1;
+                end++;
+            }
+            throw Unsupported.INSTANCE;
+        }
+
+        private Node quantified(Node node) {
+            if (position >= regex.length()) return node;
+
+            int min;
+            int max;
+            switch (regex.charAt(position)) {
+                case '*' -> {
+                    min = 0;
+                    max = -1;
+                    position++;
+                }
+                case '+' -> {
+                    min = 1;
+                    max = -1;
+                    position++;
+                }
+                case '?' -> {
+                    min = 0;
+                    max = 1;
+                    position++;
+                }
+                case '{' -> {
+                    int close = regex.indexOf('}', position);
+                    if (close < 0) throw Unsupported.INSTANCE;
+                    var bounds = regex.substring(position + 1, close).split(",", -1);
+                    try {
+                        min = Integer.parseInt(bounds[0]);
+                        max = bounds.length == 1 ? min : bounds[1].isEmpty() ? -1 : Integer.parseInt(bounds[1]);
+                    } catch (NumberFormatException e) {
+                        throw Unsupported.INSTANCE;
+                    }
+                    position = close + 1;
+                }
+                default -> {
+                    return node;
+                }
+            }
+
+            boolean greedy = true;
+            if (position < regex.length() && regex.charAt(position) == '?') {
+                greedy = false;
+                position++;
+            } else if (position < regex.length() && regex.charAt(position) == '+') {
+                // A possessive quantifier never gives back what it matched, so never backtracks into its body.
+                position++;
+                return untranslatable();
+            }
+
+            // A repeated body which can match nothing may loop without consuming input, where java.util.regex
+            // has rules of its own for when to stop.
+            if (node instanceof Assertion || ((max < 0 || max > 1) && nullable(node))) {
+                if (strict) throw Unsupported.INSTANCE;
+            }
+            return new Repeat(node, min, max, greedy);
+        }
+
+        private Node literal(char c) {
+            if (Character.isSurrogate(c)) throw Unsupported.INSTANCE;
+            if ((flags & Pattern.CASE_INSENSITIVE) != 0 && c < 128 && Character.isLetter(c)) {
+                return new SetNode(setCache.computeIfAbsent("ascii:" + c, key -> CharSet.ofAsciiLetter(c)));
+            }
+            return new Literal(c);
+        }
+
+        private Node set(String atom) {
+            int atomFlags = flags | (characterFlags & (Pattern.UNIX_LINES | Pattern.UNICODE_CHARACTER_CLASS));
+            return new SetNode(setCache.computeIfAbsent(atomFlags + ":" + atom, key -> CharSet.of(atom, atomFlags)));
+        }
+    }
+}
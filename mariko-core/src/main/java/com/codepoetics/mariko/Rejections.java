@@ -0,0 +1,84 @@
+package com.codepoetics.mariko;
+
+import com.codepoetics.mariko.api.InterpretationException;
+import com.codepoetics.mariko.api.Interpreter;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Collects the inputs which a bulk interpretation could not interpret, so that they are skipped rather than
+ * failing the whole interpretation. Every rejection is counted, and the first few are kept as samples.
+ *
+ * <p>Rejecting an input costs no exception unless the input matched a pattern and then failed in a constructor or
+ * builder method. A single instance may be shared by interpretations running at the same time.</p>
+ */
+public final class Rejections {
+
+    /**
+     * An input which could not be interpreted.
+     * @param position The index of the input in a list, or its line number in a file
+     * @param input The input
+     */
+    public record Rejection(long position, @NotNull String input) { }
+
+    public static final int DEFAULT_SAMPLE_LIMIT = 100;
+
+    private final int sampleLimit;
+    private final LongAdder count = new LongAdder();
+    private final List<Rejection> samples = new ArrayList<>();
+    private volatile boolean sampling;
+
+    public Rejections() {
+        this(DEFAULT_SAMPLE_LIMIT);
+    }
+
+    /**
+     * @param sampleLimit The number of rejected inputs to keep
+     */
+    public Rejections(int sampleLimit) {
+        this.sampleLimit = sampleLimit;
+        this.sampling = sampleLimit > 0;
+    }
+
+    /**
+     * @return The number of inputs rejected
+     */
+    public long count() {
+        return count.sum();
+    }
+
+    /**
+     * @return The rejected inputs kept as samples, ordered by position
+     */
+    public @NotNull List<Rejection> samples() {
+        synchronized (samples) {
+            return samples.stream().sorted(Comparator.comparingLong(Rejection::position)).toList();
+        }
+    }
+
+    /**
+     * Interpret the input, returning null if it cannot be interpreted for any reason, so that it may be rejected.
+     */
+    static <T> @Nullable T interpretOrNull(@NotNull Interpreter<T> interpreter, @NotNull CharSequence input) {
+        try {
+            return NullableInterpreter.interpretOrNull(interpreter, input);
+        } catch (InterpretationException e) {
+            return null;
+        }
+    }
+
+    void reject(@NotNull CharSequence input, long position) {
+        count.increment();
+        if (!sampling) return;
+
+        synchronized (samples) {
+            if (samples.size() < sampleLimit) samples.add(new Rejection(position, input.toString()));
+            sampling = samples.size() < sampleLimit;
+        }
+    }
+}
@@ -0,0 +1,283 @@
+package com.codepoetics.mariko;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.regex.Pattern;
+
+/**
+ * Generates an input which a pattern matches, choosing the text of each capturing group through a callback so that
+ * inputs for a type can be built up from inputs for the types of its parameters. Used to warm up interpreters
+ * before they see real input.
+ *
+ * <p>Each character class or escape is given a character it matches, each quantified atom appears as few times as
+ * it may (but at least once, so that the groups within it take part), and only the first alternative of an
+ * alternation is followed. Back-references and comments mode are not supported. The result is not guaranteed to
+ * match, as lookarounds are ignored, so callers should check it.</p>
+ */
+final class SampleInputs {
+
+    /**
+     * Chooses the text for a capturing group.
+     */
+    interface GroupText {
+        /**
+         * @param group The number of the group
+         * @param generated The text generated from the group's own pattern
+         * @return The text to use, or null if no input can be generated
+         */
+        @Nullable String textFor(int group, @NotNull String generated);
+    }
+
+    private static final String CANDIDATE_CHARACTERS = "a1 A_-.,:;/";
+
+    private static final class Unsupported extends RuntimeException {
+        private static final Unsupported INSTANCE = new Unsupported();
+
+        private Unsupported() {
+            super(null, null, false, false);
+        }
+    }
+
+    private SampleInputs() {
+    }
+
+    /**
+     * Generate an input matched by the pattern, or return null if it uses constructs that are not supported.
+     */
+    static @Nullable String generate(@NotNull Pattern pattern, @NotNull GroupText groupText) {
+        if ((pattern.flags() & Pattern.LITERAL) != 0) return pattern.pattern();
+        if ((pattern.flags() & Pattern.COMMENTS) != 0) return null;
+
+        var generator = new Generator(pattern, groupText);
+        try {
+            var result = generator.alternation();
+            return generator.position == pattern.pattern().length() ? result : null;
+        } catch (Unsupported e) {
+            return null;
+        }
+    }
+
+    private static final class Generator {
+
+        private final String regex;
+        private final int flags;
+        private final GroupText groupText;
+        private int position;
+        private int groupCount;
+        // Inside alternatives which are not followed, or lookarounds, groups are counted but their text is not chosen.
+        private boolean skipping;
+
+        Generator(Pattern pattern, GroupText groupText) {
+            this.regex = pattern.pattern();
+            this.flags = pattern.flags();
+            this.groupText = groupText;
+        }
+
+        String alternation() {
+            var first = sequence();
+
+            boolean wasSkipping = skipping;
+            skipping = true;
+            while (position < regex.length() && regex.charAt(position) == '|') {
+                position++;
+                sequence();
+            }
+            skipping = wasSkipping;
+
+            return first;
+        }
+
+        private String sequence() {
+            var result = new StringBuilder();
+            while (position < regex.length() && regex.charAt(position) != '|' && regex.charAt(position) != ')') {
+                var atom = atom();
+                result.append(atom.repeat(repeats()));
+            }
+            return result.toString();
+        }
+
+        private String atom() {
+            char c = regex.charAt(position);
+            switch (c) {
+                case '(' -> {
+                    return group();
+                }
+                case '[' -> {
+                    int end = classEnd();
+                    var characterClass = regex.substring(position, end);
+                    position = end;
+                    return characterMatching(characterClass);
+                }
+                case '\\' -> {
+                    return escape();
+                }
+                case '.' -> {
+                    position++;
+                    return "a";
+                }
+                case '^', '$' -> {
+                    position++;
+                    return "";
+                }
+                default -> {
+                    position++;
+                    return String.valueOf(c);
+                }
+            }
+        }
+
+        private String group() {
+            position++;
+            boolean capturing = true;
+            boolean zeroWidth = false;
+
+            if (regex.startsWith("?", position)) {
+                if (regex.startsWith("?<=", position) || regex.startsWith("?<!", position)) {
+                    position += 3;
+                    capturing = false;
+                    zeroWidth = true;
+                } else if (regex.startsWith("?=", position) || regex.startsWith("?!", position)) {
+                    position += 2;
+                    capturing = false;
+                    zeroWidth = true;
+                } else if (regex.startsWith("?<", position)) {
+                    position = regex.indexOf('>', position) + 1;
+                } else if (regex.startsWith("?>", position)) {
+                    position += 2;
+                    capturing = false;
+                } else {
+                    position++;
+                    while (position < regex.length()
+                            && (Character.isLetter(regex.charAt(position)) || regex.charAt(position) == '-')) {
+                        if (regex.charAt(position) == 'x') throw Unsupported.INSTANCE;
+                        position++;
+                    }
+                    // A flag-setting group such as (?i) matches nothing; (?i:...) does not capture.
+                    if (regex.charAt(position++) == ')') return "";
+                    capturing = false;
+                }
+            }
+
+            int group = capturing ? ++groupCount : 0;
+            boolean wasSkipping = skipping;
+            skipping |= zeroWidth;
+            var content = alternation();
+            skipping = wasSkipping;
+            position++;
+
+            if (zeroWidth) return "";
+            if (!capturing || skipping) return content;
+
+            var text = groupText.textFor(group, content);
+            if (text == null) throw Unsupported.INSTANCE;
+            return text;
+        }
+
+        private String escape() {
+            char escaped = regex.charAt(position + 1);
+            if (!Character.isLetterOrDigit(escaped)) {
+                position += 2;
+                return String.valueOf(escaped);
+            }
+
+            switch (escaped) {
+                case 'Q' -> {
+                    int end = regex.indexOf("\\E", position + 2);
+                    var quoted = regex.substring(position + 2, end < 0 ? regex.length() : end);
+                    position = end < 0 ? regex.length() : end + 2;
+                    return quoted;
+                }
+                case '1', '2', '3', '4', '5', '6', '7', '8', '9', 'k' -> throw Unsupported.INSTANCE;
+                case 'b', 'B', 'A', 'z', 'Z', 'G' -> {
+                    position += 2;
+                    return "";
+                }
+                default -> {
+                    int end = escapeEnd();
+                    var sequence = regex.substring(position, end);
+                    position = end;
+                    return characterMatching(sequence);
+                }
+            }
+        }
+
+        private int escapeEnd() {
+            char escaped = regex.charAt(position + 1);
+            return switch (escaped) {
+                case '0' -> {
+                    int end = position + 2;
+                    while (end < regex.length() && end < position + 5
+                            && regex.charAt(end) >= '0' && regex.charAt(end) <= '7') end++;
+                    yield end;
+                }
+                case 'x', 'p', 'P', 'N' -> regex.startsWith("{", position + 2)
+                        ? regex.indexOf('}', position) + 1
+                        : position + (escaped == 'x' ? 4 : 3);
+                case 'u' -> position + 6;
+                case 'c' -> position + 3;
+                default -> position + 2;
+            };
+        }
+
+        private int classEnd() {
+            int depth = 1;
+            int end = position + 1;
+            if (end < regex.length() && regex.charAt(end) == '^') end++;
+            if (end < regex.length() && regex.charAt(end) == ']') end++;
+
+            while (end < regex.length()) {
+                char c = regex.charAt(end);
+                if (c == '\\') {
+                    end += 2;
+                    continue;
+                }
+                if (c == '[') depth++;
+                if (c == ']' && --depth == 0) return end + 1;
+                end++;
+            }
+            throw Unsupported.INSTANCE;
+        }
+
+        private String characterMatching(String characterClass) {
+            var pattern = Pattern.compile(characterClass, flags);
+            for (int i = 0; i < CANDIDATE_CHARACTERS.length(); i++) {
+                var candidate = String.valueOf(CANDIDATE_CHARACTERS.charAt(i));
+                if (pattern.matcher(candidate).matches()) return candidate;
+            }
+            for (char c = 0; c < 0x100; c++) {
+                var candidate = String.valueOf(c);
+                if (pattern.matcher(candidate).matches()) return candidate;
+            }
+            throw Unsupported.INSTANCE;
+        }
+
+        private int repeats() {
+            if (position >= regex.length()) return 1;
+
+            int repeats;
+            switch (regex.charAt(position)) {
+                case '*', '+', '?' -> {
+                    position++;
+                    repeats = 1;
+                }
+                case '{' -> {
+                    int close = regex.indexOf('}', position);
+                    var bounds = regex.substring(position + 1, close).split(",", -1);
+                    int minimum = Integer.parseInt(bounds[0]);
+                    boolean mayBeEmpty = bounds.length == 1 || bounds[1].isEmpty() || Integer.parseInt(bounds[1]) > 0;
+                    repeats = minimum > 0 ? minimum : mayBeEmpty ? 1 : 0;
+                    position = close + 1;
+                }
+                default -> {
+                    return 1;
+                }
+            }
+
+            if (position < regex.length() && (regex.charAt(position) == '?' || regex.charAt(position) == '+')) {
+                position++;
+            }
+            return repeats;
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.codepoetics.mariko;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.function.IntFunction;
+
+/**
+ * Splits a bounded table into segments chosen by the hash of a key, so that each segment can be locked separately.
+ * There are enough segments to spread contention across the processors, but never fewer than 8 entries in each, and
+ * each holds an equal share of the entries.
+ */
+final class SegmentedTable<S extends SegmentedTable.Segment> {
+
+    private static final int MAX_SEGMENTS = 64;
+
+    interface Segment {
+        int size();
+    }
+
+    private final @NotNull Object[] segments;
+    private final int segmentMask;
+
+    /**
+     * @param maximumSize The number of entries shared between the segments
+     * @param segmentFactory Makes a segment holding the given number of entries
+     */
+    SegmentedTable(int maximumSize, @NotNull IntFunction<S> segmentFactory) {
+        int segmentCount = Integer.highestOneBit(Math.max(1, Math.min(
+                Math.min(MAX_SEGMENTS, Runtime.getRuntime().availableProcessors() * 4),
+                maximumSize / 8)));
+        this.segments = new Object[segmentCount];
+        for (int i = 0; i < segmentCount; i++) {
+            segments[i] = segmentFactory.apply(maximumSize / segmentCount + (i < maximumSize % segmentCount ? 1 : 0));
+        }
+        this.segmentMask = segmentCount - 1;
+    }
+
+    @SuppressWarnings("unchecked")
+    @NotNull S segmentFor(@NotNull Object key) {
+        int hash = key.hashCode();
+        return (S) segments[(hash ^ (hash >>> 16)) & segmentMask];
+    }
+
+    @SuppressWarnings("unchecked")
+    int size() {
+        int size = 0;
+        for (Object segment : segments) {
+            size += ((S) segment).size();
+        }
+        return size;
+    }
+}
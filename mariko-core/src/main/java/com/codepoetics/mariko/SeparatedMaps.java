@@ -0,0 +1,275 @@
+package com.codepoetics.mariko;
+
+import com.codepoetics.mariko.ParameterValueExtractor.GroupParser;
+import com.codepoetics.mariko.reflection.RequiredLiterals;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.function.LongFunction;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.IntStream;
+
+/**
+ * Interprets separated entries, each a key and a value, into maps, in a single pass over the input.
+ *
+ * <p>Entries are split exactly as {@link Pattern#split(CharSequence)} would split them, and each entry is split at
+ * the first match of the key/value separator within it. Keys and values are parsed from their bounds within the input,
+ * and the map is sized for the number of entries before any are added. If any entry has no key/value separator, or
+ * its key or value cannot be interpreted, the whole map cannot be, and null is returned in keeping with
+ * {@link NullableInterpreter}. Where a key appears more than once, its last value is kept.</p>
+ */
+final class SeparatedMaps {
+
+    private static final Map<Class<?>, LongFunction<Object>> KEY_BOXERS = Map.of(
+            int.class, key -> (int) key,
+            long.class, key -> key,
+            char.class, key -> (char) key);
+
+    private SeparatedMaps() {
+    }
+
+    /**
+     * Make an interpreter which reads separated entries into a HashMap.
+     *
+     * @param entrySeparator The separator between entries
+     * @param keyValueSeparator The separator between the key and value of each entry
+     * @param keyParser The parser for keys
+     * @param valueParser The parser for values
+     */
+    static @NotNull NullableInterpreter<Object> hashMapInterpreter(
+            @NotNull Pattern entrySeparator,
+            @NotNull Pattern keyValueSeparator,
+            @NotNull GroupParser keyParser,
+            @NotNull GroupParser valueParser) {
+        var entrySplitter = PrimitiveArrays.boundsInterpreter(entrySeparator);
+        var keyValueSplitter = new KeyValueSplitter(keyValueSeparator);
+
+        return input -> {
+            var text = input.toString();
+            var entries = entrySplitter.interpretOrNull(text);
+            if (entries == null) return null;
+
+            int size = entries.length / 2;
+            var result = new HashMap<Object, Object>((int) Math.ceil(size / 0.75));
+            var bounds = new int[4];
+            for (int i = 0; i < size; i++) {
+                if (!keyValueSplitter.split(text, entries[i * 2], entries[i * 2 + 1], bounds)) return null;
+
+                var key = keyParser.parse(text, bounds[0], bounds[1]);
+                if (key == null) return null;
+                var value = valueParser.parse(text, bounds[2], bounds[3]);
+                if (value == null) return null;
+                result.put(key, value);
+            }
+            return result;
+        };
+    }
+
+    /**
+     * Make an interpreter which reads separated entries with primitive keys into a sorted array of keys and an array
+     * of values, and presents them as a read-only map.
+     *
+     * @param keyClass One of int, long or char
+     * @param entrySeparator The separator between entries
+     * @param keyValueSeparator The separator between the key and value of each entry
+     * @param keyParser The parser for keys
+     * @param valueParser The parser for values
+     */
+    static @NotNull NullableInterpreter<Object> compactMapInterpreter(
+            @NotNull Class<?> keyClass,
+            @NotNull Pattern entrySeparator,
+            @NotNull Pattern keyValueSeparator,
+            @NotNull GroupParser keyParser,
+            @NotNull GroupParser valueParser) {
+        var entrySplitter = PrimitiveArrays.boundsInterpreter(entrySeparator);
+        var keyValueSplitter = new KeyValueSplitter(keyValueSeparator);
+        var keyBoxer = KEY_BOXERS.get(keyClass);
+
+        return input -> {
+            var text = input.toString();
+            var entries = entrySplitter.interpretOrNull(text);
+            if (entries == null) return null;
+
+            int size = entries.length / 2;
+            var keys = new long[size];
+            var values = new Object[size];
+            var bounds = new int[4];
+            for (int i = 0; i < size; i++) {
+                if (!keyValueSplitter.split(text, entries[i * 2], entries[i * 2 + 1], bounds)) return null;
+
+                var key = keyParser.parse(text, bounds[0], bounds[1]);
+                if (key == null) return null;
+                var value = valueParser.parse(text, bounds[2], bounds[3]);
+                if (value == null) return null;
+                keys[i] = key instanceof Character c ? c : ((Number) key).longValue();
+                values[i] = value;
+            }
+            return PrimitiveKeyMap.of(keyClass, keyBoxer, keys, values);
+        };
+    }
+
+    /*
+     * Finds the first match of the key/value separator within an entry, searching for it directly when it is a
+     * literal string.
+     */
+    private static final class KeyValueSplitter {
+        private final @Nullable String literalSeparator;
+        private final ThreadLocalMatcher separatorMatchers;
+
+        KeyValueSplitter(Pattern separator) {
+            var requiredLiterals = RequiredLiterals.of(separator);
+            this.literalSeparator = requiredLiterals.prefix().equals(separator.pattern()) && !separator.pattern().isEmpty()
+                    ? separator.pattern()
+                    : null;
+            this.separatorMatchers = new ThreadLocalMatcher(separator);
+        }
+
+        // Fills bounds with the start and end of the key, then of the value, returning false if there is no separator.
+        boolean split(String input, int start, int end, int[] bounds) {
+            int separatorStart;
+            int separatorEnd;
+            if (literalSeparator != null) {
+                separatorStart = input.indexOf(literalSeparator, start);
+                if (separatorStart < 0 || separatorStart + literalSeparator.length() > end) return false;
+                separatorEnd = separatorStart + literalSeparator.length();
+            } else {
+                Matcher matcher = separatorMatchers.acquire(input);
+                try {
+                    if (!matcher.region(start, end).find()) return false;
+                    separatorStart = matcher.start();
+                    separatorEnd = matcher.end();
+                } finally {
+                    separatorMatchers.release(matcher);
+                }
+            }
+            bounds[0] = start;
+            bounds[1] = separatorStart;
+            bounds[2] = separatorEnd;
+            bounds[3] = end;
+            return true;
+        }
+    }
+
+    /**
+     * A read-only map whose keys are int, long or char values, held in a sorted array and found by binary search,
+     * with the value for each key at the same index in an array of values.
+     */
+    private static final class PrimitiveKeyMap extends AbstractMap<Object, Object> {
+        private final Class<?> keyClass;
+        private final LongFunction<Object> keyBoxer;
+        private final long[] keys;
+        private final Object[] values;
+
+        private PrimitiveKeyMap(Class<?> keyClass, LongFunction<Object> keyBoxer, long[] keys, Object[] values) {
+            this.keyClass = keyClass;
+            this.keyBoxer = keyBoxer;
+            this.keys = keys;
+            this.values = values;
+        }
+
+        /*
+         * Sorts the entries by key, if they are not sorted already, keeping the last value given for each key. The
+         * sort is stable, so the last value for a key is the last of its run.
+         */
+        static PrimitiveKeyMap of(Class<?> keyClass, LongFunction<Object> keyBoxer, long[] keys, Object[] values) {
+            if (isStrictlyAscending(keys)) return new PrimitiveKeyMap(keyClass, keyBoxer, keys, values);
+
+            int[] order = IntStream.range(0, keys.length)
+                    .boxed()
+                    .sorted(Comparator.comparingLong(index -> keys[index]))
+                    .mapToInt(Integer::intValue)
+                    .toArray();
+
+            var sortedKeys = new long[keys.length];
+            var sortedValues = new Object[keys.length];
+            int size = 0;
+            for (int index : order) {
+                if (size > 0 && sortedKeys[size - 1] == keys[index]) size--;
+                sortedKeys[size] = keys[index];
+                sortedValues[size] = values[index];
+                size++;
+            }
+            return new PrimitiveKeyMap(keyClass, keyBoxer,
+                    Arrays.copyOf(sortedKeys, size), Arrays.copyOf(sortedValues, size));
+        }
+
+        private static boolean isStrictlyAscending(long[] keys) {
+            for (int i = 1; i < keys.length; i++) {
+                if (keys[i - 1] >= keys[i]) return false;
+            }
+            return true;
+        }
+
+        private int indexOf(Object key) {
+            if (key == null) return -1;
+            long value;
+            if (keyClass == char.class) {
+                if (!(key instanceof Character c)) return -1;
+                value = c;
+            } else if (keyClass == int.class) {
+                if (!(key instanceof Integer i)) return -1;
+                value = i;
+            } else {
+                if (!(key instanceof Long l)) return -1;
+                value = l;
+            }
+            return Arrays.binarySearch(keys, value);
+        }
+
+        @Override
+        public Object get(Object key) {
+            int index = indexOf(key);
+            return index < 0 ? null : values[index];
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return indexOf(key) >= 0;
+        }
+
+        @Override
+        public int size() {
+            return keys.length;
+        }
+
+        @Override
+        public @NotNull Set<Entry<Object, Object>> entrySet() {
+            return new AbstractSet<>() {
+                @Override
+                public @NotNull Iterator<Entry<Object, Object>> iterator() {
+                    return new Iterator<>() {
+                        private int index;
+
+                        @Override
+                        public boolean hasNext() {
+                            return index < keys.length;
+                        }
+
+                        @Override
+                        public Entry<Object, Object> next() {
+                            if (!hasNext()) throw new NoSuchElementException();
+                            var entry = new SimpleImmutableEntry<>(keyBoxer.apply(keys[index]), values[index]);
+                            index++;
+                            return entry;
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    return keys.length;
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.codepoetics.mariko;
+
+import com.codepoetics.mariko.api.CompiledPattern;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Threshold;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.regex.MatchResult;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A Flight Recorder event for a single regex match which took longer than the event's threshold, 10ms unless
+ * configured otherwise in the recording's settings. Only the match itself is timed, not the interpretation of any
+ * nested values, so a slow event points at the pattern which is backtracking rather than at every type enclosing it.
+ */
+@Name("com.codepoetics.mariko.SlowMatch")
+@Label("Slow Match")
+@Category("Mariko")
+@Description("Matching an input against an interpreter's pattern took longer than the threshold")
+@Threshold("10 ms")
+final class SlowMatchEvent extends Event {
+
+    @Label("Pattern")
+    String pattern;
+
+    @Label("Input Length")
+    int inputLength;
+
+    @Label("Matched")
+    boolean matched;
+
+    /**
+     * Match the whole input, recording an event if it takes longer than the threshold.
+     */
+    static boolean matches(Matcher matcher, CharSequence input) {
+        var event = new SlowMatchEvent();
+        event.begin();
+
+        boolean matched = matcher.matches();
+
+        event.end();
+        if (event.shouldCommit()) {
+            event.pattern = matcher.pattern().pattern();
+            event.inputLength = input.length();
+            event.matched = matched;
+            event.commit();
+        }
+        return matched;
+    }
+
+    /**
+     * Match the whole input with a pattern compiled by a {@link com.codepoetics.mariko.api.PatternEngine}, recording
+     * an event if it takes longer than the threshold.
+     */
+    static @Nullable MatchResult matches(CompiledPattern compiled, Pattern pattern, CharSequence input) {
+        var event = new SlowMatchEvent();
+        event.begin();
+
+        var match = compiled.matchWhole(input);
+
+        event.end();
+        if (event.shouldCommit()) {
+            event.pattern = pattern.pattern();
+            event.inputLength = input.length();
+            event.matched = match != null;
+            event.commit();
+        }
+        return match;
+    }
+}
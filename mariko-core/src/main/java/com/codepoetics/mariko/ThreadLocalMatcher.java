@@ -0,0 +1,48 @@
+package com.codepoetics.mariko;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A matcher for a pattern kept for each thread, and reset for every input rather than created anew.
+ *
+ * <p>A matcher is taken from its thread's slot while in use, and put back when released. Interpreting a nested value
+ * with the same pattern while the outer match is still being read, as recursive types do, finds the slot empty and
+ * creates a matcher of its own, so the outer match is never disturbed.</p>
+ */
+final class ThreadLocalMatcher {
+
+    private static final class Slot {
+        private Matcher matcher;
+    }
+
+    private final @NotNull Pattern pattern;
+    private final ThreadLocal<Slot> slots = ThreadLocal.withInitial(Slot::new);
+
+    ThreadLocalMatcher(@NotNull Pattern pattern) {
+        this.pattern = pattern;
+    }
+
+    /**
+     * Take this thread's matcher, reset to the given input. It must be passed to {@link #release(Matcher)} once the
+     * match has been read.
+     */
+    @NotNull Matcher acquire(@NotNull CharSequence input) {
+        var slot = slots.get();
+        var matcher = slot.matcher;
+        if (matcher == null) return pattern.matcher(input);
+
+        slot.matcher = null;
+        return matcher.reset(input);
+    }
+
+    /**
+     * Put a matcher back in this thread's slot. It is reset to empty input first, so that the slot doesn't keep the
+     * last input reachable.
+     */
+    void release(@NotNull Matcher matcher) {
+        slots.get().matcher = matcher.reset("");
+    }
+}
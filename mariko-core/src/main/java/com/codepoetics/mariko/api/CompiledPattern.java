@@ -0,0 +1,22 @@
+package com.codepoetics.mariko.api;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.regex.MatchResult;
+
+/**
+ * A pattern compiled by a {@link PatternEngine}. It must give the same result as {@link java.util.regex.Matcher#matches()}
+ * for the pattern it was compiled from, including the text captured by each group, and may be used by many threads
+ * at once.
+ */
+@FunctionalInterface
+public interface CompiledPattern {
+
+    /**
+     * Match the whole of the input.
+     * @param input The input to match
+     * @return The match, with the same groups as the pattern it was compiled from, or null if the input does not match
+     */
+    @Nullable MatchResult matchWhole(@NotNull CharSequence input);
+}
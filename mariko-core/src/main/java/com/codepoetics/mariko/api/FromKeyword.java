@@ -0,0 +1,16 @@
+package com.codepoetics.mariko.api;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Keywords which are interpreted as the annotated enum constant, as well as its name. Like names, keywords are
+ * matched ignoring case.
+ */
+@Target(ElementType.FIELD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface FromKeyword {
+    String[] value();
+}
@@ -9,4 +9,17 @@ import java.lang.annotation.Target;
 @Retention(RetentionPolicy.RUNTIME)
 public @interface FromList {
     String value();
+
+    /**
+     * Whether a list of int, long, double or char items should be read into a primitive array, and presented as a
+     * read-only view over that array, rather than built as an ArrayList of boxed values.
+     */
+    boolean compact() default false;
+
+    /**
+     * Whether the list should be a read-only view which finds only where each item is, and interprets each item the
+     * first time it is read, rather than interpreting every item up front. An item which cannot be interpreted then
+     * causes an InterpretationException when it is read, rather than when the list is.
+     */
+    boolean lazy() default false;
 }
@@ -0,0 +1,26 @@
+package com.codepoetics.mariko.api;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+@Target(ElementType.PARAMETER)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface FromMap {
+    /**
+     * The separator between entries.
+     */
+    String value();
+
+    /**
+     * The separator between the key and the value of each entry. Only its first match in an entry separates them.
+     */
+    String keyValue() default "=";
+
+    /**
+     * Whether a map with int, long or char keys should be read into a sorted primitive array of keys, and presented
+     * as a read-only view over that array and the values, rather than built as a HashMap of boxed keys.
+     */
+    boolean compact() default false;
+}
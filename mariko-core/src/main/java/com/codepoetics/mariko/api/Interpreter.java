@@ -32,4 +32,28 @@ public interface Interpreter<T> {
     @NotNull
     Optional<T> tryInterpret(@NotNull String input);
 
+    /**
+     * Interpret the input character sequence, or throw an {@link InterpretationException}.
+     * @param input The character sequence to interpret
+     * @return An object representing the contents of the input
+     * @throws InterpretationException if this interpreter cannot interpret the given input
+     */
+    @NotNull default T interpret(@NotNull CharSequence input) {
+        return tryInterpret(input).orElseThrow(() ->
+            new InterpretationException(
+                "Unable to interpret input <%s>".formatted(input)
+            ));
+    }
+
+    /**
+     * Try to interpret the input character sequence. By default the input is copied into a String; interpreters
+     * which can match their input in place override this to avoid the copy.
+     * @param input The character sequence to interpret
+     * @return An object representing the contents of the input, or Optional.empty if this interpreter could not interpret the input
+     */
+    @NotNull
+    default Optional<T> tryInterpret(@NotNull CharSequence input) {
+        return tryInterpret(input.toString());
+    }
+
 }
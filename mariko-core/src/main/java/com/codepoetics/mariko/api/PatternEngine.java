@@ -0,0 +1,21 @@
+package com.codepoetics.mariko.api;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.regex.Pattern;
+
+/**
+ * Compiles the patterns interpreters match inputs against into something other than a {@link java.util.regex.Matcher}.
+ * An engine may support only some patterns: those it cannot compile are matched with {@code java.util.regex} as usual.
+ */
+@FunctionalInterface
+public interface PatternEngine {
+
+    /**
+     * Compile a pattern for matching whole inputs.
+     * @param pattern The pattern, as written and with its flags
+     * @return The compiled pattern, or null if this engine does not support the pattern
+     */
+    @Nullable CompiledPattern compile(@NotNull Pattern pattern);
+}
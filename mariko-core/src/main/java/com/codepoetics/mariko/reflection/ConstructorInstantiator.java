@@ -1,35 +1,60 @@
 package com.codepoetics.mariko.reflection;
 
 import com.codepoetics.mariko.api.InterpretationException;
+import com.codepoetics.mariko.api.InterpreterBuildingException;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
 import java.lang.reflect.Constructor;
-import java.lang.reflect.InvocationTargetException;
-import java.util.function.Function;
 
-class ConstructorInstantiator<T> implements Function<Object[], T> {
+class ConstructorInstantiator<T> implements HandleInstantiator<T> {
 
     private final Constructor<T> constructor;
+    private final MethodHandle directHandle;
+    private final MethodHandle handle;
 
     public ConstructorInstantiator(Constructor<T> constructor) {
         this.constructor = constructor;
+        this.directHandle = unreflect(constructor);
+        this.handle = spreading(directHandle, constructor.getParameterCount());
+    }
+
+    private static MethodHandle unreflect(Constructor<?> constructor) {
+        constructor.trySetAccessible();
+        try {
+            return MethodHandles.lookup().unreflectConstructor(constructor);
+        } catch (IllegalAccessException e) {
+            throw new InterpreterBuildingException(
+                    "Unable to access constructor %s: %s".formatted(constructor, e.getMessage()));
+        }
+    }
+
+    /*
+     * Adapts the constructor once, at build time, to the shape (Object[])Object, so that each call is a
+     * single invokeExact which the JIT can inline through, rather than a reflective newInstance with its
+     * per-call access checks and InvocationTargetException wrapping.
+     */
+    static MethodHandle spreading(MethodHandle handle, int parameterCount) {
+        return handle.asType(handle.type().generic())
+                .asSpreader(Object[].class, parameterCount);
     }
 
+    @Override
+    public MethodHandle directHandle() {
+        return directHandle;
+    }
+
+    @SuppressWarnings("unchecked")
     @Override
     public T apply(Object[] parameterValues) {
         try {
-            return constructor.newInstance(parameterValues);
-        } catch (InvocationTargetException e) {
-            throw new InterpretationException(
-                    "Failure invoking constructor %s: %s".formatted(constructor, e.getCause().getMessage())
-            );
-        } catch (InstantiationException e) {
+            return (T) (Object) handle.invokeExact(parameterValues);
+        } catch (Error e) {
+            throw e;
+        } catch (Throwable e) {
             throw new InterpretationException(
-                    "Failure instantiating %s with constructor %s: %s"
-                            .formatted(constructor.getAnnotatedReturnType(), constructor, e.getMessage())
+                    "Failure invoking constructor %s: %s".formatted(constructor, e.getMessage())
             );
-        } catch (IllegalAccessException e) {
-            throw new InterpretationException(
-                    "Unable to access constructor %s: %s".formatted(constructor, e.getMessage()));
         }
     }
 }
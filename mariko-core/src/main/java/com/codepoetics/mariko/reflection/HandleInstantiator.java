@@ -0,0 +1,12 @@
+package com.codepoetics.mariko.reflection;
+
+import java.lang.invoke.MethodHandle;
+import java.util.function.Function;
+
+/**
+ * An instantiator backed by a constructor or builder method, whose handle can be invoked directly
+ * with its declared parameter types.
+ */
+interface HandleInstantiator<T> extends Function<Object[], T> {
+    MethodHandle directHandle();
+}
@@ -1,21 +1,44 @@
 package com.codepoetics.mariko.reflection;
 
 import com.codepoetics.mariko.api.FromList;
+import com.codepoetics.mariko.api.FromMap;
 import com.codepoetics.mariko.api.InterpretationException;
 import com.codepoetics.mariko.api.InterpreterBuildingException;
 import com.codepoetics.mariko.api.FromPattern;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.lang.invoke.MethodHandle;
 import java.lang.reflect.*;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.function.Function;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
-public record InstanceBuilderInfo<T>(Pattern pattern, List<ParameterInfo> parameters, Function<Object[], T> instantiator) {
+public record InstanceBuilderInfo<T>(
+        Pattern pattern,
+        RequiredLiterals requiredLiterals,
+        List<ParameterInfo> parameters,
+        Function<Object[], T> instantiator) {
+
+    public InstanceBuilderInfo(Pattern pattern, List<ParameterInfo> parameters, Function<Object[], T> instantiator) {
+        this(pattern, RequiredLiterals.of(pattern), parameters, instantiator);
+    }
+
+    /**
+     * The constructor or builder method which creates instances, taking its declared parameter types, or null
+     * if instances are not created by a single constructor or method call (as with enum constants).
+     */
+    public @Nullable MethodHandle directHandle() {
+        return instantiator instanceof HandleInstantiator<T> handleInstantiator
+                ? handleInstantiator.directHandle()
+                : null;
+    }
 
     public static <T> @NotNull List<InstanceBuilderInfo<T>> forClass(@NotNull Class<T> targetClass, @Nullable Pattern overridePattern) {
         if (targetClass.isSealed()) {
@@ -48,25 +71,26 @@ public record InstanceBuilderInfo<T>(Pattern pattern, List<ParameterInfo> parame
                 .toList();
     }
 
-    @SuppressWarnings("unchecked")
     private static <T> @NotNull List<InstanceBuilderInfo<T>> forEnum(@NotNull Class<T> targetClass, @Nullable Pattern overridePattern) {
+        var keywords = KeywordTable.forEnum(targetClass);
+
         Pattern classLevelPattern = overridePattern == null
                 ? targetClass.isAnnotationPresent(FromPattern.class)
                     ? Pattern.compile(targetClass.getAnnotation(FromPattern.class).value())
-                    : Pattern.compile(Arrays.stream(targetClass.getEnumConstants())
-                        .map(e -> ((Enum<?>) e).name().toLowerCase() )
+                    : Pattern.compile(keywords.keywords().stream()
+                        .map(keyword -> keyword.matches("\\w+") ? keyword.toLowerCase() : Pattern.quote(keyword))
                         .collect(Collectors.joining("|", "^(?i)", "$")))
                 : overridePattern;
 
         Function<Object[], T> instantiator = args -> {
             String input = (String) args[0];
-            return (T) Arrays.stream(targetClass.getEnumConstants())
-                    .map(e -> (Enum<?>) e)
-                    .filter(enumConstant -> enumConstant.name().equalsIgnoreCase(input))
-                    .findFirst()
-                    .orElseThrow(() -> new InterpretationException(
-                            "No enum constant %s found for input \"%s\""
-                                    .formatted(targetClass, input)));
+            T constant = keywords.lookup(input, 0, input.length());
+            if (constant == null) {
+                throw new InterpretationException(
+                        "No enum constant %s found for input \"%s\""
+                                .formatted(targetClass, input));
+            }
+            return constant;
         };
 
         List<ParameterInfo> parameters = List.of(new ParameterInfo.ScalarParameter("value", String.class, null));
@@ -113,8 +137,18 @@ public record InstanceBuilderInfo<T>(Pattern pattern, List<ParameterInfo> parame
                 .toList();
     }
 
+    private static final Set<Class<?>> PRIMITIVE_ARRAY_CLASSES = Set.of(
+            int[].class, long[].class, double[].class, char[].class);
+
+    private static final Set<Class<?>> COMPACT_LIST_ITEM_CLASSES = Set.of(
+            int.class, long.class, double.class, char.class);
+
+    private static final Set<Class<?>> COMPACT_MAP_KEY_CLASSES = Set.of(int.class, long.class, char.class);
+
     private static @NotNull ParameterInfo interpretParameter(@NotNull Parameter parameter) {
         if (parameter.getType().equals(List.class)) return interpretListParameter(parameter);
+        if (parameter.getType().equals(Map.class)) return interpretMapParameter(parameter);
+        if (PRIMITIVE_ARRAY_CLASSES.contains(parameter.getType())) return interpretArrayParameter(parameter);
         return new ParameterInfo.ScalarParameter(
                 parameter.getName(),
                 parameter.getType(),
@@ -128,20 +162,84 @@ public record InstanceBuilderInfo<T>(Pattern pattern, List<ParameterInfo> parame
         var listType = (ParameterizedType) parameter.getParameterizedType();
         var itemClass = resolve(listType.getActualTypeArguments()[0]);
 
-        var separator = parameter.isAnnotationPresent(FromList.class)
-                ? parameter.getAnnotation(FromList.class).value()
-                : ",\\s*";
+        var compact = parameter.isAnnotationPresent(FromList.class)
+                && parameter.getAnnotation(FromList.class).compact();
+        if (compact && !COMPACT_LIST_ITEM_CLASSES.contains(itemClass)) {
+            throw new InterpreterBuildingException(
+                    "Compact list parameter %s has items of type %s, but only int, long, double and char items are supported"
+                            .formatted(parameter.getName(), itemClass));
+        }
+        var lazy = isLazy(parameter);
+        if (compact && lazy) {
+            throw new InterpreterBuildingException(
+                    "List parameter %s cannot be both compact and lazy".formatted(parameter.getName()));
+        }
 
         return new ParameterInfo.CollectionParameter(
                 parameter.getName(),
                 itemClass,
-                separator,
+                separatorOf(parameter),
                 ArrayList.class,
+                compact ? ParameterInfo.CollectionMode.COMPACT
+                        : lazy ? ParameterInfo.CollectionMode.LAZY
+                        : ParameterInfo.CollectionMode.EAGER,
                 parameter.isAnnotationPresent(FromPattern.class)
                         ? parameter.getAnnotation(FromPattern.class).value()
                         : null);
     }
 
+    private static @NotNull ParameterInfo interpretMapParameter(@NotNull Parameter parameter) {
+        var mapType = (ParameterizedType) parameter.getParameterizedType();
+        var keyClass = resolve(mapType.getActualTypeArguments()[0]);
+        var valueClass = resolve(mapType.getActualTypeArguments()[1]);
+
+        var annotation = parameter.getAnnotation(FromMap.class);
+        var compact = annotation != null && annotation.compact();
+        if (compact && !COMPACT_MAP_KEY_CLASSES.contains(keyClass)) {
+            throw new InterpreterBuildingException(
+                    "Compact map parameter %s has keys of type %s, but only int, long and char keys are supported"
+                            .formatted(parameter.getName(), keyClass));
+        }
+
+        return new ParameterInfo.MapParameter(
+                parameter.getName(),
+                keyClass,
+                valueClass,
+                annotation == null ? ",\\s*" : annotation.value(),
+                annotation == null ? "=" : annotation.keyValue(),
+                HashMap.class,
+                compact ? ParameterInfo.MapMode.COMPACT : ParameterInfo.MapMode.EAGER,
+                parameter.isAnnotationPresent(FromPattern.class)
+                        ? parameter.getAnnotation(FromPattern.class).value()
+                        : null);
+    }
+
+    private static @NotNull ParameterInfo interpretArrayParameter(@NotNull Parameter parameter) {
+        if (isLazy(parameter)) {
+            throw new InterpreterBuildingException(
+                    "Array parameter %s cannot be lazy; only List parameters can".formatted(parameter.getName()));
+        }
+        return new ParameterInfo.CollectionParameter(
+                parameter.getName(),
+                parameter.getType().getComponentType(),
+                separatorOf(parameter),
+                parameter.getType(),
+                ParameterInfo.CollectionMode.EAGER,
+                parameter.isAnnotationPresent(FromPattern.class)
+                        ? parameter.getAnnotation(FromPattern.class).value()
+                        : null);
+    }
+
+    private static boolean isLazy(@NotNull Parameter parameter) {
+        return parameter.isAnnotationPresent(FromList.class) && parameter.getAnnotation(FromList.class).lazy();
+    }
+
+    private static @NotNull String separatorOf(@NotNull Parameter parameter) {
+        return parameter.isAnnotationPresent(FromList.class)
+                ? parameter.getAnnotation(FromList.class).value()
+                : ",\\s*";
+    }
+
     private static Class<?> resolve(Type typeArgument) {
         if (typeArgument instanceof Class<?>) return toPrimitive((Class<?>) typeArgument);
         if (typeArgument instanceof WildcardType) return resolve(((WildcardType) typeArgument).getUpperBounds()[0]);
@@ -0,0 +1,134 @@
+package com.codepoetics.mariko.reflection;
+
+import com.codepoetics.mariko.api.FromKeyword;
+import com.codepoetics.mariko.api.InterpreterBuildingException;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Finds the enum constant named by a keyword, ignoring case, in an open-addressed hash table built when the
+ * interpreter is made. A lookup folds the case of each character of the input as it hashes and compares it, so it
+ * reads the input at most twice and allocates nothing, however many constants the enum has.
+ *
+ * <p>The keywords for a constant are its name and any given by {@link FromKeyword}. Two characters are the same
+ * ignoring case if their upper-case forms have the same lower-case form, as with
+ * {@link String#equalsIgnoreCase(String)}.</p>
+ */
+public final class KeywordTable<T> {
+
+    private final List<String> keywords;
+    private final String[] foldedKeys;
+    private final Object[] values;
+    private final int mask;
+
+    private KeywordTable(List<String> keywords, List<T> values) {
+        this.keywords = List.copyOf(keywords);
+
+        // At most half full, so that probe sequences stay short.
+        int capacity = Integer.highestOneBit(Math.max(2, keywords.size()) * 2 - 1) << 1;
+        this.foldedKeys = new String[capacity];
+        this.values = new Object[capacity];
+        this.mask = capacity - 1;
+
+        for (int i = 0; i < keywords.size(); i++) {
+            put(keywords.get(i), values.get(i));
+        }
+    }
+
+    /**
+     * Build the table for an enum, from the names of its constants and their {@link FromKeyword} annotations.
+     */
+    public static <T> @NotNull KeywordTable<T> forEnum(@NotNull Class<T> enumClass) {
+        List<String> keywords = new ArrayList<>();
+        List<T> values = new ArrayList<>();
+
+        for (T constant : enumClass.getEnumConstants()) {
+            var name = ((Enum<?>) constant).name();
+            keywords.add(name);
+            values.add(constant);
+
+            FromKeyword annotation;
+            try {
+                annotation = enumClass.getField(name).getAnnotation(FromKeyword.class);
+            } catch (NoSuchFieldException e) {
+                throw new IllegalStateException(e);
+            }
+            if (annotation == null) continue;
+
+            for (String keyword : annotation.value()) {
+                keywords.add(keyword);
+                values.add(constant);
+            }
+        }
+
+        return new KeywordTable<>(keywords, values);
+    }
+
+    /**
+     * @return Every keyword in the table, as declared
+     */
+    public @NotNull List<String> keywords() {
+        return keywords;
+    }
+
+    /**
+     * Find the value for the keyword spanning the given range of the input, ignoring case.
+     * @return The value, or null if the range does not hold a keyword
+     */
+    @SuppressWarnings("unchecked")
+    public @Nullable T lookup(@NotNull CharSequence input, int start, int end) {
+        int index = hash(input, start, end) & mask;
+        String key;
+        while ((key = foldedKeys[index]) != null) {
+            if (matches(key, input, start, end)) return (T) values[index];
+            index = (index + 1) & mask;
+        }
+        return null;
+    }
+
+    private void put(String keyword, T value) {
+        var folded = fold(keyword);
+        int index = hash(folded, 0, folded.length()) & mask;
+        while (foldedKeys[index] != null) {
+            if (foldedKeys[index].equals(folded)) {
+                if (values[index] == value) return;
+                throw new InterpreterBuildingException(
+                        "Keyword \"%s\" is used for both %s and %s".formatted(keyword, values[index], value));
+            }
+            index = (index + 1) & mask;
+        }
+        foldedKeys[index] = folded;
+        values[index] = value;
+    }
+
+    private static boolean matches(String foldedKey, CharSequence input, int start, int end) {
+        if (foldedKey.length() != end - start) return false;
+        for (int i = 0; i < foldedKey.length(); i++) {
+            if (foldedKey.charAt(i) != fold(input.charAt(start + i))) return false;
+        }
+        return true;
+    }
+
+    private static int hash(CharSequence input, int start, int end) {
+        int hash = 0;
+        for (int i = start; i < end; i++) {
+            hash = 31 * hash + fold(input.charAt(i));
+        }
+        return hash ^ (hash >>> 16);
+    }
+
+    private static String fold(String keyword) {
+        var folded = new StringBuilder(keyword.length());
+        for (int i = 0; i < keyword.length(); i++) {
+            folded.append(fold(keyword.charAt(i)));
+        }
+        return folded.toString();
+    }
+
+    private static char fold(char c) {
+        return Character.toLowerCase(Character.toUpperCase(c));
+    }
+}
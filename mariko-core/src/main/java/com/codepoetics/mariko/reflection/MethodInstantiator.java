@@ -1,29 +1,56 @@
 package com.codepoetics.mariko.reflection;
 
 import com.codepoetics.mariko.api.InterpretationException;
+import com.codepoetics.mariko.api.InterpreterBuildingException;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
-import java.lang.reflect.InvocationTargetException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
 import java.lang.reflect.Method;
-import java.util.function.Function;
 
-class MethodInstantiator<T> implements Function<Object[], T> {
-
-    @Nullable
-    private final Object target;
+class MethodInstantiator<T> implements HandleInstantiator<T> {
 
     @NotNull
     private final Method method;
 
+    @NotNull
+    private final MethodHandle directHandle;
+
+    @NotNull
+    private final MethodHandle handle;
+
     public MethodInstantiator(@NotNull Object target, @NotNull Method method) {
-        this.target = target;
         this.method = method;
+        this.directHandle = unreflect(target, method);
+        this.handle = ConstructorInstantiator.spreading(directHandle, method.getParameterCount());
     }
 
     public MethodInstantiator(@NotNull Method method) {
-        this.target = null;
         this.method = method;
+        this.directHandle = unreflect(null, method);
+        this.handle = ConstructorInstantiator.spreading(directHandle, method.getParameterCount());
+    }
+
+    /*
+     * Instance methods, such as builders on a Kotlin companion object, have the companion bound in as
+     * their receiver, so that the handle takes only the builder's declared parameters.
+     */
+    private static MethodHandle unreflect(@Nullable Object target, @NotNull Method method) {
+        method.trySetAccessible();
+        try {
+            MethodHandle handle = MethodHandles.lookup().unreflect(method);
+            return target == null ? handle : handle.bindTo(target);
+        } catch (IllegalAccessException e) {
+            throw new InterpreterBuildingException(
+                    "Unable to access method %s: %s".formatted(method, e.getMessage()));
+        }
+    }
+
+    @NotNull
+    @Override
+    public MethodHandle directHandle() {
+        return directHandle;
     }
 
     @NotNull
@@ -31,13 +58,12 @@ class MethodInstantiator<T> implements Function<Object[], T> {
     @Override
     public T apply(@NotNull Object[] parameterValues) {
         try {
-            return (T) method.invoke(target, parameterValues);
-        } catch (InvocationTargetException e) {
-            throw new InterpretationException(
-                    "Failure invoking method %s: %s".formatted(method, e.getCause().getMessage()));
-        } catch (IllegalAccessException e) {
+            return (T) (Object) handle.invokeExact(parameterValues);
+        } catch (Error e) {
+            throw e;
+        } catch (Throwable e) {
             throw new InterpretationException(
-                    "Unable to access method %s: %s".formatted(method, e.getMessage()));
+                    "Failure invoking method %s: %s".formatted(method, e.getMessage()));
         }
     }
 }
@@ -3,16 +3,58 @@ package com.codepoetics.mariko.reflection;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
-public sealed interface ParameterInfo permits ParameterInfo.ScalarParameter, ParameterInfo.CollectionParameter {
+public sealed interface ParameterInfo permits
+        ParameterInfo.ScalarParameter,
+        ParameterInfo.CollectionParameter,
+        ParameterInfo.MapParameter {
     record ScalarParameter(
             @NotNull String name,
             @NotNull Class<?> parameterClass,
             @Nullable String annotatedPattern) implements ParameterInfo { }
 
+    /**
+     * A parameter whose value is read from a separated list of items. The collection class is ArrayList for a list,
+     * or the primitive array class itself for an array.
+     */
     record CollectionParameter(
             @NotNull String name,
             @NotNull Class<?> itemClass,
             @NotNull String separator,
             @NotNull Class<?> collectionClass,
+            @NotNull CollectionMode mode,
             @Nullable String annotatedPattern) implements ParameterInfo { }
+
+    /**
+     * How the items of a list are held: all interpreted up front into an ordinary list, all interpreted up front
+     * into a compact list backed by a primitive array, or each interpreted as it is first read. Arrays are always
+     * read eagerly.
+     */
+    enum CollectionMode {
+        EAGER,
+        COMPACT,
+        LAZY
+    }
+
+    /**
+     * A parameter whose value is read from separated entries, each a key and a value with a separator between them.
+     * The map class is HashMap. The annotated pattern, if any, is used to interpret values.
+     */
+    record MapParameter(
+            @NotNull String name,
+            @NotNull Class<?> keyClass,
+            @NotNull Class<?> valueClass,
+            @NotNull String entrySeparator,
+            @NotNull String keyValueSeparator,
+            @NotNull Class<?> mapClass,
+            @NotNull MapMode mode,
+            @Nullable String annotatedPattern) implements ParameterInfo { }
+
+    /**
+     * How the entries of a map are held: in an ordinary map, or in a compact map backed by a sorted primitive array
+     * of keys.
+     */
+    enum MapMode {
+        EAGER,
+        COMPACT
+    }
 }
@@ -0,0 +1,283 @@
+package com.codepoetics.mariko.reflection;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Literal text which any input matched by a pattern must contain: a prefix, a suffix, and substrings which must
+ * appear in order between them. Checking these is much cheaper than running the regex engine, and rules out most
+ * inputs a pattern cannot match.
+ *
+ * <p>Literals are extracted only from the top level of the pattern; anything that is not plain literal text, such as
+ * a group, character class or escape, simply separates one literal from the next. Patterns whose literals cannot be
+ * determined safely (alternation at the top level, case-insensitive matching, quoting, back-references) have
+ * {@link #NONE}.</p>
+ */
+public record RequiredLiterals(@NotNull String prefix, @NotNull List<String> infixes, @NotNull String suffix) {
+
+    public static final RequiredLiterals NONE = new RequiredLiterals("", List.of(), "");
+
+    private static final int UNSUPPORTED_FLAGS =
+            Pattern.CASE_INSENSITIVE | Pattern.COMMENTS | Pattern.LITERAL | Pattern.CANON_EQ;
+
+    public static @NotNull RequiredLiterals of(@NotNull Pattern pattern) {
+        if ((pattern.flags() & UNSUPPORTED_FLAGS) != 0) return NONE;
+
+        var literals = new Scanner(pattern.pattern()).scan();
+        return literals == null ? NONE : literals;
+    }
+
+    public boolean isEmpty() {
+        return prefix.isEmpty() && infixes.isEmpty() && suffix.isEmpty();
+    }
+
+    /**
+     * Whether the input contains all of the required literals, and so might be matched by the pattern.
+     * @param input The input to check
+     * @return False if the pattern cannot match the input
+     */
+    public boolean mayMatch(@NotNull CharSequence input) {
+        int position = prefix.length();
+        int limit = input.length() - suffix.length();
+        if (limit < position || !startsWith(input, prefix, 0) || !startsWith(input, suffix, limit)) return false;
+
+        for (String infix : infixes) {
+            int found = indexOf(input, infix, position);
+            if (found < 0 || found + infix.length() > limit) return false;
+            position = found + infix.length();
+        }
+        return true;
+    }
+
+    /**
+     * Whether no input can have both these literals and the other's, because they require it to start, or to end,
+     * with different text. Patterns whose literals are disjoint never match the same input.
+     * @param other The literals required by another pattern
+     * @return True if the literals are known to be disjoint
+     */
+    public boolean isDisjointFrom(@NotNull RequiredLiterals other) {
+        return (!prefix.isEmpty() && !other.prefix.isEmpty()
+                        && !prefix.startsWith(other.prefix) && !other.prefix.startsWith(prefix))
+                || (!suffix.isEmpty() && !other.suffix.isEmpty()
+                        && !suffix.endsWith(other.suffix) && !other.suffix.endsWith(suffix));
+    }
+
+    // String's own methods are intrinsified, so are used when the input is a String.
+    private static boolean startsWith(CharSequence input, String literal, int offset) {
+        if (input instanceof String string) return string.startsWith(literal, offset);
+
+        for (int i = 0; i < literal.length(); i++) {
+            if (input.charAt(offset + i) != literal.charAt(i)) return false;
+        }
+        return true;
+    }
+
+    private static int indexOf(CharSequence input, String literal, int from) {
+        if (input instanceof String string) return string.indexOf(literal, from);
+
+        char first = literal.charAt(0);
+        int last = input.length() - literal.length();
+        for (int i = from; i <= last; i++) {
+            if (input.charAt(i) == first && startsWith(input, literal, i)) return i;
+        }
+        return -1;
+    }
+
+    private static final class Scanner {
+
+        private final String regex;
+        private final StringBuilder run = new StringBuilder();
+        private final List<String> runs = new ArrayList<>();
+        private String prefix = "";
+        private boolean atStart = true;
+        private boolean lastWasLiteral = false;
+
+        Scanner(String regex) {
+            this.regex = regex;
+        }
+
+        @Nullable RequiredLiterals scan() {
+            int i = 0;
+            while (i < regex.length()) {
+                char c = regex.charAt(i);
+                if (Character.isSurrogate(c)) return null;
+
+                switch (c) {
+                    case '\\' -> {
+                        if (i + 1 >= regex.length()) return null;
+                        char escaped = regex.charAt(i + 1);
+                        if (Character.isLetterOrDigit(escaped)) {
+                            i = escapeEnd(regex, i);
+                            if (i < 0) return null;
+                            separate();
+                        } else {
+                            literal(escaped);
+                            i += 2;
+                        }
+                    }
+                    case '[' -> {
+                        i = classEnd(regex, i);
+                        if (i < 0) return null;
+                        separate();
+                    }
+                    case '(' -> {
+                        if (isFlagSetting(regex, i)) return null;
+                        i = groupEnd(regex, i);
+                        if (i < 0) return null;
+                        separate();
+                    }
+                    case '^' -> {
+                        if (i > 0) separate();
+                        i++;
+                    }
+                    case '$' -> {
+                        if (i < regex.length() - 1) separate();
+                        i++;
+                    }
+                    case '*', '?' -> {
+                        dropLastLiteral();
+                        i = quantifierEnd(regex, i + 1);
+                    }
+                    case '+' -> {
+                        separate();
+                        i = quantifierEnd(regex, i + 1);
+                    }
+                    case '{' -> {
+                        int close = regex.indexOf('}', i);
+                        if (close < 0) return null;
+                        String bounds = regex.substring(i + 1, close);
+                        int comma = bounds.indexOf(',');
+                        String minimum = comma < 0 ? bounds : bounds.substring(0, comma);
+                        if (minimum.isEmpty() || !minimum.chars().allMatch(Character::isDigit)) return null;
+
+                        if (minimum.chars().allMatch(digit -> digit == '0')) dropLastLiteral(); else separate();
+                        i = quantifierEnd(regex, close + 1);
+                    }
+                    case '|', ')' -> {
+                        return null;
+                    }
+                    case '.' -> {
+                        separate();
+                        i++;
+                    }
+                    default -> {
+                        literal(c);
+                        i++;
+                    }
+                }
+            }
+
+            String suffix = "";
+            if (!run.isEmpty()) {
+                if (atStart) prefix = run.toString(); else suffix = run.toString();
+            }
+            return new RequiredLiterals(prefix, List.copyOf(runs), suffix);
+        }
+
+        private void literal(char c) {
+            run.append(c);
+            lastWasLiteral = true;
+        }
+
+        // The last literal character was quantified, and may not appear at all.
+        private void dropLastLiteral() {
+            if (lastWasLiteral) run.setLength(run.length() - 1);
+            separate();
+        }
+
+        private void separate() {
+            if (!run.isEmpty()) {
+                if (atStart) prefix = run.toString(); else runs.add(run.toString());
+                run.setLength(0);
+            }
+            atStart = false;
+            lastWasLiteral = false;
+        }
+
+        private static int quantifierEnd(String regex, int i) {
+            return i < regex.length() && (regex.charAt(i) == '?' || regex.charAt(i) == '+') ? i + 1 : i;
+        }
+
+        private static boolean isFlagSetting(String regex, int i) {
+            if (i + 2 >= regex.length() || regex.charAt(i + 1) != '?') return false;
+
+            int j = i + 2;
+            while (j < regex.length() && (Character.isLetter(regex.charAt(j)) || regex.charAt(j) == '-')) j++;
+            return j > i + 2 && j < regex.length() && regex.charAt(j) == ')';
+        }
+
+        // Returns the index following the escape sequence starting at i, or -1 if it can't safely be skipped.
+        private static int escapeEnd(String regex, int i) {
+            char escaped = regex.charAt(i + 1);
+            return switch (escaped) {
+                case 'Q', '1', '2', '3', '4', '5', '6', '7', '8', '9' -> -1;
+                case '0' -> {
+                    int j = i + 2;
+                    while (j < regex.length() && j < i + 5 && regex.charAt(j) >= '0' && regex.charAt(j) <= '7') j++;
+                    yield j;
+                }
+                case 'x' -> braced(regex, i + 2, '{', '}', 2);
+                case 'p', 'P' -> braced(regex, i + 2, '{', '}', 1);
+                case 'N' -> braced(regex, i + 2, '{', '}', -1);
+                case 'k' -> braced(regex, i + 2, '<', '>', -1);
+                case 'u' -> i + 6;
+                case 'c' -> i + 3;
+                default -> i + 2;
+            };
+        }
+
+        private static int braced(String regex, int i, char open, char close, int unbracedLength) {
+            if (i < regex.length() && regex.charAt(i) == open) {
+                int end = regex.indexOf(close, i);
+                return end < 0 ? -1 : end + 1;
+            }
+            return unbracedLength < 0 ? -1 : i + unbracedLength;
+        }
+
+        private static int classEnd(String regex, int i) {
+            int depth = 1;
+            int j = i + 1;
+            if (j < regex.length() && regex.charAt(j) == '^') j++;
+            if (j < regex.length() && regex.charAt(j) == ']') j++;
+
+            while (j < regex.length()) {
+                char c = regex.charAt(j);
+                if (c == '\\') {
+                    if (j + 1 < regex.length() && regex.charAt(j + 1) == 'Q') return -1;
+                    j += 2;
+                    continue;
+                }
+                if (c == '[') depth++;
+                if (c == ']' && --depth == 0) return j + 1;
+                j++;
+            }
+            return -1;
+        }
+
+        private static int groupEnd(String regex, int i) {
+            int depth = 1;
+            int j = i + 1;
+            while (j < regex.length()) {
+                char c = regex.charAt(j);
+                if (c == '\\') {
+                    if (j + 1 < regex.length() && regex.charAt(j + 1) == 'Q') return -1;
+                    j += 2;
+                    continue;
+                }
+                if (c == '[') {
+                    j = classEnd(regex, j);
+                    if (j < 0) return -1;
+                    continue;
+                }
+                if (c == '(') depth++;
+                if (c == ')' && --depth == 0) return j + 1;
+                j++;
+            }
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.codepoetics.mariko;
+
+import com.codepoetics.mariko.api.FromPattern;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class AdaptiveOrderingTest {
+
+    public sealed interface Command permits Command.Go, Command.Stop, Command.Turn {
+        @FromPattern("go (\\d+)")
+        record Go(int distance) implements Command { }
+
+        @FromPattern("stop(!?)")
+        record Stop(String word) implements Command { }
+
+        @FromPattern("turn (\\w+)")
+        record Turn(String direction) implements Command { }
+    }
+
+    public sealed interface Line permits Line.Go, Line.Stop, Line.Turn, Line.Comment {
+        @FromPattern("go (\\d+)")
+        record Go(int distance) implements Line { }
+
+        @FromPattern("stop(!?)")
+        record Stop(String word) implements Line { }
+
+        @FromPattern("turn (\\w+)")
+        record Turn(String direction) implements Line { }
+
+        // A named group stops the patterns being combined into one.
+        @FromPattern("(?<text>.+)")
+        record Comment(String text) implements Line { }
+    }
+
+    @Test
+    public void disjointBuildersAreReorderedByHits() {
+        var interpreter = (AdaptiveInstanceBuilderInterpreter<Command>)
+                new InterpretationContext().adaptBuilderOrder().makeInterpreter(Command.class);
+
+        for (int i = 0; i < 100; i++) {
+            assertEquals(new Command.Turn("left"), interpreter.interpret("turn left"));
+        }
+        assertEquals(new Command.Stop(""), interpreter.interpret("stop"));
+        interpreter.reorder();
+
+        assertEquals("turn (\\w+)", interpreter.currentOrder().get(0).pattern().pattern());
+        assertEquals("stop(!?)", interpreter.currentOrder().get(1).pattern().pattern());
+        assertEquals(new Command.Go(3), interpreter.interpret("go 3"));
+        assertTrue(interpreter.tryInterpret("jump").isEmpty());
+    }
+
+    @Test
+    public void overlappingBuildersKeepTheirDeclaredOrder() {
+        var interpreter = (AdaptiveInstanceBuilderInterpreter<Line>)
+                new InterpretationContext().adaptBuilderOrder().makeInterpreter(Line.class);
+
+        for (int i = 0; i < 100; i++) {
+            interpreter.interpret("a comment");
+            interpreter.interpret("turn right");
+        }
+        interpreter.interpret("turn right");
+        interpreter.reorder();
+
+        var order = interpreter.currentOrder().stream().map(builder -> builder.pattern().pattern()).toList();
+        assertEquals("turn (\\w+)", order.get(0));
+        assertEquals("(?<text>.+)", order.get(3));
+
+        assertEquals(new Line.Stop("!"), interpreter.interpret("stop!"));
+        assertEquals(new Line.Go(1), interpreter.interpret("go 1"));
+        assertEquals(new Line.Comment("go west"), interpreter.interpret("go west"));
+    }
+}
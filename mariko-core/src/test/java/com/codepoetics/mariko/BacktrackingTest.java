@@ -0,0 +1,99 @@
+package com.codepoetics.mariko;
+
+import com.codepoetics.mariko.api.FromPattern;
+import com.codepoetics.mariko.api.InterpreterBuildingException;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class BacktrackingTest {
+
+    // Each of the twelve repetitions can end at any of the a's, so java.util.regex tries every way of choosing
+    // twelve of them before giving up on an input which doesn't end with one.
+    @FromPattern("(?:.*a){11}(.*a)")
+    public record Repeated(String last) { }
+
+    public sealed interface Line permits Line.Repeated, Line.Shouted {
+        @FromPattern("(?:.*a){11}(.*a)")
+        record Repeated(String last) implements Line { }
+
+        @FromPattern("(.*)!")
+        record Shouted(String text) implements Line { }
+    }
+
+    @FromPattern("((?:\\w+\\s?)+)")
+    public record Words(String words) { }
+
+    @FromPattern("((?:\\w+\\s)*\\w+)")
+    public record SeparatedWords(String words) { }
+
+    @Test
+    public void matchesRunningOutOfBudgetAreRejected() {
+        var context = new InterpretationContext().withMatchBudget(100_000).collectStats();
+        var interpreter = context.makeInterpreter(Repeated.class);
+
+        assertEquals(new Repeated("xa"), interpreter.interpret("xa".repeat(12)));
+
+        assertTrue(interpreter.tryInterpret("a".repeat(30) + "!").isEmpty());
+
+        var builder = context.stats().builders().get(0);
+        assertEquals(1, builder.budgetExhaustions());
+        assertEquals(1, builder.matches());
+        assertEquals(2, builder.attempts());
+    }
+
+    @Test
+    public void eachAlternativeHasABudgetOfItsOwn() {
+        var context = new InterpretationContext().withMatchBudget(100_000).collectStats();
+        var interpreter = context.makeInterpreter(Line.class);
+
+        assertEquals(new Line.Shouted("a".repeat(30)), interpreter.interpret("a".repeat(30) + "!"));
+
+        var builders = context.stats().builders();
+        assertEquals(1, builders.get(0).budgetExhaustions());
+        assertEquals(0, builders.get(1).budgetExhaustions());
+        assertEquals(1, builders.get(1).matches());
+    }
+
+    @Test
+    public void budgetsCountCharacterReads() {
+        var budgeted = BudgetedCharSequence.of("abcd", 3);
+
+        assertEquals('a', budgeted.charAt(0));
+        assertEquals('a', budgeted.charAt(0));
+        assertEquals('d', budgeted.charAt(3));
+        assertThrows(BudgetedCharSequence.Exhausted.class, () -> budgeted.charAt(1));
+        assertEquals("abcd", budgeted.toString());
+    }
+
+    @Test
+    public void budgetMustBePositive() {
+        assertThrows(IllegalArgumentException.class, () -> new InterpretationContext().withMatchBudget(0));
+    }
+
+    @Test
+    public void findsPatternsWhichCanBacktrackExponentially() {
+        for (String regex : List.of("(\\w+\\s?)+", "(a|aa)*b", "(a+)+", "(?:(\\w+),?)+;", "(?i:A|a)+", "(a*)*b")) {
+            assertTrue(BacktrackingAnalyser.canBacktrackExponentially(Pattern.compile(regex)), regex);
+        }
+        for (String regex : List.of("(\\w+\\s)+", "(ab|ac)+", "(A|a)+", "(.*),(.*),(.*)", "(,\\w+)+", "(a|a)++",
+                "Item #(\\d+) is at position (.*)")) {
+            assertFalse(BacktrackingAnalyser.canBacktrackExponentially(Pattern.compile(regex)), regex);
+        }
+    }
+
+    @Test
+    public void contextsCanRejectExponentialPatterns() {
+        var context = new InterpretationContext().rejectExponentialPatterns();
+
+        assertThrows(InterpreterBuildingException.class, () -> context.makeInterpreter(Words.class));
+        assertEquals(new SeparatedWords("to be or not"), context.makeInterpreter(SeparatedWords.class).interpret("to be or not"));
+        assertEquals(new Words("to be"), new InterpretationContext().makeInterpreter(Words.class).interpret("to be"));
+    }
+}
@@ -0,0 +1,80 @@
+package com.codepoetics.mariko;
+
+import com.codepoetics.mariko.api.FromList;
+import com.codepoetics.mariko.api.FromPattern;
+import com.codepoetics.mariko.api.InterpretationException;
+import com.codepoetics.mariko.api.InterpreterBuildingException;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class BlockReaderTest {
+
+    @FromPattern("(\\w+)=(-?\\d+)")
+    public record Setting(String name, int value) { }
+
+    @FromPattern("\\[(\\w+)]\\n(?s)(.*)")
+    public record Section(String name, @FromList("\\n") List<Setting> settings) { }
+
+    @FromPattern("(?s)(.*)")
+    public record Unbuildable(@FromList(value = "\\n", compact = true) List<String> lines) { }
+
+    @Test
+    public void interpretsBlocksSeparatedByBlankLines() throws IOException {
+        Path path = Files.createTempFile("mariko", ".txt");
+        path.toFile().deleteOnExit();
+        Files.writeString(path, "\n[first]\na=1\nb=2\r\n  \n\n[second]\r\nc=-3\n\n", StandardCharsets.UTF_8);
+
+        try (var sections = Interpretation.interpretBlocks(Section.class, path)) {
+            assertEquals(
+                    List.of(
+                            new Section("first", List.of(new Setting("a", 1), new Setting("b", 2))),
+                            new Section("second", List.of(new Setting("c", -3)))),
+                    sections.toList());
+        }
+    }
+
+    @Test
+    public void blocksCanHaveOtherDelimiters() {
+        var sections = new InterpretationContext().interpretBlocks(
+                Section.class,
+                new StringReader("[first]\na=1\n---\n[second]\n\nb=2"),
+                Pattern.compile("-+"));
+
+        var thrown = assertThrows(InterpretationException.class, sections::toList);
+        assertTrue(thrown.getMessage().startsWith("Block at line 4:"));
+    }
+
+    @Test
+    public void blocksWhichCannotBeInterpretedCanBeRejected() {
+        var rejections = new Rejections();
+        var sections = new InterpretationContext().interpretBlocks(
+                Section.class,
+                new StringReader("[first]\na=1\n\n[second]\nb\n\n[third]\nc=3"),
+                BlockReader.BLANK_LINE,
+                rejections);
+
+        assertEquals(List.of("first", "third"), sections.map(Section::name).toList());
+        assertEquals(1, rejections.count());
+        assertEquals(new Rejections.Rejection(4, "[second]\nb"), rejections.samples().get(0));
+    }
+
+    @Test
+    public void interpretersAreMadeBeforeFilesAreOpened() throws IOException {
+        Path path = Files.createTempFile("mariko", ".txt");
+        Files.delete(path);
+
+        assertThrows(InterpreterBuildingException.class, () ->
+                new InterpretationContext().interpretBlocks(Unbuildable.class, path));
+    }
+}
@@ -0,0 +1,69 @@
+package com.codepoetics.mariko;
+
+import com.codepoetics.mariko.api.FromPattern;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class CanonicalisationTest {
+
+    public sealed interface Operand permits Operand.Register, Operand.Literal {
+        @FromPattern("[a-z]")
+        record Register(char name) implements Operand { }
+
+        @FromPattern("-?\\d+")
+        record Literal(int value) implements Operand { }
+    }
+
+    @FromPattern("(\\w+) (.*) (.*)")
+    public record Instruction(String opcode, Operand lhs, Operand rhs) { }
+
+    @Test
+    public void equalResultsShareOneInstance() {
+        var context = new InterpretationContext().canonicalise(Operand.class, 100);
+        var interpreter = context.makeInterpreter(Instruction.class);
+
+        var first = interpreter.interpret("cpy a b");
+        var second = interpreter.interpret("add b a");
+        assertSame(first.lhs(), second.rhs());
+        assertSame(first.rhs(), second.lhs());
+
+        var canonical = context.stats().canonicals().get(0);
+        assertEquals(Operand.class, canonical.targetClass());
+        assertEquals(2, canonical.hits());
+        assertEquals(2, canonical.misses());
+        assertEquals(2, canonical.size());
+        assertEquals(0.5, canonical.hitRate());
+    }
+
+    @Test
+    public void stringsCanBeCanonicalised() {
+        var context = new InterpretationContext().canonicalise(String.class, 100);
+        var interpreter = context.makeInterpreter(Instruction.class);
+
+        assertSame(interpreter.interpret("cpy a b").opcode(), interpreter.interpret("cpy 1 2").opcode());
+    }
+
+    @Test
+    public void tablesAreBounded() {
+        var context = new InterpretationContext().canonicalise(Operand.class, 8);
+        var interpreter = context.makeInterpreter(Operand.class);
+
+        for (int i = 0; i < 100; i++) {
+            assertEquals(new Operand.Literal(i), interpreter.interpret(Integer.toString(i)));
+        }
+
+        var canonical = context.stats().canonicals().get(0);
+        assertTrue(canonical.size() <= 8);
+        assertEquals(canonical.misses() - canonical.size(), canonical.evictions());
+    }
+
+    @Test
+    public void primitiveValuesCannotBeCanonicalised() {
+        assertThrows(IllegalArgumentException.class, () -> new InterpretationContext().canonicalise(int.class, 100));
+        assertThrows(IllegalArgumentException.class, () -> new InterpretationContext().canonicalise(String.class, 0));
+    }
+}
@@ -0,0 +1,68 @@
+package com.codepoetics.mariko;
+
+import com.codepoetics.mariko.api.FromPattern;
+import org.junit.jupiter.api.Test;
+
+import java.nio.CharBuffer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class CharSequenceInterpretationTest {
+
+    @FromPattern("(\\w+)=(-?\\d+)")
+    public record Setting(String name, int value) { }
+
+    public sealed interface Expression permits Expression.Literal, Expression.Sum {
+        @FromPattern("(\\d+)")
+        record Literal(int value) implements Expression { }
+
+        @FromPattern("(\\d+)\\+(.+)")
+        record Sum(int lhs, Expression rhs) implements Expression { }
+    }
+
+    // The named group keeps these patterns from being combined, so each builder matches on its own.
+    public record Product(int lhs, Product rhs) {
+        @FromPattern("(?<lhs>\\d+)\\*(.+)")
+        public static Product of(int lhs, Product rhs) {
+            return new Product(lhs, rhs);
+        }
+
+        @FromPattern("(\\d+)")
+        public static Product of(int lhs) {
+            return new Product(lhs, null);
+        }
+    }
+
+    @Test
+    public void interpretsAReusedBuffer() {
+        var interpreter = new InterpretationContext().makeInterpreter(Setting.class);
+        var buffer = new StringBuilder();
+
+        for (int i = 0; i < 3; i++) {
+            buffer.setLength(0);
+            buffer.append("setting").append(i).append('=').append(-i);
+            assertEquals(new Setting("setting" + i, -i), interpreter.interpret(buffer));
+        }
+    }
+
+    @Test
+    public void interpretsASliceOfACharBuffer() {
+        var buffer = CharBuffer.wrap("[a=1][bb=22]");
+        var interpreter = new InterpretationContext().makeInterpreter(Setting.class);
+
+        assertEquals(new Setting("a", 1), interpreter.interpret(buffer.subSequence(1, 4)));
+        assertEquals(new Setting("bb", 22), interpreter.interpret(buffer.subSequence(6, 11)));
+    }
+
+    @Test
+    public void nestedValuesWithTheSamePatternDoNotDisturbTheOuterMatch() {
+        var context = new InterpretationContext();
+
+        assertEquals(
+                new Expression.Sum(1, new Expression.Sum(2, new Expression.Literal(3))),
+                context.makeInterpreter(Expression.class).interpret("1+2+3"));
+        assertEquals(
+                new Product(4, new Product(5, Product.of(6))),
+                context.makeInterpreter(Product.class).interpret("4*5*6"));
+    }
+}
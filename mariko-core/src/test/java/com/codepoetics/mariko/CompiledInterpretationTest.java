@@ -0,0 +1,121 @@
+package com.codepoetics.mariko;
+
+import com.codepoetics.mariko.api.FromList;
+import com.codepoetics.mariko.api.FromPattern;
+import com.codepoetics.mariko.api.InterpretationException;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class CompiledInterpretationTest {
+
+    private final InterpretationContext context = new InterpretationContext().compileInterpreters();
+
+    @FromPattern(value = "(-?\\d+) (-?\\d+) (-?\\d+) (-?\\d+) (.) (\\w+) ([\\d.]+) ([\\d.]+)")
+    public record AllPrimitives(byte b, short s, int i, long l, char c, boolean z, float f, double d) { }
+
+    @Test
+    public void parsesEveryPrimitiveType() {
+        assertEquals(new AllPrimitives((byte) -1, (short) 300, 70000, 5000000000L, 'x', true, 1.5f, 2.25),
+                context.makeInterpreter(AllPrimitives.class).interpret("-1 300 70000 5000000000 x TRUE 1.5 2.25"));
+    }
+
+    @Test
+    public void rejectsValuesOutOfRangeOfTheirType() {
+        var interpreter = context.makeInterpreter(AllPrimitives.class);
+
+        assertEquals(Optional.empty(), interpreter.tryInterpret("-129 300 70000 5000000000 x TRUE 1.5 2.25"));
+        assertEquals(Optional.empty(), interpreter.tryInterpret("-1 32768 70000 5000000000 x TRUE 1.5 2.25"));
+        assertEquals(Optional.empty(), interpreter.tryInterpret("-1 300 70000 5000000000 x TRUE 1.5 2..25"));
+    }
+
+    @Test
+    public void parsesFloatingPointValuesAsTheJdkDoes() {
+        var random = new Random(42);
+        var inputs = new ArrayList<>(List.of(
+                "0", "-0", "0.0", "-0.0e5", "1", "1.", ".5", "+2.5", "0.1", "0.3", "123456789012345", "1234567890123456",
+                "9007199254740993", "1e22", "1e23", "1e-22", "1e-23", "3.4028235e38", "1.17549435E-38", "1.4e-45",
+                "0.000000000000000000000000001", "1e0001", "16777217", "1.0000001", "8.589973e9", "9.999999e-10",
+                "NaN", "-Infinity", "0x1p3", "1.5f", " 1.5"));
+        for (int i = 0; i < 10_000; i++) {
+            long digits = random.nextLong() >>> (1 + random.nextInt(63));
+            int point = random.nextInt(20);
+            var text = Long.toString(digits);
+            text = point < text.length() ? text.substring(0, point) + "." + text.substring(point) : text;
+            if (random.nextBoolean()) text += "e" + (random.nextInt(60) - 30);
+            inputs.add(random.nextBoolean() ? "-" + text : text);
+        }
+
+        for (String input : inputs) {
+            var padded = "[" + input + "]";
+            assertEquals(Double.doubleToRawLongBits(Double.parseDouble(input)),
+                    Double.doubleToRawLongBits(PrimitiveParsers.parseDouble(padded, 1, padded.length() - 1)), input);
+            assertEquals(Float.floatToRawIntBits(Float.parseFloat(input)),
+                    Float.floatToRawIntBits(PrimitiveParsers.parseFloat(padded, 1, padded.length() - 1)), input);
+        }
+    }
+
+    @FromPattern(value = "\\((-?\\d+),\\s?(-?\\d+)\\)")
+    public record Point(long x, long y) { }
+
+    @FromPattern(value = "Item #(\\d+) is at position (.*)")
+    public record ItemPosition(int itemId, Point position) { }
+
+    @Test
+    public void interpretsNestedRecords() {
+        assertEquals(new ItemPosition(123, new Point(-15, 7)),
+                context.makeInterpreter(ItemPosition.class).interpret("Item #123 is at position (-15, 7)"));
+    }
+
+    @FromPattern(value = "values: (.*)")
+    public record Numbers(@FromList(",") List<Integer> values) { }
+
+    @Test
+    public void interpretsListParameters() {
+        assertEquals(new Numbers(List.of(1, 2, 3)),
+                context.makeInterpreter(Numbers.class).interpret("values: 1,2,3"));
+    }
+
+    public record Temperature(double celsius) {
+        @FromPattern(value = "(-?[\\d.]+)F")
+        public static Temperature fahrenheit(double fahrenheit) {
+            return new Temperature((fahrenheit - 32) * 5 / 9);
+        }
+    }
+
+    @Test
+    public void interpretsWithStaticBuilders() {
+        assertEquals(new Temperature(100),
+                context.makeInterpreter(Temperature.class).interpret("212F"));
+    }
+
+    @FromPattern(value = "-?\\d+")
+    public record Literal(int value) { }
+
+    @Test
+    public void passesWholeMatchToSingleParameterWhenPatternHasNoGroups() {
+        assertEquals(new Literal(-12), context.makeInterpreter(Literal.class).interpret("-12"));
+        assertEquals(Optional.empty(), context.makeInterpreter(Literal.class).tryInterpret("twelve"));
+    }
+
+    @Test
+    public void usesRegisteredInterpretersInPlaceOfBuiltInPrimitives() {
+        var hexContext = new InterpretationContext()
+                .compileInterpreters()
+                .addInterpreter(int.class, s -> Optional.of(Integer.parseInt(s, 16)));
+
+        assertEquals(new Literal(255), hexContext.makeInterpreter(Literal.class, "([0-9a-f]+)").interpret("ff"));
+    }
+
+    @Test
+    public void reportsUnparseableValuesAsInterpretationExceptions() {
+        assertThrows(InterpretationException.class, () ->
+                context.makeInterpreter(Literal.class).interpret("99999999999"));
+    }
+}
@@ -0,0 +1,65 @@
+package com.codepoetics.mariko;
+
+import com.codepoetics.mariko.api.FromPattern;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class FlightRecorderEventsTest {
+
+    public sealed interface Shape permits Shape.Circle, Shape.Square {
+        @FromPattern("circle r=(\\d+)")
+        record Circle(int radius) implements Shape { }
+
+        @FromPattern("square (.+)")
+        record Square(Side side) implements Shape { }
+    }
+
+    @FromPattern("side=(\\d+)")
+    public record Side(int length) { }
+
+    @Test
+    public void recordsInterpreterBuildsAndSlowMatches() throws IOException {
+        List<RecordedEvent> events;
+        try (var recording = new Recording()) {
+            recording.enable("com.codepoetics.mariko.InterpreterBuilt");
+            recording.enable("com.codepoetics.mariko.SlowMatch").withThreshold(Duration.ZERO);
+            recording.start();
+
+            new InterpretationContext().makeInterpreter(Shape.class).interpret("square side=4");
+
+            recording.stop();
+            var file = Files.createTempFile("mariko", ".jfr");
+            try {
+                recording.dump(file);
+                events = RecordingFile.readAllEvents(file);
+            } finally {
+                Files.delete(file);
+            }
+        }
+
+        var shapeBuilt = events.stream()
+                .filter(event -> event.getEventType().getName().equals("com.codepoetics.mariko.InterpreterBuilt"))
+                .filter(event -> event.getClass("targetClass").getName().equals(Shape.class.getName()))
+                .findFirst()
+                .orElseThrow();
+        assertEquals(2, shapeBuilt.getInt("builderCount"));
+        assertEquals("alternation", shapeBuilt.getString("kind"));
+
+        var matches = events.stream()
+                .filter(event -> event.getEventType().getName().equals("com.codepoetics.mariko.SlowMatch"))
+                .toList();
+        assertTrue(matches.stream().anyMatch(event -> event.getString("pattern").equals("side=(\\d+)")
+                && event.getInt("inputLength") == 6
+                && event.getBoolean("matched")));
+    }
+}
@@ -3,10 +3,19 @@ package com.codepoetics.mariko;
 import com.codepoetics.mariko.api.FromPattern;
 import org.junit.jupiter.api.Test;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
 
 public class InterpretationContextTest {
 
@@ -24,4 +33,69 @@ public class InterpretationContextTest {
         assertEquals(new UUIDPair(uuid1, uuid2),
                 context.makeInterpreter(UUIDPair.class).interpret("%s %s".formatted(uuid1, uuid2)));
     }
+
+    public sealed interface Ping permits Ping.End, Ping.Next {
+        @FromPattern("(ping)")
+        record End(String word) implements Ping { }
+
+        @FromPattern("ping (.*)")
+        record Next(Pong rest) implements Ping { }
+    }
+
+    public sealed interface Pong permits Pong.End, Pong.Next {
+        @FromPattern("(pong)")
+        record End(String word) implements Pong { }
+
+        @FromPattern("pong (.*)")
+        record Next(Ping rest) implements Pong { }
+    }
+
+    private static <T> List<T> concurrently(int threads, Function<Integer, T> task) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            var ready = new CountDownLatch(threads);
+            List<Future<T>> futures = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                int thread = i;
+                futures.add(executor.submit(() -> {
+                    ready.countDown();
+                    ready.await();
+                    return task.apply(thread);
+                }));
+            }
+
+            List<T> results = new ArrayList<>();
+            for (Future<T> future : futures) {
+                results.add(future.get(10, TimeUnit.SECONDS));
+            }
+            return results;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void concurrentRequestsShareOneInterpreter() throws Exception {
+        for (int attempt = 0; attempt < 20; attempt++) {
+            var context = new InterpretationContext();
+            var interpreters = concurrently(8, thread -> context.makeInterpreter(Ping.class));
+
+            for (var interpreter : interpreters) {
+                assertSame(interpreters.get(0), interpreter);
+            }
+        }
+    }
+
+    @Test
+    public void mutuallyRecursiveTypesBuiltOnDifferentThreadsDoNotDeadlock() throws Exception {
+        for (int attempt = 0; attempt < 20; attempt++) {
+            var context = new InterpretationContext();
+            var results = concurrently(2, thread -> thread == 0
+                    ? context.makeInterpreter(Ping.class).interpret("ping pong ping")
+                    : context.makeInterpreter(Pong.class).interpret("pong ping"));
+
+            assertEquals(new Ping.Next(new Pong.Next(new Ping.End("ping"))), results.get(0));
+            assertEquals(new Pong.Next(new Ping.End("ping")), results.get(1));
+        }
+    }
 }
@@ -0,0 +1,138 @@
+package com.codepoetics.mariko;
+
+import com.codepoetics.mariko.api.FromPattern;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class InterpretationStatsTest {
+
+    public sealed interface Shape permits Shape.Circle, Shape.Square {
+        @FromPattern("circle r=(\\d+)")
+        record Circle(int radius) implements Shape { }
+
+        @FromPattern("square (.+)")
+        record Square(Side side) implements Shape { }
+    }
+
+    @FromPattern("side=(\\d+)")
+    public record Side(int length) { }
+
+    public sealed interface Run permits Run.Repeated, Run.Mixed {
+        @FromPattern("(\\w)\\1+")
+        record Repeated(char character) implements Run { }
+
+        @FromPattern("(\\w+)")
+        record Mixed(String characters) implements Run { }
+    }
+
+    @Test
+    public void countsInputsForEachTypeAndBuilder() {
+        var context = new InterpretationContext().collectStats();
+        var interpreter = context.makeInterpreter(Shape.class);
+
+        interpreter.interpret("circle r=3");
+        interpreter.interpret("square side=4");
+        interpreter.interpret("square side=5");
+        assertTrue(interpreter.tryInterpret("square side=x").isEmpty());
+        assertTrue(interpreter.tryInterpret("triangle").isEmpty());
+
+        var stats = context.stats();
+        var shape = typeStats(stats, Shape.class);
+        assertEquals(5, shape.attempts());
+        assertEquals(3, shape.successes());
+        assertEquals(2, shape.failures());
+        assertEquals(5, shape.latency().count());
+
+        var side = typeStats(stats, Side.class);
+        assertEquals(3, side.attempts());
+        assertEquals(1, side.failures());
+
+        var circle = builderStats(stats, Shape.class, 0);
+        assertEquals(5, circle.attempts());
+        assertEquals(1, circle.matches());
+
+        var square = builderStats(stats, Shape.class, 1);
+        assertEquals(3, square.matches());
+        assertEquals(1, square.failures());
+        assertEquals(3, square.instantiation().count());
+        assertEquals(square.attempts(), square.prefilterRejections() + square.regexMisses() + square.matches());
+    }
+
+    @Test
+    public void countsBuildersTriedInTurn() {
+        var context = new InterpretationContext().collectStats();
+        var interpreter = context.makeInterpreter(Run.class);
+
+        interpreter.interpret("aaa");
+        interpreter.interpret("abc");
+
+        var repeated = builderStats(context.stats(), Run.class, 0);
+        assertEquals(2, repeated.attempts());
+        assertEquals(1, repeated.regexMisses());
+        assertEquals(1, repeated.matches());
+
+        var mixed = builderStats(context.stats(), Run.class, 1);
+        assertEquals(1, mixed.attempts());
+        assertEquals(1, mixed.matches());
+    }
+
+    @FromPattern("(-?\\d+)")
+    public record Positive(int value) {
+        public Positive {
+            if (value <= 0) throw new IllegalArgumentException("Not positive: " + value);
+        }
+    }
+
+    @Test
+    public void countsBuildersWhichThrowAsFailing() {
+        var context = new InterpretationContext().collectStats();
+        var interpreter = context.makeInterpreter(Positive.class);
+
+        interpreter.interpret("1");
+        assertThrows(RuntimeException.class, () -> interpreter.interpret("-1"));
+
+        var positive = builderStats(context.stats(), Positive.class, 0);
+        assertEquals(2, positive.matches());
+        assertEquals(1, positive.failures());
+        assertEquals(2, positive.instantiation().count());
+        assertEquals(1, typeStats(context.stats(), Positive.class).failures());
+    }
+
+    @Test
+    public void collectsNothingUnlessAskedTo() {
+        var context = new InterpretationContext();
+        context.makeInterpreter(Shape.class).interpret("circle r=1");
+
+        assertTrue(context.stats().types().isEmpty());
+        assertTrue(context.stats().builders().isEmpty());
+    }
+
+    @Test
+    public void latencyPercentilesAreBucketBounds() {
+        var latency = new InterpretationStats.Latency(new long[InterpretationStats.Latency.BUCKET_COUNT], 0);
+        assertEquals(0, latency.percentileNanos(99));
+
+        var recorder = new LatencyRecorder();
+        recorder.record(100);
+        recorder.record(1000);
+        var snapshot = recorder.snapshot();
+        assertEquals(2, snapshot.count());
+        assertEquals(127, snapshot.percentileNanos(50));
+        assertEquals(1023, snapshot.percentileNanos(100));
+        assertEquals(550.0, snapshot.meanNanos());
+    }
+
+    private static InterpretationStats.TypeStats typeStats(InterpretationStats stats, Class<?> targetClass) {
+        return stats.types().stream().filter(type -> type.targetClass() == targetClass).findFirst().orElseThrow();
+    }
+
+    private static InterpretationStats.BuilderStats builderStats(InterpretationStats stats, Class<?> targetClass, int index) {
+        return stats.builders().stream()
+                .filter(builder -> builder.targetClass() == targetClass && builder.index() == index)
+                .findFirst()
+                .orElseThrow();
+    }
+}
@@ -0,0 +1,75 @@
+package com.codepoetics.mariko;
+
+import com.codepoetics.mariko.api.FromKeyword;
+import com.codepoetics.mariko.api.FromPattern;
+import com.codepoetics.mariko.api.InterpreterBuildingException;
+import org.junit.jupiter.api.Test;
+
+import java.nio.CharBuffer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class KeywordInterpretationTest {
+
+    public enum Command {
+        @FromKeyword({"fwd", "ahead"})
+        FORWARD,
+        @FromKeyword({"back", "<-"})
+        BACKWARD,
+        STOP
+    }
+
+    @FromPattern("(\\S+) (\\d+)")
+    public record Move(Command command, int distance) { }
+
+    @FromPattern("(?i)(red|amber|green) light")
+    public enum Light {
+        RED,
+        AMBER,
+        GREEN
+    }
+
+    public enum Ambiguous {
+        @FromKeyword("go")
+        START,
+        @FromKeyword("GO")
+        RESUME
+    }
+
+    @Test
+    public void enumConstantsAreFoundByNameOrKeywordIgnoringCase() {
+        var interpreter = new InterpretationContext().makeInterpreter(Command.class);
+
+        assertEquals(Command.FORWARD, interpreter.interpret("forward"));
+        assertEquals(Command.FORWARD, interpreter.interpret("FWD"));
+        assertEquals(Command.FORWARD, interpreter.interpret("Ahead"));
+        assertEquals(Command.BACKWARD, interpreter.interpret("<-"));
+        assertEquals(Command.STOP, interpreter.interpret("sToP"));
+        assertTrue(interpreter.tryInterpret("forwards").isEmpty());
+        assertTrue(interpreter.tryInterpret("").isEmpty());
+    }
+
+    @Test
+    public void keywordsAreLookedUpWithinCharSequences() {
+        var interpreter = new InterpretationContext().makeInterpreter(Command.class);
+
+        assertEquals(Command.BACKWARD, interpreter.interpret(CharBuffer.wrap("go back now").subSequence(3, 7)));
+        assertEquals(new Move(Command.BACKWARD, 3), new InterpretationContext().makeInterpreter(Move.class).interpret("back 3"));
+    }
+
+    @Test
+    public void annotatedEnumsAreMatchedByTheirPattern() {
+        var interpreter = new InterpretationContext().makeInterpreter(Light.class);
+
+        assertEquals(Light.AMBER, interpreter.interpret("Amber light"));
+        assertTrue(interpreter.tryInterpret("amber").isEmpty());
+    }
+
+    @Test
+    public void keywordUsedForTwoConstantsIsRejected() {
+        assertThrows(InterpreterBuildingException.class,
+                () -> new InterpretationContext().makeInterpreter(Ambiguous.class));
+    }
+}
@@ -0,0 +1,157 @@
+package com.codepoetics.mariko;
+
+import com.codepoetics.mariko.api.FromPattern;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.regex.MatchResult;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class LinearPatternEngineTest {
+
+    private static final LinearPatternEngine ENGINE = new LinearPatternEngine();
+
+    public sealed interface Instruction permits Instruction.Move, Instruction.Turn, Instruction.Say {
+        @FromPattern("move (\\d+) (?i:steps?)")
+        record Move(int steps) implements Instruction { }
+
+        @FromPattern("turn (left|right)")
+        record Turn(String direction) implements Instruction { }
+
+        @FromPattern("say \"(.*)\"")
+        record Say(String text) implements Instruction { }
+    }
+
+    @FromPattern("(\\d+)-(\\d+) ([a-z]): ([a-z]+)")
+    public record Policy(int min, int max, char letter, String password) { }
+
+    @Test
+    public void capturesTheSameGroupsAsJavaRegex() {
+        assertSameMatches("(\\d+)-(\\d+) ([a-z]): ([a-z]+)", "1-3 a: abcde", "1-3 b: cdefg", "2-9 c:", "");
+        assertSameMatches("(a|ab)(c|bcd)(d*)", "abcd", "abcdd", "acd", "abd");
+        assertSameMatches("(.*),(.*)", "a,b,c", ",", "abc");
+        assertSameMatches("(.*?),(.*)", "a,b,c", ",");
+        assertSameMatches("(a+)(a*)(a?)", "a", "aaaa");
+        assertSameMatches("(a+?)(a*?)(a??)", "a", "aaaa");
+        assertSameMatches("(ab){2,3}(b)?", "abab", "ababb", "ababab", "abababb", "ab");
+        assertSameMatches("(x{2,}?)(x*)", "xx", "xxxxx", "x");
+        assertSameMatches("(?:(\\w)(\\d))+", "a1b2c3", "a1b", "");
+        assertSameMatches("(?<name>[A-Z][a-z]+) (?<age>\\d{1,3})", "Alice 30", "alice 30", "Bob 1000");
+        assertSameMatches("(?i)(hello) (WORLD)", "HELLO world", "Hello World", "hello there");
+        assertSameMatches("(a(?i)b)c", "aBc", "aBC", "Abc");
+        assertSameMatches("((?i:x)y)+", "XyxyXy", "XY");
+        assertSameMatches("[^,\\s]+(?:,\\s*([^,\\s]+))*", "a, b,c", "a,,b");
+        assertSameMatches("\\Q(1+1)\\E=(\\p{Alpha}+)", "(1+1)=two", "11=two");
+        assertSameMatches("(.)\\.(\\x41|\\u00e9|\\t)", "a.A", "b.\u00e9", "c.\t", "d.B", "\n.A");
+        assertSameMatches("(?s)(.)(.)", "\n\r", "ab");
+        assertSameMatches("^(\\S+)$", "word", "word\n", "word\r\n", "word\n\n", "two words");
+        assertSameMatches("([\\p{L}&&[^a-z]]+) (\\d+)", "\u00c9COLE 7", "\u00e9cole 7", "\u0395\u03bb\u03bb\u03ac\u03b4\u03b1 3");
+        assertSameMatches("(-?\\d+(?:\\.\\d+)?)(?:e(-?\\d+))?", "12", "-1.5e-3", "1.e3");
+    }
+
+    @Test
+    public void appliesInlineFlagsOnlyWhereTheyAppear() {
+        assertSameMatches("(?i)(?s)(a)(.)", "A\n", "a.", "b\n");
+        assertSameMatches("(?s:.)(.)", "\n.", "\n\n");
+        assertSameMatches(Pattern.compile("(?-i)(a)(b)", Pattern.CASE_INSENSITIVE), "ab", "aB", "Ab");
+
+        for (var pattern : List.of(
+                Pattern.compile("(.+?)(?s)."),
+                Pattern.compile("(?:.*)(?s)."),
+                Pattern.compile("(a)(?i)(b)"),
+                Pattern.compile("a|(?s)."),
+                Pattern.compile("(.)(?-s)(.)", Pattern.DOTALL),
+                Pattern.compile("(a)(?-i)(b)", Pattern.CASE_INSENSITIVE))) {
+            assertSameMatchesIfCompiled(pattern, "a\nx", "a\n", "ax", "A\n", "ab", "aB", "Ab", "\n\n", "\n");
+        }
+    }
+
+    @Test
+    public void fallsBackToJavaRegexForInputsWithSurrogatePairs() {
+        assertSameMatches("(.)(.*)", "\uD83D\uDE00 smile", "x\uD83D\uDE00");
+    }
+
+    @Test
+    public void leavesUnsupportedPatternsToJavaRegex() {
+        for (String regex : List.of(
+                "(a)\\1",
+                "(?<x>a)\\k<x>",
+                "(?=a)a",
+                "(?!b)a",
+                "(?<=a)b",
+                "(?>a+)b",
+                "a++",
+                "\\bword\\b",
+                "(?m)^a$",
+                "(?x)a b",
+                "(a*)*",
+                "(a|)+",
+                "(a{2}){1000}")) {
+            assertNull(ENGINE.compile(Pattern.compile(regex)), regex);
+        }
+        assertNull(ENGINE.compile(Pattern.compile("a", Pattern.MULTILINE)));
+        assertNull(new LinearPatternEngine(10).compile(Pattern.compile("a{20}")));
+    }
+
+    @Test
+    public void matchesPathologicalPatternsInLinearTime() {
+        var compiled = ENGINE.compile(Pattern.compile("(a|aa)*(b)"));
+        var input = "a".repeat(5_000) + "c";
+
+        long start = System.nanoTime();
+        assertNull(compiled.matchWhole(input));
+        assertTrue(System.nanoTime() - start < 1_000_000_000L);
+
+        assertEquals("b", compiled.matchWhole("a".repeat(5_000) + "b").group(2));
+    }
+
+    @Test
+    public void contextsMatchWithTheGivenEngine() {
+        var context = new InterpretationContext().withPatternEngine(ENGINE);
+
+        assertEquals(new Policy(1, 3, 'a', "abcde"), context.makeInterpreter(Policy.class).interpret("1-3 a: abcde"));
+
+        var instructions = context.makeInterpreter(Instruction.class);
+        assertEquals(new Instruction.Move(3), instructions.interpret("move 3 STEPS"));
+        assertEquals(new Instruction.Turn("left"), instructions.interpret("turn left"));
+        assertEquals(new Instruction.Say("move 3 steps"), instructions.interpret("say \"move 3 steps\""));
+        assertTrue(instructions.tryInterpret("turn around").isEmpty());
+    }
+
+    private static void assertSameMatches(String regex, String... inputs) {
+        assertSameMatches(Pattern.compile(regex), inputs);
+    }
+
+    private static void assertSameMatches(Pattern pattern, String... inputs) {
+        assertNotNull(ENGINE.compile(pattern), pattern.pattern());
+        assertSameMatchesIfCompiled(pattern, inputs);
+    }
+
+    private static void assertSameMatchesIfCompiled(Pattern pattern, String... inputs) {
+        var compiled = ENGINE.compile(pattern);
+        if (compiled == null) return;
+
+        String regex = pattern.pattern();
+        for (String input : inputs) {
+            Matcher expected = pattern.matcher(input);
+            MatchResult actual = compiled.matchWhole(input);
+            if (!expected.matches()) {
+                assertNull(actual, regex + " on " + input);
+                continue;
+            }
+
+            assertNotNull(actual, regex + " on " + input);
+            for (int group = 0; group <= expected.groupCount(); group++) {
+                assertEquals(expected.start(group), actual.start(group), regex + " on " + input + ", group " + group);
+                assertEquals(expected.end(group), actual.end(group), regex + " on " + input + ", group " + group);
+                assertEquals(expected.group(group), actual.group(group), regex + " on " + input + ", group " + group);
+            }
+        }
+    }
+}
@@ -4,9 +4,18 @@ import com.codepoetics.mariko.api.FromList;
 import com.codepoetics.mariko.api.FromPattern;
 import org.junit.jupiter.api.Test;
 
+import com.codepoetics.mariko.api.InterpretationException;
+import com.codepoetics.mariko.api.InterpreterBuildingException;
+
 import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 
 public class ListParameterTest {
 
@@ -48,4 +57,120 @@ public class ListParameterTest {
                         "To find the treasure, go 7m North, 10m East, " +
                                 "then 16m South, 3m West, then 7m East"));
     }
+
+    @FromPattern("ints: (.*); longs: (.*); doubles: (.*); chars: (.*)")
+    public record Arrays(
+            int[] ints,
+            @FromList("\\s+") long[] longs,
+            @FromList("/") double[] doubles,
+            @FromList("") char[] chars) { }
+
+    @Test
+    public void parsesPrimitiveArrays() {
+        var arrays = Interpretation.interpret(Arrays.class,
+                "ints: 1, 2,3,   -4; longs: 10000000000  -2 3; doubles: 1.5/2/-0.25; chars: abc");
+
+        assertArrayEquals(new int[] {1, 2, 3, -4}, arrays.ints());
+        assertArrayEquals(new long[] {10000000000L, -2, 3}, arrays.longs());
+        assertArrayEquals(new double[] {1.5, 2, -0.25}, arrays.doubles());
+        assertArrayEquals(new char[] {'a', 'b', 'c'}, arrays.chars());
+    }
+
+    @Test
+    public void splitsPrimitiveArraysFromCharacterSequencesInPlace() {
+        var literal = PrimitiveArrays.arrayInterpreter(double[].class, Pattern.compile(", "), null);
+        var pattern = PrimitiveArrays.arrayInterpreter(double[].class, Pattern.compile(",\\s*"), null);
+        var input = new StringBuilder("1.5,2,\t-0.25e1, 0.1234567890123456789,, ");
+
+        assertArrayEquals(new double[] {1.5, 2, -2.5, 0.1234567890123456789},
+                (double[]) pattern.interpretOrNull(input));
+        assertEquals(null, literal.interpretOrNull(input));
+        assertArrayEquals(new double[] {1.5, 2, -2.5},
+                (double[]) literal.interpretOrNull(new StringBuilder("1.5, 2, -2.5, , ")));
+    }
+
+    @FromPattern("(.*)")
+    public record Compact(@FromList(value = ",", compact = true) List<Integer> values) { }
+
+    @Test
+    public void compactListsAreSplitLikeOrdinaryLists() {
+        assertEquals(List.of(1, 22, 333), Interpretation.interpret(Compact.class, "1,22,333").values());
+        assertEquals(List.of(1, 2), Interpretation.interpret(Compact.class, "1,2,,").values());
+        assertEquals(List.of(7), Interpretation.interpret(Compact.class, "7").values());
+
+        assertThrows(InterpretationException.class, () -> Interpretation.interpret(Compact.class, "1,,2"));
+    }
+
+    @Test
+    public void arrayItemsUseRegisteredInterpreters() {
+        var context = new InterpretationContext()
+                .addInterpreter(int.class, input -> Optional.of(input.length()));
+
+        assertArrayEquals(new int[] {1, 3, 0, 2}, context.makeInterpreter(Arrays.class)
+                .interpret("ints: a,bcd,,ef; longs: 1; doubles: 1; chars: x").ints());
+    }
+
+    @FromPattern("To find the treasure, go (.*)")
+    public record LazyTreasureLocations(@FromList(value = ", then ", lazy = true) List<Point> coordinates) { }
+
+    @Test
+    public void lazyListsInterpretItemsWhenTheyAreRead() {
+        var locations = Interpretation.interpret(LazyTreasureLocations.class,
+                "To find the treasure, go 7m North, 10m East, then 16m Sideways, then 7m East");
+
+        assertEquals(3, locations.coordinates().size());
+        assertEquals(new Point(10, -7), locations.coordinates().get(0));
+        assertSame(locations.coordinates().get(0), locations.coordinates().get(0));
+        assertEquals(new Point(7, 0), locations.coordinates().get(2));
+
+        assertThrows(InterpretationException.class, () -> locations.coordinates().get(1));
+    }
+
+    @Test
+    public void contextsCanMakeEveryListLazy() {
+        var counted = new AtomicInteger();
+        var context = new InterpretationContext()
+                .lazyLists()
+                .addInterpreter(Direction.class, input -> {
+                    counted.incrementAndGet();
+                    return Optional.of(Direction.valueOf(input.toString().toUpperCase()));
+                });
+        var locations = context.makeInterpreter(TreasureLocations.class)
+                .interpret("To find the treasure, go 7m North, 10m East, then 16m South, 3m West, then 7m East");
+
+        assertEquals(0, counted.get());
+        assertEquals(new Point(7, 0), locations.coordinates().get(2));
+        assertEquals(1, counted.get());
+        assertEquals(List.of(new Point(10, -7), new Point(-3, 16), new Point(7, 0)), locations.coordinates());
+        assertEquals(5, counted.get());
+    }
+
+    @Test
+    public void lazyListsAreSplitLikeOrdinaryLists() {
+        var context = new InterpretationContext().lazyLists();
+
+        assertEquals(List.of(1, 2), context.makeInterpreter(Compact.class).interpret("1,2,,").values());
+        assertEquals(List.of(1, 22, 333), context.makeInterpreter(Numbers.class).interpret("1,22,333").values());
+        assertEquals(List.of(1, 2), context.makeInterpreter(Numbers.class).interpret("1,2,,").values());
+        assertEquals(List.of(7), context.makeInterpreter(Numbers.class).interpret("7").values());
+    }
+
+    @FromPattern("(.*)")
+    public record Numbers(@FromList(",") List<Integer> values) { }
+
+    @FromPattern("(.*)")
+    public record CompactStrings(@FromList(value = ",", compact = true) List<String> values) { }
+
+    @Test
+    public void compactListsMustHavePrimitiveItems() {
+        assertThrows(InterpreterBuildingException.class, () -> Interpretation.interpreter(CompactStrings.class));
+    }
+
+    @FromPattern("(.*)")
+    public record LazyCompact(@FromList(value = ",", compact = true, lazy = true) List<Integer> values) { }
+
+    @Test
+    public void listsCannotBeBothCompactAndLazy() {
+        assertThrows(InterpreterBuildingException.class, () -> Interpretation.interpreter(LazyCompact.class));
+    }
 }
@@ -0,0 +1,80 @@
+package com.codepoetics.mariko;
+
+import com.codepoetics.mariko.api.FromMap;
+import com.codepoetics.mariko.api.FromPattern;
+import com.codepoetics.mariko.api.InterpretationException;
+import com.codepoetics.mariko.api.InterpreterBuildingException;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class MapParameterTest {
+
+    @FromPattern("scores: (.*)")
+    public record Scores(@FromMap(value = ", ", keyValue = ":\\s*") Map<String, Integer> scores) { }
+
+    @Test
+    public void parsesMapWithSeparators() {
+        assertEquals(
+                new Scores(Map.of("alice", 12, "bob", 7, "carol", -3)),
+                Interpretation.interpret(Scores.class, "scores: alice: 12, bob:7, carol:   -3"));
+    }
+
+    @FromPattern("(.*)")
+    public record Settings(Map<String, String> settings) { }
+
+    @Test
+    public void unannotatedMapsAreSeparatedByCommasAndEquals() {
+        assertEquals(
+                Map.of("colour", "blue", "size", "x=large"),
+                Interpretation.interpret(Settings.class, "colour=blue, size=x=large").settings());
+    }
+
+    @Test
+    public void everyEntryMustHaveAKeyAndValue() {
+        assertThrows(InterpretationException.class, () -> Interpretation.interpret(Settings.class, "colour=blue, size"));
+        assertThrows(InterpretationException.class, () -> Interpretation.interpret(Scores.class, "scores: alice: twelve"));
+    }
+
+    @FromPattern("\\((-?\\d+), (-?\\d+)\\)")
+    public record Point(long x, long y) { }
+
+    @FromPattern("points: (.*)")
+    public record Points(@FromMap(value = "; ", keyValue = " at ", compact = true) Map<Integer, Point> points) { }
+
+    @Test
+    public void compactMapsAreSortedByKeyAndKeepTheLastValueForEachKey() {
+        var points = Interpretation.interpret(Points.class,
+                "points: 3 at (1, 2); -1 at (0, 0); 3 at (5, 6); 10 at (-1, 7)").points();
+
+        assertEquals(List.of(-1, 3, 10), List.copyOf(points.keySet()));
+        assertEquals(new Point(5, 6), points.get(3));
+        assertEquals(Map.of(-1, new Point(0, 0), 3, new Point(5, 6), 10, new Point(-1, 7)), points);
+        assertNull(points.get(3L));
+        assertTrue(points.containsKey(10));
+
+        assertThrows(UnsupportedOperationException.class, () -> points.put(4, new Point(0, 0)));
+    }
+
+    @FromPattern("(.*)")
+    public record CompactStrings(@FromMap(value = ",", compact = true) Map<String, String> values) { }
+
+    @Test
+    public void compactMapsMustHavePrimitiveKeys() {
+        assertThrows(InterpreterBuildingException.class, () -> Interpretation.interpreter(CompactStrings.class));
+    }
+
+    @Test
+    public void mapTypesCanBePrepared() {
+        var report = new InterpretationContext().prepare(1, Points.class);
+
+        assertTrue(report.preparedTypes().contains(Point.class));
+        assertTrue(report.warmedUpTypes().contains(Points.class));
+    }
+}
@@ -0,0 +1,81 @@
+package com.codepoetics.mariko;
+
+import com.codepoetics.mariko.api.FromPattern;
+import com.codepoetics.mariko.api.InterpretationException;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class MappedLinesTest {
+
+    @FromPattern("(\\w+)=(-?\\d+)")
+    public record Setting(String name, int value) { }
+
+    @FromPattern("(.*)")
+    public record Line(String text) { }
+
+    private static Path fileContaining(String contents) throws IOException {
+        Path path = Files.createTempFile("mariko", ".txt");
+        path.toFile().deleteOnExit();
+        Files.writeString(path, contents, StandardCharsets.UTF_8);
+        return path;
+    }
+
+    @Test
+    public void interpretsEachLineOfAFile() throws IOException {
+        var path = fileContaining("a=1\nbb=-22\r\nccc=333\rdddd=4444");
+
+        try (var settings = new InterpretationContext().interpretLines(Setting.class, path)) {
+            assertEquals(
+                    List.of(new Setting("a", 1), new Setting("bb", -22), new Setting("ccc", 333), new Setting("dddd", 4444)),
+                    settings.toList());
+        }
+
+        List<Setting> consumed = new ArrayList<>();
+        new InterpretationContext().interpretLines(Setting.class, path, consumed::add);
+        assertEquals(4, consumed.size());
+    }
+
+    @Test
+    public void linesAreSplitAsFilesLinesWouldSplitThem() throws IOException {
+        var path = fileContaining("first\r\n\n\u00fc\u00f1\u00ed\u00e7\u00f8d\u00e9 line\r\rlast line\n");
+        var expected = Files.lines(path).map(Line::new).toList();
+
+        for (long regionSize : new long[] {MappedLines.DEFAULT_REGION_SIZE, 24, 20}) {
+            try (var lines = MappedLines.stream(
+                    path, StandardCharsets.UTF_8, Interpretation.interpreter(Line.class), regionSize)) {
+                assertEquals(expected, lines.toList());
+            }
+        }
+    }
+
+    @Test
+    public void linesLongerThanARegionAreRejected() throws IOException {
+        var path = fileContaining("short\na much longer line\n");
+
+        try (var lines = MappedLines.stream(
+                path, StandardCharsets.UTF_8, Interpretation.interpreter(Line.class), 8)) {
+            assertThrows(UncheckedIOException.class, lines::toList);
+        }
+    }
+
+    @Test
+    public void failuresReportTheLineNumber() throws IOException {
+        var path = fileContaining("a=1\nb=2\nnonsense\n");
+
+        try (var settings = Interpretation.interpretLines(Setting.class, path)) {
+            var failure = assertThrows(InterpretationException.class, settings::toList);
+            assertTrue(failure.getMessage().startsWith("Line 3:"));
+        }
+    }
+}
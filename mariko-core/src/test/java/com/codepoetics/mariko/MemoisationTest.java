@@ -0,0 +1,71 @@
+package com.codepoetics.mariko;
+
+import com.codepoetics.mariko.api.FromPattern;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class MemoisationTest {
+
+    @FromPattern("heartbeat from (\\w+) seq=(\\d+)")
+    public record Heartbeat(String node, long sequence) { }
+
+    @FromPattern("(\\w+): (.*)")
+    public record Message(String channel, Heartbeat heartbeat) { }
+
+    @Test
+    public void repeatedInputsShareOneResult() {
+        var context = new InterpretationContext().memoise(Heartbeat.class, 100);
+        var interpreter = context.makeInterpreter(Heartbeat.class);
+
+        var first = interpreter.interpret("heartbeat from alpha seq=1");
+        assertSame(first, interpreter.interpret("heartbeat from alpha seq=1"));
+        assertSame(first, interpreter.interpret(new StringBuilder("heartbeat from alpha seq=1")));
+        assertEquals(new Heartbeat("beta", 2), interpreter.interpret("heartbeat from beta seq=2"));
+        assertTrue(interpreter.tryInterpret("heartbeat from gamma").isEmpty());
+        assertTrue(interpreter.tryInterpret("heartbeat from gamma").isEmpty());
+
+        var memo = context.stats().memos().get(0);
+        assertEquals(Heartbeat.class, memo.targetClass());
+        assertEquals(2, memo.hits());
+        assertEquals(4, memo.misses());
+        assertEquals(2, memo.size());
+    }
+
+    @Test
+    public void memoisedTypesAreMemoisedAsParameters() {
+        var context = new InterpretationContext().memoise(Heartbeat.class, 100);
+        var interpreter = context.makeInterpreter(Message.class);
+
+        var first = interpreter.interpret("ops: heartbeat from alpha seq=1");
+        var second = interpreter.interpret("audit: heartbeat from alpha seq=1");
+        assertNotSame(first, second);
+        assertSame(first.heartbeat(), second.heartbeat());
+    }
+
+    @Test
+    public void recurringInputsSurviveABurstOfNewOnes() {
+        var context = new InterpretationContext().memoise(Heartbeat.class, 5);
+        var interpreter = context.makeInterpreter(Heartbeat.class);
+
+        var recurring = interpreter.interpret("heartbeat from alpha seq=1");
+        interpreter.interpret("heartbeat from alpha seq=1");
+        for (int i = 0; i < 100; i++) {
+            interpreter.interpret("heartbeat from beta seq=" + i);
+        }
+
+        assertSame(recurring, interpreter.interpret("heartbeat from alpha seq=1"));
+        var memo = context.stats().memos().get(0);
+        assertTrue(memo.size() <= 5);
+        assertEquals(memo.misses() - memo.size(), memo.evictions());
+    }
+
+    @Test
+    public void memoSizeMustBePositive() {
+        assertThrows(IllegalArgumentException.class, () -> new InterpretationContext().memoise(Heartbeat.class, 0));
+    }
+}
@@ -0,0 +1,96 @@
+package com.codepoetics.mariko;
+
+import com.codepoetics.mariko.api.FromPattern;
+import com.codepoetics.mariko.api.InterpretationException;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class ParallelInterpretationTest {
+
+    @FromPattern("(\\w+)=(-?\\d+)")
+    public record Setting(String name, int value) { }
+
+    private static List<String> settings(int count) {
+        return IntStream.range(0, count).mapToObj(i -> "setting%d=%d".formatted(i, -i)).toList();
+    }
+
+    private static List<Setting> expected(int count) {
+        return IntStream.range(0, count).mapToObj(i -> new Setting("setting" + i, -i)).toList();
+    }
+
+    @Test
+    public void resultsAreInInputOrder() {
+        var context = new InterpretationContext().withParallelism(4);
+
+        assertEquals(expected(10_000), context.interpretAll(Setting.class, settings(10_000)));
+        assertEquals(expected(3), context.interpretAll(Setting.class, new LinkedList<>(settings(3))));
+        assertEquals(List.of(), context.interpretAll(Setting.class, List.of()));
+    }
+
+    @Test
+    public void failuresReportTheInputIndex() {
+        var inputs = new ArrayList<>(settings(1000));
+        inputs.set(567, "nonsense");
+
+        var failure = assertThrows(InterpretationException.class,
+                () -> new InterpretationContext().withParallelism(2).interpretAll(Setting.class, inputs));
+        assertEquals("Input 567:", failure.getMessage().substring(0, 10));
+    }
+
+    @Test
+    public void callersOwnThePoolsTheyGive() {
+        var pool = new ForkJoinPool(2);
+        try {
+            var context = new InterpretationContext().withPool(pool);
+            assertEquals(expected(1000), context.interpretAll(Setting.class, settings(1000)));
+
+            context.withParallelism(2);
+            assertFalse(pool.isShutdown());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void parallelismMustBePositive() {
+        assertThrows(IllegalArgumentException.class, () -> new InterpretationContext().withParallelism(0));
+    }
+
+    @Test
+    public void filesAreSplitAtLineBoundaries() throws IOException {
+        Path path = Files.createTempFile("mariko", ".txt");
+        path.toFile().deleteOnExit();
+        Files.writeString(path, String.join("\r\n", settings(50_000)), StandardCharsets.UTF_8);
+
+        var context = new InterpretationContext().withParallelism(3);
+        assertEquals(expected(50_000), context.interpretAll(Setting.class, path));
+    }
+
+    @Test
+    public void boundariesFallAtTheStartOfLines() throws IOException {
+        Path path = Files.createTempFile("mariko", ".txt");
+        path.toFile().deleteOnExit();
+        Files.writeString(path, "aaaa\r\nbbbb\rcccc\ndddd", StandardCharsets.UTF_8);
+
+        try (var channel = FileChannel.open(path)) {
+            assertArrayEquals(new long[] {0, 6, 11, 16, 20}, MappedLines.lineAlignedBoundaries(channel, 5));
+            assertArrayEquals(new long[] {0, 11, 20}, MappedLines.lineAlignedBoundaries(channel, 2));
+            assertArrayEquals(new long[] {0, 20}, MappedLines.lineAlignedBoundaries(channel, 1));
+        }
+    }
+}
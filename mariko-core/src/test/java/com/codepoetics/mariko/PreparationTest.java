@@ -0,0 +1,87 @@
+package com.codepoetics.mariko;
+
+import com.codepoetics.mariko.api.FromList;
+import com.codepoetics.mariko.api.FromPattern;
+import com.codepoetics.mariko.api.InterpreterBuildingException;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class PreparationTest {
+
+    public enum Status {
+        OPEN,
+        SHIPPED
+    }
+
+    @FromPattern("(\\w+) <([\\w.]+@[\\w.]+)>")
+    public record Customer(String name, String email) { }
+
+    @FromPattern("(\\d+) x ([A-Z]{3}-\\d{4}) @ (\\d+\\.\\d{2})")
+    public record Line(int quantity, String sku, double price) { }
+
+    @FromPattern("Order #(\\d+) for (.+?) \\[(\\w+)\\]: (.*)")
+    public record Order(long id, Customer customer, Status status, @FromList("; ") List<Line> lines) { }
+
+    public sealed interface Expression permits Expression.Sum, Expression.Literal {
+        @FromPattern("(-?\\d+) \\+ (.+)")
+        record Sum(int left, Expression right) implements Expression { }
+
+        @FromPattern("(-?\\d+)")
+        record Literal(int value) implements Expression { }
+    }
+
+    public record Unbuildable(Object value) { }
+
+    @FromPattern("(.*)")
+    public record HoldsUnbuildable(Unbuildable unbuildable) { }
+
+    @Test
+    public void buildsEveryReachableType() {
+        var context = new InterpretationContext();
+
+        var report = context.prepare(Order.class);
+        assertEquals(
+                Set.of(Order.class, Customer.class, Status.class, Line.class),
+                Set.copyOf(report.preparedTypes()));
+        assertTrue(report.warmedUpTypes().isEmpty());
+
+        assertEquals(
+                new Order(7, new Customer("Ann", "ann@example.com"), Status.SHIPPED,
+                        List.of(new Line(2, "ABC-1234", 9.99))),
+                context.makeInterpreter(Order.class)
+                        .interpret("Order #7 for Ann <ann@example.com> [shipped]: 2 x ABC-1234 @ 9.99"));
+
+        assertTrue(context.prepare(Order.class, Customer.class).preparedTypes().isEmpty());
+    }
+
+    @Test
+    public void warmsUpWithGeneratedInputs() {
+        var context = new InterpretationContext();
+
+        var report = context.prepare(100, Order.class, Expression.class);
+        assertEquals(Set.copyOf(report.preparedTypes()), Set.copyOf(report.warmedUpTypes()));
+        assertTrue(report.warmedUpTypes().contains(Expression.class));
+    }
+
+    @Test
+    public void generatesInputsMatchingPatterns() {
+        var input = SampleInputs.generate(
+                Pattern.compile("(?i)x([a-f]{2,4}|z)\\s+(?:\\d+)?(?<name>\\w*)\\.$"),
+                (group, generated) -> group == 2 ? "name" : generated);
+
+        assertEquals("xaa 1name.", input);
+    }
+
+    @Test
+    public void unbuildableReachableTypeFailsPreparation() {
+        assertThrows(InterpreterBuildingException.class,
+                () -> new InterpretationContext().prepare(HoldsUnbuildable.class));
+    }
+}
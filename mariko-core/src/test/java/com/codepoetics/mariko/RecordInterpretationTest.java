@@ -85,4 +85,36 @@ public class RecordInterpretationTest {
         assertEquals(new Line(new Point(-7L, 0L), new Point(120L, -5L)),
                 interpret(Line.class, "From x=-7, y=0 to (120,-5)"));
     }
+
+    @FromPattern(value = "(-?\\d+)%")
+    public record Percentage(int value) {
+        public Percentage {
+            if (value < 0 || value > 100) throw new IllegalArgumentException("Out of range: " + value);
+        }
+    }
+
+    @Test
+    public void constructorFailureIsReportedAsInterpretationException() {
+        assertEquals(new Percentage(42), interpret(Percentage.class, "42%"));
+
+        assertThrows(InterpretationException.class, () ->
+                interpret(Percentage.class, "142%"));
+    }
+
+    @FromPattern(value = "(-?\\d+) (-?\\d+) (.) (\\w+) (\\S+) (\\S+)")
+    public record Primitives(short s, byte b, char c, boolean flag, float f, double d) { }
+
+    @FromPattern(value = "(\\w+) x(\\d+) at (\\S+)")
+    public record Order(String item, int quantity, double price) { }
+
+    @Test
+    public void primitiveFieldsAreParsedFromTheInput() {
+        assertEquals(new Primitives((short) -300, (byte) 12, 'z', true, 1.5f, -2.25),
+                interpret(Primitives.class, "-300 12 z TRUE 1.5 -2.25"));
+        assertEquals(new Order("widget", 3, 9.99),
+                interpret(Order.class, "widget x3 at 9.99"));
+
+        assertThrows(InterpretationException.class, () ->
+                interpret(Primitives.class, "-300 128 z true 1.5 -2.25"));
+    }
 }
@@ -0,0 +1,83 @@
+package com.codepoetics.mariko;
+
+import com.codepoetics.mariko.api.FromPattern;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class RejectionsTest {
+
+    public sealed interface Quantity permits Quantity.Small, Quantity.Large {
+        @FromPattern("(-?\\d+)")
+        record Small(byte value) implements Quantity { }
+
+        @FromPattern("(-?\\d+)")
+        record Large(long value) implements Quantity { }
+    }
+
+    @FromPattern("(\\w+)=(-?\\d+)")
+    public record Setting(String name, int value) { }
+
+    @FromPattern("(\\w+): (.*)")
+    public record Named(String name, Setting setting) { }
+
+    @Test
+    public void valuesWhichCannotBeInterpretedMoveOnToTheNextBuilder() {
+        for (var context : List.of(new InterpretationContext(), new InterpretationContext().compileInterpreters())) {
+            var interpreter = context.makeInterpreter(Quantity.class);
+
+            assertEquals(new Quantity.Small((byte) 12), interpreter.interpret("12"));
+            assertEquals(new Quantity.Large(300), interpreter.interpret("300"));
+            assertTrue(interpreter.tryInterpret("99999999999999999999").isEmpty());
+        }
+    }
+
+    @Test
+    public void nestedFailuresAreEmptyRatherThanThrown() {
+        var interpreter = new InterpretationContext().makeInterpreter(Named.class);
+
+        assertEquals(new Named("first", new Setting("a", 1)), interpreter.interpret("first: a=1"));
+        assertTrue(interpreter.tryInterpret("first: a=b").isEmpty());
+        assertTrue(interpreter.tryInterpret("first: a=99999999999").isEmpty());
+    }
+
+    @Test
+    public void bulkInterpretationCollectsRejectedInputs() {
+        var rejections = new Rejections(1);
+        var settings = new InterpretationContext().interpretAll(Setting.class,
+                List.of("a=1", "nonsense", "b=2", "c=99999999999", "d=4"),
+                rejections);
+
+        assertEquals(List.of(new Setting("a", 1), new Setting("b", 2), new Setting("d", 4)), settings);
+        assertEquals(2, rejections.count());
+        assertEquals(1, rejections.samples().size());
+    }
+
+    @Test
+    public void rejectedLinesAreRecordedWithTheirLineNumbers() throws IOException {
+        Path path = Files.createTempFile("mariko", ".txt");
+        path.toFile().deleteOnExit();
+        Files.writeString(path, "a=1\nnonsense\nb=2\n\nc=3\n", StandardCharsets.UTF_8);
+
+        var context = new InterpretationContext();
+        var expected = List.of(new Setting("a", 1), new Setting("b", 2), new Setting("c", 3));
+        var expectedRejections = List.of(new Rejections.Rejection(2, "nonsense"), new Rejections.Rejection(4, ""));
+
+        var streamed = new Rejections();
+        try (var settings = context.interpretLines(Setting.class, path, streamed)) {
+            assertEquals(expected, settings.toList());
+        }
+        assertEquals(expectedRejections, streamed.samples());
+
+        var collected = new Rejections();
+        assertEquals(expected, context.interpretAll(Setting.class, path, collected));
+        assertEquals(expectedRejections, collected.samples());
+    }
+}
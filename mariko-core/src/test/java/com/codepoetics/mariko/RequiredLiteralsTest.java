@@ -0,0 +1,82 @@
+package com.codepoetics.mariko;
+
+import com.codepoetics.mariko.api.FromPattern;
+import com.codepoetics.mariko.reflection.RequiredLiterals;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class RequiredLiteralsTest {
+
+    @FromPattern("Item #(\\d+) is at position (.*)")
+    public record ItemPosition(int item, String position) { }
+
+    private static RequiredLiterals literalsOf(String regex) {
+        return RequiredLiterals.of(Pattern.compile(regex));
+    }
+
+    @Test
+    public void extractsPrefixInfixesAndSuffix() {
+        assertEquals(new RequiredLiterals("Item #", List.of(" is at position "), ""),
+                literalsOf("Item #(\\d+) is at position (.*)"));
+        assertEquals(new RequiredLiterals("cpy ", List.of(" "), ""),
+                literalsOf("cpy (.*) ([a-z])"));
+        assertEquals(new RequiredLiterals("(", List.of(" + "), ")"),
+                literalsOf("\\((.*) \\+ (.*)\\)"));
+        assertEquals(new RequiredLiterals("exact", List.of(), ""),
+                literalsOf("^exact$"));
+    }
+
+    @Test
+    public void quantifiedCharactersAreOnlyRequiredIfTheyMustAppear() {
+        assertEquals(new RequiredLiterals("ab", List.of("d"), "f"), literalsOf("abc?de*f"));
+        assertEquals(new RequiredLiterals("ab", List.of("d"), ""), literalsOf("abc{0,2}d\\d"));
+        assertEquals(new RequiredLiterals("abc", List.of(), ""), literalsOf("abc{2}\\d"));
+        assertEquals(new RequiredLiterals("a", List.of(), "b"), literalsOf("a+b"));
+    }
+
+    @Test
+    public void patternsWithoutSafeLiteralsHaveNone() {
+        assertEquals(RequiredLiterals.NONE, literalsOf("abc|def"));
+        assertEquals(RequiredLiterals.NONE, literalsOf("(?i)abc"));
+        assertEquals(RequiredLiterals.NONE, RequiredLiterals.of(Pattern.compile("abc", Pattern.CASE_INSENSITIVE)));
+        assertEquals(RequiredLiterals.NONE, literalsOf("\\Qa.b\\E"));
+        assertEquals(RequiredLiterals.NONE, literalsOf("(a)b\\1"));
+    }
+
+    @Test
+    public void literalsNeverRejectMatchingInput() {
+        var cases = Map.of(
+                "[]x]y\\p{Lu}z", "]yAz",
+                "a(b|c)*d\\.e", "abcbd.e",
+                "x\\u0041\\x{42}y", "xABy",
+                "a(?:b)c", "abc",
+                "aaa(\\d+)aaa", "aaa1aaa",
+                "ab(?=c)cd", "abcd");
+
+        cases.forEach((regex, input) -> {
+            assertTrue(Pattern.compile(regex).matcher(input).matches());
+            assertTrue(literalsOf(regex).mayMatch(input));
+        });
+
+        assertFalse(literalsOf("aaa(\\d*)aaa").mayMatch("aaaaa"));
+    }
+
+    @Test
+    public void rejectionsAreCountedByPattern() {
+        var context = new InterpretationContext();
+        var interpreter = context.makeInterpreter(ItemPosition.class);
+
+        assertEquals(new ItemPosition(3, "home"), interpreter.interpret("Item #3 is at position home"));
+        assertTrue(interpreter.tryInterpret("Item #3 is somewhere else").isEmpty());
+        assertTrue(interpreter.tryInterpret("Widget #3 is at position home").isEmpty());
+
+        assertEquals(Map.of("Item #(\\d+) is at position (.*)", 2L), context.prefilterRejections());
+    }
+}
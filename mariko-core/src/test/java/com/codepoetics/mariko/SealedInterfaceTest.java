@@ -5,6 +5,7 @@ import org.junit.jupiter.api.Test;
 
 import static com.codepoetics.mariko.Interpretation.interpret;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public class SealedInterfaceTest {
 
@@ -27,4 +28,45 @@ public class SealedInterfaceTest {
         assertEquals(new PasswordOperation.Substitute('c', 4),
                 interpret(PasswordOperation.class, "Substitute 'c' for the character in position 4"));
     }
+
+    public sealed interface Token permits Token.Keyword, Token.Pair, Token.Word {
+
+        @FromPattern("(?i)(let|in)")
+        record Keyword(String keyword) implements Token { }
+
+        @FromPattern("(\\w+)=(\\w+)")
+        record Pair(String key, String value) implements Token { }
+
+        @FromPattern("(\\w+)")
+        record Word(String word) implements Token { }
+    }
+
+    public sealed interface Run permits Run.Repeated, Run.Mixed {
+
+        @FromPattern("(\\w)\\1+")
+        record Repeated(char character) implements Run { }
+
+        @FromPattern("(\\w+)")
+        record Mixed(String characters) implements Run { }
+    }
+
+    @Test
+    public void firstMatchingPermittedSubclassIsSelectedInDeclarationOrder() {
+        var interpreter = new InterpretationContext().makeInterpreter(Token.class);
+        assertTrue(interpreter instanceof AlternationInstanceBuilderInterpreter);
+
+        assertEquals(new Token.Keyword("LET"), interpreter.interpret("LET"));
+        assertEquals(new Token.Pair("in", "b"), interpreter.interpret("in=b"));
+        assertEquals(new Token.Word("letter"), interpreter.interpret("letter"));
+        assertTrue(interpreter.tryInterpret("a=b=c").isEmpty());
+    }
+
+    @Test
+    public void patternsWithBackReferencesAreTriedInTurn() {
+        var interpreter = new InterpretationContext().makeInterpreter(Run.class);
+        assertTrue(interpreter instanceof FirstMatchingInstanceBuilderInterpreter);
+
+        assertEquals(new Run.Repeated('a'), interpreter.interpret("aaa"));
+        assertEquals(new Run.Mixed("aab"), interpreter.interpret("aab"));
+    }
 }
@@ -2,7 +2,9 @@ package com.codepoetics.mariko.kotlin
 
 import com.codepoetics.mariko.InterpretationContext
 import com.codepoetics.mariko.api.Interpreter
+import java.nio.file.Path
 import java.util.*
+import java.util.stream.Stream
 
 inline fun <reified T : Any> interpreter(): Interpreter<T> =
     InterpretationContext.DEFAULT.makeInterpreter(T::class.java)
@@ -14,16 +16,25 @@ inline fun <reified T : Any> String.interpret(): T =
     interpreter<T>().interpret(this)
 
 inline fun <reified T : Any> Iterable<String>.interpret(): List<T> =
-    map(interpreter<T>()::interpret)
+    interpreter<T>().let { interpreter -> map { interpreter.interpret(it) } }
 
 inline fun <reified T : Any> Iterable<String>.interpret(pattern: String): List<T> =
-    map(interpreter<T>(pattern)::interpret)
+    interpreter<T>(pattern).let { interpreter -> map { interpreter.interpret(it) } }
 
 inline fun <reified T : Any> Sequence<String>.interpret(): Sequence<T> =
-    map(interpreter<T>()::interpret)
+    interpreter<T>().let { interpreter -> map { interpreter.interpret(it) } }
 
 inline fun <reified T : Any> Sequence<String>.interpret(pattern: String): Sequence<T> =
-    map(interpreter<T>(pattern)::interpret)
+    interpreter<T>(pattern).let { interpreter -> map { interpreter.interpret(it) } }
+
+inline fun <reified T : Any> Path.interpretLines(): Stream<T> =
+    InterpretationContext.DEFAULT.interpretLines(T::class.java, this)
+
+inline fun <reified T : Any> List<CharSequence>.interpretAll(): List<T> =
+    InterpretationContext.DEFAULT.interpretAll(T::class.java, this)
+
+inline fun <reified T : Any> Path.interpretAll(): List<T> =
+    InterpretationContext.DEFAULT.interpretAll(T::class.java, this)
 
 class InterpretationContextScope(val context: InterpretationContext) {
     inline fun <reified T : Any> add(crossinline interpreter: (String) -> T?) {
@@ -39,16 +50,22 @@ class InterpretationContextScope(val context: InterpretationContext) {
     inline fun <reified T : Any> String.interpret(): T = interpreter<T>().interpret(this)
 
     inline fun <reified T : Any> Iterable<String>.interpret(): List<T> =
-        map(interpreter<T>()::interpret)
+        interpreter<T>().let { interpreter -> map { interpreter.interpret(it) } }
 
     inline fun <reified T : Any> Iterable<String>.interpret(pattern: String): List<T> =
-        map(interpreter<T>(pattern)::interpret)
+        interpreter<T>(pattern).let { interpreter -> map { interpreter.interpret(it) } }
 
     inline fun <reified T : Any> Sequence<String>.interpret(): Sequence<T> =
-        map(interpreter<T>()::interpret)
+        interpreter<T>().let { interpreter -> map { interpreter.interpret(it) } }
 
     inline fun <reified T : Any> Sequence<String>.interpret(pattern: String): Sequence<T> =
-        map(interpreter<T>(pattern)::interpret)
+        interpreter<T>(pattern).let { interpreter -> map { interpreter.interpret(it) } }
+
+    inline fun <reified T : Any> List<CharSequence>.interpretAll(): List<T> =
+        context.interpretAll(T::class.java, this)
+
+    inline fun <reified T : Any> Path.interpretAll(): List<T> =
+        context.interpretAll(T::class.java, this)
 }
 
 inline fun <R> inContext(context: InterpretationContext, block: InterpretationContextScope.() -> R): R
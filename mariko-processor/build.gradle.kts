@@ -0,0 +1,40 @@
+plugins {
+    java
+    `maven-publish`
+}
+
+group = "com.codepoetics"
+version = "1.0-SNAPSHOT"
+
+repositories {
+    mavenCentral()
+}
+
+dependencies {
+    testImplementation(project(":mariko-core"))
+    testAnnotationProcessor(sourceSets["main"].output)
+
+    testImplementation(platform("org.junit:junit-bom:5.10.0"))
+    testImplementation("org.junit.jupiter:junit-jupiter")
+}
+
+tasks.test {
+    useJUnitPlatform()
+}
+
+java {
+    targetCompatibility = JavaVersion.VERSION_17
+    sourceCompatibility = JavaVersion.VERSION_17
+}
+
+publishing {
+    publications {
+        create<MavenPublication>("maven") {
+            groupId = "com.codepoetics"
+            artifactId = "mariko-processor"
+            version = "1.0-SNAPSHOT"
+
+            from(components["java"])
+        }
+    }
+}
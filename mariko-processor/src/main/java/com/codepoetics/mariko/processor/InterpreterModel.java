@@ -0,0 +1,77 @@
+package com.codepoetics.mariko.processor;
+
+import java.util.List;
+
+/**
+ * What the processor has learned about a class for which it will generate an interpreter.
+ */
+sealed interface InterpreterModel permits InterpreterModel.BuilderTarget, InterpreterModel.SealedTarget {
+
+    String packageName();
+    String targetName();
+    String generatedSimpleName();
+
+    default String generatedName() {
+        return packageName().isEmpty() ? generatedSimpleName() : packageName() + "." + generatedSimpleName();
+    }
+
+    /**
+     * A class built by a constructor and/or static builder methods, each with its own pattern.
+     */
+    record BuilderTarget(
+            String packageName,
+            String targetName,
+            String generatedSimpleName,
+            List<Builder> builders) implements InterpreterModel { }
+
+    /**
+     * A sealed class or interface, all of whose permitted subclasses have generated interpreters.
+     */
+    record SealedTarget(
+            String packageName,
+            String targetName,
+            String generatedSimpleName,
+            List<String> permittedSubclassNames) implements InterpreterModel { }
+
+    /**
+     * @param pattern The regular expression the input must match
+     * @param groupCount The number of capturing groups in the pattern
+     * @param invocation The constructor ("new a.b.C") or static method ("a.b.C.of") to call
+     * @param description How the invocation is described in error messages
+     * @param parameters The parameters of the constructor or method
+     */
+    record Builder(
+            String pattern,
+            int groupCount,
+            String invocation,
+            String description,
+            List<Parameter> parameters) {
+
+        int groupFor(int parameterIndex) {
+            return groupCount == 0 ? 0 : parameterIndex + 1;
+        }
+    }
+
+    enum ParameterKind {
+        /** A primitive, parsed directly unless the context has a replacement interpreter for it. */
+        PRIMITIVE,
+        /** Any other single value, including a String, interpreted by the context's interpreter for its class. */
+        SCALAR,
+        /** A List, split by a separator, whose items are interpreted by the context's interpreter for their class. */
+        LIST
+    }
+
+    /**
+     * @param kind How the parameter's value is obtained
+     * @param typeName The parameter's type, or the item type for lists, as a primitive or canonical class name
+     * @param boxedTypeName The boxed form of typeName, for use as a type argument
+     * @param separator The separator for list items, or null
+     * @param pattern A parameter-level override pattern, or null
+     */
+    record Parameter(
+            ParameterKind kind,
+            String typeName,
+            String boxedTypeName,
+            String separator,
+            String pattern) { }
+}
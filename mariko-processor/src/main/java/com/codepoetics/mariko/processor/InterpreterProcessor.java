@@ -0,0 +1,360 @@
+package com.codepoetics.mariko.processor;
+
+import com.codepoetics.mariko.processor.InterpreterModel.Builder;
+import com.codepoetics.mariko.processor.InterpreterModel.BuilderTarget;
+import com.codepoetics.mariko.processor.InterpreterModel.Parameter;
+import com.codepoetics.mariko.processor.InterpreterModel.ParameterKind;
+import com.codepoetics.mariko.processor.InterpreterModel.SealedTarget;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.*;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.type.WildcardType;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import javax.tools.StandardLocation;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.*;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * Generates an interpreter class for each Java class which can be interpreted using {@code @FromPattern}
+ * annotations, and registers the generated classes as services so that an {@code InterpretationContext} can find
+ * them without reflecting over the classes themselves.
+ *
+ * <p>A class is only generated for when the processor can reproduce everything the reflective interpreter
+ * would do for it: otherwise it is left alone, and interpreted by reflection at runtime as before.</p>
+ */
+@SupportedAnnotationTypes(InterpreterProcessor.FROM_PATTERN)
+public final class InterpreterProcessor extends AbstractProcessor {
+
+    static final String FROM_PATTERN = "com.codepoetics.mariko.api.FromPattern";
+    static final String FROM_LIST = "com.codepoetics.mariko.api.FromList";
+
+    private static final String SERVICE_FILE = "META-INF/services/com.codepoetics.mariko.GeneratedInterpreter";
+    private static final String KOTLIN_METADATA = "kotlin.Metadata";
+    private static final String DEFAULT_LIST_SEPARATOR = ",\\s*";
+
+    private static final Map<String, String> BOXED_TO_PRIMITIVE = Map.of(
+            "java.lang.Integer", "int",
+            "java.lang.Long", "long",
+            "java.lang.Short", "short",
+            "java.lang.Boolean", "boolean",
+            "java.lang.Character", "char",
+            "java.lang.Byte", "byte",
+            "java.lang.Float", "float",
+            "java.lang.Double", "double");
+
+    private final Set<String> generatedClassNames = new LinkedHashSet<>();
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        if (roundEnv.processingOver()) {
+            writeServiceFile();
+            return false;
+        }
+
+        TypeElement fromPattern = processingEnv.getElementUtils().getTypeElement(FROM_PATTERN);
+        if (fromPattern == null) return false;
+
+        Set<TypeElement> candidates = new LinkedHashSet<>();
+        for (Element element : roundEnv.getElementsAnnotatedWith(fromPattern)) {
+            if (element.getKind() == ElementKind.METHOD) {
+                candidates.add((TypeElement) element.getEnclosingElement());
+            } else if (element instanceof TypeElement type) {
+                candidates.add(type);
+            }
+        }
+
+        Map<String, InterpreterModel> targets = new LinkedHashMap<>();
+        for (TypeElement candidate : candidates) {
+            var target = analyseBuilderTarget(candidate);
+            if (target != null) targets.put(candidate.getQualifiedName().toString(), target);
+        }
+        addSealedTargets(targets);
+
+        for (InterpreterModel target : targets.values()) {
+            write(target);
+        }
+        return false;
+    }
+
+    private BuilderTarget analyseBuilderTarget(TypeElement type) {
+        if (!isGeneratable(type) || type.getModifiers().contains(Modifier.SEALED)) return null;
+
+        String packageName = packageOf(type).getQualifiedName().toString();
+        String targetName = type.getQualifiedName().toString();
+        List<Builder> builders = new ArrayList<>();
+
+        String classLevelPattern = annotationValue(type, FROM_PATTERN);
+        if (classLevelPattern != null) {
+            List<ExecutableElement> constructors = ElementFilter.constructorsIn(type.getEnclosedElements());
+            if (constructors.size() == 1) {
+                if (type.getModifiers().contains(Modifier.ABSTRACT)
+                        || type.getKind() != ElementKind.CLASS && type.getKind() != ElementKind.RECORD) {
+                    return null;
+                }
+                var builder = analyseBuilder(type, constructors.get(0), classLevelPattern,
+                        "new " + targetName, "constructor of " + targetName);
+                if (builder == null) return null;
+                builders.add(builder);
+            }
+        }
+
+        for (ExecutableElement method : ElementFilter.methodsIn(type.getEnclosedElements())) {
+            String pattern = annotationValue(method, FROM_PATTERN);
+            if (pattern == null
+                    || !method.getModifiers().contains(Modifier.STATIC)
+                    || !isSameClass(method.getReturnType(), type)) {
+                continue;
+            }
+            if (!method.getTypeParameters().isEmpty()) return null;
+
+            var builder = analyseBuilder(type, method, pattern,
+                    targetName + "." + method.getSimpleName(), "method " + targetName + "." + method.getSimpleName());
+            if (builder == null) return null;
+            builders.add(builder);
+        }
+
+        if (builders.isEmpty()) return null;
+
+        return new BuilderTarget(packageName, targetName, generatedSimpleName(type, packageName), builders);
+    }
+
+    private Builder analyseBuilder(TypeElement type, ExecutableElement executable, String pattern,
+                                   String invocation, String description) {
+        if (executable.getModifiers().contains(Modifier.PRIVATE)) return null;
+
+        int groupCount;
+        try {
+            groupCount = Pattern.compile(pattern).matcher("").groupCount();
+        } catch (PatternSyntaxException e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.WARNING,
+                    "Invalid pattern for %s: %s".formatted(description, e.getMessage()), executable);
+            return null;
+        }
+
+        int parameterCount = executable.getParameters().size();
+        // Left to the reflective interpreter, which reports the mismatch when input is interpreted.
+        if (groupCount == 0 ? parameterCount != 1 : groupCount != parameterCount) return null;
+
+        List<Parameter> parameters = new ArrayList<>();
+        for (VariableElement parameter : executable.getParameters()) {
+            var analysed = analyseParameter(parameter, packageOf(type));
+            if (analysed == null) return null;
+            parameters.add(analysed);
+        }
+
+        return new Builder(pattern, groupCount, invocation, description, parameters);
+    }
+
+    private Parameter analyseParameter(VariableElement parameter, PackageElement fromPackage) {
+        TypeMirror type = parameter.asType();
+        String pattern = annotationValue(parameter, FROM_PATTERN);
+
+        if (type.getKind().isPrimitive()) {
+            String primitiveName = type.toString();
+            String boxedName = processingEnv.getTypeUtils()
+                    .boxedClass(processingEnv.getTypeUtils().getPrimitiveType(type.getKind()))
+                    .getQualifiedName().toString();
+            return pattern == null
+                    ? new Parameter(ParameterKind.PRIMITIVE, primitiveName, boxedName, null, null)
+                    : new Parameter(ParameterKind.SCALAR, primitiveName, boxedName, null, pattern);
+        }
+
+        if (type.getKind() != TypeKind.DECLARED) return null;
+
+        DeclaredType declaredType = (DeclaredType) type;
+        TypeElement element = (TypeElement) declaredType.asElement();
+        String name = element.getQualifiedName().toString();
+
+        if (name.equals("java.util.List")) {
+            return analyseListParameter(parameter, declaredType, pattern, fromPackage);
+        }
+
+        if (!declaredType.getTypeArguments().isEmpty() || !isAccessibleFrom(element, fromPackage)) return null;
+
+        return new Parameter(ParameterKind.SCALAR, name, name, null, pattern);
+    }
+
+    private Parameter analyseListParameter(VariableElement parameter, DeclaredType listType, String pattern,
+                                           PackageElement fromPackage) {
+        if (listType.getTypeArguments().size() != 1) return null;
+        // Compact lists are backed by primitive arrays, and lazy lists by views over the input, which are left to
+        // the reflective interpreter.
+        if (Boolean.TRUE.equals(annotationElement(parameter, FROM_LIST, "compact"))) return null;
+        if (Boolean.TRUE.equals(annotationElement(parameter, FROM_LIST, "lazy"))) return null;
+
+        TypeMirror itemType = listType.getTypeArguments().get(0);
+        if (itemType instanceof WildcardType wildcard) {
+            itemType = wildcard.getExtendsBound();
+            if (itemType == null) return null;
+        }
+        if (itemType.getKind() != TypeKind.DECLARED) return null;
+
+        DeclaredType declaredItemType = (DeclaredType) itemType;
+        TypeElement itemElement = (TypeElement) declaredItemType.asElement();
+        if (!declaredItemType.getTypeArguments().isEmpty() || !isAccessibleFrom(itemElement, fromPackage)) {
+            return null;
+        }
+
+        String boxedName = itemElement.getQualifiedName().toString();
+        String itemName = BOXED_TO_PRIMITIVE.getOrDefault(boxedName, boxedName);
+        String separator = annotationValue(parameter, FROM_LIST);
+
+        return new Parameter(
+                ParameterKind.LIST,
+                itemName,
+                boxedName,
+                separator == null ? DEFAULT_LIST_SEPARATOR : separator,
+                pattern);
+    }
+
+    /*
+     * Sealed classes and interfaces are generated for once all their permitted subclasses are, repeating until no
+     * more can be added so that sealed hierarchies nested within sealed hierarchies are covered.
+     */
+    private void addSealedTargets(Map<String, InterpreterModel> targets) {
+        boolean added;
+        do {
+            added = false;
+            for (TypeElement parent : sealedSupertypesOf(targets)) {
+                String parentName = parent.getQualifiedName().toString();
+                if (targets.containsKey(parentName) || !isGeneratable(parent)) continue;
+
+                List<String> permittedSubclassNames = new ArrayList<>();
+                for (TypeMirror permitted : parent.getPermittedSubclasses()) {
+                    permittedSubclassNames.add(
+                            ((TypeElement) ((DeclaredType) permitted).asElement()).getQualifiedName().toString());
+                }
+                if (permittedSubclassNames.isEmpty() || !targets.keySet().containsAll(permittedSubclassNames)) continue;
+
+                String packageName = packageOf(parent).getQualifiedName().toString();
+                targets.put(parentName, new SealedTarget(
+                        packageName,
+                        parentName,
+                        generatedSimpleName(parent, packageName),
+                        permittedSubclassNames));
+                added = true;
+            }
+        } while (added);
+    }
+
+    private Set<TypeElement> sealedSupertypesOf(Map<String, InterpreterModel> targets) {
+        Set<TypeElement> result = new LinkedHashSet<>();
+        for (String targetName : targets.keySet()) {
+            TypeElement target = processingEnv.getElementUtils().getTypeElement(targetName);
+            for (TypeMirror supertype : processingEnv.getTypeUtils().directSupertypes(target.asType())) {
+                if (supertype instanceof DeclaredType declared
+                        && declared.asElement() instanceof TypeElement element
+                        && element.getModifiers().contains(Modifier.SEALED)) {
+                    result.add(element);
+                }
+            }
+        }
+        return result;
+    }
+
+    private boolean isGeneratable(TypeElement type) {
+        if (type.getKind() == ElementKind.ENUM
+                || !type.getTypeParameters().isEmpty()
+                || hasAnnotation(type, KOTLIN_METADATA)
+                || !isAccessibleFrom(type, packageOf(type))) {
+            return false;
+        }
+
+        return switch (type.getNestingKind()) {
+            case TOP_LEVEL -> true;
+            case MEMBER -> type.getKind() != ElementKind.CLASS || type.getModifiers().contains(Modifier.STATIC);
+            default -> false;
+        };
+    }
+
+    private boolean isAccessibleFrom(TypeElement type, PackageElement fromPackage) {
+        boolean samePackage = packageOf(type).equals(fromPackage);
+        for (Element element = type; element instanceof TypeElement; element = element.getEnclosingElement()) {
+            Set<Modifier> modifiers = element.getModifiers();
+            if (modifiers.contains(Modifier.PRIVATE)) return false;
+            if (!samePackage && !modifiers.contains(Modifier.PUBLIC)) return false;
+        }
+        return true;
+    }
+
+    private boolean isSameClass(TypeMirror type, TypeElement element) {
+        var types = processingEnv.getTypeUtils();
+        return types.isSameType(types.erasure(type), types.erasure(element.asType()));
+    }
+
+    private PackageElement packageOf(Element element) {
+        return processingEnv.getElementUtils().getPackageOf(element);
+    }
+
+    private static String generatedSimpleName(TypeElement type, String packageName) {
+        String qualifiedName = type.getQualifiedName().toString();
+        String nestedName = packageName.isEmpty() ? qualifiedName : qualifiedName.substring(packageName.length() + 1);
+        return nestedName.replace('.', '_') + "_MarikoInterpreter";
+    }
+
+    private static boolean hasAnnotation(Element element, String annotationName) {
+        return element.getAnnotationMirrors().stream()
+                .anyMatch(mirror -> ((TypeElement) mirror.getAnnotationType().asElement())
+                        .getQualifiedName().contentEquals(annotationName));
+    }
+
+    private static String annotationValue(Element element, String annotationName) {
+        return (String) annotationElement(element, annotationName, "value");
+    }
+
+    // The value given for an element of an annotation, or null if the annotation is absent or the element defaulted.
+    private static Object annotationElement(Element element, String annotationName, String elementName) {
+        for (AnnotationMirror mirror : element.getAnnotationMirrors()) {
+            if (!((TypeElement) mirror.getAnnotationType().asElement()).getQualifiedName().contentEquals(annotationName)) {
+                continue;
+            }
+            for (var entry : mirror.getElementValues().entrySet()) {
+                if (entry.getKey().getSimpleName().contentEquals(elementName)) {
+                    return entry.getValue().getValue();
+                }
+            }
+        }
+        return null;
+    }
+
+    private void write(InterpreterModel target) {
+        try (Writer writer = processingEnv.getFiler().createSourceFile(target.generatedName()).openWriter()) {
+            writer.write(new InterpreterWriter(target).write());
+            generatedClassNames.add(target.generatedName());
+        } catch (IOException e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+                    "Unable to write interpreter for %s: %s".formatted(target.targetName(), e.getMessage()));
+        }
+    }
+
+    private void writeServiceFile() {
+        if (generatedClassNames.isEmpty()) return;
+
+        try (Writer writer = processingEnv.getFiler()
+                .createResource(StandardLocation.CLASS_OUTPUT, "", SERVICE_FILE)
+                .openWriter()) {
+            for (String className : generatedClassNames) {
+                writer.write(className);
+                writer.write('\n');
+            }
+        } catch (IOException e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+                    "Unable to write %s: %s".formatted(SERVICE_FILE, e.getMessage()));
+        }
+    }
+}
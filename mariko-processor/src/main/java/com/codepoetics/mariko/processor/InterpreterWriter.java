@@ -0,0 +1,276 @@
+package com.codepoetics.mariko.processor;
+
+import com.codepoetics.mariko.processor.InterpreterModel.Builder;
+import com.codepoetics.mariko.processor.InterpreterModel.BuilderTarget;
+import com.codepoetics.mariko.processor.InterpreterModel.Parameter;
+import com.codepoetics.mariko.processor.InterpreterModel.ParameterKind;
+import com.codepoetics.mariko.processor.InterpreterModel.SealedTarget;
+
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Writes the source of a generated interpreter. All names are written fully-qualified, so that the generated
+ * source cannot clash with anything in the target's package.
+ */
+final class InterpreterWriter {
+
+    private static final String INTERPRETER = "com.codepoetics.mariko.api.Interpreter";
+    private static final String CONTEXT = "com.codepoetics.mariko.InterpretationContext";
+    private static final String GENERATED_INTERPRETER = "com.codepoetics.mariko.GeneratedInterpreter";
+    private static final String INTERPRETATION_EXCEPTION = "com.codepoetics.mariko.api.InterpretationException";
+    private static final String PATTERN = "java.util.regex.Pattern";
+    private static final String MATCHER = "java.util.regex.Matcher";
+    private static final String NULLABLE_INTERPRETER = "com.codepoetics.mariko.GeneratedNullableInterpreter";
+
+    private static final String PARSERS = "com.codepoetics.mariko.GeneratedParsers";
+
+    // How each primitive is parsed from group g of the matcher, when the built-in interpreter is in use, giving null
+    // if the group does not hold a value of its type.
+    private static final Map<String, String> PRIMITIVE_PARSERS = Map.of(
+            "int", PARSERS + ".intOrNull(input, matcher.start(%1$d), matcher.end(%1$d))",
+            "long", PARSERS + ".longOrNull(input, matcher.start(%1$d), matcher.end(%1$d))",
+            "short", PARSERS + ".shortOrNull(input, matcher.start(%1$d), matcher.end(%1$d))",
+            "byte", PARSERS + ".byteOrNull(input, matcher.start(%1$d), matcher.end(%1$d))",
+            "boolean", PARSERS + ".booleanOrNull(input, matcher.start(%1$d), matcher.end(%1$d))",
+            "char", PARSERS + ".charOrNull(input, matcher.start(%1$d), matcher.end(%1$d))",
+            "float", PARSERS + ".floatOrNull(input, matcher.start(%1$d), matcher.end(%1$d))",
+            "double", PARSERS + ".doubleOrNull(input, matcher.start(%1$d), matcher.end(%1$d))");
+
+    private final InterpreterModel target;
+    private final StringBuilder out = new StringBuilder();
+
+    InterpreterWriter(InterpreterModel target) {
+        this.target = target;
+    }
+
+    String write() {
+        if (!target.packageName().isEmpty()) {
+            line(0, "package %s;", target.packageName());
+            line(0, "");
+        }
+        line(0, "@javax.annotation.processing.Generated(\"%s\")", InterpreterProcessor.class.getName());
+        line(0, "public final class %s implements %s<%s> {", target.generatedSimpleName(), GENERATED_INTERPRETER, target.targetName());
+        line(0, "");
+        line(1, "@java.lang.Override");
+        line(1, "public java.lang.Class<%1$s> targetClass() {", target.targetName());
+        line(2, "return %s.class;", target.targetName());
+        line(1, "}");
+        line(0, "");
+        line(1, "@java.lang.Override");
+        line(1, "public %s<%s> create(%s context) {", INTERPRETER, target.targetName(), CONTEXT);
+        line(2, "return new Impl(context);");
+        line(1, "}");
+        line(0, "");
+
+        if (target instanceof BuilderTarget builderTarget) {
+            writeBuilderImpl(builderTarget);
+        } else {
+            writeSealedImpl((SealedTarget) target);
+        }
+
+        line(0, "}");
+        return out.toString();
+    }
+
+    private void writeBuilderImpl(BuilderTarget builderTarget) {
+        List<Builder> builders = builderTarget.builders();
+        Set<String> primitivesUsed = new LinkedHashSet<>();
+
+        line(1, "private static final class Impl extends %s<%s> {", NULLABLE_INTERPRETER, target.targetName());
+        line(0, "");
+        for (int b = 0; b < builders.size(); b++) {
+            line(2, "private static final %s PATTERN_%d = %s.compile(%s);", PATTERN, b, PATTERN, literal(builders.get(b).pattern()));
+            List<Parameter> parameters = builders.get(b).parameters();
+            for (int p = 0; p < parameters.size(); p++) {
+                if (parameters.get(p).kind() == ParameterKind.LIST) {
+                    line(2, "private static final %s SEPARATOR_%d_%d = %s.compile(%s);",
+                            PATTERN, b, p, PATTERN, literal(parameters.get(p).separator()));
+                }
+            }
+        }
+        line(0, "");
+
+        for (Builder builder : builders) {
+            for (Parameter parameter : builder.parameters()) {
+                if (parameter.kind() == ParameterKind.PRIMITIVE) primitivesUsed.add(parameter.typeName());
+            }
+        }
+        for (String primitive : primitivesUsed) {
+            line(2, "private final %s<%s> %sInterpreter;", INTERPRETER, boxedNameOf(builders, primitive), primitive);
+        }
+        forEachInterpretedParameter(builders, (b, p, parameter) ->
+                line(2, "private final %s<%s> interpreter_%d_%d;", INTERPRETER, parameter.boxedTypeName(), b, p));
+        line(0, "");
+
+        line(2, "Impl(%s context) {", CONTEXT);
+        for (String primitive : primitivesUsed) {
+            line(3, "this.%1$sInterpreter = context.hasBuiltInInterpreter(%1$s.class) ? null : context.makeInterpreter(%1$s.class);", primitive);
+        }
+        forEachInterpretedParameter(builders, (b, p, parameter) -> {
+            if (parameter.pattern() == null) {
+                line(3, "this.interpreter_%d_%d = context.makeInterpreter(%s.class);", b, p, parameter.typeName());
+            } else {
+                line(3, "this.interpreter_%d_%d = context.makeInterpreter(%s.class, %s);",
+                        b, p, parameter.typeName(), literal(parameter.pattern()));
+            }
+        });
+        line(2, "}");
+        line(0, "");
+
+        line(2, "@java.lang.Override");
+        line(2, "public %s interpretOrNull(java.lang.CharSequence input) {", target.targetName());
+        // As with interpreters built by reflection, a match whose values cannot all be interpreted falls through to
+        // the next builder.
+        for (int b = 0; b < builders.size(); b++) {
+            line(3, "%s matcher%d = PATTERN_%d.matcher(input);", MATCHER, b, b);
+            line(3, "if (matcher%d.matches()) {", b);
+            line(4, "%s result%d = build%d(input, matcher%d);", target.targetName(), b, b, b);
+            line(4, "if (result%d != null) return result%d;", b, b);
+            line(3, "}");
+        }
+        line(3, "return null;");
+        line(2, "}");
+
+        for (int b = 0; b < builders.size(); b++) {
+            writeBuildMethod(b, builders.get(b));
+        }
+
+        if (usesLists(builders)) {
+            line(0, "");
+            line(2, "private static <T> java.util.List<T> list(%s separator, java.lang.String input, %s<T> itemInterpreter) {", PATTERN, INTERPRETER);
+            line(3, "java.util.List<T> result = new java.util.ArrayList<>();");
+            line(3, "for (java.lang.String item : separator.split(input)) {");
+            line(4, "T value = %s.interpretOrNull(itemInterpreter, item);", PARSERS);
+            line(4, "if (value == null) return null;");
+            line(4, "result.add(value);");
+            line(3, "}");
+            line(3, "return result;");
+            line(2, "}");
+        }
+        line(1, "}");
+    }
+
+    private void writeBuildMethod(int b, Builder builder) {
+        line(0, "");
+        line(2, "private %s build%d(java.lang.CharSequence input, %s matcher) {", target.targetName(), b, MATCHER);
+        List<Parameter> parameters = builder.parameters();
+        // As with interpreters built by reflection, a group which took no part in the match gives no value.
+        for (int p = 0; p < parameters.size(); p++) {
+            int group = builder.groupFor(p);
+            line(3, "if (matcher.start(%d) < 0) return null;", group);
+            line(3, "var value%d = %s;", p, valueOf(b, p, parameters.get(p), group));
+            line(3, "if (value%d == null) return null;", p);
+        }
+
+        StringBuilder arguments = new StringBuilder();
+        for (int p = 0; p < parameters.size(); p++) {
+            if (p > 0) arguments.append(", ");
+            arguments.append("value").append(p);
+        }
+        line(3, "try {");
+        line(4, "return %s(%s);", builder.invocation(), arguments);
+        line(3, "} catch (java.lang.Exception e) {");
+        line(4, "throw new %s(%s + e.getMessage());", INTERPRETATION_EXCEPTION, literal("Failure invoking " + builder.description() + ": "));
+        line(3, "}");
+        line(2, "}");
+    }
+
+    private String valueOf(int b, int p, Parameter parameter, int group) {
+        return switch (parameter.kind()) {
+            case PRIMITIVE -> "(%sInterpreter == null ? %s : %s.interpretOrNull(%sInterpreter, matcher.group(%d)))".formatted(
+                    parameter.typeName(),
+                    PRIMITIVE_PARSERS.get(parameter.typeName()).formatted(group),
+                    PARSERS,
+                    parameter.typeName(),
+                    group);
+            case SCALAR -> "%s.interpretOrNull(interpreter_%d_%d, matcher.group(%d))".formatted(PARSERS, b, p, group);
+            case LIST -> "list(SEPARATOR_%1$d_%2$d, matcher.group(%3$d), interpreter_%1$d_%2$d)".formatted(b, p, group);
+        };
+    }
+
+    private void writeSealedImpl(SealedTarget sealedTarget) {
+        List<String> subclasses = sealedTarget.permittedSubclassNames();
+
+        line(1, "private static final class Impl extends %s<%s> {", NULLABLE_INTERPRETER, target.targetName());
+        line(0, "");
+        for (int i = 0; i < subclasses.size(); i++) {
+            line(2, "private final %s<%s> subclass%d;", INTERPRETER, subclasses.get(i), i);
+        }
+        line(0, "");
+        line(2, "Impl(%s context) {", CONTEXT);
+        for (int i = 0; i < subclasses.size(); i++) {
+            line(3, "this.subclass%d = context.makeInterpreter(%s.class);", i, subclasses.get(i));
+        }
+        line(2, "}");
+        line(0, "");
+        line(2, "@java.lang.Override");
+        line(2, "public %s interpretOrNull(java.lang.CharSequence input) {", target.targetName());
+        for (int i = 0; i < subclasses.size(); i++) {
+            line(3, "%s result%d = %s.interpretOrNull(subclass%d, input);", target.targetName(), i, PARSERS, i);
+            line(3, "if (result%d != null) return result%d;", i, i);
+        }
+        line(3, "return null;");
+        line(2, "}");
+        line(1, "}");
+    }
+
+    private interface ParameterVisitor {
+        void visit(int builderIndex, int parameterIndex, Parameter parameter);
+    }
+
+    // Visits the parameters which need an interpreter from the context.
+    private static void forEachInterpretedParameter(List<Builder> builders, ParameterVisitor visitor) {
+        for (int b = 0; b < builders.size(); b++) {
+            List<Parameter> parameters = builders.get(b).parameters();
+            for (int p = 0; p < parameters.size(); p++) {
+                Parameter parameter = parameters.get(p);
+                if (parameter.kind() == ParameterKind.SCALAR || parameter.kind() == ParameterKind.LIST) {
+                    visitor.visit(b, p, parameter);
+                }
+            }
+        }
+    }
+
+    private static boolean usesLists(List<Builder> builders) {
+        return builders.stream()
+                .flatMap(builder -> builder.parameters().stream())
+                .anyMatch(parameter -> parameter.kind() == ParameterKind.LIST);
+    }
+
+    private static String boxedNameOf(List<Builder> builders, String primitive) {
+        return builders.stream()
+                .flatMap(builder -> builder.parameters().stream())
+                .filter(parameter -> parameter.typeName().equals(primitive))
+                .findFirst()
+                .orElseThrow()
+                .boxedTypeName();
+    }
+
+    static String literal(String value) {
+        StringBuilder result = new StringBuilder("\"");
+        for (char c : value.toCharArray()) {
+            switch (c) {
+                case '"' -> result.append("\\\"");
+                case '\\' -> result.append("\\\\");
+                case '\n' -> result.append("\\n");
+                case '\r' -> result.append("\\r");
+                case '\t' -> result.append("\\t");
+                default -> {
+                    if (c < 0x20 || c > 0x7e) {
+                        result.append("\\u%04x".formatted((int) c));
+                    } else {
+                        result.append(c);
+                    }
+                }
+            }
+        }
+        return result.append('"').toString();
+    }
+
+    private void line(int indent, String format, Object... args) {
+        out.append("    ".repeat(indent)).append(args.length == 0 ? format : format.formatted(args)).append('\n');
+    }
+}
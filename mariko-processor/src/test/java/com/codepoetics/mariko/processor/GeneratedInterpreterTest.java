@@ -0,0 +1,187 @@
+package com.codepoetics.mariko.processor;
+
+import com.codepoetics.mariko.GeneratedNullableInterpreter;
+import com.codepoetics.mariko.InterpretationContext;
+import com.codepoetics.mariko.LinearPatternEngine;
+import com.codepoetics.mariko.api.FromList;
+import com.codepoetics.mariko.api.FromPattern;
+import com.codepoetics.mariko.api.InterpretationException;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class GeneratedInterpreterTest {
+
+    @FromPattern("\\((-?\\d+),\\s?(-?\\d+)\\)")
+    public record Point(long x, long y) { }
+
+    @FromPattern("Item #(\\d+) is at position (.*)")
+    public record ItemPosition(int itemId, Point position) { }
+
+    public enum Direction {
+        NORTH, SOUTH, EAST, WEST
+    }
+
+    public record Step(int distance, Direction direction) {
+        @FromPattern("(\\d+)m ((?i)north|south|east|west)")
+        public static Step of(int distance, Direction direction) {
+            return new Step(distance, direction);
+        }
+    }
+
+    @FromPattern("Go (.*)")
+    public record Route(@FromList(", then ") List<Step> steps) { }
+
+    public sealed interface Operand permits Operand.Register, Operand.Literal {
+        @FromPattern("[a-z]")
+        record Register(char name) implements Operand { }
+
+        @FromPattern("-?\\d+")
+        record Literal(int value) implements Operand { }
+    }
+
+    @FromPattern("(-?\\d+)%")
+    public record Percentage(int value) {
+        public Percentage {
+            if (value < 0 || value > 100) throw new IllegalArgumentException("Out of range: " + value);
+        }
+    }
+
+    @FromPattern("(\\d+)")
+    public record Count(int value) { }
+
+    public sealed interface Token permits Token.Number, Token.Word {
+        @FromPattern("(\\d+)")
+        record Number(int value) implements Token { }
+
+        @FromPattern("(.*)")
+        record Word(String text) implements Token { }
+    }
+
+    @FromPattern("(\\w+) (.*)")
+    public record Tagged(String tag, Count count) { }
+
+    @FromPattern("(a)?(b)")
+    public record Pair(String first, String second) { }
+
+    @Test
+    public void usesGeneratedInterpreters() {
+        var context = new InterpretationContext();
+
+        for (Class<?> targetClass : List.of(
+                Point.class, ItemPosition.class, Step.class, Route.class, Operand.class, Count.class, Token.class, Pair.class)) {
+            assertTrue(context.makeInterpreter(targetClass).getClass().getName().contains("_MarikoInterpreter"),
+                    "No generated interpreter used for " + targetClass);
+            assertTrue(context.makeInterpreter(targetClass) instanceof GeneratedNullableInterpreter,
+                    "Generated interpreter for " + targetClass + " does not return null on failure");
+        }
+    }
+
+    @Test
+    public void interpretsByReflectionWhileSettingsGeneratedInterpretersCannotHonourAreOn() {
+        for (var context : List.of(
+                new InterpretationContext().collectStats(),
+                new InterpretationContext().withPatternEngine(new LinearPatternEngine()),
+                new InterpretationContext().withMatchBudget(100_000),
+                new InterpretationContext().rejectExponentialPatterns(),
+                new InterpretationContext().adaptBuilderOrder(),
+                new InterpretationContext().lazyLists())) {
+            var interpreter = context.makeInterpreter(ItemPosition.class);
+
+            assertFalse(interpreter.getClass().getName().contains("_MarikoInterpreter"));
+            assertEquals(new ItemPosition(7, new Point(1, 2)), interpreter.interpret("Item #7 is at position (1, 2)"));
+        }
+    }
+
+    @Test
+    public void interpretsCharacterSequencesInPlace() {
+        var interpreter = (GeneratedNullableInterpreter<ItemPosition>) new InterpretationContext()
+                .makeInterpreter(ItemPosition.class);
+
+        assertEquals(new ItemPosition(7, new Point(1, 2)),
+                interpreter.interpretOrNull(new StringBuilder("Item #7 is at position (1, 2)")));
+        assertEquals(null, interpreter.interpretOrNull(new StringBuilder("Item #7 is nowhere")));
+    }
+
+    @Test
+    public void interpretsRecordsAndNestedRecords() {
+        var context = new InterpretationContext();
+
+        assertEquals(new ItemPosition(123, new Point(-15, 7)),
+                context.makeInterpreter(ItemPosition.class).interpret("Item #123 is at position (-15, 7)"));
+        assertEquals(Optional.empty(), context.makeInterpreter(Point.class).tryInterpret("(x, y)"));
+    }
+
+    @Test
+    public void interpretsListsOfStaticBuilderResults() {
+        assertEquals(new Route(List.of(new Step(10, Direction.NORTH), new Step(3, Direction.WEST))),
+                new InterpretationContext().makeInterpreter(Route.class).interpret("Go 10m North, then 3m west"));
+    }
+
+    @Test
+    public void interpretsSealedInterfaces() {
+        var interpreter = new InterpretationContext().makeInterpreter(Operand.class);
+
+        assertEquals(new Operand.Register('a'), interpreter.interpret("a"));
+        assertEquals(new Operand.Literal(-12), interpreter.interpret("-12"));
+    }
+
+    @Test
+    public void usesRegisteredInterpretersInPlaceOfBuiltInPrimitives() {
+        var context = new InterpretationContext()
+                .addInterpreter(long.class, s -> Optional.of(Long.parseLong(s) * 10));
+
+        assertEquals(new Point(10, -20), context.makeInterpreter(Point.class).interpret("(1, -2)"));
+    }
+
+    @Test
+    public void reportsConstructorFailuresAsInterpretationExceptions() {
+        assertThrows(InterpretationException.class, () ->
+                new InterpretationContext().makeInterpreter(Percentage.class).interpret("142%"));
+    }
+
+    @Test
+    public void valuesOutOfRangeFailToMatchAsWithReflection() {
+        var context = new InterpretationContext();
+
+        assertEquals(Optional.empty(), context.makeInterpreter(Count.class).tryInterpret("99999999999"));
+        assertEquals(context.makeInterpreter(Count.class, "(\\d+)").tryInterpret("99999999999"),
+                context.makeInterpreter(Count.class).tryInterpret("99999999999"));
+
+        assertEquals(Optional.empty(), context.makeInterpreter(Tagged.class).tryInterpret("count 99999999999"));
+        assertEquals(context.makeInterpreter(Tagged.class, "(\\w+) (.*)").tryInterpret("count 99999999999"),
+                context.makeInterpreter(Tagged.class).tryInterpret("count 99999999999"));
+    }
+
+    @Test
+    public void sealedInterfacesFallThroughValuesOutOfRange() {
+        var interpreter = new InterpretationContext().makeInterpreter(Token.class);
+
+        assertEquals(new Token.Number(42), interpreter.interpret("42"));
+        assertEquals(new Token.Word("99999999999"), interpreter.interpret("99999999999"));
+    }
+
+    @Test
+    public void groupsWhichTookNoPartInTheMatchFailToMatchAsWithReflection() {
+        var context = new InterpretationContext();
+
+        assertEquals(new Pair("a", "b"), context.makeInterpreter(Pair.class).interpret("ab"));
+        assertTrue(context.makeInterpreter(Pair.class).tryInterpret("b").isEmpty());
+        assertEquals(context.makeInterpreter(Pair.class, "(a)?(b)").tryInterpret("b"),
+                context.makeInterpreter(Pair.class).tryInterpret("b"));
+    }
+
+    @Test
+    public void usesRegisteredInterpretersForStrings() {
+        var context = new InterpretationContext()
+                .addInterpreter(String.class, s -> Optional.of(s.toUpperCase()));
+
+        assertEquals(new Pair("A", "B"), context.makeInterpreter(Pair.class).interpret("ab"));
+    }
+}
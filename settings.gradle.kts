@@ -4,3 +4,5 @@ plugins {
 rootProject.name = "mariko"
 include("mariko-core")
 include("mariko-kotlin")
+include("mariko-processor")
+include("mariko-benchmarks")